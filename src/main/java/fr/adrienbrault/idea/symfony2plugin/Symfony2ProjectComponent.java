@@ -1,6 +1,5 @@
 package fr.adrienbrault.idea.symfony2plugin;
 
-import com.intellij.openapi.Disposable;
 import com.intellij.openapi.diagnostic.Logger;
 import com.intellij.openapi.extensions.ExtensionPointName;
 import com.intellij.openapi.project.Project;
@@ -13,7 +12,6 @@ import fr.adrienbrault.idea.symfony2plugin.extension.ServiceContainerLoader;
 import fr.adrienbrault.idea.symfony2plugin.extension.ServiceContainerLoaderParameter;
 import fr.adrienbrault.idea.symfony2plugin.util.IdeHelper;
 import fr.adrienbrault.idea.symfony2plugin.util.ProjectUtil;
-import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -33,19 +31,6 @@ public class Symfony2ProjectComponent {
         }
     }
 
-    public static class ProjectCloseService implements Disposable {
-        private final Project project;
-
-        public ProjectCloseService(@NotNull Project project) {
-            this.project = project;
-        }
-
-        @Override
-        public void dispose() {
-            ServiceXmlParserFactory.cleanInstance(this.project);
-        }
-    }
-
     public static String HELP_URL = "http://symfony2-plugin.espend.de/";
     final private static Logger LOG = Logger.getInstance("Symfony-Plugin");
     private static final ExtensionPointName<ServiceContainerLoader> SERVICE_CONTAINER_POINT_NAME = new ExtensionPointName<>("fr.adrienbrault.idea.symfony2plugin.extension.ServiceContainerLoader");
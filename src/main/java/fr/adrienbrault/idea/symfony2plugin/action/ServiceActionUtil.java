@@ -32,6 +32,7 @@ import fr.adrienbrault.idea.symfony2plugin.util.SymfonyBundleUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.dict.ServiceUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.dict.SymfonyBundle;
 import fr.adrienbrault.idea.symfony2plugin.util.yaml.YamlHelper;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -156,9 +157,8 @@ public class ServiceActionUtil {
         // lower priority of services like "doctrine.orm.default_entity_manager"
         matchedContainer.sort(new SymfonyCreateService.ContainerServicePriorityNameComparator());
 
-        matchedContainer.sort((o1, o2) ->
-            Integer.compare(ServiceContainerUtil.getServiceUsage(phpClass.getProject(), o2.getName()), ServiceContainerUtil.getServiceUsage(phpClass.getProject(), o1.getName()))
-        );
+        Object2IntMap<String> usages = ServiceContainerUtil.getServiceUsages(phpClass.getProject());
+        matchedContainer.sort((o1, o2) -> Integer.compare(usages.getInt(o2.getName()), usages.getInt(o1.getName())));
 
         return matchedContainer.stream()
             .map(ContainerService::getName)
@@ -1,15 +1,12 @@
 package fr.adrienbrault.idea.symfony2plugin.config.component.parser;
 
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceContainerSnapshot;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceContainerXmlReader;
 import org.jetbrains.annotations.NotNull;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.xpath.*;
+import javax.xml.stream.XMLStreamException;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Collections;
@@ -21,55 +18,46 @@ import java.util.concurrent.ConcurrentHashMap;
  */
 public class ParameterServiceCollector {
 
+    /**
+     * "/container/parameters/parameter[@key]"
+     */
     @NotNull
     public static Map<String, String> collect(InputStream stream) {
-        try {
-            return collect(DocumentBuilderFactory.newInstance()
-                .newDocumentBuilder()
-                .parse(stream)
-            );
-        } catch (IOException | SAXException | ParserConfigurationException e) {
-            return Collections.emptyMap();
-        }
-    }
+        Map<String, String> parameterMap = new ConcurrentHashMap<>();
 
-    @NotNull
-    public static Map<String, String> collect(File file) {
         try {
-            return collect(DocumentBuilderFactory.newInstance()
-                .newDocumentBuilder()
-                .parse(file)
-            );
-        } catch (SAXException | IOException | ParserConfigurationException e) {
+            ServiceContainerXmlReader.read(stream, createVisitor(parameterMap));
+        } catch (XMLStreamException e) {
             return Collections.emptyMap();
         }
+
+        return parameterMap;
     }
 
     @NotNull
-    private static Map<String, String> collect(Document document) {
-
+    public static Map<String, String> collect(@NotNull ServiceContainerSnapshot snapshot) {
         Map<String, String> parameterMap = new ConcurrentHashMap<>();
+        snapshot.accept(createVisitor(parameterMap));
 
-        Object nodeList;
-        try {
-            XPath xpath = XPathFactory.newInstance().newXPath();
-            XPathExpression xPathExpr = xpath.compile("/container/parameters/parameter[@key]");
-            nodeList = xPathExpr.evaluate(document, XPathConstants.NODESET);
-        } catch (XPathExpressionException e) {
-            return Collections.emptyMap();
-        }
+        return parameterMap;
+    }
 
-        if(!(nodeList instanceof NodeList)) {
+    @NotNull
+    public static Map<String, String> collect(File file) {
+        try {
+            return collect(new FileInputStream(file));
+        } catch (IOException e) {
             return Collections.emptyMap();
         }
-
-        for (int i = 0; i < ((NodeList) nodeList).getLength(); i++) {
-            Element node = (Element) ((NodeList) nodeList).item(i);
-            String parameterValue = node.hasAttribute("type") && node.getAttribute("type").equals("collection") ?  "collection" : node.getTextContent();
-            parameterMap.put(node.getAttribute("key"), parameterValue);
-        }
-
-        return parameterMap;
     }
 
+    @NotNull
+    private static ServiceContainerXmlReader.Visitor createVisitor(@NotNull Map<String, String> parameterMap) {
+        return new ServiceContainerXmlReader.Visitor() {
+            @Override
+            public void visitParameter(@NotNull String key, @NotNull String value) {
+                parameterMap.put(key, value);
+            }
+        };
+    }
 }
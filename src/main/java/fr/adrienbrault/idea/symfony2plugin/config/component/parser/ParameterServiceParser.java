@@ -1,6 +1,9 @@
 package fr.adrienbrault.idea.symfony2plugin.config.component.parser;
 
 import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceContainerSnapshot;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceSnapshotParserInterface;
+import org.jetbrains.annotations.NotNull;
 
 import java.io.InputStream;
 import java.util.Map;
@@ -9,7 +12,7 @@ import java.util.concurrent.ConcurrentHashMap;
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
-public class ParameterServiceParser extends AbstractServiceParser {
+public class ParameterServiceParser extends AbstractServiceParser implements ServiceSnapshotParserInterface {
 
     protected Map<String, String> parameterMap = new ConcurrentHashMap<>();
 
@@ -22,6 +25,11 @@ public class ParameterServiceParser extends AbstractServiceParser {
         this.parameterMap.putAll(ParameterServiceCollector.collect(file));
     }
 
+    @Override
+    public void parser(@NotNull ServiceContainerSnapshot snapshot) {
+        this.parameterMap.putAll(ParameterServiceCollector.collect(snapshot));
+    }
+
     public Map<String, String> getParameterMap() {
         return parameterMap;
     }
@@ -15,6 +15,8 @@ public class ServiceMap {
 
     private Collection<String> ids;
 
+    private Set<String> lowerCaseIds;
+
     ServiceMap() {
         this.services = Collections.unmodifiableCollection(Collections.emptyList());
     }
@@ -38,6 +40,23 @@ public class ServiceMap {
         return this.ids = Collections.unmodifiableCollection(map);
     }
 
+    /**
+     * Case-insensitive as all other service name lookups
+     */
+    public boolean hasId(@NotNull String id) {
+        if(lowerCaseIds == null) {
+            Set<String> map = new HashSet<>();
+
+            services.forEach(service ->
+                map.add(service.getId().toLowerCase())
+            );
+
+            lowerCaseIds = map;
+        }
+
+        return lowerCaseIds.contains(id.toLowerCase());
+    }
+
     @NotNull
     public Collection<ServiceInterface> getServices() {
         return services;
@@ -2,20 +2,20 @@ package fr.adrienbrault.idea.symfony2plugin.dic;
 
 import fr.adrienbrault.idea.symfony2plugin.dic.container.ServiceInterface;
 import fr.adrienbrault.idea.symfony2plugin.dic.container.XmlService;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceContainerSnapshot;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceContainerXmlReader;
+import org.jetbrains.annotations.NotNull;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
@@ -23,26 +23,31 @@ import java.util.Map;
  */
 public class ServiceMapParser {
 
-    private DocumentBuilder documentBuilder;
+    /**
+     * Compiled container files are large, so the stream is read without building a document
+     */
+    public ServiceMap parse(InputStream stream) throws XMLStreamException {
+        Collection<XmlService> services = new ArrayList<>();
+        ServiceContainerXmlReader.read(stream, createVisitor(services));
 
-    public ServiceMapParser() throws ParserConfigurationException {
-        DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-        documentBuilder = dbFactory.newDocumentBuilder();
+        return createServiceMap(services);
     }
 
-    public ServiceMap parse(InputStream stream) throws IOException, SAXException {
-        return parse(documentBuilder.parse(stream));
+    public ServiceMap parse(@NotNull ServiceContainerSnapshot snapshot) {
+        Collection<XmlService> services = new ArrayList<>();
+        snapshot.accept(createVisitor(services));
+
+        return createServiceMap(services);
     }
 
-    public ServiceMap parse(File file) throws IOException, SAXException {
-        return parse(documentBuilder.parse(file));
+    public ServiceMap parse(File file) throws IOException, XMLStreamException {
+        return parse(new FileInputStream(file));
     }
 
     public ServiceMap parse(Document document) {
         NodeList servicesNodes = document.getElementsByTagName("service");
 
-        Map<String, ServiceInterface> services = new HashMap<>();
-        Map<String, ServiceInterface> aliases = new HashMap<>();
+        Collection<XmlService> services = new ArrayList<>();
 
         for (int i = 0; i < servicesNodes.getLength(); i++) {
             Node node = servicesNodes.item(i);
@@ -52,10 +57,33 @@ public class ServiceMapParser {
 
             // invalid service
             XmlService service = XmlService.createFromXml((Element) node);
-            if(service == null) {
-                continue;
+            if(service != null) {
+                services.add(service);
+            }
+        }
+
+        return createServiceMap(services);
+    }
+
+    @NotNull
+    private static ServiceContainerXmlReader.Visitor createVisitor(@NotNull Collection<XmlService> services) {
+        return new ServiceContainerXmlReader.Visitor() {
+            @Override
+            public void visitService(@NotNull Map<String, String> attributes, @NotNull Collection<String> tags) {
+                XmlService service = XmlService.createFromAttributes(attributes, tags);
+                if(service != null) {
+                    services.add(service);
+                }
             }
+        };
+    }
+
+    @NotNull
+    private static ServiceMap createServiceMap(@NotNull Collection<XmlService> xmlServices) {
+        Map<String, ServiceInterface> services = new HashMap<>();
+        Map<String, ServiceInterface> aliases = new HashMap<>();
 
+        for (XmlService service : xmlServices) {
             if(service.getAlias() == null) {
                 services.put(service.getId(), service);
             } else {
@@ -2,9 +2,12 @@ package fr.adrienbrault.idea.symfony2plugin.dic;
 
 import fr.adrienbrault.idea.symfony2plugin.config.dic.EventDispatcherSubscribedEvent;
 import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceContainerSnapshot;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceContainerXmlReader;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceSnapshotParserInterface;
+import org.jetbrains.annotations.NotNull;
 
+import javax.xml.stream.XMLStreamException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
@@ -14,7 +17,7 @@ import java.util.concurrent.ConcurrentHashMap;
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
-public class XmlEventParser extends AbstractServiceParser {
+public class XmlEventParser extends AbstractServiceParser implements ServiceSnapshotParserInterface {
 
     protected Map<String, String> list = new ConcurrentHashMap<>();
     protected List<EventDispatcherSubscribedEvent> events = new ArrayList<>();
@@ -25,21 +28,34 @@ public class XmlEventParser extends AbstractServiceParser {
     }
 
     public void parser(InputStream file) {
-        NodeList nodeList = this.parserer(file);
-
-        if(nodeList == null) {
-            return;
+        try {
+            ServiceContainerXmlReader.read(file, createVisitor());
+        } catch (XMLStreamException ignored) {
         }
+    }
 
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Element node = (Element) nodeList.item(i);
-            this.list.put(node.getAttribute("event"), node.getAttribute("name"));
-            if(((Element) node.getParentNode()).hasAttribute("class")) {
-                this.events.add(new EventDispatcherSubscribedEvent(node.getAttribute("event"), ((Element) node.getParentNode()).getAttribute("class"), null).setType(node.getAttribute("name")));
-            }
-
-        }
+    @Override
+    public void parser(@NotNull ServiceContainerSnapshot snapshot) {
+        snapshot.accept(createVisitor());
+    }
 
+    @NotNull
+    private ServiceContainerXmlReader.Visitor createVisitor() {
+        return new ServiceContainerXmlReader.Visitor() {
+            @Override
+            public void visitTag(@NotNull Map<String, String> serviceAttributes, @NotNull Map<String, String> tagAttributes) {
+                String event = tagAttributes.get("event");
+                if(event == null || !serviceAttributes.containsKey("id")) {
+                    return;
+                }
+
+                String name = tagAttributes.getOrDefault("name", "");
+                list.put(event, name);
+                if(serviceAttributes.containsKey("class")) {
+                    events.add(new EventDispatcherSubscribedEvent(event, serviceAttributes.get("class"), null).setType(name));
+                }
+            }
+        };
     }
 
     public Map<String, String> get() {
@@ -1,17 +1,17 @@
 package fr.adrienbrault.idea.symfony2plugin.dic;
 
 import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceContainerSnapshot;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceSnapshotParserInterface;
 import org.jetbrains.annotations.NotNull;
-import org.xml.sax.SAXException;
 
-import javax.xml.parsers.ParserConfigurationException;
-import java.io.IOException;
+import javax.xml.stream.XMLStreamException;
 import java.io.InputStream;
 
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
-public class XmlServiceParser extends AbstractServiceParser {
+public class XmlServiceParser extends AbstractServiceParser implements ServiceSnapshotParserInterface {
 
     @NotNull
     private ServiceMap serviceMap = new ServiceMap();
@@ -24,10 +24,15 @@ public class XmlServiceParser extends AbstractServiceParser {
     public void parser(InputStream file) {
         try {
             this.serviceMap = new ServiceMapParser().parse(file);
-        } catch (SAXException | IOException | ParserConfigurationException ignored) {
+        } catch (XMLStreamException ignored) {
         }
     }
 
+    @Override
+    public void parser(@NotNull ServiceContainerSnapshot snapshot) {
+        this.serviceMap = new ServiceMapParser().parse(snapshot);
+    }
+
     @NotNull
     public ServiceMap getServiceMap() {
         return serviceMap;
@@ -1,10 +1,13 @@
 package fr.adrienbrault.idea.symfony2plugin.dic;
 
 import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceContainerSnapshot;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceContainerXmlReader;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceSnapshotParserInterface;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
 
+import javax.xml.stream.XMLStreamException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -15,7 +18,7 @@ import java.util.concurrent.ConcurrentHashMap;
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
-public class XmlTagParser extends AbstractServiceParser {
+public class XmlTagParser extends AbstractServiceParser implements ServiceSnapshotParserInterface {
 
     protected Set<String> list = new HashSet<>();
     protected Map<String, ArrayList<String>> taggedClasses = new ConcurrentHashMap<>();
@@ -26,22 +29,33 @@ public class XmlTagParser extends AbstractServiceParser {
     }
 
     public void parser(InputStream file) {
-        NodeList nodeList = this.parserer(file);
-
-        if(nodeList == null) {
-            return;
+        try {
+            ServiceContainerXmlReader.read(file, createVisitor());
+        } catch (XMLStreamException ignored) {
         }
+    }
 
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Element node = (Element) nodeList.item(i);
-            String tagName = node.getAttribute("name");
-            this.list.add(tagName);
-            Element parentNode = (Element) node.getParentNode();
-            if(parentNode.hasAttribute("class")) {
-                this.addTaggedClass(tagName, parentNode.getAttribute("class"));
-            }
-        }
+    @Override
+    public void parser(@NotNull ServiceContainerSnapshot snapshot) {
+        snapshot.accept(createVisitor());
+    }
 
+    @NotNull
+    private ServiceContainerXmlReader.Visitor createVisitor() {
+        return new ServiceContainerXmlReader.Visitor() {
+            @Override
+            public void visitTag(@NotNull Map<String, String> serviceAttributes, @NotNull Map<String, String> tagAttributes) {
+                String tagName = tagAttributes.get("name");
+                if(tagName == null || !serviceAttributes.containsKey("id")) {
+                    return;
+                }
+
+                list.add(tagName);
+                if(serviceAttributes.containsKey("class")) {
+                    addTaggedClass(tagName, serviceAttributes.get("class"));
+                }
+            }
+        };
     }
 
 
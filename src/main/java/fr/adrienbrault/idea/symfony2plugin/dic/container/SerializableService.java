@@ -216,6 +216,34 @@ public class SerializableService implements ServiceSerializable {
         return this;
     }
 
+    /**
+     * Raw definition values without defaults applied; "null" means not defined. Needed for index serialization
+     */
+    @Nullable
+    public Boolean getPublicDefinition() {
+        return isPublic;
+    }
+
+    @Nullable
+    public Boolean getLazyDefinition() {
+        return isLazy;
+    }
+
+    @Nullable
+    public Boolean getAbstractDefinition() {
+        return isAbstract;
+    }
+
+    @Nullable
+    public Boolean getAutowireDefinition() {
+        return isAutowire;
+    }
+
+    @Nullable
+    public Boolean getDeprecatedDefinition() {
+        return isDeprecated;
+    }
+
     @Override
     public int hashCode() {
         return new HashCodeBuilder()
@@ -4,11 +4,11 @@ import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
 
-import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
+import java.util.*;
 
 /**
  * Create a service definition on a compiled debug xml file
@@ -115,8 +115,39 @@ public class XmlService implements ServiceInterface {
 
     @Nullable
     public static XmlService createFromXml(@NotNull Element node) {
+        Map<String, String> attributes = new HashMap<>();
+
+        NamedNodeMap nodeAttributes = node.getAttributes();
+        for (int i = 0; i < nodeAttributes.getLength(); i++) {
+            Node attribute = nodeAttributes.item(i);
+            attributes.put(attribute.getNodeName(), attribute.getNodeValue());
+        }
+
+        // <tag name="xml_type_tag"/>
+        Collection<String> myTags = new HashSet<>();
+        NodeList tags = node.getElementsByTagName("tag");
+        int numTags = tags.getLength();
+        for (int i = 0; i < numTags; i++) {
+            Element section = (Element) tags.item(i);
+
+            String name = section.getAttribute("name");
+            if (StringUtils.isNotBlank(name)) {
+                myTags.add(name);
+            }
+        }
+
+        return createFromAttributes(attributes, myTags);
+    }
+
+    /**
+     * Attributes of a "service" element, as provided by a streaming reader without any document
+     *
+     * @param tags tag names of the element and its inline services
+     */
+    @Nullable
+    public static XmlService createFromAttributes(@NotNull Map<String, String> attributes, @NotNull Collection<String> tags) {
         // empty id does not interest us
-        String id = node.getAttribute("id");
+        String id = attributes.get("id");
         if(StringUtils.isBlank(id)) {
             return null;
         }
@@ -142,35 +173,22 @@ public class XmlService implements ServiceInterface {
 
         XmlService xmlService = new XmlService(id);
 
-        String aClass = node.getAttribute("class");
+        String aClass = attributes.get("class");
         if(StringUtils.isNotBlank(aClass)) {
             xmlService.className = StringUtils.stripStart(aClass, "\\");
         }
 
-        String isPublic = node.getAttribute("public");
+        String isPublic = attributes.get("public");
         if("false".equalsIgnoreCase(isPublic)) {
             xmlService.isPublic = false;
         }
 
-        String alias = node.getAttribute("alias");
+        String alias = attributes.get("alias");
         if(StringUtils.isNotBlank(alias)) {
             xmlService.alias = alias;
         }
 
-        // <tag name="xml_type_tag"/>
-        Collection<String> myTags = new HashSet<>();
-        NodeList tags = node.getElementsByTagName("tag");
-        int numTags = tags.getLength();
-        for (int i = 0; i < numTags; i++) {
-            Element section = (Element) tags.item(i);
-
-            String name = section.getAttribute("name");
-            if (StringUtils.isNotBlank(name)) {
-                myTags.add(name);
-            }
-        }
-
-        xmlService.tags = myTags;
+        xmlService.tags = new HashSet<>(tags);
 
         return xmlService;
     }
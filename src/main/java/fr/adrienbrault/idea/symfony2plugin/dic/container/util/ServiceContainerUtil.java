@@ -30,11 +30,13 @@ import fr.adrienbrault.idea.symfony2plugin.dic.container.dict.ServiceTypeHint;
 import fr.adrienbrault.idea.symfony2plugin.dic.container.visitor.ServiceConsumer;
 import fr.adrienbrault.idea.symfony2plugin.stubs.ContainerCollectionResolver;
 import fr.adrienbrault.idea.symfony2plugin.stubs.ServiceIndexUtil;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.FileIndexCaches;
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.ContainerIdUsagesStubIndex;
 import fr.adrienbrault.idea.symfony2plugin.util.*;
 import fr.adrienbrault.idea.symfony2plugin.util.dict.ServiceUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.psi.PsiElementAssertUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.yaml.YamlHelper;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -65,6 +67,7 @@ public class ServiceContainerUtil {
 
     private static final Key<CachedValue<Collection<String>>> SYMFONY_COMPILED_TIMED_SERVICE_WATCHER = new Key<>("SYMFONY_COMPILED_TIMED_SERVICE_WATCHER");
     private static final Key<CachedValue<Collection<String>>> SYMFONY_COMPILED_SERVICE_WATCHER = new Key<>("SYMFONY_COMPILED_SERVICE_WATCHER");
+    private static final Key<Object2IntMap<String>> SYMFONY_SERVICE_USAGES = new Key<>("SYMFONY_SERVICE_USAGES");
 
     private static String[] LOWER_PRIORITY = new String[] {
         "debug", "default", "abstract", "inner", "chain", "decorate", "delegat"
@@ -870,14 +873,15 @@ public class ServiceContainerUtil {
      * Calculate usage as of given service id in project scope
      */
     public static int getServiceUsage(@NotNull Project project, @NotNull String id) {
-        int usage = 0;
-
-        List<Integer> values = FileBasedIndex.getInstance().getValues(ContainerIdUsagesStubIndex.KEY, id, GlobalSearchScope.allScope(project));
-        for (Integer integer : values) {
-            usage += integer;
-        }
+        return getServiceUsages(project).getInt(id);
+    }
 
-        return usage;
+    /**
+     * Usage of all service ids in project scope; build once per index change, so sorting does not hit the index per compare
+     */
+    @NotNull
+    public static Object2IntMap<String> getServiceUsages(@NotNull Project project) {
+        return FileIndexCaches.getIntegerSumCache(project, SYMFONY_SERVICE_USAGES, ContainerIdUsagesStubIndex.KEY, GlobalSearchScope.allScope(project));
     }
 
     /**
@@ -920,11 +924,11 @@ public class ServiceContainerUtil {
 
         List<String> myIds = new ArrayList<>(ids);
 
-        myIds.sort(new ServiceContainerUtil.ContainerServiceIdPriorityNameComparator());
+        Object2IntMap<String> usages = getServiceUsages(project);
 
-        myIds.sort((o1, o2) ->
-            Integer.compare(ServiceContainerUtil.getServiceUsage(project, o2), ServiceContainerUtil.getServiceUsage(project, o1))
-        );
+        // stable sort: priority names stay in front on same usage
+        myIds.sort(new ServiceContainerUtil.ContainerServiceIdPriorityNameComparator());
+        myIds.sort((o1, o2) -> Integer.compare(usages.getInt(o2), usages.getInt(o1)));
 
         return myIds;
     }
@@ -1,6 +1,7 @@
 package fr.adrienbrault.idea.symfony2plugin.doctrine.component;
 
 import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
+import org.jetbrains.annotations.NotNull;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
@@ -20,6 +21,11 @@ public class DocumentNamespacesParser extends AbstractServiceParser {
         return "/container/services/service[@id[starts-with(.,'doctrine_mongodb.odm.')] or @id[starts-with(.,'doctrine_couchdb.odm.')]]//call[@method='setDocumentNamespaces']//argument[@key]";
     }
 
+    @Override
+    protected boolean isServiceCandidate(@NotNull Map<String, String> serviceAttributes) {
+        return serviceAttributes.getOrDefault("id", "").startsWith("doctrine_mongodb.odm.") || serviceAttributes.getOrDefault("id", "").startsWith("doctrine_couchdb.odm.");
+    }
+
     public void parser(InputStream file) {
         NodeList nodeList = this.parserer(file);
 
@@ -1,6 +1,7 @@
 package fr.adrienbrault.idea.symfony2plugin.doctrine.component;
 
 import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
+import org.jetbrains.annotations.NotNull;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
@@ -20,6 +21,11 @@ public class EntityNamesServiceParser extends AbstractServiceParser {
         return "/container/services/service[@id[starts-with(.,'doctrine.orm.')]]//call[@method='setEntityNamespaces']//argument[@key]";
     }
 
+    @Override
+    protected boolean isServiceCandidate(@NotNull Map<String, String> serviceAttributes) {
+        return serviceAttributes.getOrDefault("id", "").startsWith("doctrine.orm.");
+    }
+
     public void parser(InputStream file) {
         NodeList nodeList = this.parserer(file);
 
@@ -1,10 +1,20 @@
 package fr.adrienbrault.idea.symfony2plugin.extension;
 
+import com.intellij.openapi.project.Project;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
 public interface RoutingLoader {
     void invoke(@NotNull RoutingLoaderParameter parameter);
+
+    /**
+     * Dependencies of the provided routes; they are cached until one of them changes. "null" invokes the loader on every call.
+     */
+    @Nullable
+    default Object[] getDependencies(@NotNull Project project) {
+        return null;
+    }
 }
@@ -1,9 +1,12 @@
 package fr.adrienbrault.idea.symfony2plugin.form.dict;
 
 import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceContainerSnapshot;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceContainerXmlReader;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceSnapshotParserInterface;
+import org.jetbrains.annotations.NotNull;
 
+import javax.xml.stream.XMLStreamException;
 import java.io.InputStream;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -11,7 +14,7 @@ import java.util.concurrent.ConcurrentHashMap;
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
-public class FormExtensionServiceParser extends AbstractServiceParser {
+public class FormExtensionServiceParser extends AbstractServiceParser implements ServiceSnapshotParserInterface {
 
     protected Map<String, String> formExtensions = new ConcurrentHashMap<>();
 
@@ -21,17 +24,28 @@ public class FormExtensionServiceParser extends AbstractServiceParser {
     }
 
     public void parser(InputStream file) {
-        NodeList nodeList = this.parserer(file);
-
-        if(nodeList == null) {
-            return;
+        try {
+            ServiceContainerXmlReader.read(file, createVisitor());
+        } catch (XMLStreamException ignored) {
         }
+    }
 
-        for (int i = 0; i < nodeList.getLength(); i++) {
-            Element node = (Element) nodeList.item(i);
-            formExtensions.put(node.getParentNode().getAttributes().getNamedItem("class").getTextContent(), node.getAttribute("alias"));
-        }
+    @Override
+    public void parser(@NotNull ServiceContainerSnapshot snapshot) {
+        snapshot.accept(createVisitor());
+    }
 
+    @NotNull
+    private ServiceContainerXmlReader.Visitor createVisitor() {
+        return new ServiceContainerXmlReader.Visitor() {
+            @Override
+            public void visitTag(@NotNull Map<String, String> serviceAttributes, @NotNull Map<String, String> tagAttributes) {
+                String className = serviceAttributes.get("class");
+                if(className != null && "form.type_extension".equals(tagAttributes.get("name"))) {
+                    formExtensions.put(className, tagAttributes.getOrDefault("alias", ""));
+                }
+            }
+        };
     }
 
     public Map<String, String> getFormExtensions() {
@@ -1,10 +1,12 @@
 package fr.adrienbrault.idea.symfony2plugin.form.dict;
 
 import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
+import org.jetbrains.annotations.NotNull;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
 import java.io.InputStream;
+import java.util.Map;
 
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
@@ -18,6 +20,11 @@ public class FormTypeServiceParser extends AbstractServiceParser {
         return "/container/services/service[@id='form.registry']//service[@class]/argument[@type='collection'][1]/argument[@key]";
     }
 
+    @Override
+    protected boolean isServiceCandidate(@NotNull Map<String, String> serviceAttributes) {
+        return "form.registry".equals(serviceAttributes.get("id"));
+    }
+
     public void parser(InputStream file) {
         NodeList nodeList = this.parserer(file);
 
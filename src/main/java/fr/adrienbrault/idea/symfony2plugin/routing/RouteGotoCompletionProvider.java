@@ -1,8 +1,9 @@
 package fr.adrienbrault.idea.symfony2plugin.routing;
 
-import com.intellij.codeInsight.lookup.LookupElement;
+import com.intellij.codeInsight.completion.CompletionResultSet;
 import com.intellij.psi.PsiElement;
 import fr.adrienbrault.idea.symfony2plugin.codeInsight.GotoCompletionProvider;
+import fr.adrienbrault.idea.symfony2plugin.codeInsight.GotoCompletionProviderLookupArguments;
 import fr.adrienbrault.idea.symfony2plugin.codeInsight.utils.GotoCompletionUtil;
 import org.jetbrains.annotations.NotNull;
 
@@ -17,10 +18,10 @@ public class RouteGotoCompletionProvider extends GotoCompletionProvider {
         super(element);
     }
 
-    @NotNull
     @Override
-    public Collection<LookupElement> getLookupElements() {
-        return RouteHelper.getRoutesLookupElements(getElement().getProject());
+    public void getLookupElements(@NotNull GotoCompletionProviderLookupArguments arguments) {
+        CompletionResultSet resultSet = arguments.getResultSet();
+        resultSet.addAllElements(RouteHelper.getRoutesLookupElements(getElement().getProject(), resultSet.getPrefixMatcher().getPrefix()));
     }
 
     @NotNull
@@ -8,6 +8,7 @@ import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.SimpleModificationTracker;
 import com.intellij.openapi.util.io.FileUtil;
 import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VfsUtilCore;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
@@ -34,8 +35,9 @@ import fr.adrienbrault.idea.symfony2plugin.extension.RoutingLoader;
 import fr.adrienbrault.idea.symfony2plugin.extension.RoutingLoaderParameter;
 import fr.adrienbrault.idea.symfony2plugin.routing.dic.ControllerClassOnShortcutReturn;
 import fr.adrienbrault.idea.symfony2plugin.routing.dic.ServiceRouteContainer;
+import fr.adrienbrault.idea.symfony2plugin.routing.dict.LayeredMap;
+import fr.adrienbrault.idea.symfony2plugin.routing.dict.RoutePathMatcher;
 import fr.adrienbrault.idea.symfony2plugin.routing.dict.RoutingFile;
-import fr.adrienbrault.idea.symfony2plugin.stubs.SymfonyProcessors;
 import fr.adrienbrault.idea.symfony2plugin.stubs.cache.FileIndexCaches;
 import fr.adrienbrault.idea.symfony2plugin.stubs.dict.StubIndexedRoute;
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.RoutesStubIndex;
@@ -54,9 +56,9 @@ import org.jetbrains.yaml.YAMLUtil;
 import org.jetbrains.yaml.psi.*;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 
@@ -66,6 +68,8 @@ import java.util.stream.StreamSupport;
 public class RouteHelper {
 
     private static final Key<CachedValue<Map<String, Route>>> ROUTE_CACHE = new Key<>("SYMFONY:ROUTE_CACHE");
+    private static final Key<CachedValue<RoutePathMatcher<Route>>> ROUTE_PATH_MATCHER_CACHE = new Key<>("SYMFONY:ROUTE_PATH_MATCHER_CACHE");
+    private static final Key<CachedValue<ControllerRoutes>> ROUTE_CONTROLLER_CACHE = new Key<>("SYMFONY:ROUTE_CONTROLLER_CACHE");
     private static final Key<CachedValue<Set<String>>> ROUTE_CONTROLLER_RESOLVED_CACHE = new Key<>("ROUTE_CONTROLLER_RESOLVED_CACHE");
 
     private static final Key<CachedValue<Map<String, Route>>> SYMFONY_COMPILED_CACHE_ROUTES = new Key<>("SYMFONY_COMPILED_CACHE_ROUTES");
@@ -81,6 +85,8 @@ public class RouteHelper {
         "fr.adrienbrault.idea.symfony2plugin.extension.RoutingLoader"
     );
 
+    private static final Map<Class<?>, Key<CachedValue<Map<String, Route>>>> ROUTING_LOADER_CACHE_KEYS = new ConcurrentHashMap<>();
+
     public static LookupElement[] getRouteParameterLookupElements(@NotNull Project project, @NotNull String routeName) {
         List<LookupElement> lookupElements = new ArrayList<>();
 
@@ -104,14 +110,7 @@ public class RouteHelper {
             return Collections.singletonList(compiledRoutes.get(routeName));
         }
 
-        Collection<Route> routes = new ArrayList<>();
-
-        Collection<VirtualFile> routeFiles = FileBasedIndex.getInstance().getContainingFiles(RoutesStubIndex.KEY, routeName, GlobalSearchScope.allScope(project));
-        for(StubIndexedRoute route: FileBasedIndex.getInstance().getValues(RoutesStubIndex.KEY, routeName, GlobalSearchScope.filesScope(project, routeFiles))) {
-            routes.add(new Route(route));
-        }
-
-        return routes;
+        return RouteTable.getInstance(project).getRoutes(routeName);
     }
 
     public static PsiElement[] getRouteParameterPsiElements(Project project, String routeName, String parameterName) {
@@ -152,44 +151,35 @@ public class RouteHelper {
     public static PsiElement[] getMethodsForPathWithPlaceholderMatch(@NotNull Project project, @NotNull String path) {
         Set<PsiElement> targets = new HashSet<>();
 
-        Pattern placeholderMatcher = null;
-
-        for (Route route : RouteHelper.getAllRoutes(project).values()) {
-            String routePath = route.getPath();
-            if (routePath == null) {
-                continue;
-            }
-
-            if (path.equalsIgnoreCase(routePath)) {
-                targets.addAll(Arrays.asList(getMethodsOnControllerShortcut(project, route.getController())));
-            }
-
-            if (placeholderMatcher == null) {
-                placeholderMatcher = Pattern.compile("\\{[\\w-]+}");
-            }
-
-            Matcher matcher = placeholderMatcher.matcher(routePath);
+        for (Route route : getRoutePathMatcher(project).match(path)) {
+            targets.addAll(Arrays.asList(getMethodsOnControllerShortcut(project, route.getController())));
+        }
 
-            // /foo/{foo} => // \Q/foo/\E{foo}
-            StringBuilder quoteWrapped = new StringBuilder();
-            int lastRegMatch = 0;
-            while (matcher.find()) {
-                int start = matcher.start();
-                quoteWrapped.append(Pattern.quote(routePath.substring(lastRegMatch, start))).append("[\\w-]+");
-                lastRegMatch = matcher.end();
-            }
+        return targets.toArray(new PsiElement[0]);
+    }
 
-            String substring = routePath.substring(lastRegMatch);
-            if (!substring.isEmpty()) {
-                quoteWrapped.append(Pattern.quote(substring));
-            }
+    /**
+     * Path matcher of all routes; built once for every route cache generation
+     */
+    @NotNull
+    private static RoutePathMatcher<Route> getRoutePathMatcher(@NotNull Project project) {
+        return CachedValuesManager.getManager(project).getCachedValue(
+            project,
+            ROUTE_PATH_MATCHER_CACHE,
+            () -> {
+                RoutePathMatcher<Route> matcher = new RoutePathMatcher<>();
 
-            if (Pattern.matches(quoteWrapped.toString(), path)) {
-                targets.addAll(Arrays.asList(getMethodsOnControllerShortcut(project, route.getController())));
-            }
-        }
+                for (Route route : getAllRoutes(project).values()) {
+                    String routePath = route.getPath();
+                    if (routePath != null) {
+                        matcher.add(routePath, route.getRequirements(), route);
+                    }
+                }
 
-        return targets.toArray(new PsiElement[0]);
+                return CachedValueProvider.Result.create(matcher, getAllRoutesDependencies(project));
+            },
+            false
+        );
     }
 
     /**
@@ -413,9 +403,50 @@ public class RouteHelper {
         );
     }
 
+    /**
+     * Compiled routes with the routes of all RoutingLoader extensions on top, as a read-only view
+     */
     @NotNull
     private static Map<String, Route> getCompiledRoutes(@NotNull Project project) {
-        Map<String, Route> routesCache = CachedValuesManager.getManager(project).getCachedValue(
+        List<Map<String, Route>> layers = new ArrayList<>();
+        layers.add(getCompiledFileRoutes(project));
+
+        for (RoutingLoader routingLoader : ROUTING_LOADER.getExtensions()) {
+            layers.add(getRoutingLoaderRoutes(project, routingLoader));
+        }
+
+        return LayeredMap.create(layers);
+    }
+
+    @NotNull
+    private static Map<String, Route> getRoutingLoaderRoutes(@NotNull Project project, @NotNull RoutingLoader routingLoader) {
+        if (routingLoader.getDependencies(project) == null) {
+            return invokeRoutingLoader(project, routingLoader);
+        }
+
+        Key<CachedValue<Map<String, Route>>> key = ROUTING_LOADER_CACHE_KEYS.computeIfAbsent(
+            routingLoader.getClass(),
+            aClass -> Key.create("SYMFONY_ROUTING_LOADER_" + aClass.getName())
+        );
+
+        return CachedValuesManager.getManager(project).getCachedValue(
+            project,
+            key,
+            () -> CachedValueProvider.Result.create(invokeRoutingLoader(project, routingLoader), routingLoader.getDependencies(project)),
+            false
+        );
+    }
+
+    @NotNull
+    private static Map<String, Route> invokeRoutingLoader(@NotNull Project project, @NotNull RoutingLoader routingLoader) {
+        Map<String, Route> routes = new HashMap<>();
+        routingLoader.invoke(new RoutingLoaderParameter(project, routes));
+        return Collections.unmodifiableMap(routes);
+    }
+
+    @NotNull
+    private static Map<String, Route> getCompiledFileRoutes(@NotNull Project project) {
+        return CachedValuesManager.getManager(project).getCachedValue(
             project,
             SYMFONY_COMPILED_CACHE_ROUTES,
             () -> {
@@ -441,22 +472,19 @@ public class RouteHelper {
             },
             false
         );
-
-        Map<String, Route> routes = new HashMap<>(routesCache);
-        RoutingLoaderParameter parameter = null;
-        for (RoutingLoader routingLoader : ROUTING_LOADER.getExtensions()) {
-            if(parameter == null) {
-                parameter = new RoutingLoaderParameter(project, routes);
-            }
-
-            routingLoader.invoke(parameter);
-        }
-
-        return routes;
     }
 
     @NotNull
     public static Map<String, Route> getRoutesInsideUrlGeneratorFile(@NotNull Project project, @NotNull VirtualFile virtualFile) {
+        // compiled files can have thousands of routes; read them without PSI if possible
+        try {
+            Map<String, Route> routes = UrlGeneratorRouteParser.parse(VfsUtilCore.loadText(virtualFile));
+            if (routes != null) {
+                return routes;
+            }
+        } catch (IOException ignored) {
+        }
+
         PsiFile psiFile = PsiElementUtils.virtualFileToPsiFile(project, virtualFile);
         if(!(psiFile instanceof PhpFile)) {
             return Collections.emptyMap();
@@ -583,11 +611,11 @@ public class RouteHelper {
             }
 
             String routeName = ((StringLiteralExpression) hashKey).getContents();
-            if(!isProductionRouteName(routeName)) {
+            if(!UrlGeneratorRouteParser.isProductionRouteName(routeName)) {
                 continue;
             }
 
-            routeName = convertLanguageRouteName(routeName);
+            routeName = UrlGeneratorRouteParser.convertLanguageRouteName(routeName);
             PsiElement hashValue = arrayHashElement.getValue();
             if(hashValue instanceof ArrayCreationExpression) {
                 routes.put(routeName, convertRouteConfig(routeName, (ArrayCreationExpression) hashValue));
@@ -725,22 +753,6 @@ public class RouteHelper {
         return new Route(routeName, variables, defaults, requirements, tokens, (path.length() == 0) ? null : path.toString());
     }
 
-    private static boolean isProductionRouteName(String routeName) {
-        return !routeName.matches("_assetic_[0-9a-z]+[_\\d+]*");
-    }
-
-    /**
-     * support I18nRoutingBundle
-     */
-    private static String convertLanguageRouteName(String routeName) {
-
-        if(routeName.matches("^[a-z]{2}__RG__.*$")) {
-            routeName = routeName.replaceAll("^[a-z]{2}+__RG__", "");
-        }
-
-        return routeName;
-    }
-
     /**
      * Foo\Bar::methodAction
      */
@@ -1078,30 +1090,73 @@ public class RouteHelper {
 
     @NotNull
     public static List<Route> getRoutesOnControllerAction(@NotNull Method method) {
-        Set<String> routeNames = new HashSet<>();
+        Set<String> controllers = new HashSet<>();
 
-        ContainerUtil.addIfNotNull(routeNames, RouteHelper.convertMethodToRouteControllerName(method));
-        ContainerUtil.addIfNotNull(routeNames, RouteHelper.convertMethodToRouteShortcutControllerName(method));
+        ContainerUtil.addIfNotNull(controllers, RouteHelper.convertMethodToRouteControllerName(method));
+        ContainerUtil.addIfNotNull(controllers, RouteHelper.convertMethodToRouteShortcutControllerName(method));
 
-        Map<String, Route> allRoutes = getAllRoutes(method.getProject());
-        List<Route> routes = new ArrayList<>();
+        ControllerRoutes controllerRoutes = getControllerRoutes(method.getProject());
+        Set<Route> routes = new LinkedHashSet<>();
 
         // resolve indexed routes
-        if(routeNames.size() > 0) {
-            routes.addAll(allRoutes.values().stream()
-                .filter(route -> route.getController() != null && routeNames.contains(route.getController()))
-                .collect(Collectors.toList())
-            );
+        for (String controller : controllers) {
+            routes.addAll(controllerRoutes.controllers().getOrDefault(normalizeController(controller), Collections.emptyList()));
+        }
+
+        // search for services: "service_id:methodName"
+        Collection<Route> serviceRoutes = controllerRoutes.serviceMethods().get(method.getName());
+        if (serviceRoutes != null) {
+            routes.addAll(ServiceRouteContainer.build(serviceRoutes).getMethodMatches(method));
         }
 
-        // search for services
-        routes.addAll(
-            ServiceRouteContainer.build(allRoutes).getMethodMatches(method)
+        return new ArrayList<>(routes);
+    }
+
+    /**
+     * Routes by their normalized controller: "foo\\bar::indexaction" or "foobundle:sub\\foobar:index"
+     */
+    @NotNull
+    private static ControllerRoutes getControllerRoutes(@NotNull Project project) {
+        return CachedValuesManager.getManager(project).getCachedValue(
+            project,
+            ROUTE_CONTROLLER_CACHE,
+            () -> {
+                Map<String, List<Route>> controllers = new HashMap<>();
+                Map<String, List<Route>> serviceMethods = new HashMap<>();
+
+                for (Route route : getAllRoutes(project).values()) {
+                    String controller = route.getController();
+                    if (controller == null) {
+                        continue;
+                    }
+
+                    controllers.computeIfAbsent(normalizeController(controller), s -> new ArrayList<>()).add(route);
+
+                    if (isServiceController(controller)) {
+                        serviceMethods.computeIfAbsent(controller.split(":")[1], s -> new ArrayList<>()).add(route);
+                    }
+                }
+
+                return CachedValueProvider.Result.create(new ControllerRoutes(controllers, serviceMethods), getAllRoutesDependencies(project));
+            },
+            false
         );
+    }
 
-        return routes;
+    /**
+     * PHP class and method names are case-insensitive; bundle shortcuts allow "/" as namespace separator
+     */
+    @NotNull
+    private static String normalizeController(@NotNull String controller) {
+        return StringUtils.stripStart(controller, "\\").replace("/", "\\").toLowerCase();
     }
 
+    /**
+     * @param controllers Routes by normalized controller
+     * @param serviceMethods Routes of "service_id:methodName" controllers by their method name
+     */
+    private record ControllerRoutes(@NotNull Map<String, List<Route>> controllers, @NotNull Map<String, List<Route>> serviceMethods) {}
+
     /**
      * Find every possible route name declaration inside yaml, xml or @Route annotation
      */
@@ -1187,6 +1242,13 @@ public class RouteHelper {
     }
 
     public static List<LookupElement> getRoutesLookupElements(final @NotNull Project project) {
+        return getRoutesLookupElements(project, "");
+    }
+
+    /**
+     * Indexed routes are only created for names containing the characters of the completion prefix
+     */
+    public static List<LookupElement> getRoutesLookupElements(final @NotNull Project project, @NotNull String prefix) {
 
         Map<String, Route> routes = RouteHelper.getCompiledRoutes(project);
 
@@ -1198,16 +1260,7 @@ public class RouteHelper {
             uniqueSet.add(route.getName());
         }
 
-        for(String routeName: SymfonyProcessors.createResult(project, RoutesStubIndex.KEY, uniqueSet)) {
-            if(uniqueSet.contains(routeName)) {
-                continue;
-            }
-
-            for(StubIndexedRoute route: FileBasedIndex.getInstance().getValues(RoutesStubIndex.KEY, routeName, GlobalSearchScope.allScope(project))) {
-                lookupElements.add(new RouteLookupElement(new Route(route), true));
-                uniqueSet.add(routeName);
-            }
-        }
+        lookupElements.addAll(RouteTable.getInstance(project).getLookupElements(prefix, uniqueSet));
 
         return lookupElements;
 
@@ -1222,7 +1275,15 @@ public class RouteHelper {
         return targets;
     }
 
+    /**
+     * Controller strings are matched first; resolving all controllers is only the fallback for "Foo::index" on
+     * "indexAction", invokable service ids and routes on a subclass of the method class
+     */
     public static boolean isRouteExistingForMethod(final @NotNull Method method) {
+        if (!getRoutesOnControllerAction(method).isEmpty()) {
+            return true;
+        }
+
         Project project = method.getProject();
 
         Set<String> cachedValue = CachedValuesManager.getManager(project).getCachedValue(
@@ -1264,31 +1325,25 @@ public class RouteHelper {
             project,
             ROUTE_CACHE,
             () -> {
-                Map<String, Route> routes = new HashMap<>(RouteHelper.getCompiledRoutes(project));
-                Set<String> uniqueKeySet = new HashSet<>(routes.keySet());
-
-                for (String routeName: SymfonyProcessors.createResult(project, RoutesStubIndex.KEY, uniqueKeySet)) {
-                    if (uniqueKeySet.contains(routeName)) {
-                        continue;
-                    }
+                // compiled routes win over indexed ones
+                Map<String, Route> routes = new HashMap<>(RouteTable.getInstance(project).getRoutes());
+                routes.putAll(RouteHelper.getCompiledRoutes(project));
 
-                    for (StubIndexedRoute route: FileBasedIndex.getInstance().getValues(RoutesStubIndex.KEY, routeName, GlobalSearchScope.allScope(project))) {
-                        uniqueKeySet.add(routeName);
-                        routes.put(routeName, new Route(route));
-                    }
-                }
-
-                return CachedValueProvider.Result.create(
-                    Collections.unmodifiableMap(routes),
-                    FileIndexCaches.getModificationTrackerForIndexId(project, RoutesStubIndex.KEY), // index
-                    new CompiledRoutePathFilesModificationTracker(project), // compiled
-                    new AbsoluteFileModificationTracker(getCompiledRouteFiles(project)) // compiled
-                );
+                return CachedValueProvider.Result.create(Collections.unmodifiableMap(routes), getAllRoutesDependencies(project));
             },
             false
         );
     }
 
+    @NotNull
+    private static Object[] getAllRoutesDependencies(@NotNull Project project) {
+        return new Object[] {
+            FileIndexCaches.getModificationTrackerForIndexId(project, RoutesStubIndex.KEY), // index
+            new CompiledRoutePathFilesModificationTracker(project), // compiled
+            new AbsoluteFileModificationTracker(getCompiledRouteFiles(project)) // compiled
+        };
+    }
+
     @NotNull
     public static Collection<LookupElement> getRoutesPathLookupElements(final @NotNull Project project) {
         Collection<LookupElement> lookupElements = new ArrayList<>();
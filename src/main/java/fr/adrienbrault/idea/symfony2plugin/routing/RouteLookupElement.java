@@ -8,11 +8,13 @@ import com.intellij.util.containers.ContainerUtil;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2Icons;
 import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Supplier;
 
 /**
  * @author Adrien Brault <adrien.brault@gmail.com>
@@ -24,6 +26,12 @@ public class RouteLookupElement extends LookupElement {
     private boolean isWeak = false;
     private InsertHandler<RouteLookupElement> insertHandler;
 
+    @Nullable
+    private Presentation presentation;
+
+    @Nullable
+    private Supplier<Presentation> sharedPresentation;
+
     public RouteLookupElement(@NotNull Route route) {
         this.route = route;
     }
@@ -33,6 +41,14 @@ public class RouteLookupElement extends LookupElement {
         this.isWeak = isWeak;
     }
 
+    /**
+     * @param sharedPresentation presentation of the route shared by all its lookup elements, eg of the route table
+     */
+    public RouteLookupElement(@NotNull Route route, boolean isWeak, @NotNull Supplier<Presentation> sharedPresentation) {
+        this(route, isWeak);
+        this.sharedPresentation = sharedPresentation;
+    }
+
     @NotNull
     @Override
     public String getLookupString() {
@@ -40,32 +56,17 @@ public class RouteLookupElement extends LookupElement {
     }
 
     public void renderElement(LookupElementPresentation presentation) {
+        if (this.presentation == null) {
+            this.presentation = this.sharedPresentation != null ? this.sharedPresentation.get() : Presentation.create(this.route);
+        }
+
         presentation.setItemText(getLookupString());
-        presentation.setTypeText(route.getController());
+        presentation.setTypeText(this.presentation.typeText());
         presentation.setTypeGrayed(true);
         presentation.setIcon(!this.isWeak ? Symfony2Icons.ROUTE : Symfony2Icons.ROUTE_WEAK);
 
-        formatTail(presentation);
-    }
-
-    /**
-     * "(GET|POST, var1, var2)"
-     */
-    private void formatTail(@NotNull LookupElementPresentation presentation) {
-        List<String> tails = new ArrayList<>();
-
-        Collection<String> methods = route.getMethods();
-        if(methods.size() > 0) {
-            tails.add(StringUtils.join(ContainerUtil.map(methods, String::toUpperCase), "|"));
-        }
-
-        Set<String> variables = this.route.getVariables();
-        if(variables.size() > 0) {
-            tails.addAll(variables);
-        }
-
-        if(tails.size() > 0) {
-            presentation.setTailText("(" + StringUtils.join(tails, ", ") + ")", true);
+        if (this.presentation.tailText() != null) {
+            presentation.setTailText(this.presentation.tailText(), true);
         }
     }
 
@@ -85,4 +86,28 @@ public class RouteLookupElement extends LookupElement {
         return route;
     }
 
+    /**
+     * Rendered texts of a route
+     *
+     * @param tailText "(GET|POST, var1, var2)"
+     */
+    public record Presentation(@Nullable String typeText, @Nullable String tailText) {
+        @NotNull
+        public static Presentation create(@NotNull Route route) {
+            List<String> tails = new ArrayList<>();
+
+            Collection<String> methods = route.getMethods();
+            if(methods.size() > 0) {
+                tails.add(StringUtils.join(ContainerUtil.map(methods, String::toUpperCase), "|"));
+            }
+
+            Set<String> variables = route.getVariables();
+            if(variables.size() > 0) {
+                tails.addAll(variables);
+            }
+
+            return new Presentation(route.getController(), tails.size() > 0 ? "(" + StringUtils.join(tails, ", ") + ")" : null);
+        }
+    }
+
 }
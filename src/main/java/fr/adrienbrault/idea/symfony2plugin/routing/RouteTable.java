@@ -0,0 +1,193 @@
+package fr.adrienbrault.idea.symfony2plugin.routing;
+
+import com.intellij.codeInsight.lookup.LookupElement;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.ID;
+import fr.adrienbrault.idea.symfony2plugin.routing.dict.RouteNameTable;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.IncrementalIndexModel;
+import fr.adrienbrault.idea.symfony2plugin.stubs.dict.StubIndexedRoute;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.RoutesStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.inputFilter.FileInputFilter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Project wide table of all indexed routes of yaml, xml and PHP files, sorted by name for the fuzzy search of completion.
+ *
+ * The index is the persisted source; routes are read once and afterwards only the routes of changed files are read
+ * again. Readers search in a published snapshot of the table, which shares all unchanged names with it. The lookup
+ * presentation is computed on the first rendering of a route and shared by all its lookup elements.
+ */
+public class RouteTable extends IncrementalIndexModel<RouteNameTable<VirtualFile, RouteTable.IndexedRoute>> {
+
+    /**
+     * Working table, only changed while refreshing
+     */
+    @NotNull
+    private final RouteNameTable<VirtualFile, IndexedRoute> routes = new RouteNameTable<>();
+
+    public RouteTable(@NotNull Project project) {
+        super(project, new RouteNameTable<>());
+    }
+
+    @NotNull
+    public static RouteTable getInstance(@NotNull Project project) {
+        return project.getService(RouteTable.class);
+    }
+
+    /**
+     * All route names; a name of several files is the route of one of them
+     */
+    @NotNull
+    public Map<String, Route> getRoutes() {
+        Map<String, Route> routes = new HashMap<>();
+
+        for (IndexedRoute indexedRoute : getSnapshot().getValues()) {
+            routes.put(indexedRoute.route().getName(), indexedRoute.route());
+        }
+
+        return routes;
+    }
+
+    @NotNull
+    public Collection<Route> getRoutes(@NotNull String routeName) {
+        return getRoutes(getSnapshot().get(routeName));
+    }
+
+    /**
+     * Lookup elements ordered by name, one for every indexed route which name is not excluded
+     *
+     * Elements are created on every call; callers are free to change them, eg with an insert handler
+     */
+    @NotNull
+    public List<LookupElement> getLookupElements(@NotNull Set<String> excludedRouteNames) {
+        return getLookupElements("", excludedRouteNames);
+    }
+
+    /**
+     * Lookup elements of all routes containing the characters of the pattern in the same order, case-insensitive;
+     * a superset of all names which the completion prefix matcher accepts for it, so only the rest is never created
+     *
+     * The prefix search is not usable here, completion also matches in the middle of a name and ignores the case
+     */
+    @NotNull
+    public List<LookupElement> getLookupElements(@NotNull String pattern, @NotNull Set<String> excludedRouteNames) {
+        List<LookupElement> lookupElements = new ArrayList<>();
+
+        for (IndexedRoute indexedRoute : getSnapshot().getValuesMatching(pattern)) {
+            if (!excludedRouteNames.contains(indexedRoute.route().getName())) {
+                lookupElements.add(new RouteLookupElement(indexedRoute.route(), true, indexedRoute::getPresentation));
+            }
+        }
+
+        return lookupElements;
+    }
+
+    @NotNull
+    private static List<Route> getRoutes(@NotNull Collection<IndexedRoute> indexedRoutes) {
+        List<Route> routes = new ArrayList<>();
+
+        for (IndexedRoute indexedRoute : indexedRoutes) {
+            routes.add(indexedRoute.route());
+        }
+
+        return routes;
+    }
+
+    @NotNull
+    @Override
+    protected Collection<ID<?, ?>> getIndexIds() {
+        return Collections.singletonList(RoutesStubIndex.KEY);
+    }
+
+    @Override
+    protected boolean isModelFile(@NotNull VirtualFile virtualFile) {
+        return FileInputFilter.XML_YAML_PHP.acceptInput(virtualFile);
+    }
+
+    @NotNull
+    @Override
+    protected RouteNameTable<VirtualFile, IndexedRoute> refresh(@Nullable Collection<VirtualFile> changedFiles) {
+        if (changedFiles == null) {
+            rebuild();
+        } else {
+            for (VirtualFile file : changedFiles) {
+                updateFile(file);
+            }
+        }
+
+        return this.routes.snapshot();
+    }
+
+    @Override
+    protected void clear() {
+        this.routes.clear();
+    }
+
+    private void rebuild() {
+        this.routes.clear();
+
+        FileBasedIndex index = FileBasedIndex.getInstance();
+        GlobalSearchScope scope = GlobalSearchScope.allScope(this.project);
+
+        for (String routeName : index.getAllKeys(RoutesStubIndex.KEY, this.project)) {
+            index.processValues(RoutesStubIndex.KEY, routeName, null, (virtualFile, value) -> {
+                this.routes.put(virtualFile, routeName, IndexedRoute.create(value));
+                return true;
+            }, scope);
+        }
+    }
+
+    private void updateFile(@NotNull VirtualFile virtualFile) {
+        this.routes.remove(virtualFile);
+
+        if (!virtualFile.isValid() || !isModelFile(virtualFile)) {
+            return;
+        }
+
+        FileBasedIndex.getInstance().getFileData(RoutesStubIndex.KEY, virtualFile, this.project).forEach((routeName, value) ->
+            this.routes.put(virtualFile, routeName, IndexedRoute.create(value))
+        );
+    }
+
+    static final class IndexedRoute {
+        @NotNull
+        private final Route route;
+
+        /**
+         * Most routes are never rendered in a completion, so it is only created on demand
+         */
+        @Nullable
+        private volatile RouteLookupElement.Presentation presentation;
+
+        private IndexedRoute(@NotNull Route route) {
+            this.route = route;
+        }
+
+        @NotNull
+        private static IndexedRoute create(@NotNull StubIndexedRoute stubIndexedRoute) {
+            return new IndexedRoute(new Route(stubIndexedRoute));
+        }
+
+        @NotNull
+        Route route() {
+            return this.route;
+        }
+
+        @NotNull
+        RouteLookupElement.Presentation getPresentation() {
+            RouteLookupElement.Presentation presentation = this.presentation;
+            if (presentation == null) {
+                // racing callers create an equal presentation
+                this.presentation = presentation = RouteLookupElement.Presentation.create(this.route);
+            }
+
+            return presentation;
+        }
+    }
+}
@@ -0,0 +1,507 @@
+package fr.adrienbrault.idea.symfony2plugin.routing;
+
+import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * Reads routes of compiled Symfony route files directly from the file content, without building a PSI tree:
+ *
+ * Symfony >= 4: "url_generating_routes.php" with "return ['route' => [...]]"
+ * Symfony < 4: "appDevUrlGenerator.php" with "$declaredRoutes = array('route' => array(...))"
+ *
+ * Only the literal arrays of these generated files are supported; "null" for everything else, so the caller can fall
+ * back to the PSI based extraction. String contents are kept as written in the file, same as StringLiteralExpression#getContents.
+ */
+public class UrlGeneratorRouteParser {
+
+    private static final String DECLARED_ROUTES = "$declaredRoutes";
+
+    private static final Pattern NUMBER = Pattern.compile("-?\\d+");
+
+    @NotNull
+    private final String content;
+
+    private int offset;
+
+    private UrlGeneratorRouteParser(@NotNull String content) {
+        this.content = content;
+    }
+
+    /**
+     * @return "null" if the content is not a known compiled route format
+     */
+    @Nullable
+    public static Map<String, Route> parse(@NotNull CharSequence content) {
+        try {
+            UrlGeneratorRouteParser parser = new UrlGeneratorRouteParser(content.toString());
+
+            // Symfony >= 4
+            PhpArray routes = parser.parseReturnArray();
+            if (routes != null) {
+                return createRoutesForReturnArray(routes);
+            }
+
+            // Symfony < 4: field default or constructor assignment
+            if (!parser.content.contains("UrlGenerator")) {
+                return null;
+            }
+
+            Map<String, Route> declaredRoutes = null;
+            for (PhpArray declared : parser.parseDeclaredRoutes()) {
+                if (declaredRoutes == null) {
+                    declaredRoutes = new HashMap<>();
+                }
+
+                collectDeclaredRoutes(declaredRoutes, declared);
+            }
+
+            return declaredRoutes;
+        } catch (ParseException e) {
+            return null;
+        }
+    }
+
+    static boolean isProductionRouteName(String routeName) {
+        return !routeName.matches("_assetic_[0-9a-z]+[_\\d+]*");
+    }
+
+    /**
+     * support I18nRoutingBundle
+     */
+    static String convertLanguageRouteName(String routeName) {
+
+        if(routeName.matches("^[a-z]{2}__RG__.*$")) {
+            routeName = routeName.replaceAll("^[a-z]{2}+__RG__", "");
+        }
+
+        return routeName;
+    }
+
+    /**
+     * [variables, defaults, requirements, tokens, hostTokens, schemes]
+     */
+    @NotNull
+    private static Map<String, Route> createRoutesForReturnArray(@NotNull PhpArray routes) {
+        Map<String, Route> routeMap = new HashMap<>();
+
+        for (PhpArrayElement element : routes.elements()) {
+            if (element.key() == null || !element.key().string() || StringUtils.isBlank(element.key().text())) {
+                continue;
+            }
+
+            String routeName = element.key().text();
+
+            List<PhpArray> options = new ArrayList<>();
+            if (element.value() instanceof PhpArray routeArray) {
+                for (PhpArrayElement option : routeArray.elements()) {
+                    options.add(option.value() instanceof PhpArray ? (PhpArray) option.value() : null);
+                }
+            }
+
+            Set<String> variables = new HashSet<>();
+            if (options.size() >= 1 && options.get(0) != null) {
+                variables.addAll(options.get(0).getValuesAsString());
+            }
+
+            Map<String, String> defaults = new HashMap<>();
+            if (options.size() >= 2 && options.get(1) != null) {
+                defaults = options.get(1).getKeyValueMap();
+            }
+
+            Map<String, String> requirements = new HashMap<>();
+            if (options.size() >= 3 && options.get(2) != null) {
+                requirements = options.get(2).getKeyValueMap();
+            }
+
+            // tokens are in reverse order: [['text', '/exception.css'], ['variable', '/', '[^/]++', 'token', true], ['text', '/_profiler']]
+            StringBuilder path = new StringBuilder();
+            if (options.size() >= 4 && options.get(3) != null) {
+                List<PhpArrayElement> tokens = new ArrayList<>(options.get(3).elements());
+                Collections.reverse(tokens);
+
+                for (PhpArrayElement token : tokens) {
+                    if (token.key() != null || !(token.value() instanceof PhpArray tokenArray)) {
+                        continue;
+                    }
+
+                    List<String> parts = new ArrayList<>();
+                    for (PhpArrayElement part : tokenArray.elements()) {
+                        if (part.key() == null) {
+                            parts.add(part.value() instanceof PhpLiteral literal && literal.string() ? literal.text() : null);
+                        }
+                    }
+
+                    if (parts.size() > 1 && parts.get(1) != null) {
+                        path.append(parts.get(1));
+                    }
+
+                    if (parts.size() > 3 && parts.get(3) != null) {
+                        path.append("{").append(parts.get(3)).append("}");
+                    }
+                }
+            }
+
+            routeMap.put(routeName, new Route(routeName, variables, defaults, requirements, new ArrayList<>(), (path.length() == 0) ? null : path.toString()));
+        }
+
+        return routeMap;
+    }
+
+    /**
+     * array(0 => variables, 1 => defaults, 2 => requirements, 3 => tokens, 4 => hostTokens)
+     */
+    private static void collectDeclaredRoutes(@NotNull Map<String, Route> routes, @NotNull PhpArray declaredRoutes) {
+        for (PhpArrayElement element : declaredRoutes.elements()) {
+            if (element.key() == null || !element.key().string()) {
+                continue;
+            }
+
+            String routeName = element.key().text();
+            if(!isProductionRouteName(routeName)) {
+                continue;
+            }
+
+            routeName = convertLanguageRouteName(routeName);
+            if (!(element.value() instanceof PhpArray routeArray)) {
+                continue;
+            }
+
+            List<Object> options = new ArrayList<>();
+            for (PhpArrayElement option : routeArray.elements()) {
+                if (option.key() != null) {
+                    options.add(option.value());
+                }
+            }
+
+            Set<String> variables = new HashSet<>();
+            if (options.size() >= 1 && options.get(0) instanceof PhpArray value) {
+                variables.addAll(value.getKeyValueMap().values());
+            }
+
+            Map<String, String> defaults = new HashMap<>();
+            if (options.size() >= 2 && options.get(1) instanceof PhpArray value) {
+                defaults = value.getKeyValueMap();
+            }
+
+            Map<String, String> requirements = new HashMap<>();
+            if (options.size() >= 3 && options.get(2) instanceof PhpArray value) {
+                requirements = value.getKeyValueMap();
+            }
+
+            StringBuilder path = new StringBuilder();
+            List<Collection<String>> tokens = new ArrayList<>();
+            if (options.size() >= 4 && options.get(3) instanceof PhpArray tokenArray) {
+                List<PhpArrayElement> result = new ArrayList<>();
+                for (PhpArrayElement token : tokenArray.elements()) {
+                    if (token.key() != null) {
+                        result.add(token);
+                    }
+                }
+
+                Collections.reverse(result);
+
+                for (PhpArrayElement token : result) {
+                    if (token.value() instanceof PhpArray value) {
+                        Map<String, String> arrayKeyValueMap = value.getKeyValueMap();
+
+                        String text = arrayKeyValueMap.get("1");
+                        if (text != null) {
+                            path.append(text);
+                        }
+
+                        String var = arrayKeyValueMap.get("3");
+                        if (var != null) {
+                            path.append("{").append(var).append("}");
+                        }
+
+                        tokens.add(arrayKeyValueMap.values());
+                    }
+                }
+            }
+
+            routes.put(routeName, new Route(routeName, variables, defaults, requirements, tokens, (path.length() == 0) ? null : path.toString()));
+        }
+    }
+
+    /**
+     * "return [...];" as first statement of the file
+     */
+    @Nullable
+    private PhpArray parseReturnArray() {
+        this.offset = 0;
+        skipWhitespaceAndComments();
+
+        if (!consume("<?php")) {
+            return null;
+        }
+
+        skipWhitespaceAndComments();
+
+        // declare(strict_types=1);
+        if (consumeKeyword("declare")) {
+            int end = this.content.indexOf(';', this.offset);
+            if (end < 0) {
+                return null;
+            }
+
+            this.offset = end + 1;
+            skipWhitespaceAndComments();
+        }
+
+        if (!consumeKeyword("return")) {
+            return null;
+        }
+
+        skipWhitespaceAndComments();
+
+        return parseValue() instanceof PhpArray phpArray ? phpArray : null;
+    }
+
+    /**
+     * "$declaredRoutes = array(...)" of the property default or of the constructor
+     */
+    @NotNull
+    private Collection<PhpArray> parseDeclaredRoutes() {
+        Collection<PhpArray> arrays = new ArrayList<>();
+
+        for (int index = this.content.indexOf(DECLARED_ROUTES); index >= 0; index = this.content.indexOf(DECLARED_ROUTES, index + 1)) {
+            this.offset = index + DECLARED_ROUTES.length();
+            skipWhitespaceAndComments();
+
+            // not a comparison: "null === self::$declaredRoutes"
+            if (!consume("=") || startsWith("=")) {
+                continue;
+            }
+
+            skipWhitespaceAndComments();
+
+            if (parseValue() instanceof PhpArray phpArray) {
+                arrays.add(phpArray);
+            }
+        }
+
+        return arrays;
+    }
+
+    @NotNull
+    private Object parseValue() {
+        if (this.offset >= this.content.length()) {
+            throw new ParseException();
+        }
+
+        char c = this.content.charAt(this.offset);
+        if (c == '[') {
+            this.offset++;
+            return parseArrayElements(']');
+        }
+
+        if (c == '\'' || c == '"') {
+            return new PhpLiteral(parseString(c), true);
+        }
+
+        if (consumeKeyword("array")) {
+            skipWhitespaceAndComments();
+            if (!consume("(")) {
+                throw new ParseException();
+            }
+
+            return parseArrayElements(')');
+        }
+
+        // numbers and constants: 0, -1, 1.5, NULL, true
+        int start = this.offset;
+        while (this.offset < this.content.length()) {
+            char current = this.content.charAt(this.offset);
+            if (!Character.isLetterOrDigit(current) && current != '_' && current != '.' && current != '-') {
+                break;
+            }
+
+            this.offset++;
+        }
+
+        if (start == this.offset) {
+            throw new ParseException();
+        }
+
+        return new PhpLiteral(this.content.substring(start, this.offset), false);
+    }
+
+    @NotNull
+    private PhpArray parseArrayElements(char close) {
+        List<PhpArrayElement> elements = new ArrayList<>();
+
+        while (true) {
+            skipWhitespaceAndComments();
+            if (this.offset < this.content.length() && this.content.charAt(this.offset) == close) {
+                this.offset++;
+                return new PhpArray(elements);
+            }
+
+            Object value = parseValue();
+            PhpLiteral key = null;
+
+            skipWhitespaceAndComments();
+            if (consume("=>")) {
+                if (!(value instanceof PhpLiteral)) {
+                    throw new ParseException();
+                }
+
+                key = (PhpLiteral) value;
+
+                skipWhitespaceAndComments();
+                value = parseValue();
+                skipWhitespaceAndComments();
+            }
+
+            elements.add(new PhpArrayElement(key, value));
+
+            if (!consume(",") && this.offset < this.content.length() && this.content.charAt(this.offset) != close) {
+                throw new ParseException();
+            }
+        }
+    }
+
+    /**
+     * Contents between the quotes, escape sequences are kept
+     */
+    @NotNull
+    private String parseString(char quote) {
+        int start = ++this.offset;
+
+        while (this.offset < this.content.length()) {
+            char c = this.content.charAt(this.offset);
+            if (c == '\\') {
+                this.offset += 2;
+                continue;
+            }
+
+            if (c == quote) {
+                return this.content.substring(start, this.offset++);
+            }
+
+            // interpolation is not part of compiled files
+            if (quote == '"' && c == '$') {
+                throw new ParseException();
+            }
+
+            this.offset++;
+        }
+
+        throw new ParseException();
+    }
+
+    private void skipWhitespaceAndComments() {
+        while (this.offset < this.content.length()) {
+            char c = this.content.charAt(this.offset);
+
+            if (Character.isWhitespace(c)) {
+                this.offset++;
+            } else if (c == '#' || startsWith("//")) {
+                int end = this.content.indexOf('\n', this.offset);
+                this.offset = end < 0 ? this.content.length() : end + 1;
+            } else if (startsWith("/*")) {
+                int end = this.content.indexOf("*/", this.offset + 2);
+                this.offset = end < 0 ? this.content.length() : end + 2;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private boolean consume(@NotNull String text) {
+        if (!startsWith(text)) {
+            return false;
+        }
+
+        this.offset += text.length();
+        return true;
+    }
+
+    /**
+     * Case-insensitive keyword which is not the start of a longer name
+     */
+    private boolean consumeKeyword(@NotNull String keyword) {
+        int end = this.offset + keyword.length();
+        if (end > this.content.length() || !this.content.regionMatches(true, this.offset, keyword, 0, keyword.length())) {
+            return false;
+        }
+
+        if (end < this.content.length()) {
+            char next = this.content.charAt(end);
+            if (Character.isLetterOrDigit(next) || next == '_') {
+                return false;
+            }
+        }
+
+        this.offset = end;
+        return true;
+    }
+
+    private boolean startsWith(@NotNull String text) {
+        return this.content.startsWith(text, this.offset);
+    }
+
+    /**
+     * String literal or any other scalar like a number or "null"
+     */
+    private record PhpLiteral(@NotNull String text, boolean string) {}
+
+    /**
+     * @param key "null" for "[value]"
+     */
+    private record PhpArrayElement(@Nullable PhpLiteral key, @NotNull Object value) {}
+
+    private record PhpArray(@NotNull List<PhpArrayElement> elements) {
+
+        /**
+         * String values without key, like PhpElementsUtil#getArrayValuesAsString
+         */
+        @NotNull
+        private Set<String> getValuesAsString() {
+            Set<String> values = new HashSet<>();
+
+            for (PhpArrayElement element : this.elements) {
+                if (element.key() == null && element.value() instanceof PhpLiteral literal && literal.string() && StringUtils.isNotBlank(literal.text())) {
+                    values.add(literal.text());
+                }
+            }
+
+            return values;
+        }
+
+        /**
+         * String or number keys with string values, like PhpElementsUtil#getArrayKeyValueMap
+         */
+        @NotNull
+        private Map<String, String> getKeyValueMap() {
+            Map<String, String> keys = new HashMap<>();
+
+            for (PhpArrayElement element : this.elements) {
+                PhpLiteral key = element.key();
+                if (key == null || (!key.string() && !isNumber(key.text())) || StringUtils.isBlank(key.text())) {
+                    continue;
+                }
+
+                if (element.value() instanceof PhpLiteral value && value.string() && StringUtils.isNotBlank(value.text())) {
+                    keys.put(key.text(), value.text());
+                }
+            }
+
+            return keys;
+        }
+
+        private static boolean isNumber(@NotNull String text) {
+            return NUMBER.matcher(text).matches();
+        }
+    }
+
+    private static class ParseException extends RuntimeException {
+        private ParseException() {
+            super(null, null, false, false);
+        }
+    }
+}
@@ -99,10 +99,20 @@ public class ServiceRouteContainer  {
      */
     @NotNull
     public static ServiceRouteContainer build(@NotNull Map<String, Route> routes) {
+        return build(routes.values());
+    }
+
+    /**
+     * Build container which stores all service routes
+     *
+     * @param routes Unfiltered routes
+     */
+    @NotNull
+    public static ServiceRouteContainer build(@NotNull Collection<Route> routes) {
 
         Collection<Route> serviceRoutes = new ArrayList<>();
 
-        for (Route route : routes.values()) {
+        for (Route route : routes) {
 
             String controller = route.getController();
             if(controller == null || !RouteHelper.isServiceController(controller)) {
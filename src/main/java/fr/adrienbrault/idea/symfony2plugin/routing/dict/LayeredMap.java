@@ -0,0 +1,162 @@
+package fr.adrienbrault.idea.symfony2plugin.routing.dict;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Read-only view over several maps without copying them, eg compiled routes and the routes of every RoutingLoader.
+ *
+ * Like "putAll" of all layers in their order: a key of a later layer hides the same key of all layers before it.
+ * The layers must not change while the view is in use.
+ */
+public class LayeredMap<K, V> extends AbstractMap<K, V> {
+
+    /**
+     * Last layer first
+     */
+    @NotNull
+    private final List<Map<K, V>> layers;
+
+    private volatile int size = -1;
+
+    private LayeredMap(@NotNull List<Map<K, V>> layers) {
+        this.layers = layers;
+    }
+
+    /**
+     * Empty layers are dropped; a single layer is returned as it is
+     */
+    @NotNull
+    public static <K, V> Map<K, V> create(@NotNull List<Map<K, V>> layers) {
+        List<Map<K, V>> nonEmpty = new ArrayList<>();
+        for (Map<K, V> layer : layers) {
+            if (!layer.isEmpty()) {
+                nonEmpty.add(0, layer);
+            }
+        }
+
+        if (nonEmpty.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        if (nonEmpty.size() == 1) {
+            return Collections.unmodifiableMap(nonEmpty.get(0));
+        }
+
+        return new LayeredMap<>(nonEmpty);
+    }
+
+    @Override
+    public V get(Object key) {
+        for (Map<K, V> layer : this.layers) {
+            V value = layer.get(key);
+            if (value != null || layer.containsKey(key)) {
+                return value;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        for (Map<K, V> layer : this.layers) {
+            if (layer.containsKey(key)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public int size() {
+        if (this.size < 0) {
+            int size = 0;
+            for (Iterator<Entry<K, V>> iterator = new EntryIterator(); iterator.hasNext(); iterator.next()) {
+                size++;
+            }
+
+            this.size = size;
+        }
+
+        return this.size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return false;
+    }
+
+    @NotNull
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @NotNull
+            @Override
+            public Iterator<Entry<K, V>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return LayeredMap.this.size();
+            }
+        };
+    }
+
+    /**
+     * Entries of all layers, skipping keys hidden by a later layer
+     */
+    private class EntryIterator implements Iterator<Entry<K, V>> {
+        private int layer = 0;
+
+        @NotNull
+        private Iterator<Entry<K, V>> entries = layers.get(0).entrySet().iterator();
+
+        private Entry<K, V> next;
+
+        @Override
+        public boolean hasNext() {
+            while (this.next == null) {
+                while (!this.entries.hasNext()) {
+                    if (++this.layer >= layers.size()) {
+                        return false;
+                    }
+
+                    this.entries = layers.get(this.layer).entrySet().iterator();
+                }
+
+                Entry<K, V> entry = this.entries.next();
+                if (!isHidden(entry.getKey())) {
+                    this.next = new SimpleImmutableEntry<>(entry);
+                }
+            }
+
+            return true;
+        }
+
+        @Override
+        public Entry<K, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            Entry<K, V> next = this.next;
+            this.next = null;
+
+            return next;
+        }
+
+        private boolean isHidden(K key) {
+            for (int i = 0; i < this.layer; i++) {
+                if (layers.get(i).containsKey(key)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package fr.adrienbrault.idea.symfony2plugin.routing.dict;
+
+import fr.adrienbrault.idea.symfony2plugin.templating.path.dict.TemplateNameTrie;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Values sorted by route name, each stored for the file defining it; so a changed file only replaces its own values.
+ *
+ * Names are kept in the copy-on-write radix tree of template names, a prefix search only visits the subtree of the
+ * prefix. Not thread-safe; a snapshot shares all unchanged nodes and can be read concurrently while the table is changed.
+ */
+public class RouteNameTable<F, V> {
+
+    /**
+     * Values of a name by file, in insertion order; replaced on every change, so they can be shared with a snapshot
+     */
+    @NotNull
+    private TemplateNameTrie<Values<F, V>> names;
+
+    /**
+     * Names of every file to remove them on a file change; "null" for a read-only snapshot
+     */
+    @Nullable
+    private final Map<F, Set<String>> files;
+
+    public RouteNameTable() {
+        this(new TemplateNameTrie<>(), new HashMap<>());
+    }
+
+    private RouteNameTable(@NotNull TemplateNameTrie<Values<F, V>> names, @Nullable Map<F, Set<String>> files) {
+        this.names = names;
+        this.files = files;
+    }
+
+    /**
+     * Read-only view of the current values in constant time; following changes of this table are not visible in it
+     */
+    @NotNull
+    public RouteNameTable<F, V> snapshot() {
+        return new RouteNameTable<>(this.names.snapshot(), null);
+    }
+
+    public void put(@NotNull F file, @NotNull String name, @NotNull V value) {
+        Values<F, V> before = getValuesOf(name);
+
+        Map<F, V> values = before != null ? new LinkedHashMap<>(before.values()) : new LinkedHashMap<>();
+        values.put(file, value);
+        replace(name, before, values);
+
+        getFiles().computeIfAbsent(file, f -> new HashSet<>()).add(name);
+    }
+
+    /**
+     * Removes all values of the file
+     */
+    public void remove(@NotNull F file) {
+        Set<String> names = getFiles().remove(file);
+        if (names == null) {
+            return;
+        }
+
+        for (String name : names) {
+            Values<F, V> before = getValuesOf(name);
+            if (before != null && before.values().containsKey(file)) {
+                Map<F, V> values = new LinkedHashMap<>(before.values());
+                values.remove(file);
+                replace(name, before, values);
+            }
+        }
+    }
+
+    public void clear() {
+        getFiles().clear();
+        this.names = new TemplateNameTrie<>();
+    }
+
+    public int size() {
+        return this.names.size();
+    }
+
+    @NotNull
+    public Collection<V> get(@NotNull String name) {
+        Values<F, V> values = getValuesOf(name);
+        return values != null ? new ArrayList<>(values.values().values()) : Collections.emptyList();
+    }
+
+    /**
+     * All values ordered by name
+     */
+    @NotNull
+    public List<V> getValues() {
+        return getValuesWithPrefix("");
+    }
+
+    /**
+     * Case-sensitive, like the route names: "app_" => "app_foo", "app_bar"
+     */
+    @NotNull
+    public List<V> getValuesWithPrefix(@NotNull String prefix) {
+        List<V> values = new ArrayList<>();
+        this.names.processPrefix(prefix, (name, nameValues) -> nameValues.forEach(v -> values.addAll(v.values().values())));
+
+        return values;
+    }
+
+    @NotNull
+    public List<V> getValuesMatching(@NotNull String pattern) {
+        String lowerPattern = pattern.toLowerCase();
+
+        List<V> values = new ArrayList<>();
+        this.names.processPrefix("", (name, nameValues) -> {
+            if (isSubsequence(lowerPattern, name)) {
+                nameValues.forEach(v -> values.addAll(v.values().values()));
+            }
+        });
+
+        return values;
+    }
+
+    private static boolean isSubsequence(@NotNull String lowerPattern, @NotNull String name) {
+        int index = 0;
+
+        for (int i = 0; i < name.length() && index < lowerPattern.length(); i++) {
+            if (Character.toLowerCase(name.charAt(i)) == lowerPattern.charAt(index)) {
+                index++;
+            }
+        }
+
+        return index == lowerPattern.length();
+    }
+
+    @Nullable
+    private Values<F, V> getValuesOf(@NotNull String name) {
+        Set<Values<F, V>> values = this.names.get(name);
+        return values.isEmpty() ? null : values.iterator().next();
+    }
+
+    private void replace(@NotNull String name, @Nullable Values<F, V> before, @NotNull Map<F, V> values) {
+        if (before != null) {
+            this.names.remove(name, before);
+        }
+
+        if (!values.isEmpty()) {
+            this.names.put(name, new Values<>(Collections.unmodifiableMap(values)));
+        }
+    }
+
+    @NotNull
+    private Map<F, Set<String>> getFiles() {
+        if (this.files == null) {
+            throw new UnsupportedOperationException("snapshot is read-only");
+        }
+
+        return this.files;
+    }
+
+    /**
+     * Compared by identity, so a trie node holds exactly the instance of the current values
+     */
+    private static final class Values<F, V> {
+        @NotNull
+        private final Map<F, V> values;
+
+        private Values(@NotNull Map<F, V> values) {
+            this.values = values;
+        }
+
+        @NotNull
+        private Map<F, V> values() {
+            return this.values;
+        }
+    }
+}
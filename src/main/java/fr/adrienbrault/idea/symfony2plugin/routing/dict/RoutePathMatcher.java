@@ -0,0 +1,208 @@
+package fr.adrienbrault.idea.symfony2plugin.routing.dict;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Prebuilt matcher of route paths against a url path: "/foo/{id}" matches "/foo/12" and "/FOO/{id}" as exact path.
+ *
+ * Route paths are stored as a trie of their "/" segments; literal segments are a direct lookup, segments with a
+ * placeholder are compiled once into a pattern. So a lookup only visits routes sharing the segments of the path, instead
+ * of compiling a pattern for every route. A placeholder matches "[\w-]+" and its requirement, if given and valid in Java.
+ */
+public class RoutePathMatcher<V> {
+
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{([\\w-]+)}");
+
+    private static final String PLACEHOLDER_VALUE = "[\\w-]+";
+
+    @NotNull
+    private final Node<V> root = new Node<>();
+
+    /**
+     * Case-insensitive exact paths
+     */
+    @NotNull
+    private final Map<String, List<V>> exactPaths = new HashMap<>();
+
+    public void add(@NotNull String path, @NotNull Map<String, String> requirements, @NotNull V value) {
+        this.exactPaths.computeIfAbsent(path.toLowerCase(), s -> new ArrayList<>()).add(value);
+
+        Node<V> node = this.root;
+        for (String segment : path.split("/", -1)) {
+            SegmentPattern segmentPattern = SegmentPattern.create(segment, requirements);
+            if (segmentPattern == null) {
+                node = node.literals.computeIfAbsent(segment, s -> new Node<>());
+            } else {
+                node = node.getPatternChild(segmentPattern);
+            }
+        }
+
+        node.values.add(value);
+    }
+
+    /**
+     * Exact and placeholder matches, each value once
+     */
+    @NotNull
+    public Collection<V> match(@NotNull String path) {
+        Set<V> values = new LinkedHashSet<>();
+
+        List<V> exact = this.exactPaths.get(path.toLowerCase());
+        if (exact != null) {
+            values.addAll(exact);
+        }
+
+        match(this.root, path.split("/", -1), 0, values);
+
+        return values;
+    }
+
+    private static <V> void match(@NotNull Node<V> node, @NotNull String[] segments, int index, @NotNull Set<V> values) {
+        if (index == segments.length) {
+            values.addAll(node.values);
+            return;
+        }
+
+        String segment = segments[index];
+
+        Node<V> literal = node.literals.get(segment);
+        if (literal != null) {
+            match(literal, segments, index + 1, values);
+        }
+
+        for (Map.Entry<SegmentPattern, Node<V>> entry : node.patterns.entrySet()) {
+            if (entry.getKey().matches(segment)) {
+                match(entry.getValue(), segments, index + 1, values);
+            }
+        }
+    }
+
+    private static class Node<V> {
+        @NotNull
+        private final Map<String, Node<V>> literals = new HashMap<>();
+
+        /**
+         * Equal segments of different routes share their node, eg "{id}" of "/foo/{id}/edit" and "/foo/{id}/show"
+         */
+        @NotNull
+        private final Map<SegmentPattern, Node<V>> patterns = new LinkedHashMap<>();
+
+        @NotNull
+        private final List<V> values = new ArrayList<>();
+
+        @NotNull
+        private Node<V> getPatternChild(@NotNull SegmentPattern segmentPattern) {
+            return this.patterns.computeIfAbsent(segmentPattern, s -> new Node<>());
+        }
+    }
+
+    /**
+     * A segment with placeholders: "{id}", "{slug}.{_format}", "page-{page}"
+     */
+    private static class SegmentPattern {
+        @NotNull
+        private final String key;
+
+        @NotNull
+        private final Pattern pattern;
+
+        @Nullable
+        private final Pattern requirements;
+
+        private SegmentPattern(@NotNull String key, @NotNull Pattern pattern, @Nullable Pattern requirements) {
+            this.key = key;
+            this.pattern = pattern;
+            this.requirements = requirements;
+        }
+
+        /**
+         * "null" for a literal segment
+         */
+        @Nullable
+        private static SegmentPattern create(@NotNull String segment, @NotNull Map<String, String> requirements) {
+            Matcher matcher = PLACEHOLDER.matcher(segment);
+
+            StringBuilder pattern = new StringBuilder();
+            StringBuilder requirementPattern = new StringBuilder();
+            boolean hasRequirement = false;
+
+            int last = 0;
+            while (matcher.find()) {
+                String literal = segment.substring(last, matcher.start());
+                if (!literal.isEmpty()) {
+                    pattern.append(Pattern.quote(literal));
+                    requirementPattern.append(Pattern.quote(literal));
+                }
+
+                pattern.append(PLACEHOLDER_VALUE);
+
+                String requirement = getRequirement(requirements.get(matcher.group(1)));
+                if (requirement != null) {
+                    requirementPattern.append("(?:").append(requirement).append(")");
+                    hasRequirement = true;
+                } else {
+                    requirementPattern.append(PLACEHOLDER_VALUE);
+                }
+
+                last = matcher.end();
+            }
+
+            if (last == 0) {
+                return null;
+            }
+
+            String literal = segment.substring(last);
+            if (!literal.isEmpty()) {
+                pattern.append(Pattern.quote(literal));
+                requirementPattern.append(Pattern.quote(literal));
+            }
+
+            String key = hasRequirement ? pattern + "\n" + requirementPattern : pattern.toString();
+
+            return new SegmentPattern(
+                key,
+                Pattern.compile(pattern.toString()),
+                hasRequirement ? Pattern.compile(requirementPattern.toString()) : null
+            );
+        }
+
+        /**
+         * Requirements are PHP regular expressions; unknown syntax is not a restriction
+         */
+        @Nullable
+        private static String getRequirement(@Nullable String requirement) {
+            if (requirement == null || requirement.isBlank()) {
+                return null;
+            }
+
+            try {
+                Pattern.compile(requirement);
+            } catch (PatternSyntaxException e) {
+                return null;
+            }
+
+            return requirement;
+        }
+
+        private boolean matches(@NotNull String segment) {
+            return this.pattern.matcher(segment).matches()
+                && (this.requirements == null || this.requirements.matcher(segment).matches());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof SegmentPattern && ((SegmentPattern) o).key.equals(this.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.key.hashCode();
+        }
+    }
+}
@@ -1,11 +1,13 @@
 package fr.adrienbrault.idea.symfony2plugin.routing.webDeployment;
 
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.SimpleModificationTracker;
 import com.intellij.openapi.util.io.StreamUtil;
 import com.jetbrains.php.lang.psi.PhpPsiElementFactory;
 import fr.adrienbrault.idea.symfony2plugin.Settings;
 import fr.adrienbrault.idea.symfony2plugin.routing.Route;
 import fr.adrienbrault.idea.symfony2plugin.routing.RouteHelper;
+import fr.adrienbrault.idea.symfony2plugin.routing.UrlGeneratorRouteParser;
 import fr.adrienbrault.idea.symfony2plugin.webDeployment.storage.RemoteFileStorageInterface;
 import fr.adrienbrault.idea.symfony2plugin.webDeployment.utils.RemoteWebServerUtil;
 import org.apache.commons.lang.StringUtils;
@@ -22,6 +24,11 @@ import java.util.Map;
  */
 public class RoutingRemoteFileStorage implements RemoteFileStorageInterface<Map<String, Route>> {
 
+    /**
+     * Changes for every build or clear of any project storage
+     */
+    public static final SimpleModificationTracker MODIFICATION_TRACKER = new SimpleModificationTracker();
+
     private Map<String, Route> routeMap = new HashMap<>();
 
     @NotNull
@@ -47,12 +54,16 @@ public class RoutingRemoteFileStorage implements RemoteFileStorageInterface<Map<
                 continue;
             }
 
-            routeMap.putAll(RouteHelper.getRoutesInsideUrlGeneratorFile(
-                PhpPsiElementFactory.createPsiFileFromText(project, content)
-            ));
+            Map<String, Route> routes = UrlGeneratorRouteParser.parse(content);
+            if (routes == null) {
+                routes = RouteHelper.getRoutesInsideUrlGeneratorFile(PhpPsiElementFactory.createPsiFileFromText(project, content));
+            }
+
+            routeMap.putAll(routes);
         }
 
         this.routeMap = routeMap;
+        MODIFICATION_TRACKER.incModificationCount();
     }
 
     @NotNull
@@ -63,5 +74,6 @@ public class RoutingRemoteFileStorage implements RemoteFileStorageInterface<Map<
     @Override
     public void clear() {
         this.routeMap = new HashMap<>();
+        MODIFICATION_TRACKER.incModificationCount();
     }
 }
@@ -9,12 +9,12 @@ import com.intellij.psi.util.CachedValueProvider;
 import com.intellij.psi.util.CachedValuesManager;
 import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.ID;
 import fr.adrienbrault.idea.symfony2plugin.config.component.parser.ParameterServiceParser;
 import fr.adrienbrault.idea.symfony2plugin.dic.ContainerParameter;
 import fr.adrienbrault.idea.symfony2plugin.dic.ContainerService;
 import fr.adrienbrault.idea.symfony2plugin.dic.XmlServiceParser;
 import fr.adrienbrault.idea.symfony2plugin.dic.container.ServiceInterface;
-import fr.adrienbrault.idea.symfony2plugin.dic.container.ServiceSerializable;
 import fr.adrienbrault.idea.symfony2plugin.dic.container.dict.ContainerBuilderCall;
 import fr.adrienbrault.idea.symfony2plugin.extension.ServiceCollectorParameter;
 import fr.adrienbrault.idea.symfony2plugin.extension.ServiceParameterCollector;
@@ -30,21 +30,26 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
 public class ContainerCollectionResolver {
 
-    private static final Key<CachedValue<Map<String, List<ServiceSerializable>>>> SERVICE_CONTAINER_INDEX = new Key<>("SYMFONY_SERVICE_CONTAINER_INDEX");
     private static final Key<CachedValue<Map<String, List<String>>>> SERVICE_PARAMETER_INDEX = new Key<>("SERVICE_PARAMETER_INDEX");
 
-    private static final Key<CachedValue<Set<String>>> SERVICE_CONTAINER_INDEX_NAMES = new Key<>("SYMFONY_SERVICE_CONTAINER_INDEX_NAMES");
+    static final Key<CachedValue<Set<String>>> SERVICE_CONTAINER_INDEX_NAMES = new Key<>("SYMFONY_SERVICE_CONTAINER_INDEX_NAMES");
     private static final Key<CachedValue<Set<String>>> SERVICE_PARAMETER_INDEX_NAMES = new Key<>("SERVICE_PARAMETER_INDEX_NAMES");
 
     private static final Key<CachedValue<ServiceCollector>> SYMFONY_SERVICE_COLLECTOR_CACHE = new Key<>("SYMFONY_SERVICE_COLLECTOR_CACHE");
     private static final Key<CachedValue<ParameterCollector>> SYMFONY_PARAMETER_COLLECTOR_CACHE = new Key<>("SYMFONY_PARAMETER_COLLECTOR_CACHE");
 
+    /**
+     * Upper bound of cached existence checks per collector, inspections are asking for every string of a file
+     */
+    private static final int EXISTS_CACHE_LIMIT = 2000;
+
     private static final ExtensionPointName<fr.adrienbrault.idea.symfony2plugin.extension.ServiceCollector> EXTENSIONS = new ExtensionPointName<>(
         "fr.adrienbrault.idea.symfony2plugin.extension.ServiceCollector"
     );
@@ -58,13 +63,11 @@ public class ContainerCollectionResolver {
     }
 
     public static boolean hasServiceNames(@NotNull Project project, @NotNull String serviceName) {
-        // @TODO: we dont need a collection here; stop on first match
-        return ServiceCollector.create(project).getNames().contains(serviceName);
+        return ServiceCollector.create(project).hasName(serviceName);
     }
 
     public static boolean hasServiceName(@NotNull LazyServiceCollector lazyServiceCollector, @NotNull String serviceName) {
-        // @TODO: we dont need a collection here; stop on first match
-        return lazyServiceCollector.getCollector().getNames().contains(serviceName);
+        return lazyServiceCollector.getCollector().hasName(serviceName);
     }
 
     @Nullable
@@ -140,7 +143,25 @@ public class ContainerCollectionResolver {
     }
 
     public static boolean hasParameterName(@NotNull LazyServiceCollector lazyServiceCollector, @NotNull String parameterName) {
-        return lazyServiceCollector.getParameterCollector().getNames().contains(parameterName);
+        return lazyServiceCollector.getParameterCollector().hasName(parameterName);
+    }
+
+    /**
+     * Stops on first value, instead of collecting all keys of an index
+     */
+    private static <V> boolean hasIndexKey(@NotNull ID<String, V> id, @NotNull String key, @NotNull GlobalSearchScope scope) {
+        return !FileBasedIndex.getInstance().processValues(id, key, null, (virtualFile, value) -> false, scope);
+    }
+
+    @NotNull
+    private static Boolean putExistsCache(@NotNull Map<String, Boolean> existsCache, @NotNull String name, boolean exists) {
+        if(existsCache.size() >= EXISTS_CACHE_LIMIT) {
+            existsCache.clear();
+        }
+
+        existsCache.put(name, exists);
+
+        return exists;
     }
 
     public static class ServiceCollector {
@@ -157,6 +178,15 @@ public class ContainerCollectionResolver {
         @Nullable
         private Set<String> serviceNamesCache;
 
+        @Nullable
+        private Map<String, Set<String>> classNameServicesCache;
+
+        @Nullable
+        private Set<String> extensionNamesCache;
+
+        @NotNull
+        private final Map<String, Boolean> existsCache = new ConcurrentHashMap<>();
+
         private ServiceCollector(@NotNull Project project) {
             this.project = project;
         }
@@ -189,21 +219,15 @@ public class ContainerCollectionResolver {
                 return this.servicesCache;
             }
 
-            TreeMap<String, ContainerService> services = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
-
-            // file system
-            for(ServiceInterface entry: ServiceXmlParserFactory.getInstance(project, XmlServiceParser.class).getServiceMap().getServices()) {
-                // compiled container owns all class names in resolved state
-                // api safe check
-                if(entry.getClassName() != null) {
-                    services.put(entry.getId(), new ContainerService(entry.getId(), entry.getClassName()));
-                }
-            }
-
-            Collection<ServiceInterface> aliases = new ArrayList<>();
-            Collection<ServiceInterface> decorated = new ArrayList<>();
+            // compiled container, extension points and index are merged incrementally
+            return this.servicesCache = ContainerServiceModel.getInstance(project).getServices(
+                this::collectExtensionServices,
+                className -> getParameterCollector().resolve(className)
+            );
+        }
 
-            // Extension points
+        @NotNull
+        private Collection<ServiceInterface> collectExtensionServices() {
             ServiceCollectorParameter.Service parameter = null;
             Collection<ServiceInterface> exps = new ArrayList<>();
             for (fr.adrienbrault.idea.symfony2plugin.extension.ServiceCollector collectorEx : EXTENSIONS.getExtensions()) {
@@ -214,142 +238,69 @@ public class ContainerCollectionResolver {
                 collectorEx.collectServices(parameter);
             }
 
-            if(exps.size() > 0) {
-                exps.forEach(service -> services.put(service.getId(), new ContainerService(service, null)));
-            }
-
-            for (Map.Entry<String, List<ServiceSerializable>> entry : FileIndexCaches.getSetDataCache(project, SERVICE_CONTAINER_INDEX, SERVICE_CONTAINER_INDEX_NAMES, ServicesDefinitionStubIndex.KEY, ServiceIndexUtil.getRestrictedFileTypesScope(project)).entrySet()) {
-
-                // dont work twice on service;
-                // @TODO: to need to optimize this to decorate as much service data as possible
-                String serviceName = entry.getKey();
-
-                // fake empty service, case which is not allowed by catch it
-                List<ServiceSerializable> servicesValues = entry.getValue();
-                if(services.size() == 0) {
-                    services.put(serviceName, new ContainerService(serviceName, null, true));
-                    continue;
-                }
-
-                for(ServiceInterface service: servicesValues) {
-                    String classValue = service.getClassName();
-
-                    // duplicate services
-                    ContainerService containerService = services.get(serviceName);
-                    if (containerService != null) {
-                        if(classValue == null) {
-                            continue;
-                        }
-
-                        String classValueResolve = classValue;
-                        String compiledClassName = containerService.getClassName();
-                        if(!classValue.equalsIgnoreCase(compiledClassName)) {
-                            String resolvedClassValue = getParameterCollector().resolve(classValue);
-                            if(resolvedClassValue != null && !StringUtils.isBlank(classValue) && !resolvedClassValue.equalsIgnoreCase(compiledClassName)) {
-                                containerService.addClassName(resolvedClassValue);
-                                classValueResolve = resolvedClassValue;
-                            }
-                        }
-
-                        // compiled container done have a value
-                        if (containerService.getService() == null) {
-                            services.put(serviceName, new ContainerService(service, classValueResolve));
-                        }
+            return exps;
+        }
 
-                        continue;
-                    }
+        public Set<String> convertClassNameToServices(@NotNull String fqnClassName) {
+            Set<String> serviceNames = getClassNameServices().get(normalizeClassName(fqnClassName));
+            return serviceNames != null ? Collections.unmodifiableSet(serviceNames) : Collections.emptySet();
+        }
 
-                    if(service.getAlias() != null) {
-                        aliases.add(service);
-                    }
+        /**
+         * Reverse lookup of resolved class names, so class related lookups dont need to visit every service
+         */
+        @NotNull
+        private Map<String, Set<String>> getClassNameServices() {
+            if(this.classNameServicesCache != null) {
+                return this.classNameServicesCache;
+            }
 
-                    // reuse iteration for alias mapping
-                    if(service.getDecorates() != null) {
-                        decorated.add(service);
-                    }
+            Map<String, Set<String>> classNameServices = new HashMap<>();
 
-                    // resolve class value, it can be null or a parameter
-                    if(!StringUtils.isBlank(classValue)) {
-                        classValue = getParameterCollector().resolve(classValue);
+            for(Map.Entry<String, ContainerService> entry: this.getServices().entrySet()) {
+                for (String className : entry.getValue().getClassNames()) {
+                    String indexedClassName = this.getParameterCollector().resolve(className);
+                    if(indexedClassName != null) {
+                        classNameServices.computeIfAbsent(normalizeClassName(indexedClassName), s -> new HashSet<>()).add(entry.getKey());
                     }
-
-                    // @TODO: legacy bridge; replace this with ServiceInterface
-                    services.put(serviceName, new ContainerService(service, classValue));
                 }
             }
 
-            // replace alias with main service
-            if(aliases.size() > 0) {
-                services.putAll(collectAliases(aliases, services));
-            }
-
-            if(decorated.size() > 0) {
-                services.putAll(collectDecorated(decorated, services));
-            }
-
-            return this.servicesCache = services;
+            return this.classNameServicesCache = classNameServices;
         }
 
         @NotNull
-        private Map<String, ContainerService> collectAliases(@NotNull Collection<ServiceInterface> aliases, @NotNull Map<String, ContainerService> currentServices) {
-            Map<String, ContainerService> items = new HashMap<>();
-
-            for (ServiceInterface service : aliases) {
-                // double check alias name
-                String alias = service.getAlias();
-                if(alias == null || StringUtils.isBlank(alias) || !currentServices.containsKey(alias)) {
-                    continue;
-                }
-
-                items.put(service.getId(), currentServices.get(alias));
-            }
-
-            return items;
+        private static String normalizeClassName(@NotNull String className) {
+            return StringUtils.stripStart(className, "\\").toLowerCase();
         }
 
-        @NotNull
-        private Map<String, ContainerService> collectDecorated(@NotNull Collection<ServiceInterface> decorated, @NotNull Map<String, ContainerService> currentServices) {
-            Map<String, ContainerService> items = new HashMap<>();
-
-            for (ServiceInterface service : decorated) {
-                String decorationInnerName = service.getDecorationInnerName();
-                if(StringUtils.isBlank(decorationInnerName)) {
-                    decorationInnerName = service.getId() + ".inner";
-                }
-
-                ContainerService origin = currentServices.get(service.getDecorates());
-                if(origin == null) {
-                    continue;
-                }
-
-                // @TODO: migrate constructor to ServiceInterface and decorate
-                ContainerService value = new ContainerService(decorationInnerName, origin.getClassName(), origin.isWeak(), true);
-                origin.getClassNames().forEach(value::addClassName);
-
-                items.put(decorationInnerName, value);
+        /**
+         * Existence check without merging all names: compiled container, index and extension points are asked in order
+         * and stop on first match
+         */
+        public boolean hasName(@NotNull String serviceName) {
+            Set<String> serviceNames = this.serviceNamesCache;
+            if (serviceNames != null) {
+                return serviceNames.contains(serviceName);
             }
 
-            return items;
-        }
-
-        public Set<String> convertClassNameToServices(@NotNull String fqnClassName) {
-
-            Set<String> serviceNames = new HashSet<>();
+            Boolean exists = this.existsCache.get(serviceName);
+            if (exists != null) {
+                return exists;
+            }
 
-            fqnClassName = StringUtils.stripStart(fqnClassName, "\\");
+            // local filesystem
+            if (ServiceXmlParserFactory.getInstance(project, XmlServiceParser.class).getServiceMap().hasId(serviceName)) {
+                return putExistsCache(this.existsCache, serviceName, true);
+            }
 
-            for(Map.Entry<String, ContainerService> entry: this.getServices().entrySet()) {
-                for (String className : entry.getValue().getClassNames()) {
-                    String indexedClassName = this.getParameterCollector().resolve(className);
-                    if(indexedClassName != null) {
-                        if(StringUtils.stripStart(indexedClassName, "\\").equalsIgnoreCase(fqnClassName)) {
-                            serviceNames.add(entry.getKey());
-                        }
-                    }
-                }
+            // index; keys are lowercase
+            if (hasIndexKey(ServicesDefinitionStubIndex.KEY, serviceName.toLowerCase(), GlobalSearchScope.allScope(project))) {
+                return putExistsCache(this.existsCache, serviceName, true);
             }
 
-            return serviceNames;
+            // Extension points
+            return putExistsCache(this.existsCache, serviceName, getExtensionNames().contains(serviceName));
         }
 
         private Set<String> getNames() {
@@ -365,6 +316,24 @@ public class ContainerCollectionResolver {
             );
 
             // Extension points
+            serviceNames.addAll(getExtensionNames());
+
+            // index
+            serviceNames.addAll(
+                FileIndexCaches.getIndexKeysCache(project, SERVICE_CONTAINER_INDEX_NAMES, ServicesDefinitionStubIndex.KEY)
+            );
+
+            return this.serviceNamesCache = serviceNames;
+        }
+
+        @NotNull
+        private Set<String> getExtensionNames() {
+            if (this.extensionNamesCache != null) {
+                return this.extensionNamesCache;
+            }
+
+            Set<String> serviceNames = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
             ServiceCollectorParameter.Id parameter = null;
             for (fr.adrienbrault.idea.symfony2plugin.extension.ServiceCollector collectorEx : EXTENSIONS.getExtensions()) {
                 if(parameter == null) {
@@ -374,15 +343,9 @@ public class ContainerCollectionResolver {
                 collectorEx.collectIds(parameter);
             }
 
-            // index
-            serviceNames.addAll(
-                FileIndexCaches.getIndexKeysCache(project, SERVICE_CONTAINER_INDEX_NAMES, ServicesDefinitionStubIndex.KEY)
-            );
-
-            return this.serviceNamesCache = serviceNames;
+            return this.extensionNamesCache = serviceNames;
         }
 
-
         private ParameterCollector getParameterCollector() {
             return (this.parameterCollector != null) ? this.parameterCollector : (this.parameterCollector = ParameterCollector.create(this.project));
         }
@@ -404,6 +367,9 @@ public class ContainerCollectionResolver {
         @Nullable
         private Map<String, ContainerParameter> containerParameterMap;
 
+        @NotNull
+        private final Map<String, Boolean> existsCache = new ConcurrentHashMap<>();
+
         private ParameterCollector(@NotNull Project project) {
             this.project = project;
         }
@@ -527,5 +493,32 @@ public class ContainerCollectionResolver {
         private Set<String> getNames() {
             return getParameters().keySet();
         }
+
+        /**
+         * Existence check on compiled container and index first; only a miss needs all other parameter sources
+         */
+        private boolean hasName(@NotNull String parameterName) {
+            Map<String, ContainerParameter> parameters = this.containerParameterMap;
+            if (parameters != null) {
+                return parameters.containsKey(parameterName);
+            }
+
+            Boolean exists = this.existsCache.get(parameterName);
+            if (exists != null) {
+                return exists;
+            }
+
+            // local filesystem
+            if (ServiceXmlParserFactory.getInstance(project, ParameterServiceParser.class).getParameterMap().containsKey(parameterName)) {
+                return putExistsCache(this.existsCache, parameterName, true);
+            }
+
+            // index
+            if (hasIndexKey(ContainerParameterStubIndex.KEY, parameterName, ServiceIndexUtil.getRestrictedFileTypesScope(project))) {
+                return putExistsCache(this.existsCache, parameterName, true);
+            }
+
+            return putExistsCache(this.existsCache, parameterName, getNames().contains(parameterName));
+        }
     }
 }
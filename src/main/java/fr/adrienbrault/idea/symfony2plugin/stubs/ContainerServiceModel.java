@@ -0,0 +1,524 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileWithId;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.ID;
+import com.jetbrains.php.lang.PhpLanguage;
+import fr.adrienbrault.idea.symfony2plugin.dic.ContainerService;
+import fr.adrienbrault.idea.symfony2plugin.dic.ServiceMap;
+import fr.adrienbrault.idea.symfony2plugin.dic.XmlServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.dic.container.ServiceInterface;
+import fr.adrienbrault.idea.symfony2plugin.dic.container.ServiceSerializable;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.FileIndexCaches;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.IncrementalIndexModel;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.ServicesDefinitionStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
+import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Incremental model behind "ServiceCollector.getServices()".
+ *
+ * Index definitions are tracked per contributing file. Only services of changed files get merged again, plus alias and
+ * decoration entries depending on them. Services using a "%parameter%" class are remerged when the resolved parameter
+ * value changes.
+ *
+ * A full rebuild only happens for a changed compiled container or whenever changes can not be tracked reliably. Definitions
+ * of a service in several files are merged in file id order, so an incremental update ends with the same result as a rebuild.
+ */
+public class ContainerServiceModel extends IncrementalIndexModel<Map<String, ContainerService>> {
+
+    @NotNull
+    private static final Comparator<VirtualFile> FILE_ORDER = Comparator
+        .comparingInt((VirtualFile virtualFile) -> virtualFile instanceof VirtualFileWithId ? ((VirtualFileWithId) virtualFile).getId() : 0)
+        .thenComparing(VirtualFile::getPath);
+
+    private volatile long inputModificationCount = -1;
+
+    @Nullable
+    private volatile Inputs inputs;
+
+    @Nullable
+    private volatile ExtensionServices extensionServices;
+
+    // all state below is only changed by a refresh
+
+    /**
+     * Last snapshot; published again as long as no service changed
+     */
+    @NotNull
+    private Map<String, ContainerService> published = Collections.emptyMap();
+
+    @Nullable
+    private ServiceMap compiledServiceMap;
+
+    @NotNull
+    private final Map<String, ServiceInterface> compiled = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    @NotNull
+    private Map<String, ServiceInterface> extensions = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    /**
+     * Index values per file; keys are the lowercase service ids of the index
+     */
+    @NotNull
+    private final Map<VirtualFile, Map<String, ServiceSerializable>> fileDefinitions = new HashMap<>();
+
+    @NotNull
+    private final Map<String, Set<VirtualFile>> definitionFiles = new HashMap<>();
+
+    /**
+     * Merged service per id, before applying aliases and decorations
+     */
+    @NotNull
+    private final Map<String, ContainerService> primary = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    @NotNull
+    private final Map<String, String> aliases = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    @NotNull
+    private final Map<String, ServiceInterface> decorations = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    @NotNull
+    private final Map<String, String> parameterValues = new HashMap<>();
+
+    @NotNull
+    private final Map<String, Set<String>> parameterUsages = new HashMap<>();
+
+    /**
+     * Reverse of "parameterUsages": parameters of every service id
+     */
+    @NotNull
+    private final Map<String, Set<String>> serviceParameters = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    @NotNull
+    private final TreeMap<String, ContainerService> services = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    public ContainerServiceModel(@NotNull Project project) {
+        super(project, Collections.emptyMap());
+    }
+
+    public static ContainerServiceModel getInstance(@NotNull Project project) {
+        return project.getService(ContainerServiceModel.class);
+    }
+
+    /**
+     * Readers of an up-to-date model never lock; inputs outside of the index are checked once per PSI modification
+     * without holding the lock of the model, and only a changed one refreshes the model
+     *
+     * @param extensionServices services of "ServiceCollector" extension points
+     * @param parameterResolver resolves "%parameter%" class names
+     */
+    @NotNull
+    public Map<String, ContainerService> getServices(@NotNull Supplier<Collection<ServiceInterface>> extensionServices, @NotNull Function<String, String> parameterResolver) {
+        long modificationCount = PsiModificationTracker.getInstance(project).getModificationCount();
+        if (modificationCount != this.inputModificationCount) {
+            ServiceMap serviceMap = ServiceXmlParserFactory.getInstance(project, XmlServiceParser.class).getServiceMap();
+            Map<String, ServiceInterface> extensions = getExtensionServices(extensionServices);
+
+            // changed index files refresh on their own; they only need the current resolver
+            Inputs inputs = this.inputs;
+            this.inputs = new Inputs(serviceMap, extensions, parameterResolver);
+            this.inputModificationCount = modificationCount;
+
+            if (inputs == null || inputs.serviceMap() != serviceMap || inputs.extensions() != extensions) {
+                markOutdated();
+            }
+        }
+
+        return getSnapshot();
+    }
+
+    /**
+     * Extension points are collected again only for PHP or service index changes, which they are built from
+     */
+    @NotNull
+    private Map<String, ServiceInterface> getExtensionServices(@NotNull Supplier<Collection<ServiceInterface>> extensionServices) {
+        long phpModificationCount = PsiModificationTracker.getInstance(project).forLanguage(PhpLanguage.INSTANCE).getModificationCount();
+        long indexModificationStamp = FileIndexCaches.getModificationTrackerForIndexId(project, ServicesDefinitionStubIndex.KEY).getModificationCount();
+
+        ExtensionServices cached = this.extensionServices;
+        if (cached != null && cached.phpModificationCount() == phpModificationCount && cached.indexModificationStamp() == indexModificationStamp) {
+            return cached.services();
+        }
+
+        Map<String, ServiceInterface> services = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        extensionServices.get().forEach(service -> services.put(service.getId(), service));
+
+        this.extensionServices = new ExtensionServices(phpModificationCount, indexModificationStamp, services);
+
+        return services;
+    }
+
+    @NotNull
+    @Override
+    protected Collection<ID<?, ?>> getIndexIds() {
+        return Collections.singletonList(ServicesDefinitionStubIndex.KEY);
+    }
+
+    @Override
+    protected boolean isModelFile(@NotNull VirtualFile virtualFile) {
+        String extension = virtualFile.getExtension();
+        return extension != null && (extension.equalsIgnoreCase("xml") || extension.equalsIgnoreCase("yml") || extension.equalsIgnoreCase("yaml") || extension.equalsIgnoreCase("php"));
+    }
+
+    @NotNull
+    @Override
+    protected Map<String, ContainerService> refresh(@Nullable Collection<VirtualFile> changedFiles) {
+        Inputs inputs = this.inputs;
+        if (inputs == null) {
+            return Collections.emptyMap();
+        }
+
+        boolean changed;
+        if (changedFiles == null || inputs.serviceMap() != this.compiledServiceMap) {
+            rebuild(inputs.serviceMap(), inputs.extensions(), inputs.parameterResolver());
+            changed = true;
+        } else {
+            changed = update(changedFiles, inputs.extensions(), inputs.parameterResolver());
+        }
+
+        this.compiledServiceMap = inputs.serviceMap();
+
+        // copy of a sorted map is linear
+        if (changed) {
+            this.published = Collections.unmodifiableMap(new TreeMap<>(this.services));
+        }
+
+        return this.published;
+    }
+
+    @Override
+    protected void clear() {
+        this.published = Collections.emptyMap();
+        this.compiledServiceMap = null;
+        this.compiled.clear();
+        this.extensions = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        this.fileDefinitions.clear();
+        this.definitionFiles.clear();
+        this.primary.clear();
+        this.aliases.clear();
+        this.decorations.clear();
+        this.parameterValues.clear();
+        this.parameterUsages.clear();
+        this.serviceParameters.clear();
+        this.services.clear();
+    }
+
+    private void rebuild(@NotNull ServiceMap serviceMap, @NotNull Map<String, ServiceInterface> extensions, @NotNull Function<String, String> parameterResolver) {
+        clear();
+
+        // compiled container owns all class names in resolved state
+        for (ServiceInterface service : serviceMap.getServices()) {
+            if (service.getClassName() != null) {
+                this.compiled.put(service.getId(), service);
+            }
+        }
+
+        this.extensions = extensions;
+
+        FileBasedIndex index = FileBasedIndex.getInstance();
+        GlobalSearchScope scope = ServiceIndexUtil.getRestrictedFileTypesScope(project);
+
+        for (String key : FileIndexCaches.getIndexKeysCache(project, ContainerCollectionResolver.SERVICE_CONTAINER_INDEX_NAMES, ServicesDefinitionStubIndex.KEY)) {
+            index.processValues(ServicesDefinitionStubIndex.KEY, key, null, (virtualFile, service) -> {
+                this.fileDefinitions.computeIfAbsent(virtualFile, file -> new HashMap<>()).put(key, service);
+                this.definitionFiles.computeIfAbsent(key, s -> new TreeSet<>(FILE_ORDER)).add(virtualFile);
+                return true;
+            }, scope);
+        }
+
+        Set<String> ids = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        ids.addAll(this.compiled.keySet());
+        ids.addAll(this.extensions.keySet());
+        ids.addAll(this.definitionFiles.keySet());
+
+        for (String id : ids) {
+            updatePrimary(id, parameterResolver);
+        }
+
+        Set<String> keys = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        keys.addAll(this.primary.keySet());
+        this.decorations.values().forEach(service -> keys.add(getDecorationInnerName(service)));
+
+        updateServices(keys);
+    }
+
+    /**
+     * @return "true" if a service was changed
+     */
+    private boolean update(@NotNull Collection<VirtualFile> files, @NotNull Map<String, ServiceInterface> extensions, @NotNull Function<String, String> parameterResolver) {
+        Set<String> changed = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+
+        // extension points are collected on every refresh, only their differences are applied
+        Set<String> extensionIds = new HashSet<>(this.extensions.keySet());
+        extensionIds.addAll(extensions.keySet());
+        for (String id : extensionIds) {
+            if (!Objects.equals(this.extensions.get(id), extensions.get(id))) {
+                changed.add(id);
+            }
+        }
+
+        this.extensions = extensions;
+
+        // per file deltas of the index
+        GlobalSearchScope scope = ServiceIndexUtil.getRestrictedFileTypesScope(project);
+        for (VirtualFile virtualFile : files) {
+            Map<String, ServiceSerializable> before = this.fileDefinitions.remove(virtualFile);
+            if (before == null) {
+                before = Collections.emptyMap();
+            }
+
+            Map<String, ServiceSerializable> after = virtualFile.isValid() && scope.contains(virtualFile)
+                ? FileBasedIndex.getInstance().getFileData(ServicesDefinitionStubIndex.KEY, virtualFile, project)
+                : Collections.emptyMap();
+
+            for (String key : before.keySet()) {
+                Set<VirtualFile> virtualFiles = this.definitionFiles.get(key);
+                if (virtualFiles != null) {
+                    virtualFiles.remove(virtualFile);
+                    if (virtualFiles.isEmpty()) {
+                        this.definitionFiles.remove(key);
+                    }
+                }
+
+                if (!Objects.equals(before.get(key), after.get(key))) {
+                    changed.add(key);
+                }
+            }
+
+            for (String key : after.keySet()) {
+                this.definitionFiles.computeIfAbsent(key, s -> new TreeSet<>(FILE_ORDER)).add(virtualFile);
+
+                if (!before.containsKey(key)) {
+                    changed.add(key);
+                }
+            }
+
+            if (!after.isEmpty()) {
+                this.fileDefinitions.put(virtualFile, new HashMap<>(after));
+            }
+        }
+
+        // services with "%parameter%" class names
+        for (Map.Entry<String, String> entry : new ArrayList<>(this.parameterValues.entrySet())) {
+            if (!Objects.equals(parameterResolver.apply(entry.getKey()), entry.getValue())) {
+                changed.addAll(this.parameterUsages.getOrDefault(entry.getKey(), Collections.emptySet()));
+            }
+        }
+
+        if (changed.isEmpty()) {
+            return false;
+        }
+
+        Set<String> affected = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        affected.addAll(changed);
+
+        for (String id : changed) {
+            // previous decoration target need to fall back to its origin value
+            ServiceInterface decorated = this.decorations.get(id);
+            if (decorated != null) {
+                affected.add(getDecorationInnerName(decorated));
+            }
+
+            updatePrimary(id, parameterResolver);
+
+            decorated = this.decorations.get(id);
+            if (decorated != null) {
+                affected.add(getDecorationInnerName(decorated));
+            }
+        }
+
+        // aliases are not chained; only direct targets are relevant
+        for (Map.Entry<String, String> entry : this.aliases.entrySet()) {
+            if (affected.contains(entry.getValue())) {
+                affected.add(entry.getKey());
+            }
+        }
+
+        for (ServiceInterface service : this.decorations.values()) {
+            String decorates = service.getDecorates();
+            if (decorates != null && affected.contains(decorates)) {
+                affected.add(getDecorationInnerName(service));
+            }
+        }
+
+        return updateServices(affected);
+    }
+
+    /**
+     * Merge compiled, extension and index definitions for a single id
+     */
+    private void updatePrimary(@NotNull String id, @NotNull Function<String, String> parameterResolver) {
+        this.aliases.remove(id);
+        this.decorations.remove(id);
+
+        Set<String> parameters = this.serviceParameters.remove(id);
+        if (parameters != null) {
+            for (String parameter : parameters) {
+                Set<String> ids = this.parameterUsages.get(parameter);
+                if (ids != null) {
+                    ids.remove(id);
+                    if (ids.isEmpty()) {
+                        this.parameterUsages.remove(parameter);
+                        this.parameterValues.remove(parameter);
+                    }
+                }
+            }
+        }
+
+        ContainerService containerService = null;
+
+        ServiceInterface compiledService = this.compiled.get(id);
+        if (compiledService != null) {
+            containerService = new ContainerService(compiledService.getId(), compiledService.getClassName());
+        }
+
+        ServiceInterface extensionService = this.extensions.get(id);
+        if (extensionService != null) {
+            containerService = new ContainerService(extensionService, null);
+        }
+
+        for (ServiceSerializable service : getDefinitions(id)) {
+            String classValue = service.getClassName();
+
+            // duplicate services
+            if (containerService != null) {
+                if (classValue == null) {
+                    continue;
+                }
+
+                String classValueResolve = classValue;
+                String compiledClassName = containerService.getClassName();
+                if (!classValue.equalsIgnoreCase(compiledClassName)) {
+                    String resolvedClassValue = resolveParameter(id, classValue, parameterResolver);
+                    if (resolvedClassValue != null && !StringUtils.isBlank(classValue) && !resolvedClassValue.equalsIgnoreCase(compiledClassName)) {
+                        containerService.addClassName(resolvedClassValue);
+                        classValueResolve = resolvedClassValue;
+                    }
+                }
+
+                // compiled container done have a value
+                if (containerService.getService() == null) {
+                    containerService = new ContainerService(service, classValueResolve);
+                }
+
+                continue;
+            }
+
+            if (service.getAlias() != null) {
+                this.aliases.put(id, service.getAlias());
+            }
+
+            if (service.getDecorates() != null) {
+                this.decorations.put(id, service);
+            }
+
+            // resolve class value, it can be null or a parameter
+            if (!StringUtils.isBlank(classValue)) {
+                classValue = resolveParameter(id, classValue, parameterResolver);
+            }
+
+            containerService = new ContainerService(service, classValue);
+        }
+
+        if (containerService == null) {
+            this.primary.remove(id);
+        } else {
+            this.primary.put(id, containerService);
+        }
+    }
+
+    /**
+     * @return "true" if a service was added, removed or replaced
+     */
+    private boolean updateServices(@NotNull Collection<String> keys) {
+        boolean changed = false;
+
+        Map<String, ServiceInterface> decorators = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        this.decorations.values().forEach(service -> decorators.put(getDecorationInnerName(service), service));
+
+        for (String key : keys) {
+            ContainerService containerService = getAliasedService(key);
+
+            ServiceInterface decorator = decorators.get(key);
+            if (decorator != null && decorator.getDecorates() != null) {
+                ContainerService origin = getAliasedService(decorator.getDecorates());
+                if (origin != null) {
+                    // @TODO: migrate constructor to ServiceInterface and decorate
+                    containerService = new ContainerService(getDecorationInnerName(decorator), origin.getClassName(), origin.isWeak(), true);
+                    origin.getClassNames().forEach(containerService::addClassName);
+                }
+            }
+
+            ContainerService before = containerService == null ? this.services.remove(key) : this.services.put(key, containerService);
+            changed |= before != containerService;
+        }
+
+        return changed;
+    }
+
+    @Nullable
+    private ContainerService getAliasedService(@NotNull String id) {
+        String alias = this.aliases.get(id);
+        if (alias != null && !StringUtils.isBlank(alias) && this.primary.containsKey(alias)) {
+            return this.primary.get(alias);
+        }
+
+        return this.primary.get(id);
+    }
+
+    @NotNull
+    private Collection<ServiceSerializable> getDefinitions(@NotNull String id) {
+        String key = id.toLowerCase();
+
+        Set<VirtualFile> virtualFiles = this.definitionFiles.get(key);
+        if (virtualFiles == null) {
+            return Collections.emptyList();
+        }
+
+        Collection<ServiceSerializable> definitions = new ArrayList<>();
+        for (VirtualFile virtualFile : virtualFiles) {
+            ServiceSerializable service = this.fileDefinitions.getOrDefault(virtualFile, Collections.emptyMap()).get(key);
+            if (service != null) {
+                definitions.add(service);
+            }
+        }
+
+        return definitions;
+    }
+
+    @Nullable
+    private String resolveParameter(@NotNull String id, @NotNull String classValue, @NotNull Function<String, String> parameterResolver) {
+        String resolved = parameterResolver.apply(classValue);
+
+        if (classValue.length() > 1 && classValue.startsWith("%") && classValue.endsWith("%")) {
+            this.parameterValues.put(classValue, resolved);
+            this.parameterUsages.computeIfAbsent(classValue, s -> new TreeSet<>(String.CASE_INSENSITIVE_ORDER)).add(id);
+            this.serviceParameters.computeIfAbsent(id, s -> new HashSet<>()).add(classValue);
+        }
+
+        return resolved;
+    }
+
+    @NotNull
+    private static String getDecorationInnerName(@NotNull ServiceInterface service) {
+        String decorationInnerName = service.getDecorationInnerName();
+        return StringUtils.isBlank(decorationInnerName) ? service.getId() + ".inner" : decorationInnerName;
+    }
+
+    private record ExtensionServices(long phpModificationCount, long indexModificationStamp, @NotNull Map<String, ServiceInterface> services) {
+    }
+
+    private record Inputs(@NotNull ServiceMap serviceMap, @NotNull Map<String, ServiceInterface> extensions, @NotNull Function<String, String> parameterResolver) {
+    }
+}
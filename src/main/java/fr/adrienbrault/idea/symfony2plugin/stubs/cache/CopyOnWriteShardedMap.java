@@ -0,0 +1,143 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.cache;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Hash map of a model which is published as snapshot after every change.
+ *
+ * Entries are split into a fixed number of shards by their hash; a snapshot only copies the shard references, and the
+ * first change of a shard after a snapshot copies this one shard. So a refresh of some keys costs a fraction of the map
+ * instead of a full copy. Not thread-safe; snapshots can be read concurrently while this map is changed.
+ */
+public class CopyOnWriteShardedMap<K, V> {
+
+    private static final int SHARDS = 256;
+
+    /**
+     * Shards which are not part of any snapshot and can be changed in place
+     */
+    @NotNull
+    private final BitSet owned = new BitSet(SHARDS);
+
+    @NotNull
+    private Map<K, V>[] shards = createShards();
+
+    private int size;
+
+    @Nullable
+    public V get(@NotNull Object key) {
+        return this.shards[getShard(key)].get(key);
+    }
+
+    @Nullable
+    public V put(@NotNull K key, @NotNull V value) {
+        V before = mutable(getShard(key)).put(key, value);
+        if (before == null) {
+            this.size++;
+        }
+
+        return before;
+    }
+
+    @Nullable
+    public V remove(@NotNull Object key) {
+        int shard = getShard(key);
+        if (!this.shards[shard].containsKey(key)) {
+            return null;
+        }
+
+        this.size--;
+        return mutable(shard).remove(key);
+    }
+
+    public void clear() {
+        this.shards = createShards();
+        this.owned.clear();
+        this.size = 0;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Unchanged read-only view of the current entries; following changes of this map are not visible in it
+     */
+    @NotNull
+    public Map<K, V> snapshot() {
+        this.owned.clear();
+        return new Snapshot<>(this.shards.clone(), this.size);
+    }
+
+    @NotNull
+    private Map<K, V> mutable(int shard) {
+        if (!this.owned.get(shard)) {
+            this.shards[shard] = new HashMap<>(this.shards[shard]);
+            this.owned.set(shard);
+        }
+
+        return this.shards[shard];
+    }
+
+    private static int getShard(@NotNull Object key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (SHARDS - 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    @NotNull
+    private static <K, V> Map<K, V>[] createShards() {
+        Map<K, V>[] shards = new Map[SHARDS];
+        Arrays.fill(shards, Collections.emptyMap());
+        return shards;
+    }
+
+    private static class Snapshot<K, V> extends AbstractMap<K, V> {
+        @NotNull
+        private final Map<K, V>[] shards;
+
+        private final int size;
+
+        private Snapshot(@NotNull Map<K, V>[] shards, int size) {
+            this.shards = shards;
+            this.size = size;
+        }
+
+        @Override
+        public V get(Object key) {
+            return key == null ? null : this.shards[getShard(key)].get(key);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key != null && this.shards[getShard(key)].containsKey(key);
+        }
+
+        @Override
+        public int size() {
+            return this.size;
+        }
+
+        @NotNull
+        @Override
+        public Set<Entry<K, V>> entrySet() {
+            return new AbstractSet<>() {
+                @NotNull
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return Arrays.stream(shards)
+                        .flatMap(shard -> Collections.unmodifiableMap(shard).entrySet().stream())
+                        .iterator();
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+    }
+}
@@ -3,92 +3,193 @@ package fr.adrienbrault.idea.symfony2plugin.stubs.cache;
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Key;
 import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.util.CachedValue;
-import com.intellij.psi.util.CachedValueProvider;
-import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.util.ConcurrencyUtil;
 import com.intellij.util.indexing.FileBasedIndex;
 import com.intellij.util.indexing.ID;
 import fr.adrienbrault.idea.symfony2plugin.stubs.SymfonyProcessors;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntMaps;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
 import org.jetbrains.annotations.NotNull;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
 
 /**
  * All FileBasedIndex are slow and cross project data, we need them every often
  * Cache values as long nothing globally change in our project.
  *
+ * Every cache slot holds an immutable snapshot tagged with the modification stamp of its index.
+ * Readers never lock: a stale snapshot is rebuilt by the calling thread and published atomically,
+ * so rebuilding one index never stalls readers of another one.
+ *
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
 public class FileIndexCaches {
 
+    private static final Key<ConcurrentMap<Key<?>, IndexSnapshot<?>>> INDEX_SNAPSHOTS = new Key<>("SYMFONY_FILE_INDEX_SNAPSHOTS");
+
     /**
      * @param dataHolderKey Main data to cache
      * @param dataHolderNames Cache extracted name Set
      */
-    static public synchronized <T> Map<String, List<T>> getSetDataCache(@NotNull final Project project, @NotNull Key<CachedValue<Map<String, List<T>>>> dataHolderKey, final @NotNull Key<CachedValue<Set<String>>> dataHolderNames, @NotNull final ID<String, T> ID, @NotNull final GlobalSearchScope scope) {
-        return CachedValuesManager.getManager(project).getCachedValue(
-            project,
-            dataHolderKey,
-            () -> {
-                Map<String, List<T>> items = new HashMap<>();
-
-                final FileBasedIndex fileBasedIndex = FileBasedIndex.getInstance();
-
-                getIndexKeysCache(project, dataHolderNames, ID).forEach(service ->
-                    items.put(service, fileBasedIndex.getValues(ID, service, scope))
-                );
-
-                return CachedValueProvider.Result.create(items, getModificationTrackerForIndexId(project, ID));
-            },
-            false
-        );
+    static public <T> Map<String, List<T>> getSetDataCache(@NotNull final Project project, @NotNull Key<CachedValue<Map<String, List<T>>>> dataHolderKey, final @NotNull Key<CachedValue<Set<String>>> dataHolderNames, @NotNull final ID<String, T> ID, @NotNull final GlobalSearchScope scope) {
+        return getSnapshot(project, dataHolderKey, ID, () -> {
+            Map<String, List<T>> items = new HashMap<>();
+
+            final FileBasedIndex fileBasedIndex = FileBasedIndex.getInstance();
+
+            getIndexKeysCache(project, dataHolderNames, ID).forEach(service ->
+                items.put(service, fileBasedIndex.getValues(ID, service, scope))
+            );
+
+            return Collections.unmodifiableMap(items);
+        });
     }
 
     /**
      * @param dataHolderKey Main data to cache
      * @param dataHolderNames Cache extracted name Set
      */
-    static public synchronized Map<String, List<String>> getStringDataCache(@NotNull final Project project, @NotNull Key<CachedValue<Map<String, List<String>>>> dataHolderKey, final @NotNull Key<CachedValue<Set<String>>> dataHolderNames, @NotNull final ID<String, String> ID, @NotNull final GlobalSearchScope scope) {
-        return CachedValuesManager.getManager(project).getCachedValue(
-            project,
-            dataHolderKey,
-            () -> {
-                Map<String, List<String>> strings = new HashMap<>();
-
-                final FileBasedIndex fileBasedIndex = FileBasedIndex.getInstance();
-                getIndexKeysCache(project, dataHolderNames, ID).forEach(parameterName -> {
-                    // just for secure
-                    if(parameterName == null) {
-                        return;
-                    }
-
-                    strings.put(parameterName, fileBasedIndex.getValues(ID, parameterName, scope));
-                });
-
-                return CachedValueProvider.Result.create(strings, getModificationTrackerForIndexId(project, ID));
-            },
-            false
-        );
+    static public Map<String, List<String>> getStringDataCache(@NotNull final Project project, @NotNull Key<CachedValue<Map<String, List<String>>>> dataHolderKey, final @NotNull Key<CachedValue<Set<String>>> dataHolderNames, @NotNull final ID<String, String> ID, @NotNull final GlobalSearchScope scope) {
+        return getSnapshot(project, dataHolderKey, ID, () -> {
+            Map<String, List<String>> strings = new HashMap<>();
+
+            final FileBasedIndex fileBasedIndex = FileBasedIndex.getInstance();
+            getIndexKeysCache(project, dataHolderNames, ID).forEach(parameterName -> {
+                // just for secure
+                if(parameterName == null) {
+                    return;
+                }
+
+                strings.put(parameterName, fileBasedIndex.getValues(ID, parameterName, scope));
+            });
+
+            return Collections.unmodifiableMap(strings);
+        });
+    }
+
+    /**
+     * Sum of all values per key, eg usage counter; missing keys are 0
+     */
+    @NotNull
+    static public Object2IntMap<String> getIntegerSumCache(@NotNull final Project project, @NotNull Key<?> dataHolderKey, @NotNull final ID<String, Integer> ID, @NotNull final GlobalSearchScope scope) {
+        return getSnapshot(project, dataHolderKey, ID, () -> {
+            Object2IntOpenHashMap<String> sums = new Object2IntOpenHashMap<>();
+
+            final FileBasedIndex fileBasedIndex = FileBasedIndex.getInstance();
+            for (String key : SymfonyProcessors.createResult(project, ID)) {
+                int sum = 0;
+                for (Integer value : fileBasedIndex.getValues(ID, key, scope)) {
+                    sum += value;
+                }
+
+                sums.put(key, sum);
+            }
+
+            sums.trim();
+
+            return Object2IntMaps.unmodifiable(sums);
+        });
+    }
+
+    /**
+     * String set of a single index key per file, eg all "block" names of a template.
+     *
+     * Files are cached until the index changes; unknown files are loaded in one index pass over their scope union.
+     * Sets are immutable with interned names, as the same names are repeated in nearly every file of a layout.
+     *
+     * @return only files providing a value
+     */
+    @NotNull
+    static public Map<VirtualFile, Set<String>> getFileStringSetCache(@NotNull Project project, @NotNull Key<?> dataHolderKey, @NotNull ID<String, Set<String>> ID, @NotNull String key, @NotNull Collection<VirtualFile> virtualFiles) {
+        if (virtualFiles.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        FileBasedIndex fileBasedIndex = FileBasedIndex.getInstance();
+
+        // unsaved changes of the requested files must be visible in the stamp
+        fileBasedIndex.ensureUpToDate(ID, project, GlobalSearchScope.filesScope(project, virtualFiles));
+
+        ConcurrentMap<VirtualFile, Set<String>> files = getSnapshot(project, dataHolderKey, ID, ConcurrentHashMap::new);
+
+        Collection<VirtualFile> missing = new HashSet<>();
+        for (VirtualFile virtualFile : virtualFiles) {
+            if (!files.containsKey(virtualFile)) {
+                missing.add(virtualFile);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            Map<VirtualFile, Set<String>> values = new HashMap<>();
+
+            fileBasedIndex.processValues(ID, key, null, (virtualFile, strings) -> {
+                Set<String> names = values.computeIfAbsent(virtualFile, f -> new HashSet<>());
+                for (String string : strings) {
+                    names.add(string.intern());
+                }
+
+                return true;
+            }, GlobalSearchScope.filesScope(project, missing));
+
+            // files without a value are also cached
+            for (VirtualFile virtualFile : missing) {
+                Set<String> names = values.get(virtualFile);
+                files.put(virtualFile, names != null ? Set.copyOf(names) : Collections.emptySet());
+            }
+        }
+
+        Map<VirtualFile, Set<String>> result = new HashMap<>();
+        for (VirtualFile virtualFile : virtualFiles) {
+            Set<String> names = files.get(virtualFile);
+            if (names != null && !names.isEmpty()) {
+                result.put(virtualFile, names);
+            }
+        }
+
+        return result;
     }
 
     /**
      * There several methods that just need to check for names, as they also needed for value extraction, so cache them also
      */
-    static public synchronized Set<String> getIndexKeysCache(@NotNull final Project project, @NotNull Key<CachedValue<Set<String>>> dataHolderKey, @NotNull final ID<String, ?> id) {
-        return CachedValuesManager.getManager(project).getCachedValue(
-            project,
-            dataHolderKey,
-            () -> CachedValueProvider.Result.create(SymfonyProcessors.createResult(project, id), getModificationTrackerForIndexId(project, id)),
-            false
-        );
+    static public Set<String> getIndexKeysCache(@NotNull final Project project, @NotNull Key<CachedValue<Set<String>>> dataHolderKey, @NotNull final ID<String, ?> id) {
+        return getSnapshot(project, dataHolderKey, id, () -> Collections.unmodifiableSet(SymfonyProcessors.createResult(project, id)));
     }
 
     @NotNull
     public static ModificationTracker getModificationTrackerForIndexId(@NotNull Project project, @NotNull final ID<?, ?> id) {
         return () -> FileBasedIndex.getInstance().getIndexModificationStamp(id, project);
     }
+
+    /**
+     * Lock-free read of the snapshot for the given cache slot; concurrent rebuilds may race, the newest stamp wins
+     */
+    @NotNull
+    @SuppressWarnings("unchecked")
+    private static <T> T getSnapshot(@NotNull Project project, @NotNull Key<?> cacheKey, @NotNull ID<?, ?> id, @NotNull Supplier<T> builder) {
+        ConcurrentMap<Key<?>, IndexSnapshot<?>> snapshots = ConcurrencyUtil.computeIfAbsent(project, INDEX_SNAPSHOTS, ConcurrentHashMap::new);
+
+        // stamp must be taken before building, so changes during building invalidate the result on next access
+        long stamp = FileBasedIndex.getInstance().getIndexModificationStamp(id, project);
+
+        IndexSnapshot<?> snapshot = snapshots.get(cacheKey);
+        if (snapshot != null && snapshot.stamp() == stamp) {
+            return (T) snapshot.value();
+        }
+
+        T value = builder.get();
+        snapshots.merge(cacheKey, new IndexSnapshot<>(stamp, value), (current, created) -> current.stamp() > created.stamp() ? current : created);
+
+        return value;
+    }
+
+    private record IndexSnapshot<T>(long stamp, @NotNull T value) {
+    }
 }
@@ -0,0 +1,284 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.cache;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.progress.ProcessCanceledException;
+import com.intellij.openapi.progress.ProgressManager;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.intellij.psi.*;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.ID;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Project model built from file based indexes, which is updated per changed file instead of being rebuilt on every change.
+ *
+ * Files changed since the last refresh are collected from PSI and VFS events; a refresh only reads them again. Unknown
+ * changes like a reindex, a moved directory or bulk changes rebuild the model. Every refresh publishes an immutable
+ * snapshot: readers of an up-to-date model never lock, and readers waiting for a running refresh stay cancelable.
+ */
+public abstract class IncrementalIndexModel<S> implements Disposable {
+
+    /**
+     * Bulk changes like a VCS update are cheaper to rebuild at once
+     */
+    private static final int MAX_CHANGED_FILES = 200;
+
+    @NotNull
+    protected final Project project;
+
+    @NotNull
+    private final S emptySnapshot;
+
+    @NotNull
+    private final Set<VirtualFile> changedFiles = ConcurrentHashMap.newKeySet();
+
+    @NotNull
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile boolean invalidated = true;
+
+    private volatile boolean outdated = false;
+
+    private volatile long psiModificationCount = -1;
+
+    private volatile long indexModificationStamp = -1;
+
+    @NotNull
+    private volatile S snapshot;
+
+    protected IncrementalIndexModel(@NotNull Project project, @NotNull S emptySnapshot) {
+        this.project = project;
+        this.emptySnapshot = emptySnapshot;
+        this.snapshot = emptySnapshot;
+
+        PsiManager.getInstance(project).addPsiTreeChangeListener(new MyPsiTreeChangeListener(), this);
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new MyBulkFileListener());
+    }
+
+    /**
+     * Indexes the model is built from
+     */
+    @NotNull
+    protected abstract Collection<ID<?, ?>> getIndexIds();
+
+    /**
+     * Files which can contribute to the model; directories are handled already. A refresh can still get other files,
+     * eg renamed ones, and must drop their state.
+     */
+    protected abstract boolean isModelFile(@NotNull VirtualFile virtualFile);
+
+    /**
+     * Applies the changes and creates the snapshot for readers. Never called concurrently; a thrown exception like a
+     * ProcessCanceledException leaves the state half applied, so the next refresh is a rebuild.
+     *
+     * @param changedFiles "null" for a rebuild; empty for changes outside of the indexes
+     */
+    @NotNull
+    protected abstract S refresh(@Nullable Collection<VirtualFile> changedFiles);
+
+    /**
+     * Releases all state of the model; called with the lock of the model
+     */
+    protected abstract void clear();
+
+    /**
+     * Up-to-date snapshot; unrelated PSI changes only compare the index modification stamps, without any lock
+     */
+    @NotNull
+    protected S getSnapshot() {
+        long modificationCount = PsiModificationTracker.getInstance(this.project).getModificationCount();
+
+        if (!this.invalidated && !this.outdated && this.changedFiles.isEmpty()) {
+            if (modificationCount == this.psiModificationCount) {
+                return this.snapshot;
+            }
+
+            // index changes without a known file, eg a reindex
+            if (getIndexModificationStamp() == this.indexModificationStamp) {
+                this.psiModificationCount = modificationCount;
+                return this.snapshot;
+            }
+        }
+
+        lock(this.lock);
+        try {
+            refresh(modificationCount);
+            return this.snapshot;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Inputs outside of the indexes changed; the next access refreshes the model without any changed file
+     */
+    protected void markOutdated() {
+        this.outdated = true;
+    }
+
+    private void refresh(long modificationCount) {
+        long stamp = getIndexModificationStamp();
+
+        // changes after draining stay for the next refresh
+        Set<VirtualFile> files = new HashSet<>();
+        for (Iterator<VirtualFile> iterator = this.changedFiles.iterator(); iterator.hasNext(); ) {
+            files.add(iterator.next());
+            iterator.remove();
+        }
+
+        boolean outdated = this.outdated;
+        this.outdated = false;
+
+        // another thread was refreshing while waiting for the lock
+        if (!this.invalidated && !outdated && files.isEmpty() && stamp == this.indexModificationStamp) {
+            this.psiModificationCount = modificationCount;
+            return;
+        }
+
+        boolean fullRebuild = this.invalidated
+            || files.size() > MAX_CHANGED_FILES
+            || (stamp != this.indexModificationStamp && files.isEmpty());
+
+        // reset before building, so a canceled build is repeated
+        this.invalidated = false;
+
+        try {
+            this.snapshot = refresh(fullRebuild ? null : files);
+        } catch (RuntimeException e) {
+            // eg ProcessCanceledException: state may be half applied
+            this.invalidated = true;
+            throw e;
+        }
+
+        this.indexModificationStamp = stamp;
+        this.psiModificationCount = modificationCount;
+    }
+
+    /**
+     * A plain monitor would block readers uncancelable while another thread rebuilds a model
+     */
+    public static void lock(@NotNull ReentrantLock lock) {
+        while (true) {
+            ProgressManager.checkCanceled();
+
+            try {
+                if (lock.tryLock(10, TimeUnit.MILLISECONDS)) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                throw new ProcessCanceledException(e);
+            }
+        }
+    }
+
+    private long getIndexModificationStamp() {
+        FileBasedIndex index = FileBasedIndex.getInstance();
+
+        long stamp = 0;
+        for (ID<?, ?> id : getIndexIds()) {
+            index.ensureUpToDate(id, this.project, null);
+            stamp += index.getIndexModificationStamp(id, this.project);
+        }
+
+        return stamp;
+    }
+
+    private void markChanged(@Nullable VirtualFile virtualFile) {
+        if (virtualFile == null) {
+            return;
+        }
+
+        if (virtualFile.isDirectory()) {
+            // moved or deleted directories are not worth to be resolved in detail
+            this.invalidated = true;
+            return;
+        }
+
+        if (isModelFile(virtualFile)) {
+            this.changedFiles.add(virtualFile);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        this.lock.lock();
+        try {
+            this.changedFiles.clear();
+            this.invalidated = true;
+            this.snapshot = this.emptySnapshot;
+            clear();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private class MyPsiTreeChangeListener extends PsiTreeChangeAdapter {
+        @Override
+        public void childAdded(@NotNull PsiTreeChangeEvent event) {
+            visitEvent(event);
+        }
+
+        @Override
+        public void childRemoved(@NotNull PsiTreeChangeEvent event) {
+            visitEvent(event);
+        }
+
+        @Override
+        public void childReplaced(@NotNull PsiTreeChangeEvent event) {
+            visitEvent(event);
+        }
+
+        @Override
+        public void childrenChanged(@NotNull PsiTreeChangeEvent event) {
+            visitEvent(event);
+        }
+
+        @Override
+        public void childMoved(@NotNull PsiTreeChangeEvent event) {
+            visitEvent(event);
+        }
+
+        private void visitEvent(@NotNull PsiTreeChangeEvent event) {
+            PsiFile psiFile = event.getFile();
+            if (psiFile != null) {
+                markChanged(psiFile.getVirtualFile());
+                return;
+            }
+
+            // file itself was added or removed
+            PsiElement child = event.getChild();
+            if (child instanceof PsiFileSystemItem) {
+                markChanged(((PsiFileSystemItem) child).getVirtualFile());
+            }
+        }
+    }
+
+    private class MyBulkFileListener implements BulkFileListener {
+        @Override
+        public void after(@NotNull List<? extends VFileEvent> events) {
+            for (VFileEvent event : events) {
+                VirtualFile virtualFile = event.getFile();
+
+                // file type can change on rename, so the old name can be a model file
+                if (virtualFile != null && !virtualFile.isDirectory() && event instanceof VFilePropertyChangeEvent && ((VFilePropertyChangeEvent) event).isRename()) {
+                    changedFiles.add(virtualFile);
+                    continue;
+                }
+
+                markChanged(virtualFile);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.indexes;
+
+import com.intellij.psi.PsiFile;
+import com.intellij.psi.xml.XmlFile;
+import com.intellij.util.indexing.*;
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import com.intellij.util.io.KeyDescriptor;
+import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
+import fr.adrienbrault.idea.symfony2plugin.form.util.FormUtil;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.StringSetDataExternalizer;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.inputFilter.FileInputFilter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.jetbrains.yaml.psi.YAMLFile;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Inverted "ServicesTagStubIndex": tag name to the ids of all services tagged with it
+ */
+public class TaggedServicesStubIndex extends FileBasedIndexExtension<String, Set<String>> {
+
+    public static final ID<String, Set<String>> KEY = ID.create("fr.adrienbrault.idea.symfony2plugin.tagged_services");
+    private final KeyDescriptor<String> myKeyDescriptor = new EnumeratorStringDescriptor();
+
+    @NotNull
+    @Override
+    public DataIndexer<String, Set<String>, FileContent> getIndexer() {
+
+        return inputData -> {
+
+            Map<String, Set<String>> map = new HashMap<>();
+
+            PsiFile psiFile = inputData.getPsiFile();
+            if(!Symfony2ProjectComponent.isEnabledForIndex(psiFile.getProject())) {
+                return map;
+            }
+
+            if (!ServicesDefinitionStubIndex.isValidForIndex(inputData, psiFile)) {
+                return map;
+            }
+
+            Map<String, Set<String>> serviceTags = null;
+            if(psiFile instanceof YAMLFile) {
+                serviceTags = FormUtil.getTags((YAMLFile) psiFile);
+            } else if(psiFile instanceof XmlFile) {
+                serviceTags = FormUtil.getTags((XmlFile) psiFile);
+            }
+
+            return invert(serviceTags);
+        };
+    }
+
+    @NotNull
+    private static Map<String, Set<String>> invert(@Nullable Map<String, Set<String>> serviceTags) {
+        Map<String, Set<String>> map = new HashMap<>();
+        if(serviceTags == null) {
+            return map;
+        }
+
+        for (Map.Entry<String, Set<String>> entry : serviceTags.entrySet()) {
+            for (String tag : entry.getValue()) {
+                map.computeIfAbsent(tag, s -> new HashSet<>()).add(entry.getKey());
+            }
+        }
+
+        return map;
+    }
+
+    @NotNull
+    @Override
+    public ID<String, Set<String>> getName() {
+        return KEY;
+    }
+
+    @NotNull
+    @Override
+    public KeyDescriptor<String> getKeyDescriptor() {
+        return this.myKeyDescriptor;
+    }
+
+    @NotNull
+    public DataExternalizer<Set<String>> getValueExternalizer() {
+        return StringSetDataExternalizer.INSTANCE;
+    }
+
+    @NotNull
+    @Override
+    public FileBasedIndex.InputFilter getInputFilter() {
+        return FileInputFilter.XML_YAML;
+    }
+
+    @Override
+    public boolean dependsOnFileContent() {
+        return true;
+    }
+
+    @Override
+    public int getVersion() {
+        return 1;
+    }
+}
@@ -0,0 +1,42 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer;
+
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.DataInputOutputUtil;
+import fr.adrienbrault.idea.symfony2plugin.dic.container.dict.ContainerBuilderCall;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+
+import static fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.DataExternalizerUtil.*;
+
+public class ContainerBuilderCallDataExternalizer implements DataExternalizer<ContainerBuilderCall> {
+
+    public static final ContainerBuilderCallDataExternalizer INSTANCE = new ContainerBuilderCallDataExternalizer();
+
+    @Override
+    public void save(@NotNull DataOutput out, ContainerBuilderCall value) throws IOException {
+        writeNullableString(out, value.getScope());
+        writeNullableString(out, value.getName());
+
+        Collection<String> parameter = value.getParameter();
+        writeStringCollection(out, parameter != null ? parameter : Collections.emptyList());
+    }
+
+    @Override
+    public ContainerBuilderCall read(@NotNull DataInput in) throws IOException {
+        ContainerBuilderCall call = new ContainerBuilderCall();
+
+        call.setScope(readNullableString(in));
+        call.setName(readNullableString(in));
+
+        for (int i = DataInputOutputUtil.readINT(in); i > 0; i--) {
+            call.addParameter(readString(in));
+        }
+
+        return call;
+    }
+}
@@ -0,0 +1,121 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer;
+
+import com.intellij.util.io.DataInputOutputUtil;
+import com.intellij.util.io.EnumeratorStringDescriptor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Primitives shared by the index value externalizers: varint sizes and nullable strings,
+ * so that no class descriptors are written like with plain Java serialization
+ */
+public class DataExternalizerUtil {
+
+    public static void writeString(@NotNull DataOutput out, @NotNull String value) throws IOException {
+        EnumeratorStringDescriptor.INSTANCE.save(out, value);
+    }
+
+    @NotNull
+    public static String readString(@NotNull DataInput in) throws IOException {
+        return EnumeratorStringDescriptor.INSTANCE.read(in);
+    }
+
+    public static void writeNullableString(@NotNull DataOutput out, @Nullable String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            writeString(out, value);
+        }
+    }
+
+    @Nullable
+    public static String readNullableString(@NotNull DataInput in) throws IOException {
+        return in.readBoolean() ? readString(in) : null;
+    }
+
+    public static void writeStringCollection(@NotNull DataOutput out, @NotNull Collection<String> values) throws IOException {
+        DataInputOutputUtil.writeINT(out, values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    @NotNull
+    public static Collection<String> readStringCollection(@NotNull DataInput in) throws IOException {
+        int size = DataInputOutputUtil.readINT(in);
+
+        Collection<String> values = new HashSet<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+
+        return values;
+    }
+
+    public static void writeNullableStringMap(@NotNull DataOutput out, @Nullable Map<String, String> values) throws IOException {
+        if (values == null) {
+            DataInputOutputUtil.writeINT(out, 0);
+            return;
+        }
+
+        // size is shifted by one to reserve "0" for null maps
+        DataInputOutputUtil.writeINT(out, values.size() + 1);
+        for (Map.Entry<String, String> entry : values.entrySet()) {
+            writeString(out, entry.getKey());
+            writeNullableString(out, entry.getValue());
+        }
+    }
+
+    @Nullable
+    public static TreeMap<String, String> readNullableStringMap(@NotNull DataInput in) throws IOException {
+        int size = DataInputOutputUtil.readINT(in);
+        if (size == 0) {
+            return null;
+        }
+
+        TreeMap<String, String> values = new TreeMap<>();
+        for (int i = 1; i < size; i++) {
+            values.put(readString(in), readNullableString(in));
+        }
+
+        return values;
+    }
+
+    /**
+     * Tri-state boolean packed into two bits: 0 = null, 1 = false, 2 = true
+     */
+    public static int packBoolean(@Nullable Boolean value, int shift) {
+        return (value == null ? 0 : (value ? 2 : 1)) << shift;
+    }
+
+    @Nullable
+    public static Boolean unpackBoolean(int flags, int shift) {
+        return switch ((flags >> shift) & 3) {
+            case 1 -> false;
+            case 2 -> true;
+            default -> null;
+        };
+    }
+
+    public static <E extends Enum<E>> void writeNullableEnum(@NotNull DataOutput out, @Nullable E value) throws IOException {
+        DataInputOutputUtil.writeINT(out, value == null ? 0 : value.ordinal() + 1);
+    }
+
+    @Nullable
+    public static <E extends Enum<E>> E readNullableEnum(@NotNull DataInput in, @NotNull Class<E> enumClass) throws IOException {
+        int ordinal = DataInputOutputUtil.readINT(in);
+        if (ordinal == 0) {
+            return null;
+        }
+
+        E[] constants = enumClass.getEnumConstants();
+        return ordinal <= constants.length ? constants[ordinal - 1] : null;
+    }
+}
@@ -0,0 +1,30 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer;
+
+import com.intellij.util.io.DataExternalizer;
+import fr.adrienbrault.idea.symfony2plugin.stubs.dict.DispatcherEvent;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import static fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.DataExternalizerUtil.*;
+
+public class DispatcherEventDataExternalizer implements DataExternalizer<DispatcherEvent> {
+
+    public static final DispatcherEventDataExternalizer INSTANCE = new DispatcherEventDataExternalizer();
+
+    @Override
+    public void save(@NotNull DataOutput out, DispatcherEvent value) throws IOException {
+        writeNullableString(out, value.getFqn());
+        writeNullableString(out, value.getInstance());
+    }
+
+    @Override
+    public DispatcherEvent read(@NotNull DataInput in) throws IOException {
+        String fqn = readNullableString(in);
+        String instance = readNullableString(in);
+
+        return fqn != null ? new DispatcherEvent(fqn, instance) : new DispatcherEvent();
+    }
+}
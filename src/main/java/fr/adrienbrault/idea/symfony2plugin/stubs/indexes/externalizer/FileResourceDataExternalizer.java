@@ -0,0 +1,33 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer;
+
+import com.intellij.util.io.DataExternalizer;
+import fr.adrienbrault.idea.symfony2plugin.stubs.dict.FileResource;
+import fr.adrienbrault.idea.symfony2plugin.stubs.dict.FileResourceContextTypeEnum;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import static fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.DataExternalizerUtil.*;
+
+public class FileResourceDataExternalizer implements DataExternalizer<FileResource> {
+
+    public static final FileResourceDataExternalizer INSTANCE = new FileResourceDataExternalizer();
+
+    @Override
+    public void save(@NotNull DataOutput out, FileResource value) throws IOException {
+        writeNullableString(out, value.getResource());
+        writeNullableEnum(out, value.getContextType());
+        writeNullableStringMap(out, value.getContextValues());
+    }
+
+    @Override
+    public FileResource read(@NotNull DataInput in) throws IOException {
+        return new FileResource(
+            readNullableString(in),
+            readNullableEnum(in, FileResourceContextTypeEnum.class),
+            readNullableStringMap(in)
+        );
+    }
+}
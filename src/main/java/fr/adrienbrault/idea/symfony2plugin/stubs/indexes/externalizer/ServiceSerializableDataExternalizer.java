@@ -0,0 +1,78 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer;
+
+import com.intellij.util.io.DataExternalizer;
+import com.intellij.util.io.DataInputOutputUtil;
+import fr.adrienbrault.idea.symfony2plugin.dic.container.SerializableService;
+import fr.adrienbrault.idea.symfony2plugin.dic.container.ServiceSerializable;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import static fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.DataExternalizerUtil.*;
+
+public class ServiceSerializableDataExternalizer implements DataExternalizer<ServiceSerializable> {
+
+    public static final ServiceSerializableDataExternalizer INSTANCE = new ServiceSerializableDataExternalizer();
+
+    private static final int PUBLIC = 0;
+    private static final int LAZY = 2;
+    private static final int ABSTRACT = 4;
+    private static final int AUTOWIRE = 6;
+    private static final int DEPRECATED = 8;
+
+    @Override
+    public void save(@NotNull DataOutput out, ServiceSerializable value) throws IOException {
+        writeString(out, value.getId());
+
+        int flags;
+        if (value instanceof SerializableService service) {
+            flags = packBoolean(service.getPublicDefinition(), PUBLIC)
+                | packBoolean(service.getLazyDefinition(), LAZY)
+                | packBoolean(service.getAbstractDefinition(), ABSTRACT)
+                | packBoolean(service.getAutowireDefinition(), AUTOWIRE)
+                | packBoolean(service.getDeprecatedDefinition(), DEPRECATED);
+        } else {
+            flags = packBoolean(value.isPublic(), PUBLIC)
+                | packBoolean(value.isLazy(), LAZY)
+                | packBoolean(value.isAbstract(), ABSTRACT)
+                | packBoolean(value.isAutowire(), AUTOWIRE)
+                | packBoolean(value.isDeprecated(), DEPRECATED);
+        }
+
+        DataInputOutputUtil.writeINT(out, flags);
+
+        writeNullableString(out, value.getClassName());
+        writeNullableString(out, value.getAlias());
+        writeNullableString(out, value.getDecorates());
+        writeNullableString(out, value.getDecorationInnerName());
+        writeNullableString(out, value.getParent());
+
+        writeStringCollection(out, value.getResource());
+        writeStringCollection(out, value.getExclude());
+        writeStringCollection(out, value.getTags());
+    }
+
+    @Override
+    public ServiceSerializable read(@NotNull DataInput in) throws IOException {
+        SerializableService service = new SerializableService(readString(in));
+
+        int flags = DataInputOutputUtil.readINT(in);
+
+        return service
+            .setIsPublic(unpackBoolean(flags, PUBLIC))
+            .setIsLazy(unpackBoolean(flags, LAZY))
+            .setIsAbstract(unpackBoolean(flags, ABSTRACT))
+            .setIsAutowire(unpackBoolean(flags, AUTOWIRE))
+            .setIsDeprecated(unpackBoolean(flags, DEPRECATED))
+            .setClassName(readNullableString(in))
+            .setAlias(readNullableString(in))
+            .setDecorates(readNullableString(in))
+            .setDecorationInnerName(readNullableString(in))
+            .setParent(readNullableString(in))
+            .setResource(readStringCollection(in))
+            .setExclude(readStringCollection(in))
+            .setTags(readStringCollection(in));
+    }
+}
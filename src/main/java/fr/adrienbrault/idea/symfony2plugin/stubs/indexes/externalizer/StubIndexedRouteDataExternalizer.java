@@ -0,0 +1,35 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer;
+
+import com.intellij.util.io.DataExternalizer;
+import fr.adrienbrault.idea.symfony2plugin.stubs.dict.StubIndexedRoute;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import static fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.DataExternalizerUtil.*;
+
+public class StubIndexedRouteDataExternalizer implements DataExternalizer<StubIndexedRoute> {
+
+    public static final StubIndexedRouteDataExternalizer INSTANCE = new StubIndexedRouteDataExternalizer();
+
+    @Override
+    public void save(@NotNull DataOutput out, StubIndexedRoute value) throws IOException {
+        writeString(out, value.getName());
+        writeNullableString(out, value.getController());
+        writeNullableString(out, value.getPath());
+        writeStringCollection(out, value.getMethods());
+    }
+
+    @Override
+    public StubIndexedRoute read(@NotNull DataInput in) throws IOException {
+        StubIndexedRoute route = new StubIndexedRoute(readString(in));
+
+        route.setController(readNullableString(in));
+        route.setPath(readNullableString(in));
+        route.setMethods(readStringCollection(in));
+
+        return route;
+    }
+}
@@ -0,0 +1,36 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer;
+
+import com.intellij.util.io.DataExternalizer;
+import fr.adrienbrault.idea.symfony2plugin.stubs.dict.TemplateInclude;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import static fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.DataExternalizerUtil.*;
+import static fr.adrienbrault.idea.symfony2plugin.templating.dict.TemplateInclude.TYPE;
+
+public class TemplateIncludeDataExternalizer implements DataExternalizer<TemplateInclude> {
+
+    public static final TemplateIncludeDataExternalizer INSTANCE = new TemplateIncludeDataExternalizer();
+
+    @Override
+    public void save(@NotNull DataOutput out, TemplateInclude value) throws IOException {
+        writeString(out, value.getTemplate());
+        writeNullableEnum(out, value.getType());
+    }
+
+    @Override
+    public TemplateInclude read(@NotNull DataInput in) throws IOException {
+        String template = readString(in);
+
+        TYPE type = readNullableEnum(in, TYPE.class);
+        if (type == null) {
+            // removed enum constant; fallback to the most common usage
+            type = TYPE.INCLUDE;
+        }
+
+        return new TemplateInclude(template, type);
+    }
+}
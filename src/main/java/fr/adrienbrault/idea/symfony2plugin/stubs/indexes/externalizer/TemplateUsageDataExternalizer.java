@@ -0,0 +1,27 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer;
+
+import com.intellij.util.io.DataExternalizer;
+import fr.adrienbrault.idea.symfony2plugin.stubs.dict.TemplateUsage;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import static fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.DataExternalizerUtil.*;
+
+public class TemplateUsageDataExternalizer implements DataExternalizer<TemplateUsage> {
+
+    public static final TemplateUsageDataExternalizer INSTANCE = new TemplateUsageDataExternalizer();
+
+    @Override
+    public void save(@NotNull DataOutput out, TemplateUsage value) throws IOException {
+        writeString(out, value.getTemplate());
+        writeStringCollection(out, value.getScopes());
+    }
+
+    @Override
+    public TemplateUsage read(@NotNull DataInput in) throws IOException {
+        return new TemplateUsage(readString(in), readStringCollection(in));
+    }
+}
@@ -0,0 +1,27 @@
+package fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer;
+
+import com.intellij.util.io.DataExternalizer;
+import fr.adrienbrault.idea.symfony2plugin.stubs.dict.TwigMacroTagIndex;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import static fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.DataExternalizerUtil.*;
+
+public class TwigMacroTagIndexDataExternalizer implements DataExternalizer<TwigMacroTagIndex> {
+
+    public static final TwigMacroTagIndexDataExternalizer INSTANCE = new TwigMacroTagIndexDataExternalizer();
+
+    @Override
+    public void save(@NotNull DataOutput out, TwigMacroTagIndex value) throws IOException {
+        writeString(out, value.name());
+        writeNullableString(out, value.parameters());
+    }
+
+    @Override
+    public TwigMacroTagIndex read(@NotNull DataInput in) throws IOException {
+        return new TwigMacroTagIndex(readString(in), readNullableString(in));
+    }
+}
@@ -19,6 +19,7 @@ public class IndexUtil {
             RoutesStubIndex.KEY,
             ServicesDefinitionStubIndex.KEY,
             ServicesTagStubIndex.KEY,
+            TaggedServicesStubIndex.KEY,
             TwigExtendsStubIndex.KEY,
             TwigIncludeStubIndex.KEY,
             TwigMacroFunctionStubIndex.KEY,
@@ -16,20 +16,16 @@ import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
 import com.intellij.psi.presentation.java.SymbolPresentationUtil;
-import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.util.ConstantFunction;
-import com.intellij.util.indexing.FileBasedIndex;
 import com.jetbrains.php.PhpIcons;
 import com.jetbrains.php.lang.psi.elements.Function;
 import com.jetbrains.php.lang.psi.elements.PhpClass;
 import com.jetbrains.twig.TwigFile;
-import com.jetbrains.twig.TwigFileType;
 import com.jetbrains.twig.elements.TwigElementTypes;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2Icons;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
 import fr.adrienbrault.idea.symfony2plugin.dic.RelatedPopupGotoLineMarker;
-import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TwigExtendsStubIndex;
-import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TwigIncludeStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigTemplateGraph;
 import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigTypeResolveUtil;
 import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigUtil;
 import fr.adrienbrault.idea.symfony2plugin.templating.variable.TwigTypeContainer;
@@ -139,22 +135,8 @@ public class TwigLineMarkerProvider implements LineMarkerProvider {
     private LineMarkerInfo<?> attachIncludes(@NotNull TwigFile twigFile) {
         Collection<String> templateNames = TwigUtil.getTemplateNamesForFile(twigFile);
 
-        boolean found = false;
-        for(String templateName: templateNames) {
-            Project project = twigFile.getProject();
-
-            Collection<VirtualFile> containingFiles = FileBasedIndex.getInstance().getContainingFiles(
-                TwigIncludeStubIndex.KEY, templateName, GlobalSearchScope.getScopeRestrictedByFileTypes(GlobalSearchScope.allScope(project), TwigFileType.INSTANCE)
-            );
-
-            // stop on first target, we load them lazily afterwards
-            if(containingFiles.size() > 0) {
-                found = true;
-                break;
-            }
-        }
-
-        if(!found) {
+        // targets are loaded lazily afterwards
+        if(TwigTemplateGraph.getInstance(twigFile.getProject()).getIncludingFiles(templateNames).isEmpty()) {
             return null;
         }
 
@@ -170,22 +152,8 @@ public class TwigLineMarkerProvider implements LineMarkerProvider {
     private LineMarkerInfo<?> attachExtends(@NotNull TwigFile twigFile) {
         Collection<String> templateNames = TwigUtil.getTemplateNamesForFile(twigFile);
 
-        boolean found = false;
-        for(String templateName: templateNames) {
-            Project project = twigFile.getProject();
-
-            Collection<VirtualFile> containingFiles = FileBasedIndex.getInstance().getContainingFiles(
-                TwigExtendsStubIndex.KEY, templateName, GlobalSearchScope.getScopeRestrictedByFileTypes(GlobalSearchScope.allScope(project), TwigFileType.INSTANCE)
-            );
-
-            // stop on first target, we load them lazily afterwards
-            if(containingFiles.size() > 0) {
-                found = true;
-                break;
-            }
-        }
-
-        if(!found) {
+        // targets are loaded lazily afterwards
+        if(TwigTemplateGraph.getInstance(twigFile.getProject()).getExtendingFiles(templateNames).isEmpty()) {
             return null;
         }
 
@@ -364,18 +332,10 @@ public class TwigLineMarkerProvider implements LineMarkerProvider {
     private record MyTemplateIncludeLazyValue(@NotNull TwigFile twigFile, @NotNull Collection<String> templateNames) implements Supplier<Collection<? extends PsiElement>> {
         @Override
         public Collection<? extends PsiElement> get() {
-            Collection<VirtualFile> twigFiles = new ArrayList<>();
-
             Project project = twigFile.getProject();
 
-            for (String templateName : this.templateNames) {
-                // collect files which contains given template name for inclusion
-                twigFiles.addAll(FileBasedIndex.getInstance().getContainingFiles(
-                    TwigIncludeStubIndex.KEY,
-                    templateName,
-                    GlobalSearchScope.getScopeRestrictedByFileTypes(GlobalSearchScope.allScope(project), TwigFileType.INSTANCE))
-                );
-            }
+            // collect files which contains given template name for inclusion
+            Collection<VirtualFile> twigFiles = TwigTemplateGraph.getInstance(project).getIncludingFiles(this.templateNames);
 
             Collection<PsiElement> targets = new ArrayList<>();
 
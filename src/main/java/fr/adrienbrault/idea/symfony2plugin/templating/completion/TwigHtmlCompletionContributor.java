@@ -57,7 +57,7 @@ public class TwigHtmlCompletionContributor extends CompletionContributor {
                         return;
                     }
 
-                    List<LookupElement> routesLookupElements = RouteHelper.getRoutesLookupElements(parameters.getPosition().getProject());
+                    List<LookupElement> routesLookupElements = RouteHelper.getRoutesLookupElements(parameters.getPosition().getProject(), resultSet.getPrefixMatcher().getPrefix());
                     for (LookupElement element : routesLookupElements) {
                         if (element instanceof RouteLookupElement) {
                             ((RouteLookupElement) element).withInsertHandler(TwigPathFunctionInsertHandler.getInstance());
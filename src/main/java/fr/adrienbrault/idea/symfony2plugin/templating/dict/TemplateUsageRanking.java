@@ -0,0 +1,138 @@
+package fr.adrienbrault.idea.symfony2plugin.templating.dict;
+
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.CopyOnWriteShardedMap;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Usage counter of template names with a view of the most used ones, eg for completion priority.
+ *
+ * Counts are changed in place for every added or removed usage; a snapshot shares the counts and is only ranked on its
+ * first read, and only the top names are kept sorted, so updating many files never sorts all names. Not thread-safe;
+ * snapshots can be read concurrently while the counts are changed.
+ */
+public class TemplateUsageRanking {
+
+    private final int limit;
+
+    @NotNull
+    private final CopyOnWriteShardedMap<String, Integer> counts = new CopyOnWriteShardedMap<>();
+
+    /**
+     * Last snapshot; reused until a count is changed
+     */
+    @Nullable
+    private Snapshot snapshot;
+
+    public TemplateUsageRanking(int limit) {
+        this.limit = limit;
+    }
+
+    public void add(@NotNull String templateName) {
+        Integer count = this.counts.get(templateName);
+        this.counts.put(templateName, count == null ? 1 : count + 1);
+        this.snapshot = null;
+    }
+
+    public void remove(@NotNull String templateName) {
+        Integer count = this.counts.get(templateName);
+        if (count == null) {
+            return;
+        }
+
+        if (count > 1) {
+            this.counts.put(templateName, count - 1);
+        } else {
+            this.counts.remove(templateName);
+        }
+
+        this.snapshot = null;
+    }
+
+    public int getCount(@NotNull String templateName) {
+        Integer count = this.counts.get(templateName);
+        return count != null ? count : 0;
+    }
+
+    public void clear() {
+        this.counts.clear();
+        this.snapshot = null;
+    }
+
+    /**
+     * Most used names first, equal counts by name
+     */
+    @NotNull
+    public List<String> getRanking() {
+        return snapshot().getRanking();
+    }
+
+    /**
+     * Unchanged view of the current counts in constant time; it is ranked on its first read
+     */
+    @NotNull
+    public Snapshot snapshot() {
+        if (this.snapshot == null) {
+            this.snapshot = new Snapshot(this.counts.snapshot(), this.limit);
+        }
+
+        return this.snapshot;
+    }
+
+    public static class Snapshot {
+        public static final Snapshot EMPTY = new Snapshot(Collections.emptyMap(), 0);
+
+        @NotNull
+        private final Map<String, Integer> counts;
+
+        private final int limit;
+
+        @Nullable
+        private volatile List<String> ranking;
+
+        private Snapshot(@NotNull Map<String, Integer> counts, int limit) {
+            this.counts = counts;
+            this.limit = limit;
+        }
+
+        /**
+         * Most used names first, equal counts by name
+         */
+        @NotNull
+        public List<String> getRanking() {
+            List<String> ranking = this.ranking;
+            if (ranking == null) {
+                // racing readers rank the same counts
+                this.ranking = ranking = createRanking();
+            }
+
+            return ranking;
+        }
+
+        @NotNull
+        private List<String> createRanking() {
+            Comparator<Map.Entry<String, Integer>> comparator = Map.Entry.<String, Integer>comparingByValue()
+                .thenComparing(Map.Entry.comparingByKey(Comparator.reverseOrder()));
+
+            // min heap of the top names: the lowest one is dropped for every better one
+            PriorityQueue<Map.Entry<String, Integer>> top = new PriorityQueue<>(comparator);
+            for (Map.Entry<String, Integer> entry : this.counts.entrySet()) {
+                if (top.size() < this.limit) {
+                    top.add(entry);
+                } else if (!top.isEmpty() && comparator.compare(entry, top.peek()) > 0) {
+                    top.poll();
+                    top.add(entry);
+                }
+            }
+
+            String[] names = new String[top.size()];
+            for (int i = names.length - 1; i >= 0; i--) {
+                names[i] = top.poll().getKey();
+            }
+
+            return List.of(names);
+        }
+    }
+}
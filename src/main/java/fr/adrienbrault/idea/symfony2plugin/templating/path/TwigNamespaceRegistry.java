@@ -0,0 +1,181 @@
+package fr.adrienbrault.idea.symfony2plugin.templating.path;
+
+import com.intellij.openapi.extensions.ExtensionPointName;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
+import com.jetbrains.twig.TwigLanguage;
+import fr.adrienbrault.idea.symfony2plugin.Settings;
+import fr.adrienbrault.idea.symfony2plugin.extension.TwigNamespaceExtension;
+import fr.adrienbrault.idea.symfony2plugin.extension.TwigNamespaceExtensionParameter;
+import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigUtil;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Resolved Twig namespaces of a project with their directories.
+ *
+ * Namespaces are provided by bundles, "twig.yaml", "ide-twig.json", the compiled container and the settings, so a change
+ * inside a Twig file never rebuilds them. Callers must not change the shared TwigPath instances, use a clone instead.
+ * Directories are resolved once per snapshot, instead on every template lookup.
+ */
+public class TwigNamespaceRegistry {
+
+    private static final ExtensionPointName<TwigNamespaceExtension> TWIG_NAMESPACE_EXTENSIONS = new ExtensionPointName<>(
+        "fr.adrienbrault.idea.symfony2plugin.extension.TwigNamespaceExtension"
+    );
+
+    @NotNull
+    private final Project project;
+
+    @NotNull
+    private final CachedValue<Namespaces> namespaces;
+
+    public TwigNamespaceRegistry(@NotNull Project project) {
+        this.project = project;
+
+        this.namespaces = CachedValuesManager.getManager(project).createCachedValue(() -> CachedValueProvider.Result.create(
+            createNamespaces(),
+            PsiModificationTracker.getInstance(project).forLanguages(language -> !language.isKindOf(TwigLanguage.INSTANCE)),
+            ServiceXmlParserFactory.getInstance(project).getModificationTracker(),
+            VirtualFileManager.VFS_STRUCTURE_MODIFICATIONS,
+            getSettingsModificationTracker()
+        ), false);
+    }
+
+    @NotNull
+    public static TwigNamespaceRegistry getInstance(@NotNull Project project) {
+        return project.getService(TwigNamespaceRegistry.class);
+    }
+
+    /**
+     * All namespaces including the custom ones of the settings
+     */
+    @NotNull
+    public List<TwigPath> getNamespaces() {
+        return this.namespaces.getValue().twigPaths();
+    }
+
+    /**
+     * Directory of a namespace, resolved once per snapshot; unknown paths are resolved on the fly
+     */
+    @Nullable
+    public VirtualFile getDirectory(@NotNull TwigPath twigPath) {
+        Map<TwigPath, VirtualFile> directories = this.namespaces.getValue().directories();
+        if (directories.containsKey(twigPath)) {
+            VirtualFile directory = directories.get(twigPath);
+            if (directory == null || directory.isValid()) {
+                return directory;
+            }
+        }
+
+        return twigPath.getDirectory(this.project);
+    }
+
+    /**
+     * Changes of the Twig namespace settings; namespaces of the project additionally depend on PSI, container and
+     * directory changes
+     */
+    @NotNull
+    public ModificationTracker getSettingsModificationTracker() {
+        return this::getSettingsModificationCount;
+    }
+
+    /**
+     * Uncached build of namespaces; also used to provide the defaults without settings
+     */
+    @NotNull
+    public List<TwigPath> createNamespaces(boolean includeSettings) {
+        List<TwigPath> twigPaths = new ArrayList<>();
+
+        // load extension; paths can be owned by other caches, so never change them
+        TwigNamespaceExtensionParameter parameter = new TwigNamespaceExtensionParameter(this.project);
+        for (TwigNamespaceExtension namespaceExtension : TWIG_NAMESPACE_EXTENSIONS.getExtensions()) {
+            for (TwigPath twigPath : namespaceExtension.getNamespaces(parameter)) {
+                twigPaths.add(TwigPath.createClone(twigPath));
+            }
+        }
+
+        // disable namespace explicitly disabled by user
+        for(TwigPath twigPath: twigPaths) {
+            TwigNamespaceSetting twigNamespaceSetting = findManagedTwigNamespace(twigPath);
+            if(twigNamespaceSetting != null) {
+                twigPath.setEnabled(false);
+            }
+        }
+
+        twigPaths = TwigUtil.getUniqueTwigTemplatesList(twigPaths);
+
+        if(!includeSettings) {
+            return twigPaths;
+        }
+
+        List<TwigNamespaceSetting> twigNamespaceSettings = Settings.getInstance(this.project).twigNamespaces;
+        if(twigNamespaceSettings != null) {
+            for(TwigNamespaceSetting twigNamespaceSetting: twigNamespaceSettings) {
+                if(twigNamespaceSetting.isCustom()) {
+                    twigPaths.add(new TwigPath(twigNamespaceSetting.getPath(), twigNamespaceSetting.getNamespace(), twigNamespaceSetting.getNamespaceType(), true).setEnabled(twigNamespaceSetting.isEnabled()));
+                }
+            }
+        }
+
+        return twigPaths;
+    }
+
+    @NotNull
+    private Namespaces createNamespaces() {
+        List<TwigPath> twigPaths = createNamespaces(true);
+
+        Map<TwigPath, VirtualFile> directories = new IdentityHashMap<>();
+        for (TwigPath twigPath : twigPaths) {
+            directories.put(twigPath, twigPath.getDirectory(this.project));
+        }
+
+        return new Namespaces(Collections.unmodifiableList(twigPaths), directories);
+    }
+
+    /**
+     * Settings are plain fields without any change event, so their state is the modification count
+     */
+    private long getSettingsModificationCount() {
+        Settings settings = Settings.getInstance(this.project);
+
+        long count = Objects.hash(settings.twigBundleNamespaceSupport, settings.directoryToApp);
+
+        List<TwigNamespaceSetting> twigNamespaces = settings.twigNamespaces;
+        if(twigNamespaces != null) {
+            for (TwigNamespaceSetting twigNamespace : twigNamespaces) {
+                count = 31 * count + Objects.hash(twigNamespace.getNamespace(), twigNamespace.getPath(), twigNamespace.isEnabled(), twigNamespace.getNamespaceType(), twigNamespace.isCustom());
+            }
+        }
+
+        return count;
+    }
+
+    @Nullable
+    private TwigNamespaceSetting findManagedTwigNamespace(@NotNull TwigPath twigPath) {
+        List<TwigNamespaceSetting> twigNamespaces = Settings.getInstance(this.project).twigNamespaces;
+        if(twigNamespaces == null) {
+            return null;
+        }
+
+        for(TwigNamespaceSetting twigNamespace: twigNamespaces) {
+           if(twigNamespace.equals(this.project, twigPath)) {
+                return twigNamespace;
+           }
+        }
+
+        return null;
+    }
+
+    private record Namespaces(@NotNull List<TwigPath> twigPaths, @NotNull Map<TwigPath, VirtualFile> directories) {
+    }
+}
@@ -6,6 +6,7 @@ import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
 import java.io.InputStream;
+import java.util.Map;
 
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
@@ -19,6 +20,11 @@ public class TwigPathServiceParser extends AbstractServiceParser {
         return "/container/services/service[@id[starts-with(.,'twig.loader')]]//call[@method='addPath']";
     }
 
+    @Override
+    protected boolean isServiceCandidate(@NotNull Map<String, String> serviceAttributes) {
+        return serviceAttributes.getOrDefault("id", "").startsWith("twig.loader");
+    }
+
     public synchronized void parser(InputStream file) {
         NodeList nodeList = this.parserer(file);
 
@@ -0,0 +1,600 @@
+package fr.adrienbrault.idea.symfony2plugin.templating.path;
+
+import com.intellij.openapi.Disposable;
+import com.intellij.openapi.fileTypes.FileType;
+import com.intellij.openapi.project.DumbService;
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.roots.ProjectFileIndex;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.VfsUtil;
+import com.intellij.openapi.vfs.VfsUtilCore;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.VirtualFileVisitor;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.*;
+import com.intellij.psi.search.FileTypeIndex;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.search.GlobalSearchScopesCore;
+import com.jetbrains.php.lang.PhpFileType;
+import com.jetbrains.twig.TwigFileType;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.IncrementalIndexModel;
+import fr.adrienbrault.idea.symfony2plugin.templating.path.dict.TemplateNameTrie;
+import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * All known template names of Twig and PHP template files inside the Twig namespaces:
+ *
+ * "@Foo/foo.html.twig"
+ * "FooBundle:foo:foo.html.twig"
+ * "foo.html.twig"
+ *
+ * Names are hold in a trie for exact and prefix lookups, and per file for removing whole directories. Created, deleted,
+ * moved and renamed files are applied incrementally on next access; only a change of the namespaces themselves scans all
+ * directories again. The VFS listener never waits for a running lookup, it only queues events inside the namespace
+ * directories; bulk changes like a VCS update are collapsed into a new scan.
+ *
+ * Readers get an immutable snapshot without any lock; only applying changes is serialized.
+ */
+public class TwigTemplateNameRegistry implements Disposable {
+
+    /**
+     * Bulk changes like a VCS update are cheaper to scan again at once
+     */
+    private static final int MAX_PENDING_EVENTS = 200;
+
+    @NotNull
+    private final Project project;
+
+    @NotNull
+    private final ReentrantLock lock = new ReentrantLock();
+
+    /**
+     * All following fields up to the snapshot are guarded by the lock
+     */
+    @Nullable
+    private List<TwigPath> twigPaths;
+
+    @Nullable
+    private List<Root> roots;
+
+    @NotNull
+    private Templates templates = new Templates();
+
+    /**
+     * Published for readers; "null" before the first access
+     */
+    @Nullable
+    private volatile Snapshot snapshot;
+
+    @NotNull
+    private final Queue<VFileEvent> pendingEvents = new ConcurrentLinkedQueue<>();
+
+    @NotNull
+    private final AtomicInteger pendingEventCount = new AtomicInteger();
+
+    /**
+     * Directories of the current roots for filtering events without waiting for a lookup; "null" before the first scan
+     */
+    @Nullable
+    private volatile Collection<String> rootPaths;
+
+    private volatile boolean rescan = false;
+
+    public TwigTemplateNameRegistry(@NotNull Project project) {
+        this.project = project;
+
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new MyBulkFileListener());
+    }
+
+    @NotNull
+    public static TwigTemplateNameRegistry getInstance(@NotNull Project project) {
+        return project.getService(TwigTemplateNameRegistry.class);
+    }
+
+    /**
+     * Files of an exact template name
+     */
+    @NotNull
+    public Collection<VirtualFile> getTemplateFiles(@NotNull String templateName) {
+        return new HashSet<>(getSnapshot().templateNames().get(templateName));
+    }
+
+    /**
+     * Reverse lookup of all template names of a file
+     */
+    @NotNull
+    public Collection<String> getTemplateNames(@NotNull VirtualFile virtualFile) {
+        Snapshot snapshot = getSnapshot();
+
+        // names are derived from the roots; the trie knows whether the file is a template
+        Collection<String> templateNames = new LinkedHashSet<>();
+        for (Root root : snapshot.roots()) {
+            if (!VfsUtilCore.isAncestor(root.directory(), virtualFile, true)) {
+                continue;
+            }
+
+            String templateName = root.getTemplateName(virtualFile);
+            if (templateName != null && snapshot.templateNames().get(templateName).contains(virtualFile)) {
+                templateNames.add(templateName);
+            }
+        }
+
+        return new ArrayList<>(templateNames);
+    }
+
+    /**
+     * All template names starting with the prefix in lexical order, eg "@Foo/" for all templates of a namespace
+     */
+    public void processTemplateNames(@NotNull String prefix, @NotNull BiConsumer<String, Set<VirtualFile>> consumer) {
+        getSnapshot().templateNames().processPrefix(prefix, consumer);
+    }
+
+    /**
+     * Template name to its files; the map is shared until the next change
+     */
+    @NotNull
+    public Map<String, Set<VirtualFile>> getTemplateMap(boolean includePhpFiles) {
+        return getSnapshot().getTemplateMap(includePhpFiles);
+    }
+
+    @Override
+    public void dispose() {
+        this.lock.lock();
+        try {
+            this.rootPaths = null;
+            clearPendingEvents();
+            this.twigPaths = null;
+            this.roots = null;
+            this.templates = new Templates();
+            this.snapshot = null;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Up-to-date snapshot; only pending changes wait for the lock
+     */
+    @NotNull
+    private Snapshot getSnapshot() {
+        List<TwigPath> twigPaths = TwigNamespaceRegistry.getInstance(this.project).getNamespaces();
+
+        Snapshot snapshot = this.snapshot;
+        if (snapshot != null && snapshot.twigPaths() == twigPaths && !this.rescan && this.pendingEvents.isEmpty()) {
+            return snapshot;
+        }
+
+        IncrementalIndexModel.lock(this.lock);
+        try {
+            return update(twigPaths);
+        } catch (RuntimeException e) {
+            // eg ProcessCanceledException: applied changes or a scan may be incomplete
+            this.rescan = true;
+            throw e;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    @NotNull
+    private Snapshot update(@NotNull List<TwigPath> twigPaths) {
+        boolean changed = updateRoots(twigPaths);
+
+        if (this.rescan && this.roots != null) {
+            scan(this.roots);
+            changed = true;
+        }
+
+        VFileEvent event;
+        while ((event = this.pendingEvents.poll()) != null) {
+            this.pendingEventCount.decrementAndGet();
+            changed |= applyEvent(event);
+        }
+
+        Snapshot snapshot = this.snapshot;
+        if (changed || snapshot == null) {
+            snapshot = new Snapshot(twigPaths, this.roots != null ? this.roots : Collections.emptyList(), this.templates.names.snapshot());
+        } else if (snapshot.twigPaths() != twigPaths) {
+            snapshot = snapshot.withTwigPaths(twigPaths);
+        }
+
+        return this.snapshot = snapshot;
+    }
+
+    /**
+     * Namespace snapshots are rebuild on many changes, so only different directories need a new scan
+     */
+    private boolean updateRoots(@NotNull List<TwigPath> twigPaths) {
+        if (twigPaths == this.twigPaths) {
+            return false;
+        }
+
+        boolean changed = false;
+
+        List<Root> roots = createRoots(twigPaths);
+        if (!roots.equals(this.roots)) {
+            Collection<String> rootPaths = new ArrayList<>();
+            for (Root root : roots) {
+                rootPaths.add(root.directory().getPath());
+            }
+
+            this.rootPaths = rootPaths;
+            scan(roots);
+            changed = true;
+        }
+
+        this.twigPaths = twigPaths;
+
+        return changed;
+    }
+
+    /**
+     * Templates are only replaced after all roots are scanned, so a canceled scan keeps the former ones and is repeated
+     */
+    private void scan(@NotNull List<Root> roots) {
+        // a full scan already contains all queued changes
+        this.rescan = false;
+        clearPendingEvents();
+
+        Templates templates = new Templates();
+        for (Root root : roots) {
+            scanRoot(root, templates);
+        }
+
+        this.templates = templates;
+        this.roots = roots;
+    }
+
+    private void clearPendingEvents() {
+        while (this.pendingEvents.poll() != null) {
+            this.pendingEventCount.decrementAndGet();
+        }
+    }
+
+    @NotNull
+    private List<Root> createRoots(@NotNull List<TwigPath> twigPaths) {
+        TwigNamespaceRegistry namespaceRegistry = TwigNamespaceRegistry.getInstance(this.project);
+
+        List<Root> roots = new ArrayList<>();
+        for (TwigPath twigPath : twigPaths) {
+            if (!twigPath.isEnabled()) {
+                continue;
+            }
+
+            VirtualFile directory = namespaceRegistry.getDirectory(twigPath);
+            if (directory != null && directory.isDirectory()) {
+                roots.add(new Root(twigPath.getNamespaceType(), twigPath.getNamespace(), directory));
+            }
+        }
+
+        return roots;
+    }
+
+    /**
+     * Indexed directories are enumerated by their file types, so there is no depth or directory limit on large template
+     * trees; others like external paths or a running indexing are visited
+     */
+    private void scanRoot(@NotNull Root root, @NotNull Templates templates) {
+        VirtualFile directory = root.directory();
+
+        ProjectFileIndex fileIndex = ProjectFileIndex.getInstance(this.project);
+        if (DumbService.isDumb(this.project) || !(fileIndex.isInContent(directory) || fileIndex.isInLibrary(directory))) {
+            VfsUtil.visitChildrenRecursively(directory, new MyVirtualFileVisitor(root, templates));
+            return;
+        }
+
+        GlobalSearchScope scope = GlobalSearchScopesCore.directoryScope(this.project, directory, true);
+        for (FileType fileType : new FileType[] {TwigFileType.INSTANCE, PhpFileType.INSTANCE}) {
+            FileTypeIndex.processFiles(fileType, virtualFile -> {
+                templates.addTemplate(root, virtualFile);
+                return true;
+            }, scope);
+        }
+    }
+
+    /**
+     * @return "true" if template names were changed
+     */
+    private boolean applyEvent(@NotNull VFileEvent event) {
+        if (event instanceof VFileCreateEvent) {
+            VirtualFile file = event.getFile();
+            return file != null && addFile(file);
+        } else if (event instanceof VFileDeleteEvent) {
+            return this.templates.removePath(event.getPath());
+        } else if (event instanceof VFileMoveEvent) {
+            return this.templates.removePath(((VFileMoveEvent) event).getOldPath()) | addFile(((VFileMoveEvent) event).getFile());
+        } else if (event instanceof VFilePropertyChangeEvent) {
+            return this.templates.removePath(((VFilePropertyChangeEvent) event).getOldPath()) | addFile(((VFilePropertyChangeEvent) event).getFile());
+        } else if (event instanceof VFileCopyEvent) {
+            VirtualFile file = ((VFileCopyEvent) event).findCreatedFile();
+            return file != null && addFile(file);
+        }
+
+        return false;
+    }
+
+    private boolean addFile(@NotNull VirtualFile virtualFile) {
+        // queued file can be gone in the meantime
+        if (this.roots == null || !virtualFile.isValid()) {
+            return false;
+        }
+
+        boolean changed = false;
+
+        for (Root root : this.roots) {
+            if (!VfsUtilCore.isAncestor(root.directory(), virtualFile, true)) {
+                continue;
+            }
+
+            if (virtualFile.isDirectory()) {
+                MyVirtualFileVisitor visitor = new MyVirtualFileVisitor(root, this.templates);
+                VfsUtil.visitChildrenRecursively(virtualFile, visitor);
+                changed |= visitor.changed;
+            } else {
+                changed |= this.templates.addTemplate(root, virtualFile);
+            }
+        }
+
+        return changed;
+    }
+
+    /**
+     * Queue events inside of the roots; a changed parent of a root needs a new scan
+     */
+    private void queueEvent(@NotNull VFileEvent event, @NotNull Collection<String> rootPaths) {
+        Collection<String> eventPaths = new ArrayList<>();
+        eventPaths.add(event.getPath());
+
+        if (event instanceof VFileMoveEvent) {
+            eventPaths.add(((VFileMoveEvent) event).getOldPath());
+        } else if (event instanceof VFilePropertyChangeEvent) {
+            eventPaths.add(((VFilePropertyChangeEvent) event).getOldPath());
+        }
+
+        for (String eventPath : eventPaths) {
+            for (String rootPath : rootPaths) {
+                if (FileUtil.isAncestor(eventPath, rootPath, true)) {
+                    this.rescan = true;
+                    return;
+                }
+
+                if (FileUtil.isAncestor(rootPath, eventPath, false)) {
+                    if (this.pendingEventCount.incrementAndGet() > MAX_PENDING_EVENTS) {
+                        this.pendingEventCount.decrementAndGet();
+                        this.rescan = true;
+                        clearPendingEvents();
+                    } else {
+                        this.pendingEvents.add(event);
+                    }
+
+                    return;
+                }
+            }
+        }
+    }
+
+    private static boolean isTemplateFile(@NotNull VirtualFile virtualFile) {
+        return virtualFile.getFileType() instanceof TwigFileType || virtualFile.getFileType() instanceof PhpFileType;
+    }
+
+    private record Root(@NotNull TwigUtil.NamespaceType namespaceType, @NotNull String namespace, @NotNull VirtualFile directory) {
+        @Nullable
+        private String getTemplateName(@NotNull VirtualFile virtualFile) {
+            return TwigUtil.getTemplateNameForDirectory(namespace, namespaceType, directory, virtualFile);
+        }
+    }
+
+    private record TemplateFile(@NotNull VirtualFile virtualFile, @NotNull Set<String> names) {
+    }
+
+    /**
+     * Working state of all template names; changed with the lock only
+     */
+    private static class Templates {
+        @NotNull
+        private final TemplateNameTrie<VirtualFile> names = new TemplateNameTrie<>();
+
+        /**
+         * File path to its template names; sorted for removing a whole directory
+         */
+        @NotNull
+        private final TreeMap<String, TemplateFile> files = new TreeMap<>();
+
+        private boolean addTemplate(@NotNull Root root, @NotNull VirtualFile virtualFile) {
+            if (!isTemplateFile(virtualFile)) {
+                return false;
+            }
+
+            String templateName = root.getTemplateName(virtualFile);
+            if (templateName == null) {
+                return false;
+            }
+
+            TemplateFile templateFile = this.files.computeIfAbsent(virtualFile.getPath(), path -> new TemplateFile(virtualFile, new LinkedHashSet<>()));
+            if (!templateFile.names().add(templateName)) {
+                return false;
+            }
+
+            this.names.put(templateName, virtualFile);
+            return true;
+        }
+
+        /**
+         * File or a whole directory, which can already be gone
+         */
+        private boolean removePath(@NotNull String path) {
+            Collection<TemplateFile> removed = new ArrayList<>();
+
+            TemplateFile templateFile = this.files.remove(path);
+            if (templateFile != null) {
+                removed.add(templateFile);
+            }
+
+            SortedMap<String, TemplateFile> children = this.files.subMap(path + "/", path + "/\uffff");
+            removed.addAll(children.values());
+            children.clear();
+
+            for (TemplateFile file : removed) {
+                for (String name : file.names()) {
+                    this.names.remove(name, file.virtualFile());
+                }
+            }
+
+            return !removed.isEmpty();
+        }
+    }
+
+    /**
+     * Immutable state for readers; the template maps are created on first use
+     */
+    private static class Snapshot {
+        @NotNull
+        private final List<TwigPath> twigPaths;
+
+        @NotNull
+        private final List<Root> roots;
+
+        @NotNull
+        private final TemplateNameTrie<VirtualFile> templateNames;
+
+        @Nullable
+        private volatile Map<String, Set<VirtualFile>> twigTemplateMap;
+
+        @Nullable
+        private volatile Map<String, Set<VirtualFile>> allTemplateMap;
+
+        private Snapshot(@NotNull List<TwigPath> twigPaths, @NotNull List<Root> roots, @NotNull TemplateNameTrie<VirtualFile> templateNames) {
+            this.twigPaths = twigPaths;
+            this.roots = roots;
+            this.templateNames = templateNames;
+        }
+
+        @NotNull
+        private List<TwigPath> twigPaths() {
+            return this.twigPaths;
+        }
+
+        @NotNull
+        private List<Root> roots() {
+            return this.roots;
+        }
+
+        @NotNull
+        private TemplateNameTrie<VirtualFile> templateNames() {
+            return this.templateNames;
+        }
+
+        /**
+         * Same templates for other namespace instances with the same directories
+         */
+        @NotNull
+        private Snapshot withTwigPaths(@NotNull List<TwigPath> twigPaths) {
+            Snapshot snapshot = new Snapshot(twigPaths, this.roots, this.templateNames);
+            snapshot.twigTemplateMap = this.twigTemplateMap;
+            snapshot.allTemplateMap = this.allTemplateMap;
+
+            return snapshot;
+        }
+
+        /**
+         * Racing readers may both create a map; they are equal
+         */
+        @NotNull
+        private Map<String, Set<VirtualFile>> getTemplateMap(boolean includePhpFiles) {
+            if (includePhpFiles) {
+                Map<String, Set<VirtualFile>> allTemplateMap = this.allTemplateMap;
+                if (allTemplateMap == null) {
+                    this.allTemplateMap = allTemplateMap = createTemplateMap(true);
+                }
+
+                return allTemplateMap;
+            }
+
+            Map<String, Set<VirtualFile>> twigTemplateMap = this.twigTemplateMap;
+            if (twigTemplateMap == null) {
+                this.twigTemplateMap = twigTemplateMap = createTemplateMap(false);
+            }
+
+            return twigTemplateMap;
+        }
+
+        @NotNull
+        private Map<String, Set<VirtualFile>> createTemplateMap(boolean includePhpFiles) {
+            Map<String, Set<VirtualFile>> templateMap = new HashMap<>();
+
+            this.templateNames.processPrefix("", (templateName, virtualFiles) -> {
+                Set<VirtualFile> files = new HashSet<>();
+
+                for (VirtualFile virtualFile : virtualFiles) {
+                    if (includePhpFiles || virtualFile.getFileType() instanceof TwigFileType) {
+                        files.add(virtualFile);
+                    }
+                }
+
+                if (!files.isEmpty()) {
+                    templateMap.put(templateName, Collections.unmodifiableSet(files));
+                }
+            });
+
+            return Collections.unmodifiableMap(templateMap);
+        }
+    }
+
+    /**
+     * Twig template visitor, which scan given namespace directory for template names
+     */
+    private static class MyVirtualFileVisitor extends VirtualFileVisitor<Object> {
+        @NotNull
+        private final Root root;
+
+        @NotNull
+        private final Templates templates;
+
+        private boolean changed = false;
+
+        private MyVirtualFileVisitor(@NotNull Root root, @NotNull Templates templates) {
+            this.root = root;
+            this.templates = templates;
+        }
+
+        @Override
+        public boolean visitFile(@NotNull VirtualFile virtualFile) {
+            if (!virtualFile.isDirectory()) {
+                changed |= templates.addTemplate(root, virtualFile);
+            }
+
+            return true;
+        }
+    }
+
+    private class MyBulkFileListener implements BulkFileListener {
+        @Override
+        public void after(@NotNull List<? extends VFileEvent> events) {
+            Collection<String> rootPaths = TwigTemplateNameRegistry.this.rootPaths;
+            if (rootPaths == null || rootPaths.isEmpty() || rescan) {
+                return;
+            }
+
+            for (VFileEvent event : events) {
+                if (rescan) {
+                    return;
+                }
+
+                if (event instanceof VFileCreateEvent || event instanceof VFileDeleteEvent || event instanceof VFileMoveEvent || event instanceof VFileCopyEvent) {
+                    queueEvent(event, rootPaths);
+                } else if (event instanceof VFilePropertyChangeEvent && ((VFilePropertyChangeEvent) event).isRename()) {
+                    queueEvent(event, rootPaths);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package fr.adrienbrault.idea.symfony2plugin.templating.path.dict;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Compressed trie (radix tree) of template names: "@Foo/bar.html.twig", "FooBundle:Bar:foo.html.twig", "foo.html.twig"
+ *
+ * Template names of a project share long prefixes by its namespaces and directories, so lookups only cost the length
+ * of a name and all names of a prefix are direct subtree. Not thread-safe; a snapshot shares all nodes and changes only
+ * copy the nodes on the path of their name, so a snapshot can be read concurrently while this trie is changed.
+ */
+public class TemplateNameTrie<V> {
+
+    /**
+     * Nodes of other owners are shared with a snapshot and copied before changing them
+     */
+    @NotNull
+    private Object owner = new Object();
+
+    @NotNull
+    private Node<V> root;
+
+    private int size;
+
+    public TemplateNameTrie() {
+        this.root = new Node<>("", this.owner);
+        this.size = 0;
+    }
+
+    private TemplateNameTrie(@NotNull Node<V> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Unchanged view of the current names in constant time; following changes of this trie are not visible in it
+     */
+    @NotNull
+    public TemplateNameTrie<V> snapshot() {
+        this.owner = new Object();
+        return new TemplateNameTrie<>(this.root, this.size);
+    }
+
+    public void put(@NotNull String name, @NotNull V value) {
+        Node<V> node = this.root = mutable(this.root);
+        int i = 0;
+
+        while (i < name.length()) {
+            Node<V> child = node.getChild(name.charAt(i));
+            if (child == null) {
+                child = new Node<>(name.substring(i), this.owner);
+                node.addChild(child);
+                node = child;
+                break;
+            }
+
+            int common = getCommonPrefixLength(child.label, name, i);
+            if (common < child.label.length()) {
+                // split edge: "foo.html.twig" + "foo.xml.twig" => "foo." -> ["html.twig", "xml.twig"]
+                Node<V> split = new Node<>(child.label.substring(0, common), this.owner);
+                child = mutable(child);
+                child.label = child.label.substring(common);
+                split.addChild(child);
+                node.addChild(split);
+                child = split;
+            } else {
+                child = mutable(child);
+                node.addChild(child);
+            }
+
+            node = child;
+            i += common;
+        }
+
+        if (node.values == null) {
+            node.values = new HashSet<>();
+        }
+
+        if (node.values.isEmpty()) {
+            this.size++;
+        }
+
+        node.values.add(value);
+    }
+
+    @NotNull
+    public Set<V> get(@NotNull String name) {
+        Node<V> node = find(name);
+        if (node == null || node.values == null) {
+            return Collections.emptySet();
+        }
+
+        return Collections.unmodifiableSet(node.values);
+    }
+
+    public boolean remove(@NotNull String name, @NotNull V value) {
+        // only copy nodes for an existing value
+        if (!get(name).contains(value)) {
+            return false;
+        }
+
+        this.root = mutable(this.root);
+        remove(this.root, name, 0, value);
+
+        return true;
+    }
+
+    /**
+     * Visit all names starting with given prefix in lexical order; empty prefix visits all
+     */
+    public void processPrefix(@NotNull String prefix, @NotNull BiConsumer<String, Set<V>> consumer) {
+        Node<V> node = this.root;
+        StringBuilder path = new StringBuilder();
+        int i = 0;
+
+        while (i < prefix.length()) {
+            Node<V> child = node.getChild(prefix.charAt(i));
+            if (child == null) {
+                return;
+            }
+
+            int rest = prefix.length() - i;
+            if (rest <= child.label.length()) {
+                // prefix ends inside of the edge
+                if (!child.label.startsWith(prefix.substring(i))) {
+                    return;
+                }
+            } else if (!prefix.startsWith(child.label, i)) {
+                return;
+            }
+
+            path.append(child.label);
+            i += child.label.length();
+            node = child;
+        }
+
+        collect(node, path, consumer);
+    }
+
+    /**
+     * Number of names with at least one value
+     */
+    public int size() {
+        return this.size;
+    }
+
+    @Nullable
+    private Node<V> find(@NotNull String name) {
+        Node<V> node = this.root;
+        int i = 0;
+
+        while (i < name.length()) {
+            Node<V> child = node.getChild(name.charAt(i));
+            if (child == null || !name.startsWith(child.label, i)) {
+                return null;
+            }
+
+            i += child.label.length();
+            node = child;
+        }
+
+        return node;
+    }
+
+    /**
+     * Removes an existing value; the node is owned by this trie
+     */
+    private void remove(@NotNull Node<V> node, @NotNull String name, int i, @NotNull V value) {
+        if (i == name.length()) {
+            node.values.remove(value);
+
+            if (node.values.isEmpty()) {
+                node.values = null;
+                this.size--;
+            }
+
+            return;
+        }
+
+        Node<V> child = mutable(node.getChild(name.charAt(i)));
+        node.addChild(child);
+
+        remove(child, name, i + child.label.length(), value);
+        if (child.values == null) {
+            if (child.children == null || child.children.isEmpty()) {
+                node.children.remove(child.label.charAt(0));
+            } else if (child.children.size() == 1) {
+                // merge edge again with its single child
+                Node<V> grandChild = mutable(child.children.values().iterator().next());
+                grandChild.label = child.label + grandChild.label;
+                node.addChild(grandChild);
+            }
+        }
+    }
+
+    /**
+     * Node itself, or its copy if it is shared with a snapshot
+     */
+    @NotNull
+    private Node<V> mutable(@NotNull Node<V> node) {
+        if (node.owner == this.owner) {
+            return node;
+        }
+
+        Node<V> copy = new Node<>(node.label, this.owner);
+        copy.children = node.children != null ? new TreeMap<>(node.children) : null;
+        copy.values = node.values != null ? new HashSet<>(node.values) : null;
+
+        return copy;
+    }
+
+    private static <V> void collect(@NotNull Node<V> node, @NotNull StringBuilder path, @NotNull BiConsumer<String, Set<V>> consumer) {
+        if (node.values != null) {
+            consumer.accept(path.toString(), Collections.unmodifiableSet(node.values));
+        }
+
+        if (node.children == null) {
+            return;
+        }
+
+        for (Node<V> child : node.children.values()) {
+            int length = path.length();
+            path.append(child.label);
+            collect(child, path, consumer);
+            path.setLength(length);
+        }
+    }
+
+    private static int getCommonPrefixLength(@NotNull String label, @NotNull String name, int offset) {
+        int max = Math.min(label.length(), name.length() - offset);
+
+        int i = 0;
+        while (i < max && label.charAt(i) == name.charAt(offset + i)) {
+            i++;
+        }
+
+        return i;
+    }
+
+    private static class Node<V> {
+        @NotNull
+        private final Object owner;
+
+        @NotNull
+        private String label;
+
+        @Nullable
+        private TreeMap<Character, Node<V>> children;
+
+        @Nullable
+        private Set<V> values;
+
+        private Node(@NotNull String label, @NotNull Object owner) {
+            this.label = label;
+            this.owner = owner;
+        }
+
+        @Nullable
+        private Node<V> getChild(char c) {
+            return this.children != null ? this.children.get(c) : null;
+        }
+
+        private void addChild(@NotNull Node<V> child) {
+            if (this.children == null) {
+                this.children = new TreeMap<>();
+            }
+
+            this.children.put(child.label.charAt(0), child);
+        }
+    }
+}
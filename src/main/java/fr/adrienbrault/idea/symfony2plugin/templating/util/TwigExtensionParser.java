@@ -2,12 +2,14 @@ package fr.adrienbrault.idea.symfony2plugin.templating.util;
 
 import com.intellij.openapi.project.Project;
 import com.intellij.openapi.util.Key;
+import com.intellij.openapi.vfs.VirtualFileManager;
 import com.intellij.patterns.PlatformPatterns;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiRecursiveElementWalkingVisitor;
 import com.intellij.psi.util.*;
 import com.jetbrains.php.PhpIcons;
 import com.jetbrains.php.PhpIndex;
+import com.jetbrains.php.lang.PhpLanguage;
 import com.jetbrains.php.lang.parser.PhpElementTypes;
 import com.jetbrains.php.lang.psi.PhpPsiUtil;
 import com.jetbrains.php.lang.psi.elements.*;
@@ -19,20 +21,15 @@ import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import javax.swing.*;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
 public class TwigExtensionParser  {
 
-    private static final Key<CachedValue<Map<String, TwigExtension>>> FUNCTION_CACHE = new Key<>("TWIG_EXTENSIONS_FUNCTION");
-    private static final Key<CachedValue<Map<String, TwigExtension>>> TEST_CACHE = new Key<>("TWIG_EXTENSIONS_TEST");
-    private static final Key<CachedValue<Map<String, TwigExtension>>> FILTERS_CACHE = new Key<>("TWIG_EXTENSIONS_FILTERS");
-    private static final Key<CachedValue<Map<String, TwigExtension>>> OPERATORS_CACHE = new Key<>("TWIG_EXTENSIONS_OPERATORS");
+    private static final Key<CachedValue<Extensions>> EXTENSIONS_CACHE = new Key<>("TWIG_EXTENSIONS");
+    private static final Key<CachedValue<Extensions>> CLASS_EXTENSIONS_CACHE = new Key<>("TWIG_EXTENSIONS_CLASS");
 
     public enum TwigExtensionType {
         FUNCTION_METHOD, FUNCTION_NODE, SIMPLE_FUNCTION, FILTER, SIMPLE_TEST, OPERATOR
@@ -40,98 +37,111 @@ public class TwigExtensionParser  {
 
     @NotNull
     public static Map<String, TwigExtension> getFunctions(@NotNull Project project) {
-        return CachedValuesManager.getManager(project).getCachedValue(
-            project,
-            FUNCTION_CACHE,
-            () -> CachedValueProvider.Result.create(parseFunctions(TwigUtil.getTwigExtensionClasses(project)), PsiModificationTracker.MODIFICATION_COUNT),
-            false
-        );
+        return getExtensions(project).functions();
     }
 
     @NotNull
     public static Map<String, TwigExtension> getFilters(@NotNull Project project) {
-        return CachedValuesManager.getManager(project).getCachedValue(
-            project,
-            FILTERS_CACHE,
-            () -> CachedValueProvider.Result.create(parseFilters(TwigUtil.getTwigExtensionClasses(project)), PsiModificationTracker.MODIFICATION_COUNT),
-            false
-        );
+        return getExtensions(project).filters();
     }
 
     @NotNull
     public static Map<String, TwigExtension> getSimpleTest(@NotNull Project project) {
-        return CachedValuesManager.getManager(project).getCachedValue(
-            project,
-            TEST_CACHE,
-            () -> CachedValueProvider.Result.create(parseTests(TwigUtil.getTwigExtensionClasses(project)), PsiModificationTracker.MODIFICATION_COUNT),
-            false
-        );
+        return getExtensions(project).tests();
     }
 
     @NotNull
     public static Map<String, TwigExtension> getOperators(@NotNull Project project) {
+        return getExtensions(project).operators();
+    }
+
+    /**
+     * Merged extensions of all classes; classes are collected again for a PHP change, but only changed classes are parsed again
+     */
+    @NotNull
+    private static Extensions getExtensions(@NotNull Project project) {
         return CachedValuesManager.getManager(project).getCachedValue(
             project,
-            OPERATORS_CACHE,
-            () -> CachedValueProvider.Result.create(parseOperators(TwigUtil.getTwigExtensionClasses(project)), PsiModificationTracker.MODIFICATION_COUNT),
+            EXTENSIONS_CACHE,
+            () -> CachedValueProvider.Result.create(
+                mergeExtensions(TwigUtil.getTwigExtensionClasses(project)),
+                PsiModificationTracker.getInstance(project).forLanguage(PhpLanguage.INSTANCE),
+                VirtualFileManager.VFS_STRUCTURE_MODIFICATIONS
+            ),
             false
         );
     }
 
     @NotNull
-    private static Map<String, TwigExtension> parseFilters(@NotNull Collection<PhpClass> phpClasses) {
-        Map<String, TwigExtension> extensions = new HashMap<>();
+    private static Extensions mergeExtensions(@NotNull Collection<PhpClass> phpClasses) {
+        Map<String, TwigExtension> functions = new HashMap<>();
+        Map<String, TwigExtension> filters = new HashMap<>();
+        Map<String, TwigExtension> tests = new HashMap<>();
+        Map<String, TwigExtension> operators = new HashMap<>();
 
         for(PhpClass phpClass : phpClasses) {
-            Method method = phpClass.findMethodByName("getFilters");
-            if(method != null) {
-                parseFilter(method, extensions);
-            }
+            Extensions extensions = getClassExtensions(phpClass);
+
+            functions.putAll(extensions.functions());
+            filters.putAll(extensions.filters());
+            tests.putAll(extensions.tests());
+            operators.putAll(extensions.operators());
         }
 
-        return extensions;
+        return new Extensions(
+            Collections.unmodifiableMap(functions),
+            Collections.unmodifiableMap(filters),
+            Collections.unmodifiableMap(tests),
+            Collections.unmodifiableMap(operators)
+        );
     }
 
+    /**
+     * Extensions of one class, parsed once for all types and cached until the class or an inherited extension method changes
+     */
     @NotNull
-    private static Map<String, TwigExtension> parseFunctions(@NotNull Collection<PhpClass> phpClasses) {
-        Map<String, TwigExtension> extensions = new HashMap<>();
+    private static Extensions getClassExtensions(@NotNull PhpClass phpClass) {
+        return CachedValuesManager.getCachedValue(phpClass, CLASS_EXTENSIONS_CACHE, () -> {
+            Collection<PsiElement> dependencies = new HashSet<>();
+            dependencies.add(phpClass);
 
-        for(PhpClass phpClass : phpClasses) {
+            Map<String, TwigExtension> functions = new HashMap<>();
             Method method = phpClass.findMethodByName("getFunctions");
             if(method != null) {
-                parseFunctions(method, extensions);
+                parseFunctions(method, functions);
+                dependencies.add(method);
             }
-        }
 
-        return extensions;
-    }
-
-    @NotNull
-    private static Map<String, TwigExtension> parseTests(@NotNull Collection<PhpClass> phpClasses) {
-        Map<String, TwigExtension> extensions = new HashMap<>();
-
-        for(PhpClass phpClass : phpClasses) {
-            Method method = phpClass.findMethodByName("getTests");
+            Map<String, TwigExtension> filters = new HashMap<>();
+            method = phpClass.findMethodByName("getFilters");
             if(method != null) {
-                method.acceptChildren(new TwigSimpleTestVisitor(extensions));
+                parseFilter(method, filters);
+                dependencies.add(method);
             }
-        }
 
-        return extensions;
-    }
-
-    @NotNull
-    private static Map<String, TwigExtension> parseOperators(@NotNull Collection<PhpClass> phpClasses) {
-        Map<String, TwigExtension> extensions = new HashMap<>();
+            Map<String, TwigExtension> tests = new HashMap<>();
+            method = phpClass.findMethodByName("getTests");
+            if(method != null) {
+                method.acceptChildren(new TwigSimpleTestVisitor(tests));
+                dependencies.add(method);
+            }
 
-        for(PhpClass phpClass : phpClasses) {
-            Method method = phpClass.findMethodByName("getOperators");
+            Map<String, TwigExtension> operators = new HashMap<>();
+            method = phpClass.findMethodByName("getOperators");
             if(method != null) {
-                parseOperators(method, extensions);
+                parseOperators(method, operators);
+                dependencies.add(method);
             }
-        }
 
-        return extensions;
+            Extensions extensions = new Extensions(
+                Collections.unmodifiableMap(functions),
+                Collections.unmodifiableMap(filters),
+                Collections.unmodifiableMap(tests),
+                Collections.unmodifiableMap(operators)
+            );
+
+            return CachedValueProvider.Result.create(extensions, dependencies.toArray());
+        });
     }
 
     private static void parseFunctions(@NotNull Method method, @NotNull Map<String, TwigExtension> filters) {
@@ -604,4 +614,7 @@ public class TwigExtensionParser  {
             }
         }
     }
+
+    private record Extensions(@NotNull Map<String, TwigExtension> functions, @NotNull Map<String, TwigExtension> filters, @NotNull Map<String, TwigExtension> tests, @NotNull Map<String, TwigExtension> operators) {
+    }
 }
@@ -0,0 +1,402 @@
+package fr.adrienbrault.idea.symfony2plugin.templating.util;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.vfs.VirtualFile;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.intellij.util.indexing.ID;
+import com.jetbrains.twig.TwigFileType;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.CopyOnWriteShardedMap;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.IncrementalIndexModel;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TwigBlockIndexExtension;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TwigExtendsStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TwigIncludeStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.templating.dict.TemplateInclude;
+import fr.adrienbrault.idea.symfony2plugin.templating.dict.TemplateUsageRanking;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+
+/**
+ * Project wide dependency graph of Twig templates: "extends", "use" and all kind of includes like "include", "embed"
+ * or "include()".
+ *
+ * Edges are stored by the normalized template name of the index; the names are only resolved to files on a query, so
+ * namespace changes never touch the graph. Only the edges of changed files are read again; usage counts for completion
+ * ranking are changed with the edges of each file.
+ */
+public class TwigTemplateGraph extends IncrementalIndexModel<TwigTemplateGraph.Graph> {
+
+    private static final int RANKING_LIMIT = 100;
+
+    // all state below is only changed by a refresh; maps share their unchanged shards with the published graph and
+    // file sets of a published graph are replaced instead of changed
+
+    @NotNull
+    private final CopyOnWriteShardedMap<VirtualFile, Edges> fileEdges = new CopyOnWriteShardedMap<>();
+
+    /**
+     * Reverse edges: template name to the files which are using it
+     */
+    @NotNull
+    private final CopyOnWriteShardedMap<String, Set<VirtualFile>> extendedBy = new CopyOnWriteShardedMap<>();
+
+    @NotNull
+    private final CopyOnWriteShardedMap<String, Set<VirtualFile>> includedBy = new CopyOnWriteShardedMap<>();
+
+    /**
+     * Most used templates for completion priority; changed with the edges of every file, but only ranked on a read
+     */
+    @NotNull
+    private final TemplateUsageRanking extendsRanking = new TemplateUsageRanking(RANKING_LIMIT);
+
+    @NotNull
+    private final TemplateUsageRanking includeRanking = new TemplateUsageRanking(RANKING_LIMIT);
+
+    @NotNull
+    private final TemplateUsageRanking embedRanking = new TemplateUsageRanking(RANKING_LIMIT);
+
+    public TwigTemplateGraph(@NotNull Project project) {
+        super(project, Graph.EMPTY);
+    }
+
+    @NotNull
+    public static TwigTemplateGraph getInstance(@NotNull Project project) {
+        return project.getService(TwigTemplateGraph.class);
+    }
+
+    /**
+     * Files with an "extends" of one of the template names
+     */
+    @NotNull
+    public Collection<VirtualFile> getExtendingFiles(@NotNull Collection<String> templateNames) {
+        return getFiles(getSnapshot().extendedBy(), templateNames);
+    }
+
+    /**
+     * Files with an "include", "embed", "include()", ... of one of the template names
+     */
+    @NotNull
+    public Collection<VirtualFile> getIncludingFiles(@NotNull Collection<String> templateNames) {
+        return getFiles(getSnapshot().includedBy(), templateNames);
+    }
+
+    /**
+     * Descendant closure: all files extending the given file directly or by any of its children; without any depth limit
+     */
+    @NotNull
+    public Collection<VirtualFile> getExtendingFilesClosure(@NotNull VirtualFile virtualFile) {
+        Graph graph = getSnapshot();
+
+        Set<VirtualFile> visited = new LinkedHashSet<>();
+
+        Deque<VirtualFile> queue = new ArrayDeque<>(Collections.singletonList(virtualFile));
+        while (!queue.isEmpty()) {
+            Collection<String> templateNames = TwigUtil.getTemplateNamesForFile(this.project, queue.poll());
+
+            for (VirtualFile file : getFiles(graph.extendedBy(), templateNames)) {
+                if (visited.add(file)) {
+                    queue.add(file);
+                }
+            }
+        }
+
+        return visited;
+    }
+
+    /**
+     * Ancestor closure: all files reachable by "extends" or "use" until the root templates
+     */
+    @NotNull
+    public Collection<VirtualFile> getParentFilesClosure(@NotNull VirtualFile virtualFile) {
+        Graph graph = getSnapshot();
+
+        Set<VirtualFile> visited = new LinkedHashSet<>();
+
+        Deque<VirtualFile> queue = new ArrayDeque<>(Collections.singletonList(virtualFile));
+        while (!queue.isEmpty()) {
+            for (String templateName : getParentTemplateNames(graph, queue.poll())) {
+                for (VirtualFile file : TwigUtil.getTemplateFiles(this.project, templateName)) {
+                    if (visited.add(file)) {
+                        queue.add(file);
+                    }
+                }
+            }
+        }
+
+        return visited;
+    }
+
+    /**
+     * Most extended templates first, counted by files
+     */
+    @NotNull
+    public List<String> getExtendsRanking() {
+        return new ArrayList<>(getSnapshot().extendsRanking().getRanking());
+    }
+
+    /**
+     * Templates most used by "include" and "include()" first, counted by files
+     */
+    @NotNull
+    public List<String> getIncludeRanking() {
+        return new ArrayList<>(getSnapshot().includeRanking().getRanking());
+    }
+
+    /**
+     * Templates most used by "embed" first, counted by files
+     */
+    @NotNull
+    public List<String> getEmbedRanking() {
+        return new ArrayList<>(getSnapshot().embedRanking().getRanking());
+    }
+
+    @NotNull
+    @Override
+    protected Collection<ID<?, ?>> getIndexIds() {
+        return Arrays.asList(TwigExtendsStubIndex.KEY, TwigIncludeStubIndex.KEY, TwigBlockIndexExtension.KEY);
+    }
+
+    @Override
+    protected boolean isModelFile(@NotNull VirtualFile virtualFile) {
+        return virtualFile.getFileType() == TwigFileType.INSTANCE;
+    }
+
+    @NotNull
+    @Override
+    protected Graph refresh(@Nullable Collection<VirtualFile> changedFiles) {
+        if (changedFiles == null) {
+            rebuild();
+        } else {
+            changedFiles.forEach(this::updateFile);
+        }
+
+        return new Graph(
+            this.extendedBy.snapshot(),
+            this.includedBy.snapshot(),
+            this.fileEdges.snapshot(),
+            this.extendsRanking.snapshot(),
+            this.includeRanking.snapshot(),
+            this.embedRanking.snapshot()
+        );
+    }
+
+    @Override
+    protected void clear() {
+        this.fileEdges.clear();
+        this.extendedBy.clear();
+        this.includedBy.clear();
+        this.extendsRanking.clear();
+        this.includeRanking.clear();
+        this.embedRanking.clear();
+    }
+
+    private void rebuild() {
+        clear();
+
+        FileBasedIndex index = FileBasedIndex.getInstance();
+        GlobalSearchScope scope = GlobalSearchScope.allScope(this.project);
+
+        Map<VirtualFile, Edges> fileEdges = new HashMap<>();
+
+        for (String templateName : index.getAllKeys(TwigExtendsStubIndex.KEY, this.project)) {
+            index.processValues(TwigExtendsStubIndex.KEY, templateName, null, (virtualFile, value) -> {
+                fileEdges.computeIfAbsent(virtualFile, file -> new Edges()).extendsTemplates().add(templateName);
+                return true;
+            }, scope);
+        }
+
+        for (String templateName : index.getAllKeys(TwigIncludeStubIndex.KEY, this.project)) {
+            index.processValues(TwigIncludeStubIndex.KEY, templateName, null, (virtualFile, value) -> {
+                fileEdges.computeIfAbsent(virtualFile, file -> new Edges()).addInclude(templateName, value);
+                return true;
+            }, scope);
+        }
+
+        index.processValues(TwigBlockIndexExtension.KEY, "use", null, (virtualFile, templateNames) -> {
+            fileEdges.computeIfAbsent(virtualFile, file -> new Edges()).useTemplates().addAll(templateNames);
+            return true;
+        }, scope);
+
+        // file sets are new, so they can be filled in place
+        Map<String, Set<VirtualFile>> extendedBy = new HashMap<>();
+        Map<String, Set<VirtualFile>> includedBy = new HashMap<>();
+
+        fileEdges.forEach((virtualFile, edges) -> {
+            if (edges.isEmpty()) {
+                return;
+            }
+
+            this.fileEdges.put(virtualFile, edges);
+            edges.extendsTemplates().forEach(templateName -> extendedBy.computeIfAbsent(templateName, s -> new HashSet<>()).add(virtualFile));
+            edges.includeTemplates().forEach(templateName -> includedBy.computeIfAbsent(templateName, s -> new HashSet<>()).add(virtualFile));
+            addRanking(edges);
+        });
+
+        extendedBy.forEach(this.extendedBy::put);
+        includedBy.forEach(this.includedBy::put);
+    }
+
+    private void updateFile(@NotNull VirtualFile virtualFile) {
+        Edges edges = readEdges(virtualFile);
+
+        // most edits do not touch any edge, so the published edges and rankings stay valid
+        Edges before = this.fileEdges.get(virtualFile);
+        if (Objects.equals(before, edges)) {
+            return;
+        }
+
+        if (before != null) {
+            this.fileEdges.remove(virtualFile);
+            before.extendsTemplates().forEach(templateName -> removeEdge(this.extendedBy, templateName, virtualFile));
+            before.includeTemplates().forEach(templateName -> removeEdge(this.includedBy, templateName, virtualFile));
+
+            before.extendsTemplates().stream().filter(TwigTemplateGraph::isRankedTemplateName).forEach(this.extendsRanking::remove);
+            before.includeUsages().forEach(this.includeRanking::remove);
+            before.embedUsages().forEach(this.embedRanking::remove);
+        }
+
+        if (edges == null) {
+            return;
+        }
+
+        this.fileEdges.put(virtualFile, edges);
+        edges.extendsTemplates().forEach(templateName -> addEdge(this.extendedBy, templateName, virtualFile));
+        edges.includeTemplates().forEach(templateName -> addEdge(this.includedBy, templateName, virtualFile));
+        addRanking(edges);
+    }
+
+    /**
+     * @return "null" for removed files or files without any edge
+     */
+    @Nullable
+    private Edges readEdges(@NotNull VirtualFile virtualFile) {
+        if (!virtualFile.isValid() || virtualFile.getFileType() != TwigFileType.INSTANCE) {
+            return null;
+        }
+
+        FileBasedIndex index = FileBasedIndex.getInstance();
+
+        Edges edges = new Edges();
+        edges.extendsTemplates().addAll(index.getFileData(TwigExtendsStubIndex.KEY, virtualFile, this.project).keySet());
+        index.getFileData(TwigIncludeStubIndex.KEY, virtualFile, this.project).forEach(edges::addInclude);
+
+        Set<String> useTemplates = index.getFileData(TwigBlockIndexExtension.KEY, virtualFile, this.project).get("use");
+        if (useTemplates != null) {
+            edges.useTemplates().addAll(useTemplates);
+        }
+
+        return edges.isEmpty() ? null : edges;
+    }
+
+    private void addRanking(@NotNull Edges edges) {
+        edges.extendsTemplates().stream().filter(TwigTemplateGraph::isRankedTemplateName).forEach(this.extendsRanking::add);
+        edges.includeUsages().forEach(this.includeRanking::add);
+        edges.embedUsages().forEach(this.embedRanking::add);
+    }
+
+    @NotNull
+    private static Collection<String> getParentTemplateNames(@NotNull Graph graph, @NotNull VirtualFile virtualFile) {
+        Edges edges = graph.fileEdges().get(virtualFile);
+        if (edges == null) {
+            return Collections.emptyList();
+        }
+
+        Collection<String> templateNames = new LinkedHashSet<>(edges.extendsTemplates());
+        templateNames.addAll(edges.useTemplates());
+
+        return templateNames;
+    }
+
+    @NotNull
+    private static Collection<VirtualFile> getFiles(@NotNull Map<String, Set<VirtualFile>> edges, @NotNull Collection<String> templateNames) {
+        Set<VirtualFile> virtualFiles = new LinkedHashSet<>();
+
+        for (String templateName : templateNames) {
+            Set<VirtualFile> files = edges.get(templateName);
+            if (files != null) {
+                virtualFiles.addAll(files);
+            }
+        }
+
+        return virtualFiles;
+    }
+
+    /**
+     * Profiler and core templates are used everywhere, but never wanted as a suggestion
+     */
+    private static boolean isRankedTemplateName(@NotNull String templateName) {
+        String lowerCase = templateName.toLowerCase();
+
+        return !lowerCase.contains("@webprofiler")
+            && !lowerCase.contains("/profiler/")
+            && !lowerCase.contains("@twig")
+            && !lowerCase.equals("form_div_layout.html.twig");
+    }
+
+    /**
+     * File sets can be part of a published graph, so they are copied on change
+     */
+    private static void addEdge(@NotNull CopyOnWriteShardedMap<String, Set<VirtualFile>> edges, @NotNull String templateName, @NotNull VirtualFile virtualFile) {
+        Set<VirtualFile> before = edges.get(templateName);
+
+        Set<VirtualFile> virtualFiles = before != null ? new HashSet<>(before) : new HashSet<>();
+        virtualFiles.add(virtualFile);
+        edges.put(templateName, virtualFiles);
+    }
+
+    private static void removeEdge(@NotNull CopyOnWriteShardedMap<String, Set<VirtualFile>> edges, @NotNull String templateName, @NotNull VirtualFile virtualFile) {
+        Set<VirtualFile> virtualFiles = edges.get(templateName);
+        if (virtualFiles == null || !virtualFiles.contains(virtualFile)) {
+            return;
+        }
+
+        if (virtualFiles.size() == 1) {
+            edges.remove(templateName);
+            return;
+        }
+
+        Set<VirtualFile> files = new HashSet<>(virtualFiles);
+        files.remove(virtualFile);
+        edges.put(templateName, files);
+    }
+
+    /**
+     * Published state for readers; never changed
+     */
+    record Graph(@NotNull Map<String, Set<VirtualFile>> extendedBy, @NotNull Map<String, Set<VirtualFile>> includedBy, @NotNull Map<VirtualFile, Edges> fileEdges, @NotNull TemplateUsageRanking.Snapshot extendsRanking, @NotNull TemplateUsageRanking.Snapshot includeRanking, @NotNull TemplateUsageRanking.Snapshot embedRanking) {
+        private static final Graph EMPTY = new Graph(Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap(), TemplateUsageRanking.Snapshot.EMPTY, TemplateUsageRanking.Snapshot.EMPTY, TemplateUsageRanking.Snapshot.EMPTY);
+    }
+
+    /**
+     * Filled once on reading a file, afterwards never changed
+     *
+     * @param includeUsages ranked subset of the includes by "include" and "include()"
+     * @param embedUsages ranked subset of the includes by "embed"
+     */
+    private record Edges(@NotNull Set<String> extendsTemplates, @NotNull Set<String> includeTemplates, @NotNull Set<String> useTemplates, @NotNull Set<String> includeUsages, @NotNull Set<String> embedUsages) {
+        private Edges() {
+            this(new HashSet<>(), new HashSet<>(), new HashSet<>(), new HashSet<>(), new HashSet<>());
+        }
+
+        private void addInclude(@NotNull String templateName, @NotNull fr.adrienbrault.idea.symfony2plugin.stubs.dict.TemplateInclude templateInclude) {
+            includeTemplates.add(templateName);
+
+            if (!isRankedTemplateName(templateName)) {
+                return;
+            }
+
+            TemplateInclude.TYPE type = templateInclude.getType();
+            if (type == TemplateInclude.TYPE.INCLUDE || type == TemplateInclude.TYPE.INCLUDE_FUNCTION) {
+                includeUsages.add(templateName);
+            } else if (type == TemplateInclude.TYPE.EMBED) {
+                embedUsages.add(templateName);
+            }
+        }
+
+        private boolean isEmpty() {
+            return extendsTemplates.isEmpty() && includeTemplates.isEmpty() && useTemplates.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package fr.adrienbrault.idea.symfony2plugin.templating.util;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
+import com.intellij.psi.SmartPointerManager;
+import com.intellij.psi.SmartPsiElementPointer;
+import com.intellij.psi.search.GlobalSearchScope;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.util.indexing.FileBasedIndex;
+import com.jetbrains.php.PhpIndex;
+import com.jetbrains.php.lang.psi.elements.Function;
+import com.jetbrains.php.lang.psi.elements.Method;
+import fr.adrienbrault.idea.symfony2plugin.stubs.SymfonyProcessors;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.FileIndexCaches;
+import fr.adrienbrault.idea.symfony2plugin.stubs.dict.TemplateUsage;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.PhpTwigTemplateUsageStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.util.PhpElementsUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reverse map of template names to the PHP functions and controller methods rendering them: "foo.html.twig" => "\Foo.barAction"
+ *
+ * The map is built once per modification stamp of PhpTwigTemplateUsageStubIndex. Scopes are only resolved on first access
+ * and kept as smart pointers, so highlighting or completion of a template does not query the index and PhpIndex again.
+ */
+public class TwigTemplateUsageMap {
+
+    private static final Key<CachedValue<TwigTemplateUsageMap>> CACHE = new Key<>("SYMFONY_TWIG_TEMPLATE_USAGE_MAP");
+
+    @NotNull
+    private final Project project;
+
+    /**
+     * Template name to function scopes, eg "\foo" or "\Foo.barAction"
+     */
+    @NotNull
+    private final Map<String, Set<String>> scopes;
+
+    @NotNull
+    private final Map<String, Collection<SmartPsiElementPointer<Function>>> functions = new ConcurrentHashMap<>();
+
+    private TwigTemplateUsageMap(@NotNull Project project, @NotNull Map<String, Set<String>> scopes) {
+        this.project = project;
+        this.scopes = scopes;
+    }
+
+    @NotNull
+    public static TwigTemplateUsageMap getInstance(@NotNull Project project) {
+        return CachedValuesManager.getManager(project).getCachedValue(
+            project,
+            CACHE,
+            () -> CachedValueProvider.Result.create(create(project), FileIndexCaches.getModificationTrackerForIndexId(project, PhpTwigTemplateUsageStubIndex.KEY)),
+            false
+        );
+    }
+
+    /**
+     * Functions and methods rendering one of the given template names
+     */
+    @NotNull
+    public Set<Function> getFunctions(@NotNull Collection<String> templateNames) {
+        Set<String> scopes = new HashSet<>();
+        for (String templateName : templateNames) {
+            scopes.addAll(this.scopes.getOrDefault(templateName, Collections.emptySet()));
+        }
+
+        Set<Function> functions = new HashSet<>();
+        for (String scope : scopes) {
+            functions.addAll(getScopeFunctions(scope));
+        }
+
+        return functions;
+    }
+
+    /**
+     * Pointers survive changes of the function itself; a removed function is resolved again by its name
+     */
+    @NotNull
+    private Collection<Function> getScopeFunctions(@NotNull String scope) {
+        Collection<SmartPsiElementPointer<Function>> pointers = this.functions.get(scope);
+        if (pointers != null) {
+            Collection<Function> functions = dereference(pointers);
+            if (functions != null) {
+                return functions;
+            }
+        }
+
+        Collection<Function> functions = resolveScope(this.project, scope);
+
+        Collection<SmartPsiElementPointer<Function>> created = new ArrayList<>();
+        for (Function function : functions) {
+            created.add(SmartPointerManager.createPointer(function));
+        }
+
+        this.functions.put(scope, created);
+
+        return functions;
+    }
+
+    @NotNull
+    private static TwigTemplateUsageMap create(@NotNull Project project) {
+        Map<String, Set<String>> scopes = new HashMap<>();
+
+        FileBasedIndex fileBasedIndex = FileBasedIndex.getInstance();
+        GlobalSearchScope scope = GlobalSearchScope.allScope(project);
+
+        for (String templateName : SymfonyProcessors.createResult(project, PhpTwigTemplateUsageStubIndex.KEY)) {
+            Set<String> templateScopes = new HashSet<>();
+            for (TemplateUsage usage : fileBasedIndex.getValues(PhpTwigTemplateUsageStubIndex.KEY, templateName, scope)) {
+                templateScopes.addAll(usage.getScopes());
+            }
+
+            if (!templateScopes.isEmpty()) {
+                scopes.put(templateName, Set.copyOf(templateScopes));
+            }
+        }
+
+        return new TwigTemplateUsageMap(project, scopes);
+    }
+
+    /**
+     * "null" if one of the functions is gone
+     */
+    @Nullable
+    private static Collection<Function> dereference(@NotNull Collection<SmartPsiElementPointer<Function>> pointers) {
+        Collection<Function> functions = new ArrayList<>();
+
+        for (SmartPsiElementPointer<Function> pointer : pointers) {
+            Function function = pointer.getElement();
+            if (function == null || !function.isValid()) {
+                return null;
+            }
+
+            functions.add(function);
+        }
+
+        return functions;
+    }
+
+    @NotNull
+    private static Collection<Function> resolveScope(@NotNull Project project, @NotNull String scope) {
+        // function: "\foo"
+        if(!scope.contains(".")) {
+            return new ArrayList<>(PhpIndex.getInstance(project).getFunctionsByFQN("\\" + scope));
+        }
+
+        // classes: "\foo.action"
+        String[] split = scope.split("\\.");
+        if(split.length != 2) {
+            return Collections.emptyList();
+        }
+
+        Method method = PhpElementsUtil.getClassMethod(project, split[0], split[1]);
+        if(method == null) {
+            return Collections.emptyList();
+        }
+
+        return Collections.singletonList(method);
+    }
+}
@@ -1,13 +1,21 @@
 package fr.adrienbrault.idea.symfony2plugin.templating.util;
 
+import com.intellij.concurrency.JobLauncher;
 import com.intellij.openapi.extensions.ExtensionPointName;
+import com.intellij.openapi.progress.ProgressManager;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.Key;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.patterns.PlatformPatterns;
 import com.intellij.psi.PsiComment;
 import com.intellij.psi.PsiElement;
+import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiWhiteSpace;
 import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.util.CachedValue;
+import com.intellij.psi.util.CachedValueProvider;
+import com.intellij.psi.util.CachedValuesManager;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.psi.util.PsiTreeUtil;
 import com.jetbrains.php.PhpIndex;
 import com.jetbrains.php.lang.psi.elements.Field;
@@ -34,8 +42,10 @@ import fr.adrienbrault.idea.symfony2plugin.util.PsiElementUtils;
 import fr.adrienbrault.idea.symfony2plugin.util.yaml.YamlHelper;
 import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -83,6 +93,10 @@ public class TwigTypeResolveUtil {
         "fr.adrienbrault.idea.symfony2plugin.extension.TwigVariableCollector"
     );
 
+    private static final Map<Class<?>, Key<CachedValue<CollectedVariables>>> TWIG_FILE_VARIABLE_CACHE_KEYS = new ConcurrentHashMap<>();
+
+    private static final Key<CachedValue<Map<ResolveKey, ResolvedPath>>> TWIG_TYPE_RESOLVE_CACHE = new Key<>("TWIG_TYPE_RESOLVE_CACHE");
+
     private static TwigTypeResolver[] TWIG_TYPE_RESOLVERS = new TwigTypeResolver[] {
         new FormVarsResolver(),
         new FormFieldResolver(),
@@ -128,6 +142,10 @@ public class TwigTypeResolveUtil {
     /**
      * Collects all possible variables in given path for last given item of "typeName"
      *
+     * Every path prefix "foo", "foo.bar", ... is resolved once per variable scope of the file and reused by all other
+     * elements of the same scope, until any PSI changes; so deep paths in large templates are not resolved again and
+     * again by completion, inspections and navigation
+     *
      * @param types Variable path "foo.bar" => ["foo", "bar"]
      * @return types for last item of typeName parameter
      */
@@ -137,33 +155,73 @@ public class TwigTypeResolveUtil {
             return Collections.emptyList();
         }
 
-        String rootType = types.iterator().next();
-        Collection<PsiVariable> rootVariables = getRootVariableByName(psiElement, rootType);
-        if(types.size() == 1) {
-            Collection<TwigTypeContainer> twigTypeContainers = TwigTypeContainer.fromCollection(psiElement.getProject(), rootVariables);
-            for(TwigTypeResolver twigTypeResolver: TWIG_TYPE_RESOLVERS) {
-                twigTypeResolver.resolve(twigTypeContainers, twigTypeContainers, rootType, new ArrayList<>(), rootVariables);
-            }
-
-            return twigTypeContainers;
+        PsiFile psiFile = psiElement.getContainingFile();
+        if(psiFile == null) {
+            return Collections.emptyList();
         }
 
-        Collection<TwigTypeContainer> type = TwigTypeContainer.fromCollection(psiElement.getProject(), rootVariables);
-        Collection<List<TwigTypeContainer>> previousElements = new ArrayList<>();
-        previousElements.add(new ArrayList<>(type));
+        Map<ResolveKey, ResolvedPath> cache = CachedValuesManager.getCachedValue(psiFile, TWIG_TYPE_RESOLVE_CACHE, () ->
+            CachedValueProvider.Result.create(new ConcurrentHashMap<>(), PsiModificationTracker.MODIFICATION_COUNT)
+        );
+
+        PsiElement scope = getVariableScope(psiElement);
+        List<String> path = new ArrayList<>(types);
 
-        String[] typeNames = types.toArray(new String[0]);
-        for (int i = 1; i <= typeNames.length - 1; i++ ) {
-            type = resolveTwigMethodName(type, typeNames[i], previousElements);
-            previousElements.add(new ArrayList<>(type));
+        // find longest known prefix
+        int length = path.size();
+        ResolvedPath resolvedPath = null;
+        while (length > 0 && (resolvedPath = cache.get(new ResolveKey(scope, path.subList(0, length)))) == null) {
+            length--;
+        }
 
+        if(resolvedPath == null) {
+            resolvedPath = resolveRootPath(psiElement, path.get(0));
+            cache.put(new ResolveKey(scope, List.copyOf(path.subList(0, 1))), resolvedPath);
+            length = 1;
+        }
+
+        for (int i = length; i < path.size(); i++) {
             // we can stop on empty list
-            if(type.size() == 0) {
+            if(resolvedPath.nextTypes().isEmpty()) {
                 return Collections.emptyList();
             }
+
+            resolvedPath = resolvedPath.resolve(path.get(i));
+            cache.put(new ResolveKey(scope, List.copyOf(path.subList(0, i + 1))), resolvedPath);
         }
 
-        return type;
+        return new ArrayList<>(resolvedPath.types());
+    }
+
+    @NotNull
+    private static ResolvedPath resolveRootPath(@NotNull PsiElement psiElement, @NotNull String rootType) {
+        Collection<PsiVariable> rootVariables = getRootVariableByName(psiElement, rootType);
+
+        Collection<TwigTypeContainer> twigTypeContainers = TwigTypeContainer.fromCollection(psiElement.getProject(), rootVariables);
+        List<TwigTypeContainer> variableTypes = List.copyOf(twigTypeContainers);
+
+        for(TwigTypeResolver twigTypeResolver: TWIG_TYPE_RESOLVERS) {
+            twigTypeResolver.resolve(twigTypeContainers, twigTypeContainers, rootType, new ArrayList<>(), rootVariables);
+        }
+
+        // root resolvers only apply to a single item path; following items start from the plain variable types
+        return new ResolvedPath(List.copyOf(twigTypeContainers), variableTypes, Collections.singletonList(variableTypes));
+    }
+
+    /**
+     * Variables are the same for all elements inside the nearest "for", "macro" or "block"; outside of them the file
+     */
+    @NotNull
+    private static PsiElement getVariableScope(@NotNull PsiElement psiElement) {
+        PsiElement scope = PsiTreeUtil.findFirstParent(psiElement, element ->
+            element instanceof TwigCompositeElement && PlatformPatterns.or(
+                PlatformPatterns.psiElement(TwigElementTypes.FOR_STATEMENT),
+                PlatformPatterns.psiElement(TwigElementTypes.MACRO_STATEMENT),
+                PlatformPatterns.psiElement(TwigElementTypes.BLOCK_STATEMENT)
+            ).accepts(element)
+        );
+
+        return scope != null ? scope : psiElement.getContainingFile();
     }
 
     /**
@@ -229,36 +287,53 @@ public class TwigTypeResolveUtil {
 
     @NotNull
     public static Map<String, PsiVariable> collectScopeVariables(@NotNull PsiElement psiElement) {
-        return collectScopeVariables(psiElement, new HashSet<>());
+        // shared by collectors running concurrently
+        return collectScopeVariables(psiElement, ConcurrentHashMap.newKeySet());
     }
 
     @NotNull
     public static Map<String, PsiVariable> collectScopeVariables(@NotNull PsiElement psiElement, @NotNull Set<VirtualFile> visitedFiles) {
-        VirtualFile virtualFile = psiElement.getContainingFile().getVirtualFile();
-        if(visitedFiles.contains(virtualFile)) {
+        PsiFile psiFile = psiElement.getContainingFile();
+        VirtualFile virtualFile = psiFile.getVirtualFile();
+        if(virtualFile != null && !visitedFiles.add(virtualFile)) {
             return Collections.emptyMap();
         }
 
-        visitedFiles.add(virtualFile);
+        // file caches are only valid for the requested file, not for a file visited via an include
+        boolean useFileCache = psiFile instanceof TwigFile && virtualFile != null && visitedFiles.size() == 1;
+
+        List<TwigFileVariableCollector> collectors = TWIG_FILE_VARIABLE_COLLECTORS.getExtensionList();
+        TwigFileVariableCollectorParameter collectorParameter = new TwigFileVariableCollectorParameter(psiElement, visitedFiles);
+
+        // collectors are independent of each other; so run them concurrently, with the read action and the progress of the caller
+        Map<TwigFileVariableCollector, CollectedVariables> collected = new ConcurrentHashMap<>();
+        JobLauncher.getInstance().invokeConcurrentlyUnderProgress(collectors, ProgressManager.getInstance().getProgressIndicator(), collector -> {
+            CollectedVariables variables = null;
+            if (useFileCache) {
+                variables = getCachedFileVariables((TwigFile) psiFile, collector);
+            }
+
+            collected.put(collector, variables != null ? variables : collectVariables(collector, collectorParameter));
+            return true;
+        });
 
         Map<String, PsiVariable> controllerVars = new HashMap<>();
 
-        TwigFileVariableCollectorParameter collectorParameter = new TwigFileVariableCollectorParameter(psiElement, visitedFiles);
-        for(TwigFileVariableCollector collector: TWIG_FILE_VARIABLE_COLLECTORS.getExtensions()) {
-            Map<String, Set<String>> globalVarsScope = new HashMap<>();
-            collector.collect(collectorParameter, globalVarsScope);
+        // merge in order of the extensions
+        for(TwigFileVariableCollector collector: collectors) {
+            CollectedVariables variables = collected.get(collector);
+            if (variables == null) {
+                continue;
+            }
 
             // @TODO: resolve this in change extension point, so that its only possible to provide data and dont give full scope to break / overwrite other variables
-            globalVarsScope.forEach((s, strings) -> {
+            variables.types().forEach((s, strings) -> {
                 controllerVars.putIfAbsent(s, new PsiVariable());
                 controllerVars.get(s).addTypes(strings);
             });
 
             // merging elements
-            Map<String, PsiVariable> controllerVars1 = new HashMap<>();
-            collector.collectPsiVariables(collectorParameter, controllerVars1);
-
-            controllerVars1.forEach((s, psiVariable) -> {
+            variables.psiVariables().forEach((s, psiVariable) -> {
                 controllerVars.putIfAbsent(s, new PsiVariable());
                 controllerVars.get(s).addTypes(psiVariable.getTypes());
 
@@ -295,6 +370,42 @@ public class TwigTypeResolveUtil {
         return controllerVars;
     }
 
+    /**
+     * Variables of a collector which declares its dependencies, cached per file and collector; "null" for a position dependent collector
+     */
+    @Nullable
+    private static CollectedVariables getCachedFileVariables(@NotNull TwigFile twigFile, @NotNull TwigFileVariableCollector collector) {
+        TwigFileVariableCollectorParameter parameter = new TwigFileVariableCollectorParameter(twigFile, Collections.singleton(twigFile.getVirtualFile()));
+        if (collector.getDependencies(parameter) == null) {
+            return null;
+        }
+
+        Key<CachedValue<CollectedVariables>> key = TWIG_FILE_VARIABLE_CACHE_KEYS.computeIfAbsent(
+            collector.getClass(),
+            aClass -> Key.create("TWIG_FILE_VARIABLES_" + aClass.getName())
+        );
+
+        return CachedValuesManager.getCachedValue(twigFile, key, () -> {
+            // visited files of an include are not shared with any other lookup
+            Set<VirtualFile> visitedFiles = ConcurrentHashMap.newKeySet();
+            visitedFiles.add(twigFile.getVirtualFile());
+
+            TwigFileVariableCollectorParameter fileParameter = new TwigFileVariableCollectorParameter(twigFile, visitedFiles);
+            return CachedValueProvider.Result.create(collectVariables(collector, fileParameter), collector.getDependencies(fileParameter));
+        });
+    }
+
+    @NotNull
+    private static CollectedVariables collectVariables(@NotNull TwigFileVariableCollector collector, @NotNull TwigFileVariableCollectorParameter parameter) {
+        Map<String, Set<String>> types = new HashMap<>();
+        collector.collect(parameter, types);
+
+        Map<String, PsiVariable> psiVariables = new HashMap<>();
+        collector.collectPsiVariables(parameter, psiVariables);
+
+        return new CollectedVariables(Collections.unmodifiableMap(types), Collections.unmodifiableMap(psiVariables));
+    }
+
     /**
      * Extract magic iterator implementation like "getIterator" or "__iterator"
      *
@@ -650,5 +761,30 @@ public class TwigTypeResolveUtil {
 
         return TwigTypeResolveUtil.formatPsiTypeName(afterInVarPsiElement);
     }
-}
 
+    private record ResolveKey(@NotNull PsiElement scope, @NotNull List<String> path) {
+    }
+
+    /**
+     * Types of a path with the types of all its previous items, which are needed by the resolvers
+     *
+     * @param nextTypes types to resolve the following path item on
+     */
+    private record ResolvedPath(@NotNull List<TwigTypeContainer> types, @NotNull List<TwigTypeContainer> nextTypes, @NotNull List<List<TwigTypeContainer>> previousElements) {
+        @NotNull
+        private ResolvedPath resolve(@NotNull String typeName) {
+            List<List<TwigTypeContainer>> previousElements = new ArrayList<>(this.previousElements);
+
+            List<TwigTypeContainer> types = List.copyOf(resolveTwigMethodName(this.nextTypes, typeName, previousElements));
+            previousElements.add(types);
+
+            return new ResolvedPath(types, types, Collections.unmodifiableList(previousElements));
+        }
+    }
+
+    /**
+     * Unmodifiable output of one collector; merging creates new variables, so cached ones are shared
+     */
+    private record CollectedVariables(@NotNull Map<String, Set<String>> types, @NotNull Map<String, PsiVariable> psiVariables) {
+    }
+}
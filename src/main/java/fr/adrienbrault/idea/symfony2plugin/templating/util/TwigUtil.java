@@ -10,7 +10,7 @@ import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.util.TextRange;
 import com.intellij.openapi.vfs.VfsUtil;
 import com.intellij.openapi.vfs.VirtualFile;
-import com.intellij.openapi.vfs.VirtualFileVisitor;
+import com.intellij.openapi.vfs.VirtualFileManager;
 import com.intellij.patterns.ElementPattern;
 import com.intellij.patterns.PlatformPatterns;
 import com.intellij.psi.*;
@@ -23,7 +23,7 @@ import com.intellij.util.containers.ArrayListSet;
 import com.intellij.util.containers.ContainerUtil;
 import com.intellij.util.indexing.FileBasedIndex;
 import com.jetbrains.php.PhpIndex;
-import com.jetbrains.php.lang.PhpFileType;
+import com.jetbrains.php.lang.PhpLanguage;
 import com.jetbrains.php.lang.documentation.phpdoc.psi.PhpDocComment;
 import com.jetbrains.php.lang.documentation.phpdoc.psi.tags.PhpDocTag;
 import com.jetbrains.php.lang.psi.PhpPsiUtil;
@@ -39,16 +39,14 @@ import fr.adrienbrault.idea.symfony2plugin.Settings;
 import fr.adrienbrault.idea.symfony2plugin.action.comparator.ValueComparator;
 import fr.adrienbrault.idea.symfony2plugin.asset.AssetDirectoryReader;
 import fr.adrienbrault.idea.symfony2plugin.extension.TwigFileUsage;
-import fr.adrienbrault.idea.symfony2plugin.extension.TwigNamespaceExtension;
-import fr.adrienbrault.idea.symfony2plugin.extension.TwigNamespaceExtensionParameter;
 import fr.adrienbrault.idea.symfony2plugin.stubs.SymfonyProcessors;
 import fr.adrienbrault.idea.symfony2plugin.stubs.cache.FileIndexCaches;
-import fr.adrienbrault.idea.symfony2plugin.stubs.dict.TemplateUsage;
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.*;
 import fr.adrienbrault.idea.symfony2plugin.templating.TemplateLookupElement;
 import fr.adrienbrault.idea.symfony2plugin.templating.TwigPattern;
 import fr.adrienbrault.idea.symfony2plugin.templating.dict.*;
-import fr.adrienbrault.idea.symfony2plugin.templating.path.TwigNamespaceSetting;
+import fr.adrienbrault.idea.symfony2plugin.templating.path.TwigNamespaceRegistry;
+import fr.adrienbrault.idea.symfony2plugin.templating.path.TwigTemplateNameRegistry;
 import fr.adrienbrault.idea.symfony2plugin.templating.path.TwigPath;
 import fr.adrienbrault.idea.symfony2plugin.templating.variable.dict.PsiVariable;
 import fr.adrienbrault.idea.symfony2plugin.twig.assets.TwigNamedAssetsServiceParser;
@@ -95,20 +93,13 @@ public class TwigUtil {
         BUNDLE, ADD_PATH
     }
 
-    private static final ExtensionPointName<TwigNamespaceExtension> TWIG_NAMESPACE_EXTENSIONS = new ExtensionPointName<>(
-        "fr.adrienbrault.idea.symfony2plugin.extension.TwigNamespaceExtension"
-    );
-
     public static final ExtensionPointName<TwigFileUsage> TWIG_FILE_USAGE_EXTENSIONS = new ExtensionPointName<>(
         "fr.adrienbrault.idea.symfony2plugin.extension.TwigFileUsage"
     );
 
-    private static final Key<CachedValue<Map<String, Set<VirtualFile>>>> TEMPLATE_CACHE_TWIG = new Key<>("TEMPLATE_CACHE_TWIG");
 
-    private static final Key<CachedValue<Map<String, Set<VirtualFile>>>> TEMPLATE_CACHE_ALL = new Key<>("TEMPLATE_CACHE_ALL");
-    private static final Key<CachedValue<List<String>>> SYMFONY_TEMPLATE_INCLUDE_LIST = new Key<>("SYMFONY_TEMPLATE_INCLUDE_LIST");
-    private static final Key<CachedValue<List<String>>> SYMFONY_TEMPLATE_EMBED_LIST = new Key<>("SYMFONY_TEMPLATE_EMBED_LIST");
-    private static final Key<CachedValue<List<String>>> SYMFONY_TEMPLATE_EXTENDS_LIST = new Key<>("SYMFONY_TEMPLATE_EXTENDS_LIST");
+    private static final Key<CachedValue<Collection<Method>>> SYMFONY_TWIG_FILE_CONTROLLER = new Key<>("SYMFONY_TWIG_FILE_CONTROLLER");
+    private static final Key<Map<VirtualFile, Set<String>>> SYMFONY_TWIG_BLOCK_NAMES = new Key<>("SYMFONY_TWIG_BLOCK_NAMES");
 
     public static String[] CSS_FILES_EXTENSIONS = new String[] { "css", "less", "sass", "scss" };
 
@@ -767,6 +758,16 @@ public class TwigUtil {
      */
     @NotNull
     public static Collection<Method> findTwigFileController(@NotNull TwigFile twigFile) {
+        // bundle and controller classes, not the content of any Twig file
+        return CachedValuesManager.getCachedValue(twigFile, SYMFONY_TWIG_FILE_CONTROLLER, () -> CachedValueProvider.Result.create(
+            findTwigFileControllerInner(twigFile),
+            PsiModificationTracker.getInstance(twigFile.getProject()).forLanguage(PhpLanguage.INSTANCE),
+            VirtualFileManager.VFS_STRUCTURE_MODIFICATIONS
+        ));
+    }
+
+    @NotNull
+    private static Collection<Method> findTwigFileControllerInner(@NotNull TwigFile twigFile) {
 
         SymfonyBundle symfonyBundle = new SymfonyBundleUtil(twigFile.getProject()).getContainingBundle(twigFile);
         if(symfonyBundle == null) {
@@ -858,37 +859,7 @@ public class TwigUtil {
             return Collections.emptySet();
         }
 
-        final Set<String> fqn = new HashSet<>();
-        for(String key: keys) {
-            for (TemplateUsage usage : FileBasedIndex.getInstance().getValues(PhpTwigTemplateUsageStubIndex.KEY, key, GlobalSearchScope.allScope(project))) {
-                fqn.addAll(usage.getScopes());
-            }
-        }
-
-        final Set<Function> methods = new HashSet<>();
-
-        for (String s : fqn) {
-            // function: "\foo"
-            if(!s.contains(".")) {
-                methods.addAll(PhpIndex.getInstance(project).getFunctionsByFQN("\\" + s));
-                continue;
-            }
-
-            // classes: "\foo.action"
-            String[] split = s.split("\\.");
-            if(split.length != 2) {
-                continue;
-            }
-
-            Method method = PhpElementsUtil.getClassMethod(project, split[0], split[1]);
-            if(method == null) {
-                continue;
-            }
-
-            methods.add(method);
-        }
-
-        return methods;
+        return TwigTemplateUsageMap.getInstance(project).getFunctions(keys);
     }
 
     @Nullable
@@ -972,86 +943,8 @@ public class TwigUtil {
      * foo.html.twig => ["views/foo.html.twig", "templates/foo.html.twig"]
      */
     @NotNull
-    public static synchronized Map<String, Set<VirtualFile>> getTemplateMap(@NotNull Project project, boolean usePhp) {
-        Map<String, Set<VirtualFile>> templateMapProxy;
-
-        // cache twig and all files,
-        // only PHP files we dont need to cache
-        if(!usePhp) {
-            templateMapProxy = CachedValuesManager.getManager(project).getCachedValue(
-                project,
-                TEMPLATE_CACHE_TWIG,
-                new MyAllTemplateFileMapCachedValueProvider(project),
-                false
-            );
-        } else {
-            // cache all files
-            templateMapProxy = CachedValuesManager.getManager(project).getCachedValue(
-                project,
-                TEMPLATE_CACHE_ALL,
-                new MyAllTemplateFileMapCachedValueProvider(project, true),
-                false
-            );
-        }
-
-        return templateMapProxy;
-    }
-
-    /**
-     * Cache less visiting template files
-     */
-    @NotNull
-    private static Map<String, Set<VirtualFile>> getTemplateMapProxy(@NotNull Project project, boolean usePhp) {
-        List<TwigPath> twigPaths = new ArrayList<>(getTwigNamespaces(project));
-        if(twigPaths.size() == 0) {
-            return Collections.emptyMap();
-        }
-
-        Map<String, Set<VirtualFile>> templateNames = new HashMap<>();
-
-        for (TwigPath twigPath : twigPaths) {
-            if(!twigPath.isEnabled()) {
-                continue;
-            }
-
-            VirtualFile virtualDirectoryFile = twigPath.getDirectory(project);
-            if(virtualDirectoryFile == null) {
-                continue;
-            }
-
-            Map<String, VirtualFile> visitor = MyLimitedVirtualFileVisitor.createResult(
-                virtualDirectoryFile,
-                project,
-                twigPath,
-                usePhp
-            );
-
-            for (Map.Entry<String, VirtualFile> entry : visitor.entrySet()) {
-                if(!templateNames.containsKey(entry.getKey())) {
-                    templateNames.put(entry.getKey(), new HashSet<>());
-                }
-
-                templateNames.get(entry.getKey()).add(entry.getValue());
-            }
-        }
-
-        return templateNames;
-    }
-
-    @Nullable
-    private static TwigNamespaceSetting findManagedTwigNamespace(@NotNull Project project, @NotNull TwigPath twigPath) {
-        List<TwigNamespaceSetting> twigNamespaces = Settings.getInstance(project).twigNamespaces;
-        if(twigNamespaces == null) {
-            return null;
-        }
-
-        for(TwigNamespaceSetting twigNamespace: twigNamespaces) {
-           if(twigNamespace.equals(project, twigPath)) {
-                return twigNamespace;
-           }
-        }
-
-        return null;
+    public static Map<String, Set<VirtualFile>> getTemplateMap(@NotNull Project project, boolean usePhp) {
+        return TwigTemplateNameRegistry.getInstance(project).getTemplateMap(usePhp);
     }
 
     /**
@@ -1100,7 +993,12 @@ public class TwigUtil {
     public static Collection<VirtualFile> getTemplateFiles(@NotNull Project project, @NotNull String templateName) {
         String normalizedTemplateName = normalizeTemplateName(templateName);
 
-        Collection<VirtualFile> virtualFiles = new HashSet<>();
+        Collection<VirtualFile> virtualFiles = getIndexedTemplateFiles(project, normalizedTemplateName);
+        if(!virtualFiles.isEmpty()) {
+            return virtualFiles;
+        }
+
+        // not indexed template files, eg other file types or a case-insensitive filesystem
         for (TwigPath twigPath : getTwigNamespaces(project)) {
             if(!twigPath.isEnabled()) {
                 continue;
@@ -1237,13 +1135,13 @@ public class TwigUtil {
 
                     if(x < 0 && templatePath.substring(1).equals(twigPath.getNamespace())) {
                         // Click on namespace itself: "@Foobar"
-                        VirtualFile relativeFile = twigPath.getDirectory(project);
+                        VirtualFile relativeFile = getTwigPathDirectory(project, twigPath);
                         if (relativeFile != null) {
                             virtualFiles.add(relativeFile);
                         }
                     } else if (x > 0 && templatePath.substring(1, x).equals(twigPath.getNamespace())) {
                         // Click on path: "@Foobar/Foo"
-                        VirtualFile relativeFile = VfsUtil.findRelativeFile(twigPath.getDirectory(project), templatePath.substring(x + 1).split("/"));
+                        VirtualFile relativeFile = VfsUtil.findRelativeFile(getTwigPathDirectory(project, twigPath), templatePath.substring(x + 1).split("/"));
                         if (relativeFile != null) {
                             virtualFiles.add(relativeFile);
                         }
@@ -1255,7 +1153,7 @@ public class TwigUtil {
                 if(twigPath.getNamespaceType() == NamespaceType.BUNDLE && twigPath.isGlobalNamespace()) {
                     String replace = StringUtils.strip(templatePath.replace(":", "/"), "/");
 
-                    VirtualFile relativeFile = VfsUtil.findRelativeFile(twigPath.getDirectory(project), replace.split("/"));
+                    VirtualFile relativeFile = VfsUtil.findRelativeFile(getTwigPathDirectory(project, twigPath), replace.split("/"));
                     if(relativeFile != null) {
                         virtualFiles.add(relativeFile);
                     }
@@ -1269,13 +1167,13 @@ public class TwigUtil {
 
                     if(x < 0 && templatePath.equals(twigPath.getNamespace())) {
                         // Click on namespace itself: "FooBundle"
-                        VirtualFile relativeFile = twigPath.getDirectory(project);
+                        VirtualFile relativeFile = getTwigPathDirectory(project, twigPath);
                         if (relativeFile != null) {
                             virtualFiles.add(relativeFile);
                         }
                     } else if(x > 0 && templatePath.substring(0, x).equals(twigPath.getNamespace())) {
                         // Click on path: "FooBundle/Foo"
-                        VirtualFile relativeFile = VfsUtil.findRelativeFile(twigPath.getDirectory(project), templatePath.substring(x + 1).split("/"));
+                        VirtualFile relativeFile = VfsUtil.findRelativeFile(getTwigPathDirectory(project, twigPath), templatePath.substring(x + 1).split("/"));
                         if (relativeFile != null) {
                             virtualFiles.add(relativeFile);
                         }
@@ -1284,7 +1182,7 @@ public class TwigUtil {
 
                 // form_div_layout.html.twig
                 if(twigPath.isGlobalNamespace() && twigPath.getNamespaceType() == NamespaceType.ADD_PATH) {
-                    VirtualFile relativeFile = VfsUtil.findRelativeFile(twigPath.getDirectory(project), templatePath.split("/"));
+                    VirtualFile relativeFile = VfsUtil.findRelativeFile(getTwigPathDirectory(project, twigPath), templatePath.split("/"));
                     if(relativeFile != null) {
                         virtualFiles.add(relativeFile);
                     }
@@ -1344,11 +1242,21 @@ public class TwigUtil {
 
     @Nullable
     static String getTemplateNameForTwigPath(@NotNull Project project, @NotNull TwigPath twigPath, @NotNull VirtualFile virtualFile) {
-        VirtualFile directory = twigPath.getDirectory(project);
+        VirtualFile directory = getTwigPathDirectory(project, twigPath);
         if(directory == null) {
             return null;
         }
 
+        return getTemplateNameForDirectory(twigPath.getNamespace(), twigPath.getNamespaceType(), directory, virtualFile);
+    }
+
+    /**
+     * Template name of a file inside a resolved namespace directory:
+     *
+     * "FooBundle:foo:foo.html.twig", "@Foo/foo.html.twig", "foo.html.twig"
+     */
+    @Nullable
+    public static String getTemplateNameForDirectory(@NotNull String namespace, @NotNull NamespaceType namespaceType, @NotNull VirtualFile directory, @NotNull VirtualFile virtualFile) {
         String templatePath = VfsUtil.getRelativePath(virtualFile, directory, '/');
         if(templatePath == null) {
             return null;
@@ -1366,10 +1274,12 @@ public class TwigUtil {
             templateFile = templatePath;
         }
 
-        String namespace = twigPath.getNamespace().equals(MAIN) ? "" : twigPath.getNamespace();
+        if(namespace.equals(MAIN)) {
+            namespace = "";
+        }
 
         String templateFinalName;
-        if(twigPath.getNamespaceType() == NamespaceType.BUNDLE) {
+        if(namespaceType == NamespaceType.BUNDLE) {
             templateFinalName = namespace + ":" + templateDirectory + ":" + templateFile;
         } else {
             templateFinalName = namespace + "/" + templateDirectory + "/" + templateFile;
@@ -1386,8 +1296,33 @@ public class TwigUtil {
         return templateFinalName;
     }
 
+    /**
+     * Template names of the registry for all namespace rules of "getTemplateFiles":
+     *
+     * "FooBundle:Bar:base.html.twig" is also "FooBundle/Bar/base.html.twig" of a global path
+     * and ":FooBundle/Bar:base.html.twig" as a bundle overwrite
+     */
+    @NotNull
+    private static Collection<VirtualFile> getIndexedTemplateFiles(@NotNull Project project, @NotNull String normalizedTemplateName) {
+        TwigTemplateNameRegistry registry = TwigTemplateNameRegistry.getInstance(project);
+
+        Collection<VirtualFile> virtualFiles = new HashSet<>(registry.getTemplateFiles(normalizedTemplateName));
+
+        if(!normalizedTemplateName.startsWith(":") && !normalizedTemplateName.startsWith("@")) {
+            String templatePath = StringUtils.strip(normalizedTemplateName.replace(":", "/").replace("//", "/"), "/");
+            virtualFiles.addAll(registry.getTemplateFiles(templatePath));
+
+            int i = templatePath.lastIndexOf("/");
+            if(i > 0) {
+                virtualFiles.addAll(registry.getTemplateFiles(":" + templatePath.substring(0, i) + ":" + templatePath.substring(i + 1)));
+            }
+        }
+
+        return virtualFiles;
+    }
+
     private static void addFileInsideTwigPath(@NotNull Project project, @NotNull String templatePath, @NotNull Collection<VirtualFile> virtualFiles, @NotNull TwigPath twigPath) {
-        VirtualFile virtualFile = VfsUtil.findRelativeFile(twigPath.getDirectory(project), templatePath.split("/"));
+        VirtualFile virtualFile = VfsUtil.findRelativeFile(getTwigPathDirectory(project, twigPath), templatePath.split("/"));
 
         if(virtualFile != null) {
             virtualFiles.add(virtualFile);
@@ -1398,40 +1333,21 @@ public class TwigUtil {
        return getTwigNamespaces(project, true);
     }
 
+    /**
+     * Namespaces with settings are a shared snapshot, without settings they are build on every call
+     */
     @NotNull
     public static List<TwigPath> getTwigNamespaces(@NotNull Project project, boolean includeSettings) {
-        List<TwigPath> twigPaths = new ArrayList<>();
-
-        // load extension
-        TwigNamespaceExtensionParameter parameter = new TwigNamespaceExtensionParameter(project);
-        for (TwigNamespaceExtension namespaceExtension : TWIG_NAMESPACE_EXTENSIONS.getExtensions()) {
-            twigPaths.addAll(namespaceExtension.getNamespaces(parameter));
-        }
-
-        // disable namespace explicitly disabled by user
-        for(TwigPath twigPath: twigPaths) {
-            TwigNamespaceSetting twigNamespaceSetting = findManagedTwigNamespace(project, twigPath);
-            if(twigNamespaceSetting != null) {
-                twigPath.setEnabled(false);
-            }
-        }
-
-        twigPaths = getUniqueTwigTemplatesList(twigPaths);
-
-        if(!includeSettings) {
-            return twigPaths;
-        }
-
-        List<TwigNamespaceSetting> twigNamespaceSettings = Settings.getInstance(project).twigNamespaces;
-        if(twigNamespaceSettings != null) {
-            for(TwigNamespaceSetting twigNamespaceSetting: twigNamespaceSettings) {
-                if(twigNamespaceSetting.isCustom()) {
-                    twigPaths.add(new TwigPath(twigNamespaceSetting.getPath(), twigNamespaceSetting.getNamespace(), twigNamespaceSetting.getNamespaceType(), true).setEnabled(twigNamespaceSetting.isEnabled()));
-                }
-            }
-        }
+        TwigNamespaceRegistry registry = TwigNamespaceRegistry.getInstance(project);
+        return includeSettings ? registry.getNamespaces() : registry.createNamespaces(false);
+    }
 
-        return twigPaths;
+    /**
+     * Directory of a namespace, resolved once per namespace snapshot
+     */
+    @Nullable
+    public static VirtualFile getTwigPathDirectory(@NotNull Project project, @NotNull TwigPath twigPath) {
+        return TwigNamespaceRegistry.getInstance(project).getDirectory(twigPath);
     }
 
     /**
@@ -2228,52 +2144,15 @@ public class TwigUtil {
      */
     @NotNull
     public static Collection<VirtualFile> getTemplatesExtendingFile(@NotNull Project project, @NotNull VirtualFile virtualFile) {
-        Set<VirtualFile> twigChild = new HashSet<>();
-        getTemplatesExtendingFile(project, virtualFile, twigChild, 8);
-        return twigChild;
-    }
-
-    private static void getTemplatesExtendingFile(@NotNull Project project, @NotNull VirtualFile virtualFile, @NotNull Set<VirtualFile> twigChild, int depth) {
-        if(depth <= 0) {
-            return;
-        }
-
-        // use set here, we have multiple shortcut on one file, but only one is required
-        HashSet<VirtualFile> virtualFiles = new LinkedHashSet<>();
-
-        for(String templateName: getTemplateNamesForFile(project, virtualFile)) {
-            // getFilesWithKey dont support keyset with > 1 items (bug?), so we cant merge calls
-            FileBasedIndex.getInstance().getFilesWithKey(TwigExtendsStubIndex.KEY, new HashSet<>(Collections.singletonList(templateName)), myVirtualFile -> {
-                virtualFiles.add(myVirtualFile);
-                return true;
-            }, GlobalSearchScope.getScopeRestrictedByFileTypes(GlobalSearchScope.allScope(project), TwigFileType.INSTANCE));
-        }
-
-        // finally resolve virtual file to twig files
-        for(VirtualFile myVirtualFile: virtualFiles) {
-            // stop if already inside
-            if(twigChild.contains(myVirtualFile)) {
-                continue;
-            }
-
-            twigChild.add(myVirtualFile);
-            getTemplatesExtendingFile(project, myVirtualFile, twigChild, --depth);
-        }
+        return TwigTemplateGraph.getInstance(project).getExtendingFilesClosure(virtualFile);
     }
 
+    /**
+     * Block names of all given files in one index pass; names per file are cached until the block index changes
+     */
     @NotNull
     public static Map<VirtualFile, Collection<String>> getBlockNamesForFiles(@NotNull Project project, @NotNull Collection<VirtualFile> virtualFiles) {
-        Map<VirtualFile, Collection<String>> blocks = new HashMap<>();
-
-        for (VirtualFile virtualFile : virtualFiles) {
-            FileBasedIndex.getInstance().getValues(TwigBlockIndexExtension.KEY, "block", GlobalSearchScope.fileScope(project, virtualFile))
-                .forEach(strings -> {
-                    blocks.putIfAbsent(virtualFile, new HashSet<>());
-                    blocks.get(virtualFile).addAll(strings);
-                });
-        }
-
-        return blocks;
+        return new HashMap<>(FileIndexCaches.getFileStringSetCache(project, SYMFONY_TWIG_BLOCK_NAMES, TwigBlockIndexExtension.KEY, "block", virtualFiles));
     }
 
     /**
@@ -2841,86 +2720,25 @@ public class TwigUtil {
         }
     }
 
+    /**
+     * Most included templates first, for completion priority
+     */
     public static List<String> getIncludeTemplateUsageAsOrderedList(@NotNull Project project) {
-        return CachedValuesManager.getManager(project).getCachedValue(project, SYMFONY_TEMPLATE_INCLUDE_LIST, () -> {
-            Set<String> allKeys = FileBasedIndex.getInstance().getAllKeys(TwigIncludeStubIndex.KEY, project)
-                .stream()
-                .filter(s -> !s.toLowerCase().contains("@webprofiler") && !s.toLowerCase().contains("/profiler/") && !s.toLowerCase().contains("@twig") && !s.equalsIgnoreCase("form_div_layout.html.twig"))
-                .collect(Collectors.toSet());
-
-            Map<String, Integer> extendsWithFileCountUsage = new HashMap<>();
-            for (String allKey : allKeys) {
-                List<fr.adrienbrault.idea.symfony2plugin.stubs.dict.TemplateInclude> values = FileBasedIndex.getInstance().getValues(TwigIncludeStubIndex.KEY, allKey, GlobalSearchScope.allScope(project));
-                for (fr.adrienbrault.idea.symfony2plugin.stubs.dict.TemplateInclude value : values) {
-                    if (value.getType() == TemplateInclude.TYPE.INCLUDE || value.getType() == TemplateInclude.TYPE.INCLUDE_FUNCTION) {
-                        extendsWithFileCountUsage.putIfAbsent(allKey, 0);
-                        extendsWithFileCountUsage.put(allKey, extendsWithFileCountUsage.get(allKey) + 1);
-                    }
-                }
-            }
-
-            List<String> collect = extendsWithFileCountUsage.entrySet()
-                .stream()
-                .sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
-                .map(Map.Entry::getKey)
-                .limit(100)
-                .collect(Collectors.toList());
-
-            return CachedValueProvider.Result.create(collect, FileIndexCaches.getModificationTrackerForIndexId(project, TwigIncludeStubIndex.KEY));
-        }, false);
+        return TwigTemplateGraph.getInstance(project).getIncludeRanking();
     }
 
+    /**
+     * Most embedded templates first, for completion priority
+     */
     public static List<String> getEmbedTemplateUsageAsOrderedList(@NotNull Project project) {
-        return CachedValuesManager.getManager(project).getCachedValue(project, SYMFONY_TEMPLATE_EMBED_LIST, () -> {
-            Set<String> allKeys = FileBasedIndex.getInstance().getAllKeys(TwigIncludeStubIndex.KEY, project)
-                .stream()
-                .filter(s -> !s.toLowerCase().contains("@webprofiler") && !s.toLowerCase().contains("/profiler/") && !s.toLowerCase().contains("@twig") && !s.equalsIgnoreCase("form_div_layout.html.twig"))
-                .collect(Collectors.toSet());
-
-            Map<String, Integer> extendsWithFileCountUsage = new HashMap<>();
-            for (String allKey : allKeys) {
-                List<fr.adrienbrault.idea.symfony2plugin.stubs.dict.TemplateInclude> values = FileBasedIndex.getInstance().getValues(TwigIncludeStubIndex.KEY, allKey, GlobalSearchScope.allScope(project));
-                for (fr.adrienbrault.idea.symfony2plugin.stubs.dict.TemplateInclude value : values) {
-                    if (value.getType() == TemplateInclude.TYPE.EMBED) {
-                        extendsWithFileCountUsage.putIfAbsent(allKey, 0);
-                        extendsWithFileCountUsage.put(allKey, extendsWithFileCountUsage.get(allKey) + 1);
-                    }
-                }
-            }
-
-            List<String> collect = extendsWithFileCountUsage.entrySet()
-                .stream()
-                .sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
-                .map(Map.Entry::getKey)
-                .limit(100)
-                .collect(Collectors.toList());
-
-            return CachedValueProvider.Result.create(collect, FileIndexCaches.getModificationTrackerForIndexId(project, TwigIncludeStubIndex.KEY));
-        }, false);
+        return TwigTemplateGraph.getInstance(project).getEmbedRanking();
     }
 
+    /**
+     * Most extended templates first, for completion priority
+     */
     public static List<String> getExtendsTemplateUsageAsOrderedList(@NotNull Project project) {
-        return CachedValuesManager.getManager(project).getCachedValue(project, SYMFONY_TEMPLATE_EXTENDS_LIST, () -> {
-            Set<String> allKeys = FileBasedIndex.getInstance().getAllKeys(TwigExtendsStubIndex.KEY, project)
-                .stream()
-                .filter(s -> !s.toLowerCase().contains("@webprofiler") && !s.toLowerCase().contains("/profiler/") && !s.toLowerCase().contains("@twig") && !s.equalsIgnoreCase("form_div_layout.html.twig"))
-                .collect(Collectors.toSet());
-
-            Map<String, Integer> extendsWithFileCountUsage = new HashMap<>();
-            for (String allKey : allKeys) {
-                Collection<VirtualFile> containingFiles = FileBasedIndex.getInstance().getContainingFiles(TwigExtendsStubIndex.KEY, allKey, GlobalSearchScope.allScope(project));
-                extendsWithFileCountUsage.put(allKey, containingFiles.size());
-            }
-
-            List<String> collect = extendsWithFileCountUsage.entrySet()
-                .stream()
-                .sorted(Map.Entry.comparingByValue(Comparator.reverseOrder()))
-                .map(Map.Entry::getKey)
-                .limit(100)
-                .collect(Collectors.toList());
-
-            return CachedValueProvider.Result.create(collect, FileIndexCaches.getModificationTrackerForIndexId(project, TwigExtendsStubIndex.KEY));
-        }, false);
+        return TwigTemplateGraph.getInstance(project).getExtendsRanking();
     }
 
     /**
@@ -2984,120 +2802,4 @@ public class TwigUtil {
             return domain;
         }
     }
-
-    private static class MyAllTemplateFileMapCachedValueProvider implements CachedValueProvider<Map<String, Set<VirtualFile>>> {
-        @NotNull
-        private final Project project;
-
-        private final boolean includePhpFiles;
-
-        MyAllTemplateFileMapCachedValueProvider(@NotNull Project project) {
-            this(project, false);
-        }
-
-        MyAllTemplateFileMapCachedValueProvider(@NotNull Project project, boolean includePhpFiles) {
-            this.project = project;
-            this.includePhpFiles = includePhpFiles;
-        }
-
-        @Nullable
-        @Override
-        public Result<Map<String, Set<VirtualFile>>> compute() {
-            return Result.create(getTemplateMapProxy(project, includePhpFiles), PsiModificationTracker.MODIFICATION_COUNT);
-        }
-    }
-
-    /**
-     * Twig template visitor, which scan given TwigPath for template names
-     *
-     * "@Foo/foo.html.twig"
-     * "foo.html.twig"
-     * "FooBundle:foo:foo.html.twig"
-     */
-    private static class MyLimitedVirtualFileVisitor extends VirtualFileVisitor {
-        @NotNull
-        private final TwigPath twigPath;
-
-        @NotNull
-        private final Project project;
-
-        @NotNull
-        private Map<String, VirtualFile> results = new HashMap<>();
-
-        final private boolean withPhp;
-
-        private int childrenAllowToVisit;
-
-        @NotNull
-        private Set<String> workedOn = new HashSet<>();
-
-        private MyLimitedVirtualFileVisitor(@NotNull Project project, @NotNull TwigPath twigPath, boolean withPhp, int maxDepth, int maxDirs) {
-            super(VirtualFileVisitor.limit(maxDepth));
-
-            this.project = project;
-            this.twigPath = twigPath;
-            this.withPhp = withPhp;
-            this.childrenAllowToVisit = maxDirs;
-        }
-
-        @Override
-        public boolean visitFile(@NotNull VirtualFile virtualFile) {
-            // per path directory limit
-            if (virtualFile.isDirectory() && childrenAllowToVisit-- <= 0) {
-                return false;
-            }
-
-            processFile(virtualFile);
-
-            return super.visitFile(virtualFile);
-        }
-
-        private void processFile(VirtualFile virtualFile) {
-            // @TODO make file types more dynamically like eg js
-            if(!this.isProcessable(virtualFile)) {
-                return;
-            }
-
-            // prevent process double file if processCollection and ContentIterator is used in one instance
-            String filePath = virtualFile.getPath();
-            if(workedOn.contains(filePath)) {
-                return;
-            }
-
-            workedOn.add(filePath);
-
-            String templateName = getTemplateNameForTwigPath(project, twigPath, virtualFile);
-            if(templateName != null) {
-                results.put(templateName, virtualFile);
-            }
-        }
-
-        private boolean isProcessable(VirtualFile virtualFile) {
-            if(virtualFile.isDirectory()) {
-                return false;
-            }
-
-            if(virtualFile.getFileType() instanceof TwigFileType) {
-                return true;
-            }
-
-            if(withPhp && virtualFile.getFileType() instanceof PhpFileType) {
-                return true;
-            }
-
-            return false;
-        }
-
-        @NotNull
-        private Map<String, VirtualFile> getResults() {
-            return results;
-        }
-
-        @NotNull
-        static Map<String, VirtualFile> createResult(@NotNull VirtualFile virtualFile, @NotNull Project project, @NotNull TwigPath twigPath, boolean withPhp) {
-            MyLimitedVirtualFileVisitor visitor = new MyLimitedVirtualFileVisitor(project, twigPath, withPhp, 5, 150);
-            VfsUtil.visitChildrenRecursively(virtualFile, visitor);
-            return visitor.getResults();
-        }
-    }
 }
@@ -2,6 +2,7 @@ package fr.adrienbrault.idea.symfony2plugin.templating.variable;
 
 import fr.adrienbrault.idea.symfony2plugin.templating.variable.dict.PsiVariable;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Map;
 import java.util.Set;
@@ -14,4 +15,15 @@ public interface TwigFileVariableCollector {
     default void collect(@NotNull TwigFileVariableCollectorParameter parameter, @NotNull Map<String, Set<String>> variables) {}
 
     default void collectPsiVariables(@NotNull TwigFileVariableCollectorParameter parameter, @NotNull Map<String, PsiVariable> variables) {}
+
+    /**
+     * Dependencies of the collected variables, for collectors which only depend on the file and not on the position inside it.
+     *
+     * Variables are then collected once per file with the file as element and cached until one of the dependencies changes;
+     * so invalidation of one collector keeps the results of all others. "null" collects on every call.
+     */
+    @Nullable
+    default Object[] getDependencies(@NotNull TwigFileVariableCollectorParameter parameter) {
+        return null;
+    }
 }
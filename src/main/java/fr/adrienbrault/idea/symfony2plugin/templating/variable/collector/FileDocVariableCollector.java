@@ -5,6 +5,7 @@ import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigTypeResolveUtil;
 import fr.adrienbrault.idea.symfony2plugin.templating.variable.TwigFileVariableCollector;
 import fr.adrienbrault.idea.symfony2plugin.templating.variable.TwigFileVariableCollectorParameter;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 
@@ -29,4 +30,10 @@ public class FileDocVariableCollector implements TwigFileVariableCollector {
 
         return globalVars;
     }
+
+    @Nullable
+    @Override
+    public Object[] getDependencies(@NotNull TwigFileVariableCollectorParameter parameter) {
+        return new Object[] {parameter.getElement().getContainingFile()};
+    }
 }
@@ -1,6 +1,8 @@
 package fr.adrienbrault.idea.symfony2plugin.templating.variable.collector;
 
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.psi.util.PsiTreeUtil;
+import com.jetbrains.php.lang.PhpLanguage;
 import com.jetbrains.php.lang.psi.elements.*;
 import com.jetbrains.php.phpunit.PhpUnitUtil;
 import fr.adrienbrault.idea.symfony2plugin.templating.util.PhpMethodVariableResolveUtil;
@@ -9,6 +11,7 @@ import fr.adrienbrault.idea.symfony2plugin.templating.variable.TwigFileVariableC
 import fr.adrienbrault.idea.symfony2plugin.templating.variable.TwigFileVariableCollectorParameter;
 import fr.adrienbrault.idea.symfony2plugin.templating.variable.dict.PsiVariable;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Collection;
 import java.util.Map;
@@ -34,4 +37,10 @@ public class GlobalExtensionVariableCollector implements TwigFileVariableCollect
             }
         }
     }
+
+    @Nullable
+    @Override
+    public Object[] getDependencies(@NotNull TwigFileVariableCollectorParameter parameter) {
+        return new Object[] {PsiModificationTracker.getInstance(parameter.getProject()).forLanguage(PhpLanguage.INSTANCE)};
+    }
 }
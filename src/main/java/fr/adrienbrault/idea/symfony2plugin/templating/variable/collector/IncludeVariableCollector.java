@@ -5,19 +5,17 @@ import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
 import com.intellij.psi.PsiRecursiveElementWalkingVisitor;
-import com.intellij.psi.search.GlobalSearchScope;
 import com.intellij.psi.tree.IElementType;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.psi.util.PsiTreeUtil;
-import com.intellij.util.indexing.FileBasedIndex;
 import com.jetbrains.twig.TwigFile;
-import com.jetbrains.twig.TwigFileType;
 import com.jetbrains.twig.TwigTokenTypes;
 import com.jetbrains.twig.elements.TwigCompositeElement;
 import com.jetbrains.twig.elements.TwigElementTypes;
 import com.jetbrains.twig.elements.TwigExtendsTag;
 import com.jetbrains.twig.elements.TwigTagWithFileReference;
 import fr.adrienbrault.idea.symfony2plugin.templating.TwigPattern;
-import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TwigIncludeStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigTemplateGraph;
 import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigTypeResolveUtil;
 import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigUtil;
 import fr.adrienbrault.idea.symfony2plugin.templating.variable.TwigFileVariableCollector;
@@ -26,6 +24,7 @@ import fr.adrienbrault.idea.symfony2plugin.templating.variable.dict.PsiVariable;
 import fr.adrienbrault.idea.symfony2plugin.util.PsiElementUtils;
 import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 import java.util.regex.Matcher;
@@ -166,16 +165,7 @@ public class IncludeVariableCollector implements TwigFileVariableCollector {
     }
 
     private Collection<VirtualFile> getImplements(TwigFile twigFile) {
-        final Set<VirtualFile> targets = new HashSet<>();
-
-        for(String templateName: TwigUtil.getTemplateNamesForFile(twigFile)) {
-            FileBasedIndex.getInstance().getFilesWithKey(TwigIncludeStubIndex.KEY, new HashSet<>(Collections.singletonList(templateName)), virtualFile -> {
-                targets.add(virtualFile);
-                return true;
-            }, GlobalSearchScope.getScopeRestrictedByFileTypes(GlobalSearchScope.allScope(twigFile.getProject()), TwigFileType.INSTANCE));
-        }
-
-        return targets;
+        return TwigTemplateGraph.getInstance(twigFile.getProject()).getIncludingFiles(TwigUtil.getTemplateNamesForFile(twigFile));
     }
 
     private class MyPsiRecursiveElementWalkingVisitor extends PsiRecursiveElementWalkingVisitor {
@@ -234,4 +224,11 @@ public class IncludeVariableCollector implements TwigFileVariableCollector {
             }
         }
     }
+
+    @Nullable
+    @Override
+    public Object[] getDependencies(@NotNull TwigFileVariableCollectorParameter parameter) {
+        // included variables are collected out of all including templates
+        return new Object[] {PsiModificationTracker.MODIFICATION_COUNT};
+    }
 }
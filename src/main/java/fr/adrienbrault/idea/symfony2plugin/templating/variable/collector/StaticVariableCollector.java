@@ -1,10 +1,12 @@
 package fr.adrienbrault.idea.symfony2plugin.templating.variable.collector;
 
+import com.intellij.openapi.util.ModificationTracker;
 import com.jetbrains.php.lang.psi.elements.Method;
 import fr.adrienbrault.idea.symfony2plugin.templating.variable.TwigFileVariableCollector;
 import fr.adrienbrault.idea.symfony2plugin.templating.variable.TwigFileVariableCollectorParameter;
 import fr.adrienbrault.idea.symfony2plugin.util.PhpElementsUtil;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Arrays;
 import java.util.HashSet;
@@ -33,4 +35,10 @@ public class StaticVariableCollector implements TwigFileVariableCollector {
         return APP_CLASSES.stream()
             .anyMatch(phpClass -> PhpElementsUtil.isMethodInstanceOf(method, phpClass, "getUser"));
     }
+
+    @Nullable
+    @Override
+    public Object[] getDependencies(@NotNull TwigFileVariableCollectorParameter parameter) {
+        return new Object[] {ModificationTracker.NEVER_CHANGED};
+    }
 }
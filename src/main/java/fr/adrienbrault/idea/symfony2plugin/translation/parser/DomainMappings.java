@@ -3,6 +3,7 @@ package fr.adrienbrault.idea.symfony2plugin.translation.parser;
 import fr.adrienbrault.idea.symfony2plugin.translation.dict.DomainFileMap;
 import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
 import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.NotNull;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
@@ -10,6 +11,7 @@ import java.io.InputStream;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
@@ -26,6 +28,11 @@ public class DomainMappings extends AbstractServiceParser {
                 + " | /container/services/service[@class=\"Symfony\\Bundle\\FrameworkBundle\\Translation\\Translator\"]//argument[@key=\"resource_files\"]/argument/argument";
     }
 
+    @Override
+    protected boolean isServiceCandidate(@NotNull Map<String, String> serviceAttributes) {
+        return "Symfony\\Bundle\\FrameworkBundle\\Translation\\Translator".equals(serviceAttributes.get("class"));
+    }
+
     public void parser(InputStream file) {
 
         NodeList nodeList = this.parserer(file);
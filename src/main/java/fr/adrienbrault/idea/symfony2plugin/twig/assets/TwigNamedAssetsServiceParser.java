@@ -24,6 +24,11 @@ public class TwigNamedAssetsServiceParser extends AbstractServiceParser {
         return "/container/services/service[@id='assetic.asset_manager']//call[@method='addResource']//service[@class='Symfony\\Bundle\\AsseticBundle\\Factory\\Resource\\ConfigurationResource']//argument/argument[@key]";
     }
 
+    @Override
+    protected boolean isServiceCandidate(@NotNull Map<String, String> serviceAttributes) {
+        return "assetic.asset_manager".equals(serviceAttributes.get("id"));
+    }
+
     public void parser(InputStream file) {
         NodeList nodeList = this.parserer(file);
         if(nodeList == null) {
@@ -2,13 +2,7 @@ package fr.adrienbrault.idea.symfony2plugin.twig.utils;
 
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiFile;
-import com.intellij.psi.PsiManager;
-import com.intellij.psi.search.GlobalSearchScope;
-import com.intellij.util.indexing.FileBasedIndex;
-import com.jetbrains.twig.TwigFile;
-import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TwigBlockIndexExtension;
-import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TwigExtendsStubIndex;
-import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigUtil;
+import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigTemplateGraph;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.Collection;
@@ -35,55 +29,19 @@ public class TwigFileUtil {
         Set<VirtualFile> virtualFiles = new HashSet<>();
 
         for (PsiFile psiFile : psiFiles) {
+            // secure loading
             VirtualFile sourceFile = psiFile.getVirtualFile();
+            if (sourceFile == null) {
+                continue;
+            }
+
             if(includeSelf) {
                 virtualFiles.add(sourceFile);
             }
 
-            visitParentFiles(psiFile, 0, virtualFiles);
+            virtualFiles.addAll(TwigTemplateGraph.getInstance(psiFile.getProject()).getParentFilesClosure(sourceFile));
         }
 
         return virtualFiles;
     }
-
-    private static void visitParentFiles(@NotNull PsiFile file, int depth, Collection<VirtualFile> virtualFiles) {
-        // limit recursive calls
-        if(depth++ > 20) {
-            return;
-        }
-
-        // secure loading
-        VirtualFile virtualFile1 = file.getVirtualFile();
-        if (virtualFile1 == null) {
-            return;
-        }
-
-        Set<VirtualFile> myVirtualFiles = new HashSet<>();
-        Set<String> templates = new HashSet<>();
-
-        FileBasedIndex.getInstance()
-            .getValues(TwigBlockIndexExtension.KEY, "use", GlobalSearchScope.fileScope(file))
-            .forEach(templates::addAll);
-
-        FileBasedIndex.getInstance()
-            .getFileData(TwigExtendsStubIndex.KEY, virtualFile1, file.getProject())
-            .forEach((templateName, aVoid) -> templates.add(templateName));
-
-        for (String template : templates) {
-            for (VirtualFile virtualFile : TwigUtil.getTemplateFiles(file.getProject(), template)) {
-                if (!virtualFiles.contains(virtualFile)) {
-                    myVirtualFiles.add(virtualFile);
-                    virtualFiles.add(virtualFile);
-                }
-            }
-        }
-
-        // visit files in this scope
-        for(VirtualFile virtualFile : myVirtualFiles) {
-            PsiFile psiFile = PsiManager.getInstance(file.getProject()).findFile(virtualFile);
-            if(psiFile instanceof TwigFile) {
-                visitParentFiles(psiFile, depth, virtualFiles);
-            }
-        }
-    }
 }
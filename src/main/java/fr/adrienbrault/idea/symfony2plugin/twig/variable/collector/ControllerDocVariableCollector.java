@@ -2,7 +2,9 @@ package fr.adrienbrault.idea.symfony2plugin.twig.variable.collector;
 
 import com.intellij.psi.PsiComment;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.intellij.psi.util.PsiTreeUtil;
+import com.jetbrains.php.lang.PhpLanguage;
 import com.jetbrains.php.lang.psi.elements.Method;
 import com.jetbrains.twig.TwigFile;
 import fr.adrienbrault.idea.symfony2plugin.templating.util.PhpMethodVariableResolveUtil;
@@ -11,6 +13,7 @@ import fr.adrienbrault.idea.symfony2plugin.templating.variable.TwigFileVariableC
 import fr.adrienbrault.idea.symfony2plugin.templating.variable.dict.PsiVariable;
 import fr.adrienbrault.idea.symfony2plugin.util.controller.ControllerIndex;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.ArrayList;
 import java.util.Map;
@@ -62,4 +65,13 @@ public class ControllerDocVariableCollector implements TwigFileVariableCollector
 
         return controller;
     }
+
+    @Nullable
+    @Override
+    public Object[] getDependencies(@NotNull TwigFileVariableCollectorParameter parameter) {
+        return new Object[] {
+            parameter.getElement().getContainingFile(),
+            PsiModificationTracker.getInstance(parameter.getProject()).forLanguage(PhpLanguage.INSTANCE)
+        };
+    }
 }
@@ -1,12 +1,18 @@
 package fr.adrienbrault.idea.symfony2plugin.twig.variable.collector;
 
+import com.intellij.openapi.vfs.VirtualFileManager;
 import com.intellij.psi.PsiFile;
+import com.intellij.psi.util.PsiModificationTracker;
 import com.jetbrains.twig.TwigFile;
+import com.jetbrains.twig.TwigLanguage;
+import fr.adrienbrault.idea.symfony2plugin.templating.path.TwigNamespaceRegistry;
 import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigUtil;
 import fr.adrienbrault.idea.symfony2plugin.templating.variable.TwigFileVariableCollector;
 import fr.adrienbrault.idea.symfony2plugin.templating.variable.TwigFileVariableCollectorParameter;
 import fr.adrienbrault.idea.symfony2plugin.templating.variable.dict.PsiVariable;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Map;
 
@@ -23,4 +29,16 @@ public class ControllerVariableCollector implements TwigFileVariableCollector {
 
         variables.putAll(TwigUtil.collectControllerTemplateVariables((TwigFile) psiFile));
     }
+
+    @Nullable
+    @Override
+    public Object[] getDependencies(@NotNull TwigFileVariableCollectorParameter parameter) {
+        // controllers and the template names of the file, which are resolved via the Twig namespaces; a change inside any Twig file is not relevant
+        return new Object[] {
+            PsiModificationTracker.getInstance(parameter.getProject()).forLanguages(language -> !language.isKindOf(TwigLanguage.INSTANCE)),
+            ServiceXmlParserFactory.getInstance(parameter.getProject()).getModificationTracker(),
+            TwigNamespaceRegistry.getInstance(parameter.getProject()).getSettingsModificationTracker(),
+            VirtualFileManager.VFS_STRUCTURE_MODIFICATIONS
+        };
+    }
 }
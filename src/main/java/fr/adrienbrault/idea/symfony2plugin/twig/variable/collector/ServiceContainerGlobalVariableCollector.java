@@ -1,6 +1,10 @@
 package fr.adrienbrault.idea.symfony2plugin.twig.variable.collector;
 
+import com.intellij.psi.util.PsiModificationTracker;
+import com.jetbrains.php.lang.PhpLanguage;
 import com.jetbrains.php.lang.psi.elements.PhpClass;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.FileIndexCaches;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.ServicesDefinitionStubIndex;
 import fr.adrienbrault.idea.symfony2plugin.twig.variable.globals.TwigGlobalEnum;
 import fr.adrienbrault.idea.symfony2plugin.twig.variable.globals.TwigGlobalVariable;
 import fr.adrienbrault.idea.symfony2plugin.twig.variable.globals.TwigGlobalsServiceParser;
@@ -10,6 +14,7 @@ import fr.adrienbrault.idea.symfony2plugin.util.dict.ServiceUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
 import org.apache.commons.lang.StringUtils;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.*;
 
@@ -37,4 +42,15 @@ public class ServiceContainerGlobalVariableCollector implements TwigFileVariable
 
         variables.putAll(map);
     }
+
+    @Nullable
+    @Override
+    public Object[] getDependencies(@NotNull TwigFileVariableCollectorParameter parameter) {
+        // globals of the compiled container; their services are resolved via the services index and PHP classes
+        return new Object[] {
+            ServiceXmlParserFactory.getInstance(parameter.getProject()).getModificationTracker(),
+            FileIndexCaches.getModificationTrackerForIndexId(parameter.getProject(), ServicesDefinitionStubIndex.KEY),
+            PsiModificationTracker.getInstance(parameter.getProject()).forLanguage(PhpLanguage.INSTANCE)
+        };
+    }
 }
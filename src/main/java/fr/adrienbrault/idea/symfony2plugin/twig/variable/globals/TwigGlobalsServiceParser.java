@@ -1,6 +1,7 @@
 package fr.adrienbrault.idea.symfony2plugin.twig.variable.globals;
 
 import fr.adrienbrault.idea.symfony2plugin.util.service.AbstractServiceParser;
+import org.jetbrains.annotations.NotNull;
 import org.w3c.dom.Element;
 import org.w3c.dom.NodeList;
 
@@ -19,6 +20,11 @@ public class TwigGlobalsServiceParser extends AbstractServiceParser {
         return "/container/services/service[@id='twig']//call[@method='addGlobal']";
     }
 
+    @Override
+    protected boolean isServiceCandidate(@NotNull Map<String, String> serviceAttributes) {
+        return "twig".equals(serviceAttributes.get("id"));
+    }
+
     public void parser(InputStream file) {
         NodeList nodeList = this.parserer(file);
 
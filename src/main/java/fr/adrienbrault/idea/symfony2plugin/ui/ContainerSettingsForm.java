@@ -19,6 +19,7 @@ import fr.adrienbrault.idea.symfony2plugin.ui.utils.UiSettingsUtil;
 import fr.adrienbrault.idea.symfony2plugin.ui.utils.dict.UiPathColumnInfo;
 import fr.adrienbrault.idea.symfony2plugin.ui.utils.dict.WebServerFileDialogExtensionCallback;
 import fr.adrienbrault.idea.symfony2plugin.webDeployment.WebDeploymentUtil;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
 import org.jetbrains.annotations.Nls;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -171,6 +172,7 @@ public class ContainerSettingsForm implements Configurable {
         }
 
         getSettings().containerFiles = containerFiles;
+        ServiceXmlParserFactory.cleanInstance(this.project);
         this.changed = false;
     }
 
@@ -12,10 +12,9 @@ import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
 import fr.adrienbrault.idea.symfony2plugin.completion.lookup.ContainerTagLookupElement;
 import fr.adrienbrault.idea.symfony2plugin.dic.XmlTagParser;
 import fr.adrienbrault.idea.symfony2plugin.dic.container.dict.ContainerBuilderCall;
-import fr.adrienbrault.idea.symfony2plugin.stubs.ServiceIndexUtil;
 import fr.adrienbrault.idea.symfony2plugin.stubs.SymfonyProcessors;
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.ContainerBuilderStubIndex;
-import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.ServicesTagStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TaggedServicesStubIndex;
 import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
 import org.jetbrains.annotations.NotNull;
 
@@ -48,15 +47,10 @@ public class TagNameCompletionProvider extends CompletionProvider<CompletionPara
             lookupElements.add(new ContainerTagLookupElement(tag));
         }
 
-        for(String serviceName: SymfonyProcessors.createResult(project, ServicesTagStubIndex.KEY)) {
-            List<Set<String>> tags = FileBasedIndex.getInstance().getValues(ServicesTagStubIndex.KEY, serviceName, ServiceIndexUtil.getRestrictedFileTypesScope(project));
-            for(Set<String> tagDef: tags) {
-                for(String tag: tagDef) {
-                    if(!uniqueTags.contains(tag)) {
-                        uniqueTags.add(tag);
-                        lookupElements.add(new ContainerTagLookupElement(tag, true));
-                    }
-                }
+        for(String tag: SymfonyProcessors.createResult(project, TaggedServicesStubIndex.KEY)) {
+            if(!uniqueTags.contains(tag)) {
+                uniqueTags.add(tag);
+                lookupElements.add(new ContainerTagLookupElement(tag, true));
             }
         }
 
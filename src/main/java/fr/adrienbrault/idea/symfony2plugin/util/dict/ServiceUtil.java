@@ -20,6 +20,7 @@ import com.intellij.util.containers.ContainerUtil;
 import com.intellij.util.indexing.FileBasedIndex;
 import com.jetbrains.php.PhpIcons;
 import com.jetbrains.php.PhpIndex;
+import com.jetbrains.php.lang.PhpLanguage;
 import com.jetbrains.php.lang.psi.elements.*;
 import fr.adrienbrault.idea.symfony2plugin.action.ServiceActionUtil;
 import fr.adrienbrault.idea.symfony2plugin.action.generator.naming.DefaultServiceNameStrategy;
@@ -33,8 +34,11 @@ import fr.adrienbrault.idea.symfony2plugin.form.util.FormUtil;
 import fr.adrienbrault.idea.symfony2plugin.stubs.ContainerCollectionResolver;
 import fr.adrienbrault.idea.symfony2plugin.stubs.ServiceIndexUtil;
 import fr.adrienbrault.idea.symfony2plugin.stubs.SymfonyProcessors;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.FileIndexCaches;
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.ContainerParameterStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.ServicesDefinitionStubIndex;
 import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.ServicesTagStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.TaggedServicesStubIndex;
 import fr.adrienbrault.idea.symfony2plugin.util.PhpElementsUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceXmlParserFactory;
 import fr.adrienbrault.idea.symfony2plugin.util.yaml.YamlHelper;
@@ -124,6 +128,7 @@ public class ServiceUtil {
      * Cache kernel.root_dir of Kernel class
      */
     private static final Key<CachedValue<Collection<String>>> KERNEL_PARAMETER_CACHE = new Key<>("KERNEL_PARAMETER_CACHE");
+    private static final Key<CachedValue<Map<String, Set<String>>>> TAGGED_CLASS_NAMES_CACHE = new Key<>("SYMFONY_TAGGED_CLASS_NAMES_CACHE");
 
     /**
      * Linemarker types for service declarations
@@ -222,29 +227,18 @@ public class ServiceUtil {
     public static Set<String> getPhpClassTags(@NotNull PhpClass phpClass) {
         Project project = phpClass.getProject();
 
-        ContainerCollectionResolver.ServiceCollector collector = null;
-
-        Set<String> matchedTags = new HashSet<>();
-        Set<String> result = SymfonyProcessors.createResult(project, ServicesTagStubIndex.KEY);
-        for (String serviceName : result) {
-
-            // get service where we found our tags
-            List<Set<String>> values = FileBasedIndex.getInstance().getValues(ServicesTagStubIndex.KEY, serviceName, ServiceIndexUtil.getRestrictedFileTypesScope(project));
-            if(values.size() == 0) {
-                continue;
-            }
-
-            // create unique tag list
-            Set<String> tags = new HashSet<>();
-            for(Set<String> tagValue: values) {
-                tags.addAll(tagValue);
-            }
-
-            if(collector == null) {
-                collector = ContainerCollectionResolver.ServiceCollector.create(project);
+        // services sharing a class are checked once
+        Map<String, Set<String>> classTags = new HashMap<>();
+        for (Map.Entry<String, Set<String>> entry : getTaggedClassNames(project).entrySet()) {
+            for (String className : entry.getValue()) {
+                classTags.computeIfAbsent(className, s -> new HashSet<>()).add(entry.getKey());
             }
+        }
 
-            PhpClass serviceClass = ServiceUtil.getServiceClass(project, serviceName, collector);
+        Set<String> matchedTags = new HashSet<>();
+        for (Map.Entry<String, Set<String>> entry : classTags.entrySet()) {
+            // service classes are often interfaces
+            PhpClass serviceClass = PhpElementsUtil.getClassInterface(project, entry.getKey());
             if(serviceClass == null) {
                 continue;
             }
@@ -262,7 +256,7 @@ public class ServiceUtil {
             }
 
             if(matched) {
-                matchedTags.addAll(tags);
+                matchedTags.addAll(entry.getValue());
             }
         }
 
@@ -289,16 +283,64 @@ public class ServiceUtil {
     public static Set<String> getTaggedServices(Project project, String tagName) {
         Set<String> service = new HashSet<>();
 
-        for(String serviceName: SymfonyProcessors.createResult(project, ServicesTagStubIndex.KEY)) {
-            List<Set<String>> serviceDefinitions = FileBasedIndex.getInstance().getValues(ServicesTagStubIndex.KEY, serviceName, ServiceIndexUtil.getRestrictedFileTypesScope(project));
-            for(Set<String> strings: serviceDefinitions) {
-                if(strings.contains(tagName)) {
-                    service.add(serviceName);
+        for(Set<String> serviceIds: FileBasedIndex.getInstance().getValues(TaggedServicesStubIndex.KEY, tagName, ServiceIndexUtil.getRestrictedFileTypesScope(project))) {
+            service.addAll(serviceIds);
+        }
+
+        return service;
+    }
+
+    /**
+     * Tag name to the resolved classes of its services; cached until the tags, services or parameters of the index, the
+     * compiled container or the PHP code of service collectors changed, but not for edits of any other file
+     */
+    @NotNull
+    private static Map<String, Set<String>> getTaggedClassNames(@NotNull Project project) {
+        return CachedValuesManager.getManager(project).getCachedValue(
+            project,
+            TAGGED_CLASS_NAMES_CACHE,
+            () -> CachedValueProvider.Result.create(
+                getTaggedClassNamesInner(project),
+                FileIndexCaches.getModificationTrackerForIndexId(project, TaggedServicesStubIndex.KEY),
+                FileIndexCaches.getModificationTrackerForIndexId(project, ServicesDefinitionStubIndex.KEY),
+                FileIndexCaches.getModificationTrackerForIndexId(project, ContainerParameterStubIndex.KEY),
+                ServiceXmlParserFactory.getInstance(project).getModificationTracker(),
+                PsiModificationTracker.getInstance(project).forLanguage(PhpLanguage.INSTANCE)
+            ),
+            false
+        );
+    }
+
+    @NotNull
+    private static Map<String, Set<String>> getTaggedClassNamesInner(@NotNull Project project) {
+        Map<String, Set<String>> taggedClassNames = new HashMap<>();
+
+        ContainerCollectionResolver.ServiceCollector collector = null;
+        for (String tagName : SymfonyProcessors.createResult(project, TaggedServicesStubIndex.KEY)) {
+            Set<String> classNames = new HashSet<>();
+
+            for (String serviceName : getTaggedServices(project, tagName)) {
+                serviceName = YamlHelper.trimSpecialSyntaxServiceName(serviceName);
+                if (serviceName.length() == 0) {
+                    continue;
                 }
+
+                if (collector == null) {
+                    collector = ContainerCollectionResolver.ServiceCollector.create(project);
+                }
+
+                String resolvedService = collector.resolve(serviceName);
+                if (resolvedService != null) {
+                    classNames.add(StringUtils.stripStart(resolvedService, "\\"));
+                }
+            }
+
+            if (!classNames.isEmpty()) {
+                taggedClassNames.put(tagName, Collections.unmodifiableSet(classNames));
             }
         }
 
-        return service;
+        return Collections.unmodifiableMap(taggedClassNames);
     }
 
     @NotNull
@@ -320,19 +362,10 @@ public class ServiceUtil {
 
         List<PhpClass> phpClasses = new ArrayList<>();
 
-        Set<String> taggedServices = getTaggedServices(project, tagName);
-        if(taggedServices.size() == 0) {
-            return phpClasses;
-        }
-
-        ContainerCollectionResolver.ServiceCollector collector = ContainerCollectionResolver.ServiceCollector.create(project);
-        for(String serviceName: taggedServices) {
-            String resolvedService = collector.resolve(serviceName);
-            if(resolvedService != null) {
-                PhpClass phpClass = PhpElementsUtil.getClass(project, resolvedService);
-                if(phpClass != null) {
-                    phpClasses.add(phpClass);
-                }
+        for(String className: getTaggedClassNames(project).getOrDefault(tagName, Collections.emptySet())) {
+            PhpClass phpClass = PhpElementsUtil.getClass(project, className);
+            if(phpClass != null) {
+                phpClasses.add(phpClass);
             }
         }
 
@@ -340,8 +373,10 @@ public class ServiceUtil {
     }
 
     public static boolean isPhpClassTaggedWith(@NotNull PhpClass phpClass, @NotNull String tagName) {
-        return ServiceUtil.getTaggedClassesOnIndex(phpClass.getProject(), tagName).stream()
-            .anyMatch(phpClass1 -> phpClass1.getFQN().equalsIgnoreCase(phpClass1.getFQN()));
+        String fqn = StringUtils.stripStart(phpClass.getFQN(), "\\");
+
+        return getTaggedClassNames(phpClass.getProject()).getOrDefault(tagName, Collections.emptySet()).stream()
+            .anyMatch(fqn::equalsIgnoreCase);
     }
 
     @NotNull
@@ -1,49 +1,83 @@
 package fr.adrienbrault.idea.symfony2plugin.util.service;
 
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.w3c.dom.Document;
+import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.xpath.*;
-import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
 abstract public class AbstractServiceParser  implements ServiceParserInterface {
 
+    /**
+     * Xpath filter is evaluated for every top-level service on its own, so it must start with "/container/services/service"
+     */
     @Nullable
     protected NodeList parserer(InputStream file) {
-
-        Document document;
-        DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-
+        XPathExpression xPathExpr;
         try {
-            DocumentBuilder documentBuilder = dbFactory.newDocumentBuilder();
-            document = documentBuilder.parse(file);
-        } catch (ParserConfigurationException | SAXException | IOException e) {
+            xPathExpr = XPathFactory.newInstance().newXPath().compile(this.getXPathFilter());
+        } catch (XPathExpressionException e) {
             return null;
         }
 
-        if(document == null) {
-            return null;
-        }
+        List<Node> nodes = new ArrayList<>();
 
-        Object result;
         try {
-            XPath xpath = XPathFactory.newInstance().newXPath();
-            XPathExpression xPathExpr = xpath.compile(this.getXPathFilter());
-            result = xPathExpr.evaluate(document, XPathConstants.NODESET);
-        } catch (XPathExpressionException e) {
+            ServiceContainerXmlReader.read(file, new ServiceContainerXmlReader.Visitor() {
+                @Override
+                public boolean isServiceElementRequired(@NotNull Map<String, String> serviceAttributes) {
+                    return isServiceCandidate(serviceAttributes);
+                }
+
+                @Override
+                public void visitServiceElement(@NotNull Document document) {
+                    Object result;
+                    try {
+                        result = xPathExpr.evaluate(document, XPathConstants.NODESET);
+                    } catch (XPathExpressionException e) {
+                        return;
+                    }
+
+                    if (result instanceof NodeList nodeList) {
+                        for (int i = 0; i < nodeList.getLength(); i++) {
+                            nodes.add(nodeList.item(i));
+                        }
+                    }
+                }
+            });
+        } catch (XMLStreamException e) {
             return null;
         }
 
-        return (NodeList) result;
+        return new NodeListAdapter(nodes);
+    }
+
+    /**
+     * Only candidates are build as elements for the xpath filter; filter on attributes to keep this cheap
+     */
+    protected boolean isServiceCandidate(@NotNull Map<String, String> serviceAttributes) {
+        return true;
     }
 
+    private record NodeListAdapter(@NotNull List<Node> nodes) implements NodeList {
+        @Override
+        public Node item(int index) {
+            return index >= 0 && index < nodes.size() ? nodes.get(index) : null;
+        }
+
+        @Override
+        public int getLength() {
+            return nodes.size();
+        }
+    }
 }
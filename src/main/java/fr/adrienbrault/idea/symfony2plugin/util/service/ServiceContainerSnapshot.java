@@ -0,0 +1,171 @@
+package fr.adrienbrault.idea.symfony2plugin.util.service;
+
+import com.intellij.util.io.DataInputOutputUtil;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.DataExternalizerUtil;
+import org.jetbrains.annotations.NotNull;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * Recorded visitor events of a compiled container file: services, their direct tags and parameters.
+ *
+ * Replaying is much cheaper than reading the xml again and the binary form is only a fraction of the xml size.
+ * Service elements for xpath filters are not part of it.
+ */
+public class ServiceContainerSnapshot {
+
+    /**
+     * Only attributes which are consumed by visitors
+     */
+    private static final Set<String> SERVICE_ATTRIBUTES = Set.of("id", "class", "public", "alias");
+
+    @NotNull
+    private final List<Service> services = new ArrayList<>();
+
+    @NotNull
+    private final List<Tag> tags = new ArrayList<>();
+
+    @NotNull
+    private final Map<String, String> parameters = new LinkedHashMap<>();
+
+    private ServiceContainerSnapshot() {
+    }
+
+    @NotNull
+    public static ServiceContainerSnapshot create(@NotNull InputStream stream) throws XMLStreamException {
+        ServiceContainerSnapshot snapshot = new ServiceContainerSnapshot();
+
+        ServiceContainerXmlReader.read(stream, new ServiceContainerXmlReader.Visitor() {
+            @Override
+            public void visitService(@NotNull Map<String, String> attributes, @NotNull Collection<String> tags) {
+                snapshot.services.add(new Service(filterServiceAttributes(attributes), new ArrayList<>(tags)));
+            }
+
+            @Override
+            public void visitTag(@NotNull Map<String, String> serviceAttributes, @NotNull Map<String, String> tagAttributes) {
+                snapshot.tags.add(new Tag(filterServiceAttributes(serviceAttributes), new LinkedHashMap<>(tagAttributes)));
+            }
+
+            @Override
+            public void visitParameter(@NotNull String key, @NotNull String value) {
+                snapshot.parameters.put(key, value);
+            }
+        });
+
+        return snapshot;
+    }
+
+    /**
+     * Replay in the order of a reader: parameters, services and tags are independent of each other for all visitors
+     */
+    public void accept(@NotNull ServiceContainerXmlReader.Visitor visitor) {
+        this.parameters.forEach(visitor::visitParameter);
+
+        for (Service service : this.services) {
+            visitor.visitService(service.attributes(), service.tags());
+        }
+
+        for (Tag tag : this.tags) {
+            visitor.visitTag(tag.serviceAttributes(), tag.tagAttributes());
+        }
+    }
+
+    public void save(@NotNull DataOutput out) throws IOException {
+        DataInputOutputUtil.writeINT(out, this.services.size());
+        for (Service service : this.services) {
+            DataExternalizerUtil.writeNullableStringMap(out, service.attributes());
+            DataExternalizerUtil.writeStringCollection(out, service.tags());
+        }
+
+        DataInputOutputUtil.writeINT(out, this.tags.size());
+        for (Tag tag : this.tags) {
+            DataExternalizerUtil.writeNullableStringMap(out, tag.serviceAttributes());
+            DataExternalizerUtil.writeNullableStringMap(out, tag.tagAttributes());
+        }
+
+        DataExternalizerUtil.writeNullableStringMap(out, this.parameters);
+    }
+
+    /**
+     * @param length byte length of the input; every element takes at least one byte, which bounds all sizes
+     */
+    @NotNull
+    public static ServiceContainerSnapshot read(@NotNull DataInput in, long length) throws IOException {
+        ServiceContainerSnapshot snapshot = new ServiceContainerSnapshot();
+
+        int services = readSize(in, length);
+        for (int i = 0; i < services; i++) {
+            snapshot.services.add(new Service(readMap(in, length), readCollection(in, length)));
+        }
+
+        int tags = readSize(in, length);
+        for (int i = 0; i < tags; i++) {
+            snapshot.tags.add(new Tag(readMap(in, length), readMap(in, length)));
+        }
+
+        snapshot.parameters.putAll(readMap(in, length));
+
+        return snapshot;
+    }
+
+    /**
+     * Same format as "DataExternalizerUtil.readNullableStringMap", but in the order of the xml attributes
+     */
+    @NotNull
+    private static Map<String, String> readMap(@NotNull DataInput in, long length) throws IOException {
+        Map<String, String> map = new LinkedHashMap<>();
+
+        // size is shifted by one to reserve "0" for null maps
+        int size = readSize(in, length);
+        for (int i = 1; i < size; i++) {
+            map.put(DataExternalizerUtil.readString(in), DataExternalizerUtil.readNullableString(in));
+        }
+
+        return map;
+    }
+
+    @NotNull
+    private static Collection<String> readCollection(@NotNull DataInput in, long length) throws IOException {
+        int size = readSize(in, length);
+
+        Collection<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(DataExternalizerUtil.readString(in));
+        }
+
+        return values;
+    }
+
+    private static int readSize(@NotNull DataInput in, long length) throws IOException {
+        int size = DataInputOutputUtil.readINT(in);
+        if (size < 0 || size > length) {
+            throw new IOException("invalid size: " + size);
+        }
+
+        return size;
+    }
+
+    @NotNull
+    private static Map<String, String> filterServiceAttributes(@NotNull Map<String, String> attributes) {
+        Map<String, String> filtered = new LinkedHashMap<>();
+
+        for (Map.Entry<String, String> entry : attributes.entrySet()) {
+            if (SERVICE_ATTRIBUTES.contains(entry.getKey())) {
+                filtered.put(entry.getKey(), entry.getValue());
+            }
+        }
+
+        return filtered;
+    }
+
+    private record Service(@NotNull Map<String, String> attributes, @NotNull Collection<String> tags) {
+    }
+
+    private record Tag(@NotNull Map<String, String> serviceAttributes, @NotNull Map<String, String> tagAttributes) {
+    }
+}
@@ -0,0 +1,180 @@
+package fr.adrienbrault.idea.symfony2plugin.util.service;
+
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.project.ProjectUtil;
+import com.intellij.openapi.util.Key;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.util.ConcurrencyUtil;
+import com.intellij.util.io.DataInputOutputUtil;
+import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.DataExternalizerUtil;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Snapshots of compiled container files, shared by all parsers of a project and persisted in the project cache directory,
+ * so that an IDE restart does not need to read the xml again.
+ *
+ * A snapshot is valid for the same path, size and modification time. A touched file with an unchanged content hash,
+ * eg after a cache warmup, only refreshes the stored times.
+ */
+public class ServiceContainerSnapshotCache {
+
+    private static final int VERSION = 2;
+
+    private static final Key<Map<String, Entry>> SNAPSHOTS = new Key<>("SYMFONY_SERVICE_CONTAINER_SNAPSHOTS");
+
+    @Nullable
+    public static ServiceContainerSnapshot getSnapshot(@NotNull Project project, @NotNull File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+
+        String path = file.getAbsolutePath();
+        long length = file.length();
+        long lastModified = file.lastModified();
+
+        Map<String, Entry> snapshots = ConcurrencyUtil.computeIfAbsent(project, SNAPSHOTS, ConcurrentHashMap::new);
+
+        Entry entry = snapshots.get(path);
+        if (entry != null && entry.isUpToDate(length, lastModified)) {
+            return entry.snapshot();
+        }
+
+        // all parsers share a snapshot, so build it only once
+        synchronized (snapshots) {
+            entry = snapshots.get(path);
+            if (entry != null && entry.isUpToDate(length, lastModified)) {
+                return entry.snapshot();
+            }
+
+            Path cacheFile = getCacheFile(project, path);
+
+            try {
+                if (entry == null) {
+                    entry = readCacheFile(cacheFile, path);
+                }
+
+                if (entry != null && !entry.isUpToDate(length, lastModified)) {
+                    entry = entry.hash().equals(hash(file))
+                        ? new Entry(length, lastModified, entry.hash(), entry.snapshot())
+                        : null;
+
+                    if (entry != null) {
+                        writeCacheFile(cacheFile, path, entry);
+                    }
+                }
+
+                if (entry == null) {
+                    String hash = hash(file);
+
+                    long start = System.currentTimeMillis();
+                    ServiceContainerSnapshot snapshot = ServiceContainerSnapshot.create(new BufferedInputStream(new FileInputStream(file)));
+                    Symfony2ProjectComponent.getLogger().info(String.format("container snapshot for %s build in %d ms", path, System.currentTimeMillis() - start));
+
+                    entry = new Entry(length, lastModified, hash, snapshot);
+                    writeCacheFile(cacheFile, path, entry);
+                }
+            } catch (IOException | XMLStreamException e) {
+                Symfony2ProjectComponent.getLogger().info("container snapshot failed: " + e.getMessage());
+                return null;
+            }
+
+            snapshots.put(path, entry);
+
+            return entry.snapshot();
+        }
+    }
+
+    @NotNull
+    private static Path getCacheFile(@NotNull Project project, @NotNull String path) {
+        String name = FileUtil.sanitizeFileName(new File(path).getName()) + "." + Integer.toHexString(path.hashCode()) + ".bin";
+        return ProjectUtil.getProjectCachePath(project, "symfony-container").resolve(name);
+    }
+
+    @Nullable
+    private static Entry readCacheFile(@NotNull Path cacheFile, @NotNull String path) {
+        long start = System.currentTimeMillis();
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            // other version or a hash collision of the file name
+            if (DataInputOutputUtil.readINT(in) != VERSION || !path.equals(DataExternalizerUtil.readString(in))) {
+                return null;
+            }
+
+            Entry entry = new Entry(in.readLong(), in.readLong(), DataExternalizerUtil.readString(in), ServiceContainerSnapshot.read(in, Files.size(cacheFile)));
+            Symfony2ProjectComponent.getLogger().info(String.format("container snapshot for %s loaded in %d ms", path, System.currentTimeMillis() - start));
+
+            return entry;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            // broken file, eg truncated by a crash or a corrupted string; it is rebuild
+            Symfony2ProjectComponent.getLogger().info("invalid container snapshot: " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Snapshot is still used in memory if it can not be persisted
+     */
+    private static void writeCacheFile(@NotNull Path cacheFile, @NotNull String path, @NotNull Entry entry) {
+        // readers never see a partial file
+        Path tempFile = cacheFile.resolveSibling(cacheFile.getFileName() + ".tmp");
+
+        try {
+            Files.createDirectories(cacheFile.getParent());
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                DataInputOutputUtil.writeINT(out, VERSION);
+                DataExternalizerUtil.writeString(out, path);
+                out.writeLong(entry.length());
+                out.writeLong(entry.lastModified());
+                DataExternalizerUtil.writeString(out, entry.hash());
+                entry.snapshot().save(out);
+            }
+
+            Files.move(tempFile, cacheFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Symfony2ProjectComponent.getLogger().info("container snapshot not persisted: " + e.getMessage());
+        }
+    }
+
+    @NotNull
+    private static String hash(@NotNull File file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+
+        try (InputStream in = new FileInputStream(file)) {
+            byte[] buffer = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private record Entry(long length, long lastModified, @NotNull String hash, @NotNull ServiceContainerSnapshot snapshot) {
+        private boolean isUpToDate(long length, long lastModified) {
+            return this.length == length && this.lastModified == lastModified;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package fr.adrienbrault.idea.symfony2plugin.util.service;
+
+import org.apache.commons.lang.StringUtils;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * Single pass streaming reader for compiled container xml files, eg "appDevDebugProjectContainer.xml".
+ *
+ * No document of the whole file is build; memory is bound by the largest top-level service a visitor requests as element,
+ * so several visitors can share one pass over the file.
+ */
+public class ServiceContainerXmlReader {
+
+    public interface Visitor {
+        /**
+         * Every "service" element on all levels, including inline services.
+         * "tags" are the tag names of the service and its inline services
+         */
+        default void visitService(@NotNull Map<String, String> attributes, @NotNull Collection<String> tags) {
+        }
+
+        /**
+         * "/container/services/service/tag"
+         */
+        default void visitTag(@NotNull Map<String, String> serviceAttributes, @NotNull Map<String, String> tagAttributes) {
+        }
+
+        /**
+         * "/container/parameters/parameter[@key]"; value of collection parameters is "collection"
+         */
+        default void visitParameter(@NotNull String key, @NotNull String value) {
+        }
+
+        /**
+         * Decide on attributes if a top-level service is needed as element, which is the expensive part
+         */
+        default boolean isServiceElementRequired(@NotNull Map<String, String> serviceAttributes) {
+            return false;
+        }
+
+        /**
+         * Top-level service as detached "/container/services/service" document, so absolute xpath queries stay valid
+         */
+        default void visitServiceElement(@NotNull Document document) {
+        }
+    }
+
+    @NotNull
+    private final XMLStreamReader reader;
+
+    @NotNull
+    private final Collection<? extends Visitor> visitors;
+
+    @NotNull
+    private final List<String> path = new ArrayList<>();
+
+    @NotNull
+    private final Deque<ServiceFrame> services = new ArrayDeque<>();
+
+    @Nullable
+    private DocumentBuilder documentBuilder;
+
+    @Nullable
+    private Element element;
+
+    @Nullable
+    private Collection<Visitor> elementVisitors;
+
+    @Nullable
+    private String parameterKey;
+
+    private boolean parameterCollection;
+
+    @NotNull
+    private final StringBuilder parameterValue = new StringBuilder();
+
+    private ServiceContainerXmlReader(@NotNull XMLStreamReader reader, @NotNull Collection<? extends Visitor> visitors) {
+        this.reader = reader;
+        this.visitors = visitors;
+    }
+
+    /**
+     * Stream is closed after reading, like a DOM parser does
+     */
+    public static void read(@NotNull InputStream stream, @NotNull Collection<? extends Visitor> visitors) throws XMLStreamException {
+        try {
+            XMLInputFactory factory = XMLInputFactory.newInstance();
+            factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+            factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+            factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+
+            XMLStreamReader reader = factory.createXMLStreamReader(stream);
+            try {
+                new ServiceContainerXmlReader(reader, visitors).read();
+            } finally {
+                reader.close();
+            }
+        } finally {
+            try {
+                stream.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    public static void read(@NotNull InputStream stream, @NotNull Visitor visitor) throws XMLStreamException {
+        read(stream, Collections.singletonList(visitor));
+    }
+
+    private void read() throws XMLStreamException {
+        while (reader.hasNext()) {
+            switch (reader.next()) {
+                case XMLStreamConstants.START_ELEMENT -> startElement();
+                case XMLStreamConstants.END_ELEMENT -> endElement();
+                case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE -> text(reader.getText());
+            }
+        }
+    }
+
+    private void startElement() {
+        String name = reader.getLocalName();
+
+        // document order of the attributes
+        Map<String, String> attributes = new LinkedHashMap<>();
+        for (int i = 0; i < reader.getAttributeCount(); i++) {
+            attributes.put(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+        }
+
+        if ("service".equals(name) && isPath("container", "services")) {
+            startServiceElement(attributes);
+        }
+
+        if (this.element != null) {
+            Element child = this.element.getOwnerDocument().createElement(name);
+            attributes.forEach(child::setAttribute);
+            this.element.appendChild(child);
+            this.element = child;
+        }
+
+        if ("service".equals(name)) {
+            this.services.push(new ServiceFrame(attributes));
+        } else if ("tag".equals(name)) {
+            String tagName = attributes.get("name");
+            if (StringUtils.isNotBlank(tagName)) {
+                this.services.forEach(service -> service.tags.add(tagName));
+            }
+
+            if (isPath("container", "services", "service")) {
+                Map<String, String> serviceAttributes = this.services.getLast().attributes;
+                this.visitors.forEach(visitor -> visitor.visitTag(serviceAttributes, attributes));
+            }
+        } else if ("parameter".equals(name) && this.parameterKey == null && attributes.containsKey("key") && isPath("container", "parameters")) {
+            this.parameterKey = attributes.get("key");
+            this.parameterCollection = "collection".equals(attributes.get("type"));
+            this.parameterValue.setLength(0);
+        }
+
+        this.path.add(name);
+    }
+
+    private void endElement() {
+        String name = this.path.remove(this.path.size() - 1);
+
+        if (this.element != null) {
+            if (this.element.getParentNode() instanceof Element parent && !"services".equals(parent.getTagName())) {
+                this.element = parent;
+            } else {
+                // top-level service element is complete
+                Document document = this.element.getOwnerDocument();
+                Objects.requireNonNull(this.elementVisitors).forEach(visitor -> visitor.visitServiceElement(document));
+
+                this.element = null;
+                this.elementVisitors = null;
+            }
+        }
+
+        if ("service".equals(name)) {
+            ServiceFrame service = this.services.pop();
+            this.visitors.forEach(visitor -> visitor.visitService(service.attributes, service.tags));
+        } else if ("parameter".equals(name) && this.parameterKey != null && isPath("container", "parameters")) {
+            String value = this.parameterCollection ? "collection" : this.parameterValue.toString();
+
+            String key = this.parameterKey;
+            this.visitors.forEach(visitor -> visitor.visitParameter(key, value));
+
+            this.parameterKey = null;
+        }
+    }
+
+    private void text(@NotNull String text) {
+        if (this.element != null) {
+            this.element.appendChild(this.element.getOwnerDocument().createTextNode(text));
+        }
+
+        if (this.parameterKey != null && !this.parameterCollection) {
+            this.parameterValue.append(text);
+        }
+    }
+
+    private void startServiceElement(@NotNull Map<String, String> attributes) {
+        Collection<Visitor> visitors = new ArrayList<>();
+        for (Visitor visitor : this.visitors) {
+            if (visitor.isServiceElementRequired(attributes)) {
+                visitors.add(visitor);
+            }
+        }
+
+        if (visitors.isEmpty()) {
+            return;
+        }
+
+        if (this.documentBuilder == null) {
+            try {
+                this.documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+            } catch (ParserConfigurationException e) {
+                return;
+            }
+        }
+
+        Document document = this.documentBuilder.newDocument();
+
+        Element container = document.createElement("container");
+        document.appendChild(container);
+
+        Element services = document.createElement("services");
+        container.appendChild(services);
+
+        // service element itself is appended by the caller
+        this.element = services;
+        this.elementVisitors = visitors;
+    }
+
+    private boolean isPath(@NotNull String... names) {
+        return this.path.equals(Arrays.asList(names));
+    }
+
+    private static class ServiceFrame {
+        @NotNull
+        private final Map<String, String> attributes;
+
+        @NotNull
+        private final Set<String> tags = new LinkedHashSet<>();
+
+        private ServiceFrame(@NotNull Map<String, String> attributes) {
+            this.attributes = attributes;
+        }
+    }
+}
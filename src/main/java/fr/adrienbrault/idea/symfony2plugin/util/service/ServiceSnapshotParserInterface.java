@@ -0,0 +1,10 @@
+package fr.adrienbrault.idea.symfony2plugin.util.service;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Parser which only needs services, tags or parameters and so can be feed by a cached snapshot instead of the xml file
+ */
+public interface ServiceSnapshotParserInterface extends ServiceParserInterface {
+    void parser(@NotNull ServiceContainerSnapshot snapshot);
+}
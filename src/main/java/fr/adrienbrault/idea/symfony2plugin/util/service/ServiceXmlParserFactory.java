@@ -1,10 +1,22 @@
 package fr.adrienbrault.idea.symfony2plugin.util.service;
 
+import com.intellij.openapi.Disposable;
 import com.intellij.openapi.extensions.ExtensionPointName;
 import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.ModificationTracker;
+import com.intellij.openapi.util.io.FileUtil;
+import com.intellij.openapi.vfs.LocalFileSystem;
+import com.intellij.openapi.vfs.VirtualFileManager;
+import com.intellij.openapi.vfs.newvfs.BulkFileListener;
+import com.intellij.openapi.vfs.newvfs.events.VFileContentChangeEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFileMoveEvent;
+import com.intellij.openapi.vfs.newvfs.events.VFilePropertyChangeEvent;
+import com.intellij.psi.util.PsiModificationTracker;
 import fr.adrienbrault.idea.symfony2plugin.Symfony2ProjectComponent;
 import fr.adrienbrault.idea.symfony2plugin.extension.CompiledServiceBuilderArguments;
 import fr.adrienbrault.idea.symfony2plugin.extension.CompiledServiceBuilderFactory;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
@@ -12,135 +24,267 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
+ * Parsed compiled container per parser class.
+ *
+ * Snapshots are invalidated by VFS events of the container files, instead of asking the filesystem on every access;
+ * so readers of an up-to-date parser never lock. The files are registered for the file watcher, as they are mostly
+ * inside excluded cache folders.
+ *
  * @author Daniel Espendiller <daniel@espendiller.net>
  */
-public class ServiceXmlParserFactory {
+public class ServiceXmlParserFactory implements Disposable {
 
-    protected static Map<Project, Map<Class, ServiceXmlParserFactory>> instance = new HashMap<>();
-
-    private Project project;
-    private ServiceParserInterface serviceParserInstance;
-
-    private HashMap<String, Long> serviceFiles = new HashMap<>();
-
-    private Collection<CompiledServiceBuilderFactory.Builder> extensions = new ArrayList<>();
     private static final ExtensionPointName<CompiledServiceBuilderFactory> EXTENSIONS = new ExtensionPointName<>(
         "fr.adrienbrault.idea.symfony2plugin.extension.CompiledServiceBuilderFactory"
     );
 
-    public ServiceXmlParserFactory(Project project) {
-        this.project = project;
-    }
+    @NotNull
+    private final Project project;
 
-    private boolean isModified(Collection<File> serviceFiles) {
-        if(this.serviceFiles.size() != serviceFiles.size()) {
-            return true;
-        }
+    @NotNull
+    private final Map<Class<?>, ParserSnapshot> parsers = new ConcurrentHashMap<>();
 
-        for(File serviceFile: serviceFiles) {
-            if(serviceFile.exists()) {
-                if(!this.serviceFiles.containsKey(serviceFile.getAbsolutePath())) {
-                    return true;
-                }
-                if(!this.serviceFiles.get(serviceFile.getAbsolutePath()).equals(serviceFile.lastModified())) {
-                    return true;
-                }
-            } else {
-                Symfony2ProjectComponent.getLogger().warn("file not found: " + serviceFiles.toString());
-            }
-        }
+    /**
+     * Incremented on every change of a container file
+     */
+    @NotNull
+    private final AtomicLong modificationCount = new AtomicLong();
 
-        if(this.extensions.size() > 0) {
-            for (CompiledServiceBuilderFactory.Builder builder : this.extensions) {
-                if(builder.isModified(project)) {
-                    return true;
-                }
-            }
-        }
+    @NotNull
+    private volatile ContainerFiles containerFiles = new ContainerFiles(-1, Collections.emptyList(), Collections.emptySet());
 
-        return false;
+    /**
+     * Guarded by "this"
+     */
+    @NotNull
+    private Set<LocalFileSystem.WatchRequest> watchRequests = Collections.emptySet();
+
+    public ServiceXmlParserFactory(@NotNull Project project) {
+        this.project = project;
+
+        project.getMessageBus().connect(this).subscribe(VirtualFileManager.VFS_CHANGES, new MyBulkFileListener());
     }
 
     @Nullable
-    synchronized public <T extends ServiceParserInterface> T parser(Class<T> serviceParser) {
-        Collection<File> settingsServiceFiles = Symfony2ProjectComponent.getContainerFiles(this.project);
+    public <T extends ServiceParserInterface> T parser(@NotNull Class<T> serviceParser) {
+        Collection<File> settingsServiceFiles = getContainerFiles();
 
-        if (this.serviceParserInstance != null && !this.isModified(settingsServiceFiles)) {
-            return (T) this.serviceParserInstance;
-        }
+        long modificationCount = this.modificationCount.get();
 
-        try {
-            this.serviceParserInstance = serviceParser.newInstance();
-            Symfony2ProjectComponent.getLogger().info("new instance: " + serviceParser.getName());
-        } catch (InstantiationException | IllegalAccessException ignored) {
+        ParserSnapshot snapshot = this.parsers.get(serviceParser);
+        if (snapshot != null && snapshot.isUpToDate(this.project, modificationCount)) {
+            return serviceParser.cast(snapshot.parser());
         }
 
-        if (this.serviceParserInstance != null) {
+        synchronized (this) {
+            snapshot = this.parsers.get(serviceParser);
+            if (snapshot != null && snapshot.isUpToDate(this.project, modificationCount)) {
+                return serviceParser.cast(snapshot.parser());
+            }
+
+            T serviceParserInstance;
+            try {
+                serviceParserInstance = serviceParser.getDeclaredConstructor().newInstance();
+                Symfony2ProjectComponent.getLogger().info("new instance: " + serviceParser.getName());
+            } catch (ReflectiveOperationException e) {
+                return null;
+            }
 
             // extensions
-            if(this.extensions.size() > 0) {
+            Collection<CompiledServiceBuilderFactory.Builder> extensions = new ArrayList<>();
+            for (CompiledServiceBuilderFactory ext : EXTENSIONS.getExtensions()) {
+                extensions.add(ext.create());
+            }
+
+            if(extensions.size() > 0) {
                 CompiledServiceBuilderArguments args = new CompiledServiceBuilderArguments(project);
-                for (CompiledServiceBuilderFactory.Builder builder : this.extensions) {
+                for (CompiledServiceBuilderFactory.Builder builder : extensions) {
                     builder.build(args);
                 }
 
                 for (InputStream inputStream : args.getStreams()) {
-                    this.serviceParserInstance.parser(inputStream);
+                    serviceParserInstance.parser(inputStream);
                 }
             }
 
-            this.serviceFiles = new HashMap<>();
             for(File settingsServiceFile: settingsServiceFiles) {
                 if(!settingsServiceFile.exists()) {
                     continue;
                 }
 
-                try {
-                    this.serviceParserInstance.parser(new FileInputStream(settingsServiceFile));
-                } catch (FileNotFoundException e) {
-                    continue;
+                ServiceContainerSnapshot containerSnapshot = null;
+                if (serviceParserInstance instanceof ServiceSnapshotParserInterface) {
+                    containerSnapshot = ServiceContainerSnapshotCache.getSnapshot(this.project, settingsServiceFile);
                 }
 
-                serviceFiles.put(settingsServiceFile.getAbsolutePath(), settingsServiceFile.lastModified());
+                if (containerSnapshot != null) {
+                    ((ServiceSnapshotParserInterface) serviceParserInstance).parser(containerSnapshot);
+                } else {
+                    try {
+                        serviceParserInstance.parser(new FileInputStream(settingsServiceFile));
+                    } catch (FileNotFoundException ignored) {
+                    }
+                }
             }
-        }
 
-        Symfony2ProjectComponent.getLogger().info("update: " + serviceParser.getName());
+            // a change while parsing is visible on next access via a newer modification count
+            this.parsers.put(serviceParser, new ParserSnapshot(modificationCount, serviceParserInstance, extensions));
 
-        return (T) this.serviceParserInstance;
+            Symfony2ProjectComponent.getLogger().info("update: " + serviceParser.getName());
+
+            return serviceParserInstance;
+        }
     }
 
+    /**
+     * Drop all parsers, eg for changed settings
+     */
     public void setCacheInvalid() {
-        this.serviceFiles = new HashMap<>();
+        this.containerFiles = new ContainerFiles(-1, Collections.emptyList(), Collections.emptySet());
+        this.modificationCount.incrementAndGet();
     }
 
-    synchronized public static <T extends ServiceParserInterface> T getInstance(Project project, Class<T> serviceParser){
+    /**
+     * Changes for every change of a container file or invalidation, so dependent caches dont need to parse
+     */
+    @NotNull
+    public ModificationTracker getModificationTracker() {
+        return this.modificationCount::get;
+    }
 
-        Map<Class, ServiceXmlParserFactory> projectInstance = instance.computeIfAbsent(project, k -> new HashMap<>());
+    /**
+     * Container files are resolved again for a PSI change only, as settings or extensions may provide other files
+     */
+    @NotNull
+    private Collection<File> getContainerFiles() {
+        long psiModificationCount = PsiModificationTracker.getInstance(this.project).getModificationCount();
 
-        ServiceXmlParserFactory serviceXmlParserFactory = projectInstance.get(serviceParser);
-        if(serviceXmlParserFactory == null) {
-            serviceXmlParserFactory = new ServiceXmlParserFactory(project);
+        ContainerFiles containerFiles = this.containerFiles;
+        if (containerFiles.psiModificationCount() == psiModificationCount) {
+            return containerFiles.files();
+        }
 
-            // add extension for new instance
-            for (CompiledServiceBuilderFactory ext : EXTENSIONS.getExtensions()) {
-                serviceXmlParserFactory.extensions.add(ext.create());
-            }
+        Collection<File> files = Symfony2ProjectComponent.getContainerFiles(this.project);
+
+        Set<String> paths = new HashSet<>();
+        for (File file : files) {
+            paths.add(FileUtil.toSystemIndependentName(file.getAbsolutePath()));
+        }
 
-            projectInstance.put(serviceParser, serviceXmlParserFactory);
+        if (!paths.equals(containerFiles.paths())) {
+            watchContainerFiles(paths);
+            this.modificationCount.incrementAndGet();
         }
 
-        return serviceXmlParserFactory.parser(serviceParser);
+        this.containerFiles = new ContainerFiles(psiModificationCount, files, paths);
 
+        return files;
     }
 
-    synchronized public static void cleanInstance(Project project){
-        if(instance.containsKey(project)) {
-            Symfony2ProjectComponent.getLogger().info("clean ServiceXmlParserFactory for " + project.getName());
-            instance.remove(project);
+    /**
+     * Changes are only reported for files known by the VFS
+     */
+    synchronized private void watchContainerFiles(@NotNull Set<String> paths) {
+        this.watchRequests = LocalFileSystem.getInstance().replaceWatchedRoots(this.watchRequests, Collections.emptyList(), paths);
+
+        for (String path : paths) {
+            LocalFileSystem.getInstance().findFileByPath(path);
         }
     }
 
+    @Override
+    synchronized public void dispose() {
+        LocalFileSystem.getInstance().removeWatchedRoots(this.watchRequests);
+        this.watchRequests = Collections.emptySet();
+        this.parsers.clear();
+    }
+
+    @Nullable
+    public static <T extends ServiceParserInterface> T getInstance(@NotNull Project project, @NotNull Class<T> serviceParser) {
+        return getInstance(project).parser(serviceParser);
+    }
+
+    @NotNull
+    public static ServiceXmlParserFactory getInstance(@NotNull Project project) {
+        return project.getService(ServiceXmlParserFactory.class);
+    }
+
+    public static void cleanInstance(@NotNull Project project) {
+        Symfony2ProjectComponent.getLogger().info("clean ServiceXmlParserFactory for " + project.getName());
+        getInstance(project).setCacheInvalid();
+    }
+
+    private static boolean isContainerFileEvent(@NotNull VFileEvent event, @NotNull Set<String> paths) {
+        if (event instanceof VFileContentChangeEvent) {
+            return paths.contains(event.getPath());
+        }
+
+        if (event instanceof VFilePropertyChangeEvent && !((VFilePropertyChangeEvent) event).isRename()) {
+            return false;
+        }
+
+        // create, delete, move or rename: container files are mostly replaced or a whole cache folder is removed
+        Collection<String> eventPaths = new ArrayList<>();
+        eventPaths.add(event.getPath());
+
+        if (event instanceof VFileMoveEvent) {
+            eventPaths.add(((VFileMoveEvent) event).getOldPath());
+        } else if (event instanceof VFilePropertyChangeEvent) {
+            eventPaths.add(((VFilePropertyChangeEvent) event).getOldPath());
+        }
+
+        // other xml files like "phpunit.xml" or build output must not drop the container; not yet existing
+        // container files are resolved again on the next PSI change
+        for (String eventPath : eventPaths) {
+            for (String path : paths) {
+                if (FileUtil.isAncestor(eventPath, path, false)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private record ContainerFiles(long psiModificationCount, @NotNull Collection<File> files, @NotNull Set<String> paths) {
+    }
+
+    private record ParserSnapshot(long modificationCount, @NotNull ServiceParserInterface parser, @NotNull Collection<CompiledServiceBuilderFactory.Builder> extensions) {
+        private boolean isUpToDate(@NotNull Project project, long modificationCount) {
+            if (this.modificationCount != modificationCount) {
+                return false;
+            }
+
+            for (CompiledServiceBuilderFactory.Builder builder : this.extensions) {
+                if (builder.isModified(project)) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+    }
+
+    private class MyBulkFileListener implements BulkFileListener {
+        @Override
+        public void after(@NotNull List<? extends VFileEvent> events) {
+            Set<String> paths = containerFiles.paths();
+
+            for (VFileEvent event : events) {
+                if (isContainerFileEvent(event, paths)) {
+                    // new files may now exist or the existing ones are gone
+                    if (!(event instanceof VFileContentChangeEvent)) {
+                        containerFiles = new ContainerFiles(-1, Collections.emptyList(), paths);
+                    }
+
+                    modificationCount.incrementAndGet();
+                    return;
+                }
+            }
+        }
+    }
 }
@@ -1,10 +1,14 @@
 package fr.adrienbrault.idea.symfony2plugin.webDeployment.routing;
 
+import com.intellij.openapi.project.Project;
+import com.intellij.openapi.util.ModificationTracker;
+import fr.adrienbrault.idea.symfony2plugin.Settings;
 import fr.adrienbrault.idea.symfony2plugin.extension.RoutingLoader;
 import fr.adrienbrault.idea.symfony2plugin.extension.RoutingLoaderParameter;
 import fr.adrienbrault.idea.symfony2plugin.routing.webDeployment.RoutingRemoteFileStorage;
 import fr.adrienbrault.idea.symfony2plugin.webDeployment.utils.RemoteWebServerUtil;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
@@ -17,10 +21,21 @@ public class WebDeploymentRoutingLoader implements RoutingLoader {
         RoutingRemoteFileStorage extensionInstance = RemoteWebServerUtil
             .getExtensionInstance(parameter.getProject(), RoutingRemoteFileStorage.class);
 
-        if(extensionInstance == null) {
+        // downloaded routes stay in the storage, also after removing their remote files from the settings
+        if(extensionInstance == null || extensionInstance.files(parameter.getProject()).isEmpty()) {
             return;
         }
 
         parameter.addRoutes(extensionInstance.getState().values());
     }
+
+    @Nullable
+    @Override
+    public Object[] getDependencies(@NotNull Project project) {
+        return new Object[] {
+            RoutingRemoteFileStorage.MODIFICATION_TRACKER,
+            // settings are plain fields without any change event, so the configured remote files are the modification count
+            (ModificationTracker) () -> RemoteWebServerUtil.getRemoteAbleFiles(Settings.getInstance(project).routingFiles).hashCode()
+        };
+    }
 }
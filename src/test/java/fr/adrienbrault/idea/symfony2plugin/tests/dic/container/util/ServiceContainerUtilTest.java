@@ -11,6 +11,7 @@ import fr.adrienbrault.idea.symfony2plugin.dic.container.dict.ServiceTypeHint;
 import fr.adrienbrault.idea.symfony2plugin.dic.container.util.ServiceContainerUtil;
 import fr.adrienbrault.idea.symfony2plugin.stubs.ContainerCollectionResolver;
 import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.yaml.psi.YAMLScalar;
 
@@ -165,6 +166,15 @@ public class ServiceContainerUtilTest extends SymfonyLightCodeInsightFixtureTest
         assertEquals(3, ServiceContainerUtil.getServiceUsage(getProject(), "usage_xml_foobar"));
         assertEquals(3, ServiceContainerUtil.getServiceUsage(getProject(), "usage_xml_foobar2"));
         assertEquals(1, ServiceContainerUtil.getServiceUsage(getProject(), "usage_xml_foobar3"));
+        assertEquals(0, ServiceContainerUtil.getServiceUsage(getProject(), "usage_xml_unknown"));
+    }
+
+    public void testGetServiceUsages() {
+        Object2IntMap<String> usages = ServiceContainerUtil.getServiceUsages(getProject());
+
+        assertEquals(3, usages.getInt("usage_xml_foobar"));
+        assertEquals(1, usages.getInt("usage_xml_foobar3"));
+        assertFalse(usages.containsKey("usage_xml_unknown"));
     }
 
     public void testGetSortedServiceId() {
@@ -392,6 +392,79 @@ public class RouteHelperTest extends SymfonyLightCodeInsightFixtureTestCase {
         ));
     }
 
+    /**
+     * @see fr.adrienbrault.idea.symfony2plugin.routing.RouteHelper#isRouteExistingForMethod
+     */
+    public void testIsRouteExistingForMethod() {
+        myFixture.copyFileToProject("GetRoutesOnControllerAction.php");
+        myFixture.copyFileToProject("GetRoutesOnControllerAction.routing.xml");
+        myFixture.copyFileToProject("GetRoutesOnControllerAction.services.xml");
+
+        PhpClass phpClass = PhpPsiElementFactory.createPhpPsiFromText(getProject(), PhpClass.class, "<?php\n" +
+            "namespace FooBar\\FooBundle\\Controller\\SubFolder" +
+            "{\n" +
+            "  class FooBarController\n" +
+            "  {\n" +
+            "     function fooAction() {}\n" +
+            "     function barAction() {}\n" +
+            "  }\n" +
+            "}"
+        );
+
+        assertTrue(RouteHelper.isRouteExistingForMethod(phpClass.findMethodByName("fooAction")));
+        assertFalse(RouteHelper.isRouteExistingForMethod(phpClass.findMethodByName("barAction")));
+
+        Method indexAction = PhpElementsUtil.getClassMethod(getProject(), "Service\\Controller\\FooController", "indexAction");
+        assertNotNull(indexAction);
+        assertTrue(RouteHelper.isRouteExistingForMethod(indexAction));
+    }
+
+    /**
+     * @see fr.adrienbrault.idea.symfony2plugin.routing.RouteHelper#isRouteExistingForMethod
+     */
+    public void testIsRouteExistingForMethodOnResolvedControllers() {
+        myFixture.addFileToProject("resolved_services.yml", "" +
+            "services:\n" +
+            "  app.controller.invokable:\n" +
+            "    class: App\\Controller\\InvokableController\n"
+        );
+
+        myFixture.addFileToProject("resolved_routing.yml", "" +
+            "resolved_action:\n" +
+            "  path: /action\n" +
+            "  controller: App\\Controller\\ActionController::index\n" +
+            "resolved_invokable:\n" +
+            "  path: /invokable\n" +
+            "  controller: app.controller.invokable\n" +
+            "resolved_child:\n" +
+            "  path: /child\n" +
+            "  controller: App\\Controller\\ChildController::show\n"
+        );
+
+        myFixture.configureByText(PhpFileType.INSTANCE, "<?php\n" +
+            "namespace App\\Controller;\n" +
+            "class ActionController\n" +
+            "{\n" +
+            "   public function indexAction() {}\n" +
+            "   public function fooAction() {}\n" +
+            "}\n" +
+            "class InvokableController\n" +
+            "{\n" +
+            "   public function __invoke() {}\n" +
+            "}\n" +
+            "class ParentController\n" +
+            "{\n" +
+            "   public function show() {}\n" +
+            "}\n" +
+            "class ChildController extends ParentController {}\n"
+        );
+
+        assertTrue(RouteHelper.isRouteExistingForMethod(PhpElementsUtil.getClassMethod(getProject(), "App\\Controller\\ActionController", "indexAction")));
+        assertFalse(RouteHelper.isRouteExistingForMethod(PhpElementsUtil.getClassMethod(getProject(), "App\\Controller\\ActionController", "fooAction")));
+        assertTrue(RouteHelper.isRouteExistingForMethod(PhpElementsUtil.getClassMethod(getProject(), "App\\Controller\\InvokableController", "__invoke")));
+        assertTrue(RouteHelper.isRouteExistingForMethod(PhpElementsUtil.getClassMethod(getProject(), "App\\Controller\\ParentController", "show")));
+    }
+
     /**
      * @see fr.adrienbrault.idea.symfony2plugin.routing.RouteHelper#getRoutesInsideUrlGeneratorFile
      */
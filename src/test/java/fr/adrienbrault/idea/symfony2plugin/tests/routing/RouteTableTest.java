@@ -0,0 +1,74 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.routing;
+
+import com.intellij.codeInsight.lookup.LookupElement;
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
+import com.intellij.util.containers.ContainerUtil;
+import fr.adrienbrault.idea.symfony2plugin.routing.RouteTable;
+import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.routing.RouteTable
+ */
+public class RouteTableTest extends SymfonyLightCodeInsightFixtureTestCase {
+
+    public void testRouteLookupElementsAreSearchableByPattern() {
+        myFixture.configureByText("routing.yml", "" +
+            "app_user_edit:\n" +
+            "    path: /user/{id}/edit\n" +
+            "    methods: [GET, POST]\n" +
+            "app_user_show:\n" +
+            "    path: /user/{id}\n" +
+            "app_blog:\n" +
+            "    path: /blog\n"
+        );
+
+        RouteTable routeTable = RouteTable.getInstance(getProject());
+
+        assertContainsElements(ContainerUtil.map(routeTable.getLookupElements("app_user", Collections.emptySet()), LookupElement::getLookupString), "app_user_edit", "app_user_show");
+        assertDoesntContain(ContainerUtil.map(routeTable.getLookupElements("app_user", Collections.emptySet()), LookupElement::getLookupString), "app_blog");
+        assertContainsElements(ContainerUtil.map(routeTable.getLookupElements("usredit", Collections.emptySet()), LookupElement::getLookupString), "app_user_edit");
+        assertDoesntContain(ContainerUtil.map(routeTable.getLookupElements("usredit", Collections.emptySet()), LookupElement::getLookupString), "app_user_show");
+        assertEquals("/user/{id}/edit", routeTable.getRoutes("app_user_edit").iterator().next().getPath());
+
+        List<LookupElement> lookupElements = routeTable.getLookupElements(Collections.singleton("app_blog"));
+        assertNotNull(ContainerUtil.find(lookupElements, lookupElement -> "app_user_edit".equals(lookupElement.getLookupString())));
+        assertNull(ContainerUtil.find(lookupElements, lookupElement -> "app_blog".equals(lookupElement.getLookupString())));
+    }
+
+    public void testThatChangedRouteFileIsApplied() {
+        PsiFile psiFile = myFixture.configureByText("incremental_routing.yml", "" +
+            "incremental_route:\n" +
+            "    path: /foo\n"
+        );
+
+        RouteTable routeTable = RouteTable.getInstance(getProject());
+        assertEquals("/foo", routeTable.getRoutes("incremental_route").iterator().next().getPath());
+
+        Document document = PsiDocumentManager.getInstance(getProject()).getDocument(psiFile);
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+            document.setText("" +
+                "incremental_route:\n" +
+                "    path: /bar\n" +
+                "incremental_route_new:\n" +
+                "    path: /new\n"
+            );
+            PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+        });
+
+        assertEquals("/bar", routeTable.getRoutes("incremental_route").iterator().next().getPath());
+        assertEquals(1, routeTable.getRoutesWithPrefix("incremental_route_new").size());
+
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+            document.setText("foo: ~\n");
+            PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+        });
+
+        assertTrue(routeTable.getRoutesWithPrefix("incremental_route").isEmpty());
+    }
+}
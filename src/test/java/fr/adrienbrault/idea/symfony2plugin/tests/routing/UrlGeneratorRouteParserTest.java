@@ -0,0 +1,140 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.routing;
+
+import fr.adrienbrault.idea.symfony2plugin.routing.Route;
+import fr.adrienbrault.idea.symfony2plugin.routing.UrlGeneratorRouteParser;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Map;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.routing.UrlGeneratorRouteParser
+ */
+public class UrlGeneratorRouteParserTest extends Assert {
+
+    @Test
+    public void testParseReturnArray() {
+        Map<String, Route> routes = UrlGeneratorRouteParser.parse("<?php\n" +
+            "\n" +
+            "// This file has been auto-generated by the Symfony Routing Component.\n" +
+            "\n" +
+            "return [\n" +
+            "    '_preview_error' => [\n" +
+            "        ['code', '_format'],\n" +
+            "        ['_controller' => 'error_controller::preview', '_format' => 'html'],\n" +
+            "        ['code' => '\\\\d+'],\n" +
+            "        [\n" +
+            "            ['variable', '.', '[^/]++', '_format', true],\n" +
+            "            ['variable', '/', '\\\\d+', 'code', true],\n" +
+            "            ['text', '/_error']\n" +
+            "        ],\n" +
+            "        [],\n" +
+            "        []\n" +
+            "    ],\n" +
+            "    '_profiler_home' => [[], ['_controller' => 'web_profiler.controller.profiler::homeAction'], [], [['text', '/_profiler/']], [], []],\n" +
+            "    'app_foo' => [[], ['_controller' => 'App\\\\Controller\\\\FooController::index', 'id' => null], [], [['text', '/foo']], [], ['https']],\n" +
+            "];\n"
+        );
+
+        assertNotNull(routes);
+        assertEquals(3, routes.size());
+
+        Route previewError = routes.get("_preview_error");
+        assertEquals("error_controller::preview", previewError.getController());
+        assertEquals("/_error/{code}.{_format}", previewError.getPath());
+        assertEquals("html", previewError.getDefaults().get("_format"));
+        assertEquals("\\\\d+", previewError.getRequirements().get("code"));
+        assertTrue(previewError.getVariables().contains("code"));
+        assertTrue(previewError.getVariables().contains("_format"));
+
+        assertEquals("/_profiler/", routes.get("_profiler_home").getPath());
+
+        Route foo = routes.get("app_foo");
+        assertEquals("App\\Controller\\FooController::index", foo.getController());
+        assertFalse(foo.getDefaults().containsKey("id"));
+    }
+
+    @Test
+    public void testParseDeclaredRoutes() {
+        Map<String, Route> routes = UrlGeneratorRouteParser.parse("<?php\n" +
+            "\n" +
+            "class appDevUrlGenerator extends Symfony\\Component\\Routing\\Generator\\UrlGenerator\n" +
+            "{\n" +
+            "    private static $declaredRoutes;\n" +
+            "\n" +
+            "    public function __construct(RequestContext $context, LoggerInterface $logger = null)\n" +
+            "    {\n" +
+            "        $this->context = $context;\n" +
+            "        if (null === self::$declaredRoutes) {\n" +
+            "            self::$declaredRoutes = array(\n" +
+            "        '_wdt' => array (  0 =>   array (    0 => 'token',  ),  1 =>   array (    '_controller' => 'web_profiler.controller.profiler:toolbarAction',  ),  2 =>   array (  ),  3 =>   array (    0 =>     array (      0 => 'variable',      1 => '/',      2 => '[^/]++',      3 => 'token',    ),    1 =>     array (      0 => 'text',      1 => '/_wdt',    ),  ),  4 =>   array (  ),),\n" +
+            "        '_assetic_91dd2a8' => array (  0 =>   array (  ),  1 =>   array (    '_controller' => 'assetic.controller:render',  ),  2 =>   array (  ),  3 =>   array (    0 =>     array (      0 => 'text',      1 => '/bundles/main.css',    ),  ),  4 =>   array (  ),),\n" +
+            "        'en__RG__feedback' => array (  0 =>   array (  ),  1 =>   array (    '_controller' => 'Lol\\\\CoreBundle\\\\Controller\\\\FeedbackController::feedbackAction',    '_locale' => 'en',  ),  2 =>   array (  ),  3 =>   array (    0 =>     array (      0 => 'text',      1 => '/en/feedback/',    ),  ),  4 =>   array (  ),),\n" +
+            "    );\n" +
+            "        }\n" +
+            "    }\n" +
+            "}\n"
+        );
+
+        assertNotNull(routes);
+        assertEquals(2, routes.size());
+
+        Route wdt = routes.get("_wdt");
+        assertEquals("web_profiler.controller.profiler:toolbarAction", wdt.getController());
+        assertEquals("/_wdt/{token}", wdt.getPath());
+        assertEquals(1, wdt.getVariables().size());
+        assertEquals(2, wdt.getTokens().size());
+
+        Route feedback = routes.get("feedback");
+        assertEquals("Lol\\CoreBundle\\Controller\\FeedbackController::feedbackAction", feedback.getController());
+        assertEquals("/en/feedback/", feedback.getPath());
+    }
+
+    @Test
+    public void testUnknownContentIsNotParsed() {
+        assertNull(UrlGeneratorRouteParser.parse("<?php\n\nreturn $foo;\n"));
+        assertNull(UrlGeneratorRouteParser.parse("<?php\n\nreturn ['foo' => [['id'], foo()]];\n"));
+        assertNull(UrlGeneratorRouteParser.parse("<?php\n\nreturn ['foo' => [['id']]\n"));
+        assertNull(UrlGeneratorRouteParser.parse("<?php\n\nclass Foo {}\n"));
+        assertNull(UrlGeneratorRouteParser.parse("foo"));
+    }
+
+    /**
+     * Generated route files of 10k+ routes in both formats
+     */
+    @Test
+    public void testParseGeneratedRouteFiles() {
+        int size = 12000;
+
+        StringBuilder returnArray = new StringBuilder("<?php\n\n// This file has been auto-generated by the Symfony Routing Component.\n\nreturn [\n");
+        StringBuilder declaredRoutes = new StringBuilder("<?php\n\nclass appProdUrlGenerator extends Symfony\\Component\\Routing\\Generator\\UrlGenerator\n{\n    static private $declaredRoutes = array(\n");
+
+        for (int i = 0; i < size; i++) {
+            returnArray.append(String.format(
+                "    'route_%1$d' => [['id', '_format'], ['_controller' => 'App\\\\Controller\\\\Foo%1$dController::showAction', '_format' => 'html'], ['id' => '\\\\d+'], [['variable', '.', '[^/]++', '_format', true], ['variable', '/', '\\\\d+', 'id', true], ['text', '/section_%2$d/foo_%1$d']], [], [], []],\n",
+                i, i / 100
+            ));
+
+            declaredRoutes.append(String.format(
+                "        'route_%1$d' => array (  0 =>   array (    0 => 'id',  ),  1 =>   array (    '_controller' => 'App\\\\Controller\\\\Foo%1$dController::showAction',  ),  2 =>   array (    'id' => '\\\\d+',  ),  3 =>   array (    0 =>     array (      0 => 'variable',      1 => '/',      2 => '\\\\d+',      3 => 'id',    ),    1 =>     array (      0 => 'text',      1 => '/section_%2$d/foo_%1$d',    ),  ),  4 =>   array (  ),),\n",
+                i, i / 100
+            ));
+        }
+
+        returnArray.append("];\n");
+        declaredRoutes.append("    );\n}\n");
+
+        Map<String, Route> routes = UrlGeneratorRouteParser.parse(returnArray);
+
+        assertNotNull(routes);
+        assertEquals(size, routes.size());
+        assertEquals("/section_42/foo_4242/{id}.{_format}", routes.get("route_4242").getPath());
+        assertEquals("App\\Controller\\Foo4242Controller::showAction", routes.get("route_4242").getController());
+
+        routes = UrlGeneratorRouteParser.parse(declaredRoutes);
+
+        assertNotNull(routes);
+        assertEquals(size, routes.size());
+        assertEquals("/section_42/foo_4242/{id}", routes.get("route_4242").getPath());
+    }
+}
@@ -0,0 +1,65 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.routing.dict;
+
+import fr.adrienbrault.idea.symfony2plugin.routing.dict.LayeredMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.routing.dict.LayeredMap
+ */
+public class LayeredMapTest extends Assert {
+
+    @Test
+    public void testLaterLayersHideKeysOfLayersBefore() {
+        Map<String, String> compiled = new HashMap<>();
+        compiled.put("foo", "compiled_foo");
+        compiled.put("bar", "compiled_bar");
+
+        Map<String, String> loader = new HashMap<>();
+        loader.put("foo", "loader_foo");
+        loader.put("car", "loader_car");
+
+        Map<String, String> map = LayeredMap.create(Arrays.asList(compiled, loader));
+
+        assertEquals("loader_foo", map.get("foo"));
+        assertEquals("compiled_bar", map.get("bar"));
+        assertEquals("loader_car", map.get("car"));
+        assertNull(map.get("unknown"));
+
+        assertTrue(map.containsKey("bar"));
+        assertFalse(map.containsKey("unknown"));
+
+        assertEquals(3, map.size());
+        assertFalse(map.isEmpty());
+
+        Map<String, String> expected = new HashMap<>(compiled);
+        expected.putAll(loader);
+
+        assertEquals(expected, map);
+        assertEquals(expected, new HashMap<>(map));
+        assertEquals(new HashSet<>(expected.values()), new HashSet<>(map.values()));
+    }
+
+    @Test
+    public void testEmptyLayersAreDropped() {
+        Map<String, String> compiled = Collections.singletonMap("foo", "compiled_foo");
+
+        Map<String, String> map = LayeredMap.create(Arrays.asList(compiled, Collections.emptyMap()));
+        assertFalse(map instanceof LayeredMap);
+        assertEquals(compiled, map);
+
+        assertTrue(LayeredMap.<String, String>create(Collections.singletonList(Collections.emptyMap())).isEmpty());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testViewIsReadOnly() {
+        Map<String, String> map = LayeredMap.create(Arrays.asList(
+            Collections.singletonMap("foo", "compiled_foo"),
+            Collections.singletonMap("bar", "loader_bar")
+        ));
+
+        map.put("car", "car");
+    }
+}
@@ -0,0 +1,88 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.routing.dict;
+
+import fr.adrienbrault.idea.symfony2plugin.routing.dict.RouteNameTable;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.routing.dict.RouteNameTable
+ */
+public class RouteNameTableTest extends Assert {
+
+    @Test
+    public void testValuesAreSortedByNameAndReplacedPerFile() {
+        RouteNameTable<String, String> table = new RouteNameTable<>();
+        table.put("routes.yml", "app_user_edit", "yml:app_user_edit");
+        table.put("routes.yml", "app_blog", "yml:app_blog");
+        table.put("routes.xml", "app_user_edit", "xml:app_user_edit");
+        table.put("Controller.php", "admin_index", "php:admin_index");
+
+        assertEquals(Arrays.asList("php:admin_index", "yml:app_blog", "yml:app_user_edit", "xml:app_user_edit"), table.getValues());
+        assertEquals(Arrays.asList("yml:app_user_edit", "xml:app_user_edit"), table.get("app_user_edit"));
+        assertEquals(3, table.size());
+
+        table.remove("routes.yml");
+        table.put("routes.yml", "app_blog_show", "yml:app_blog_show");
+
+        assertEquals(Arrays.asList("php:admin_index", "yml:app_blog_show", "xml:app_user_edit"), table.getValues());
+        assertTrue(table.get("app_blog").isEmpty());
+
+        RouteNameTable<String, String> snapshot = table.snapshot();
+        table.remove("routes.xml");
+        table.put("routes.yml", "admin_index", "yml:admin_index");
+        assertEquals(Arrays.asList("php:admin_index", "yml:app_blog_show", "xml:app_user_edit"), snapshot.getValues());
+        assertEquals(Arrays.asList("php:admin_index", "yml:admin_index"), table.get("admin_index"));
+        assertEquals(Collections.singletonList("php:admin_index"), snapshot.get("admin_index"));
+
+        try {
+            snapshot.remove("Controller.php");
+            fail();
+        } catch (UnsupportedOperationException ignored) {
+        }
+
+        table.remove("unknown.yml");
+        table.clear();
+        assertTrue(table.getValues().isEmpty());
+    }
+
+    @Test
+    public void testPrefixAndFuzzySearch() {
+        RouteNameTable<String, String> table = new RouteNameTable<>();
+        for (String name : Arrays.asList("app_user_edit", "app_user_show", "app_blog", "admin_user", "api_users")) {
+            table.put("routes.yml", name, name);
+        }
+
+        assertEquals(Arrays.asList("app_user_edit", "app_user_show"), table.getValuesWithPrefix("app_user"));
+        assertEquals(Collections.singletonList("app_blog"), table.getValuesWithPrefix("app_b"));
+        assertTrue(table.getValuesWithPrefix("App").isEmpty());
+        assertEquals(5, table.getValuesWithPrefix("").size());
+
+        assertEquals(Arrays.asList("admin_user", "api_users", "app_user_edit", "app_user_show"), table.getValuesMatching("USR"));
+        assertEquals(Collections.singletonList("app_user_edit"), table.getValuesMatching("usredit"));
+        assertTrue(table.getValuesMatching("xyz").isEmpty());
+    }
+
+    /**
+     * Searching in 10k+ names by range
+     */
+    @Test
+    public void testSearchInGeneratedRoutes() {
+        RouteNameTable<String, String> table = new RouteNameTable<>();
+        for (int i = 0; i < 12000; i++) {
+            String name = "section_" + (i / 100) + "_route_" + i;
+            table.put("routes_" + (i / 100) + ".yml", name, name);
+        }
+
+        List<String> values = table.getValuesWithPrefix("section_42_");
+        assertEquals(100, values.size());
+        assertEquals("section_42_route_4200", values.get(0));
+
+        table.remove("routes_42.yml");
+        assertTrue(table.getValuesWithPrefix("section_42_").isEmpty());
+        assertEquals(11900, table.size());
+    }
+}
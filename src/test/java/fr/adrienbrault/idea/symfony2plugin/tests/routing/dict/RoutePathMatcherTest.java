@@ -0,0 +1,135 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.routing.dict;
+
+import fr.adrienbrault.idea.symfony2plugin.routing.dict.RoutePathMatcher;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.routing.dict.RoutePathMatcher
+ */
+public class RoutePathMatcherTest extends Assert {
+
+    @Test
+    public void testExactAndPlaceholderMatches() {
+        RoutePathMatcher<String> matcher = new RoutePathMatcher<>();
+        matcher.add("/foo", Collections.emptyMap(), "foo");
+        matcher.add("/foo/{id}", Collections.emptyMap(), "foo_id");
+        matcher.add("/foo/{id}/edit", Collections.emptyMap(), "foo_edit");
+        matcher.add("/foo/{slug}.{_format}", Collections.emptyMap(), "foo_format");
+        matcher.add("/page-{page}", Collections.emptyMap(), "page");
+        matcher.add("/foo/bar", Collections.emptyMap(), "foo_bar");
+
+        assertEquals(Collections.singleton("foo"), new HashSet<>(matcher.match("/foo")));
+        assertEquals(Collections.singleton("foo"), new HashSet<>(matcher.match("/FOO")));
+        assertEquals(Collections.singleton("foo_id"), new HashSet<>(matcher.match("/foo/12")));
+        assertEquals(new HashSet<>(Arrays.asList("foo_id", "foo_bar")), new HashSet<>(matcher.match("/foo/bar")));
+        assertEquals(Collections.singleton("foo_edit"), new HashSet<>(matcher.match("/foo/my-id/edit")));
+        assertEquals(Collections.singleton("foo_format"), new HashSet<>(matcher.match("/foo/bar.json")));
+        assertEquals(Collections.singleton("page"), new HashSet<>(matcher.match("/page-2")));
+
+        // route path itself
+        assertEquals(Collections.singleton("foo_id"), new HashSet<>(matcher.match("/foo/{id}")));
+
+        assertTrue(matcher.match("/foo/12/show").isEmpty());
+        assertTrue(matcher.match("/foo/1/2").isEmpty());
+        assertTrue(matcher.match("/foo/").isEmpty());
+        assertTrue(matcher.match("/unknown").isEmpty());
+    }
+
+    @Test
+    public void testRequirementsAreRespected() {
+        RoutePathMatcher<String> matcher = new RoutePathMatcher<>();
+        matcher.add("/blog/{page}", Collections.singletonMap("page", "\\d+"), "blog_list");
+        matcher.add("/blog/{slug}", Collections.emptyMap(), "blog_show");
+        matcher.add("/invalid/{id}", Collections.singletonMap("id", "(?P<foo>"), "invalid");
+
+        assertEquals(new HashSet<>(Arrays.asList("blog_list", "blog_show")), new HashSet<>(matcher.match("/blog/2")));
+        assertEquals(Collections.singleton("blog_show"), new HashSet<>(matcher.match("/blog/my-post")));
+
+        // not supported syntax is no restriction
+        assertEquals(Collections.singleton("invalid"), new HashSet<>(matcher.match("/invalid/foo")));
+    }
+
+    /**
+     * Same matches as the former per route pattern matching with a generated route set
+     */
+    @Test
+    public void testGeneratedRoutesMatchAsPerRoutePattern() {
+        List<String> routes = createRoutes(5000);
+
+        RoutePathMatcher<String> matcher = new RoutePathMatcher<>();
+        for (String route : routes) {
+            matcher.add(route, Collections.emptyMap(), route);
+        }
+
+        List<String> paths = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            String route = routes.get(random.nextInt(routes.size()));
+            paths.add(route.replaceAll("\\{[\\w-]+}", String.valueOf(random.nextInt(1000))));
+        }
+
+        paths.add("/unknown/path");
+        paths.add("/section_1");
+
+        for (String path : paths) {
+            assertEquals(path, matchPerRoutePattern(routes, path), new HashSet<>(matcher.match(path)));
+        }
+    }
+
+    /**
+     * Sections with nested resources: "/section_1/resource_2/{id}/edit"
+     */
+    private static List<String> createRoutes(int size) {
+        List<String> routes = new ArrayList<>();
+
+        for (int i = 0; routes.size() < size; i++) {
+            String section = "/section_" + (i / 50);
+            String resource = section + "/resource_" + i;
+
+            routes.add(resource);
+            routes.add(resource + "/{id}");
+            routes.add(resource + "/{id}/edit");
+            routes.add(resource + "/{id}.{_format}");
+            routes.add(section + "/{slug}/resource_" + i);
+            routes.add(resource + "/page-{page}");
+        }
+
+        return routes;
+    }
+
+    private static Set<String> matchPerRoutePattern(List<String> routes, String path) {
+        Set<String> targets = new HashSet<>();
+
+        Pattern placeholderMatcher = Pattern.compile("\\{[\\w-]+}");
+        for (String routePath : routes) {
+            if (path.equalsIgnoreCase(routePath)) {
+                targets.add(routePath);
+            }
+
+            Matcher matcher = placeholderMatcher.matcher(routePath);
+
+            StringBuilder quoteWrapped = new StringBuilder();
+            int lastRegMatch = 0;
+            while (matcher.find()) {
+                quoteWrapped.append(Pattern.quote(routePath.substring(lastRegMatch, matcher.start()))).append("[\\w-]+");
+                lastRegMatch = matcher.end();
+            }
+
+            String substring = routePath.substring(lastRegMatch);
+            if (!substring.isEmpty()) {
+                quoteWrapped.append(Pattern.quote(substring));
+            }
+
+            if (Pattern.matches(quoteWrapped.toString(), path)) {
+                targets.add(routePath);
+            }
+        }
+
+        return targets;
+    }
+}
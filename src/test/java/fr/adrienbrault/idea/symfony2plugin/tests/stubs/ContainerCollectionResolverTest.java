@@ -1,5 +1,9 @@
 package fr.adrienbrault.idea.symfony2plugin.tests.stubs;
 
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
 import fr.adrienbrault.idea.symfony2plugin.dic.ContainerParameter;
 import fr.adrienbrault.idea.symfony2plugin.dic.ContainerService;
 import fr.adrienbrault.idea.symfony2plugin.stubs.ContainerCollectionResolver;
@@ -74,6 +78,20 @@ public class ContainerCollectionResolverTest extends SymfonyLightCodeInsightFixt
         assertTrue(ContainerCollectionResolver.getParameterNames(getProject()).contains("bar"));
     }
 
+    public void testThatExistenceIsCheckedForServicesAndParameters() {
+        ContainerCollectionResolver.LazyServiceCollector collector = new ContainerCollectionResolver.LazyServiceCollector(getProject());
+
+        assertTrue(ContainerCollectionResolver.hasServiceName(collector, "foo_upper"));
+        assertTrue(ContainerCollectionResolver.hasServiceName(collector, "FOO_UPPER"));
+        assertFalse(ContainerCollectionResolver.hasServiceName(collector, "foo_unknown"));
+        assertFalse(ContainerCollectionResolver.hasServiceName(collector, "foo_unknown"));
+
+        assertTrue(ContainerCollectionResolver.hasParameterName(collector, "bar"));
+        assertTrue(ContainerCollectionResolver.hasParameterName(collector, "container.builder.parameter"));
+        assertTrue(ContainerCollectionResolver.hasParameterName(collector, "kernel.foobar"));
+        assertFalse(ContainerCollectionResolver.hasParameterName(collector, "bar_unknown"));
+    }
+
     public void testThatLeadingSlashIsStripped() {
         assertEquals("DateTime", ContainerCollectionResolver.getService(getProject(), "foo_slash").getClassName());
     }
@@ -88,6 +106,16 @@ public class ContainerCollectionResolverTest extends SymfonyLightCodeInsightFixt
         assertTrue(classNames.contains("foo"));
     }
 
+    public void testThatClassNameIsConvertedToServicesCaseInsensitive() {
+        ContainerCollectionResolver.ServiceCollector serviceCollector = ContainerCollectionResolver.ServiceCollector.create(getProject());
+
+        assertContainsElements(serviceCollector.convertClassNameToServices("DateTime"), "foo", "foo_slash", "foo_datetime");
+        assertContainsElements(serviceCollector.convertClassNameToServices("\\datetime"), "foo", "foo_slash", "foo_datetime");
+        assertContainsElements(serviceCollector.convertClassNameToServices("DateTimeInterface"), "foo_datetime");
+        assertContainsElements(serviceCollector.convertClassNameToServices("foo"), "foo_datetime");
+        assertEmpty(serviceCollector.convertClassNameToServices("UnknownClass"));
+    }
+
     public void testThatAliasedServiceIsEqualWithMainService() {
 
         myFixture.configureByText(YAMLFileType.YML, "" +
@@ -132,4 +160,75 @@ public class ContainerCollectionResolverTest extends SymfonyLightCodeInsightFixt
     public void testThatGetKernelParametersAreCollected() {
         assertContainsElements(ContainerCollectionResolver.getParameters(getProject()).keySet(), "kernel.foobar");
     }
+
+    public void testThatChangedServiceFileIsAppliedToAliasesAndDecorations() {
+        PsiFile psiFile = myFixture.configureByText("incremental.yml", "" +
+            "services:\n" +
+            "    foo_incremental:\n" +
+            "        class: DateTime\n"
+        );
+
+        myFixture.configureByText("incremental_alias.yml", "" +
+            "services:\n" +
+            "    foo_incremental_alias:\n" +
+            "        alias: foo_incremental\n" +
+            "    foo_incremental_decorator:\n" +
+            "        decorates: foo_incremental\n"
+        );
+
+        assertEquals("DateTime", ContainerCollectionResolver.getService(getProject(), "foo_incremental_alias").getClassName());
+        assertEquals("DateTime", ContainerCollectionResolver.getService(getProject(), "foo_incremental_decorator.inner").getClassName());
+
+        Document document = PsiDocumentManager.getInstance(getProject()).getDocument(psiFile);
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+            document.setText("" +
+                "services:\n" +
+                "    foo_incremental:\n" +
+                "        class: DateTimeInterface\n" +
+                "    foo_incremental_new:\n" +
+                "        class: DateTime\n"
+            );
+            PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+        });
+
+        assertEquals("DateTimeInterface", ContainerCollectionResolver.getService(getProject(), "foo_incremental").getClassName());
+        assertEquals("DateTimeInterface", ContainerCollectionResolver.getService(getProject(), "foo_incremental_alias").getClassName());
+        assertEquals("DateTimeInterface", ContainerCollectionResolver.getService(getProject(), "foo_incremental_decorator.inner").getClassName());
+        assertNotNull(ContainerCollectionResolver.getService(getProject(), "foo_incremental_new"));
+
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+            document.setText("services: ~\n");
+            PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+        });
+
+        assertNull(ContainerCollectionResolver.getService(getProject(), "foo_incremental"));
+        assertNull(ContainerCollectionResolver.getService(getProject(), "foo_incremental_new"));
+        assertNull(ContainerCollectionResolver.getService(getProject(), "foo_incremental_decorator.inner"));
+    }
+
+    public void testThatChangedServiceFileKeepsOrderOfDuplicateDefinitions() {
+        PsiFile first = myFixture.configureByText("order_first.yml", "" +
+            "services:\n" +
+            "    foo_order:\n" +
+            "        class: DateTime\n"
+        );
+
+        PsiFile second = myFixture.configureByText("order_second.yml", "" +
+            "services:\n" +
+            "    foo_order:\n" +
+            "        class: DateTimeInterface\n"
+        );
+
+        String className = ContainerCollectionResolver.getService(getProject(), "foo_order").getClassName();
+        PsiFile psiFile = "DateTime".equals(className) ? first : second;
+
+        Document document = PsiDocumentManager.getInstance(getProject()).getDocument(psiFile);
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+            document.setText(document.getText() + "    foo_order_new:\n        class: DateTime\n");
+            PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+        });
+
+        assertNotNull(ContainerCollectionResolver.getService(getProject(), "foo_order_new"));
+        assertEquals(className, ContainerCollectionResolver.getService(getProject(), "foo_order").getClassName());
+    }
 }
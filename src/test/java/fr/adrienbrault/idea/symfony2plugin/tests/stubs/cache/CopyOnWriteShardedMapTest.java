@@ -0,0 +1,59 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.stubs.cache;
+
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.CopyOnWriteShardedMap;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.stubs.cache.CopyOnWriteShardedMap
+ */
+public class CopyOnWriteShardedMapTest extends Assert {
+
+    @Test
+    public void testPutAndRemove() {
+        CopyOnWriteShardedMap<String, String> map = new CopyOnWriteShardedMap<>();
+        map.put("foo", "a");
+        map.put("bar", "b");
+        map.put("foo", "c");
+
+        assertEquals("c", map.get("foo"));
+        assertEquals("b", map.remove("bar"));
+        assertNull(map.remove("bar"));
+        assertNull(map.get("bar"));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void testSnapshotIsNotChangedByLaterChanges() {
+        CopyOnWriteShardedMap<String, Integer> map = new CopyOnWriteShardedMap<>();
+        Map<String, Integer> expected = new HashMap<>();
+
+        for (int i = 0; i < 1000; i++) {
+            map.put("foo" + i, i);
+            expected.put("foo" + i, i);
+        }
+
+        Map<String, Integer> snapshot = map.snapshot();
+
+        map.put("foo1", -1);
+        map.remove("foo2");
+        map.put("bar", 1);
+
+        assertEquals(expected, snapshot);
+        assertEquals(1000, snapshot.size());
+        assertEquals(Integer.valueOf(1), snapshot.get("foo1"));
+
+        expected.put("foo1", -1);
+        expected.remove("foo2");
+        expected.put("bar", 1);
+
+        assertEquals(expected, map.snapshot());
+
+        map.clear();
+        assertEquals(1000, snapshot.size());
+        assertTrue(map.snapshot().isEmpty());
+    }
+}
@@ -0,0 +1,53 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.stubs.cache;
+
+import com.intellij.openapi.application.ApplicationManager;
+import com.intellij.openapi.application.ReadAction;
+import com.intellij.openapi.util.Key;
+import com.intellij.psi.util.CachedValue;
+import fr.adrienbrault.idea.symfony2plugin.stubs.ContainerCollectionResolver;
+import fr.adrienbrault.idea.symfony2plugin.stubs.cache.FileIndexCaches;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.ServicesDefinitionStubIndex;
+import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.stubs.cache.FileIndexCaches
+ */
+public class FileIndexCachesTest extends SymfonyLightCodeInsightFixtureTestCase {
+    private static final Key<CachedValue<Set<String>>> TEST_NAMES = new Key<>("SYMFONY_TEST_FILE_INDEX_CACHES_NAMES");
+
+    public void testIndexKeysSnapshotIsReusedUntilIndexChanges() {
+        myFixture.configureByText("services.yml", "services:\n    foo_snapshot: ~\n");
+
+        Set<String> names = FileIndexCaches.getIndexKeysCache(getProject(), TEST_NAMES, ServicesDefinitionStubIndex.KEY);
+        assertContainsElements(names, "foo_snapshot");
+        assertSame(names, FileIndexCaches.getIndexKeysCache(getProject(), TEST_NAMES, ServicesDefinitionStubIndex.KEY));
+
+        myFixture.configureByText("services2.yml", "services:\n    bar_snapshot: ~\n");
+
+        assertContainsElements(
+            FileIndexCaches.getIndexKeysCache(getProject(), TEST_NAMES, ServicesDefinitionStubIndex.KEY),
+            "foo_snapshot", "bar_snapshot"
+        );
+    }
+
+    public void testConcurrentServiceCollectorReaders() throws Exception {
+        myFixture.configureByText("services.yml", "services:\n    foo_concurrent:\n        class: Foo\\Bar\n");
+
+        Collection<Future<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            futures.add(ApplicationManager.getApplication().executeOnPooledThread(() ->
+                ReadAction.compute(() -> ContainerCollectionResolver.getServices(getProject()).containsKey("foo_concurrent"))
+            ));
+        }
+
+        for (Future<Boolean> future : futures) {
+            assertTrue(future.get(30, TimeUnit.SECONDS));
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.stubs.indexes.externalizer;
+
+import com.intellij.util.io.DataExternalizer;
+import fr.adrienbrault.idea.symfony2plugin.dic.container.SerializableService;
+import fr.adrienbrault.idea.symfony2plugin.dic.container.ServiceSerializable;
+import fr.adrienbrault.idea.symfony2plugin.dic.container.dict.ContainerBuilderCall;
+import fr.adrienbrault.idea.symfony2plugin.doctrine.dict.DoctrineModel;
+import fr.adrienbrault.idea.symfony2plugin.doctrine.dict.DoctrineModelSerializable;
+import fr.adrienbrault.idea.symfony2plugin.stubs.dict.*;
+import fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.*;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.TreeMap;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.stubs.indexes.externalizer.DataExternalizerUtil
+ */
+public class DataExternalizerTest extends Assert {
+
+    @Test
+    public void testServiceRoundTripKeepsUndefinedFlags() throws IOException {
+        SerializableService service = new SerializableService("foo.bar")
+            .setClassName("Foo\\Bar")
+            .setIsPublic(false)
+            .setIsAutowire(true)
+            .setDecorates("foo")
+            .setTags(new HashSet<>(Arrays.asList("kernel.event_subscriber", "twig.extension")))
+            .setResource(new HashSet<>(Arrays.asList("../src/*")));
+
+        ServiceSerializable read = roundTrip(ServiceSerializableDataExternalizer.INSTANCE, service);
+
+        assertEquals(service, read);
+        assertNull(((SerializableService) read).getLazyDefinition());
+        assertFalse(read.isPublic());
+        assertTrue(read.isAutowire());
+    }
+
+    @Test
+    public void testRouteRoundTrip() throws IOException {
+        StubIndexedRoute route = new StubIndexedRoute("foo_route");
+        route.setPath("/foo/{id}");
+        route.setController("Foo\\Controller::index");
+        route.addMethod(new String[] {"get", "post"});
+
+        assertEquals(route, roundTrip(StubIndexedRouteDataExternalizer.INSTANCE, route));
+
+        StubIndexedRoute nullable = new StubIndexedRoute("foo_route");
+        assertEquals(nullable, roundTrip(StubIndexedRouteDataExternalizer.INSTANCE, nullable));
+    }
+
+    @Test
+    public void testTemplateRoundTrip() throws IOException {
+        TemplateUsage usage = new TemplateUsage("foo.html.twig", new HashSet<>(Arrays.asList("Foo::bar", "Foo::__invoke")));
+        assertEquals(usage, roundTrip(TemplateUsageDataExternalizer.INSTANCE, usage));
+
+        TemplateInclude include = new TemplateInclude("foo.html.twig", fr.adrienbrault.idea.symfony2plugin.templating.dict.TemplateInclude.TYPE.EMBED);
+        assertEquals(include, roundTrip(TemplateIncludeDataExternalizer.INSTANCE, include));
+
+        TwigMacroTagIndex macro = new TwigMacroTagIndex("foo", "(bar, foo)");
+        assertEquals(macro, roundTrip(TwigMacroTagIndexDataExternalizer.INSTANCE, macro));
+    }
+
+    @Test
+    public void testFileResourceRoundTrip() throws IOException {
+        FileResource resource = new FileResource("@FooBundle/Resources/config/routing.yml", FileResourceContextTypeEnum.ROUTE, new TreeMap<>() {{
+            put("prefix", "/foo");
+            put("name_prefix", null);
+        }});
+
+        assertEquals(resource, roundTrip(FileResourceDataExternalizer.INSTANCE, resource));
+
+        FileResource nullable = new FileResource(null, null, null);
+        assertEquals(nullable, roundTrip(FileResourceDataExternalizer.INSTANCE, nullable));
+    }
+
+    @Test
+    public void testMiscRoundTrip() throws IOException {
+        DoctrineModelSerializable model = new DoctrineModel("Foo\\Entity\\Bar", "Foo\\Repository\\BarRepository");
+        assertEquals(model, roundTrip(DoctrineModelDataExternalizer.INSTANCE, model));
+
+        DispatcherEvent event = new DispatcherEvent("Foo\\Event", "Foo\\EventInstance");
+        assertEquals(event, roundTrip(DispatcherEventDataExternalizer.INSTANCE, event));
+
+        ContainerBuilderCall call = new ContainerBuilderCall("set");
+        call.setName("Foo");
+        call.addParameter("foo.parameter");
+
+        ContainerBuilderCall read = roundTrip(ContainerBuilderCallDataExternalizer.INSTANCE, call);
+        assertEquals("set", read.getScope());
+        assertEquals("Foo", read.getName());
+        assertTrue(read.getParameter().contains("foo.parameter"));
+    }
+
+    /**
+     * Compact format must not fall behind Java serialization which writes class descriptors for every value
+     */
+    @Test
+    public void testPayloadIsSmallerThanJavaSerialization() throws IOException {
+        StubIndexedRoute route = new StubIndexedRoute("foo_route");
+        route.setPath("/foo/{id}");
+        route.setController("Foo\\Controller::index");
+        route.addMethod(new String[] {"get"});
+
+        ByteArrayOutputStream javaSerialized = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(javaSerialized)) {
+            output.writeObject(route);
+        }
+
+        assertTrue(write(StubIndexedRouteDataExternalizer.INSTANCE, route).length * 2 < javaSerialized.size());
+    }
+
+    @NotNull
+    private static <T> byte[] write(@NotNull DataExternalizer<T> externalizer, @NotNull T value) throws IOException {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        externalizer.save(new DataOutputStream(stream), value);
+        return stream.toByteArray();
+    }
+
+    private static <T> T roundTrip(@NotNull DataExternalizer<T> externalizer, @NotNull T value) throws IOException {
+        return externalizer.read(new DataInputStream(new ByteArrayInputStream(write(externalizer, value))));
+    }
+}
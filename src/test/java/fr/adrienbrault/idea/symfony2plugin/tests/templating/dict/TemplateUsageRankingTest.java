@@ -0,0 +1,78 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.templating.dict;
+
+import fr.adrienbrault.idea.symfony2plugin.templating.dict.TemplateUsageRanking;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.templating.dict.TemplateUsageRanking
+ */
+public class TemplateUsageRankingTest extends Assert {
+
+    @Test
+    public void testRankingIsOrderedByCountAndName() {
+        TemplateUsageRanking ranking = new TemplateUsageRanking(10);
+        ranking.add("b.html.twig");
+        ranking.add("a.html.twig");
+        ranking.add("c.html.twig");
+        ranking.add("c.html.twig");
+
+        assertEquals(Arrays.asList("c.html.twig", "a.html.twig", "b.html.twig"), ranking.getRanking());
+        assertEquals(2, ranking.getCount("c.html.twig"));
+        assertEquals(0, ranking.getCount("unknown.html.twig"));
+    }
+
+    @Test
+    public void testRankingIsLimited() {
+        TemplateUsageRanking ranking = new TemplateUsageRanking(2);
+        for (int i = 0; i < 100; i++) {
+            ranking.add("template_" + i + ".html.twig");
+        }
+
+        ranking.add("template_50.html.twig");
+        ranking.add("template_50.html.twig");
+        ranking.add("template_20.html.twig");
+
+        assertEquals(Arrays.asList("template_50.html.twig", "template_20.html.twig"), ranking.getRanking());
+    }
+
+    @Test
+    public void testRankingIsUpdatedForRemovedUsages() {
+        TemplateUsageRanking ranking = new TemplateUsageRanking(10);
+        ranking.add("a.html.twig");
+        ranking.add("b.html.twig");
+        ranking.add("b.html.twig");
+
+        assertEquals(Arrays.asList("b.html.twig", "a.html.twig"), ranking.getRanking());
+
+        ranking.remove("b.html.twig");
+        ranking.remove("b.html.twig");
+        ranking.remove("unknown.html.twig");
+
+        assertEquals(Collections.singletonList("a.html.twig"), ranking.getRanking());
+        assertEquals(0, ranking.getCount("b.html.twig"));
+
+        ranking.clear();
+        assertTrue(ranking.getRanking().isEmpty());
+    }
+
+    @Test
+    public void testSnapshotIsReusedAndNotChangedByLaterUsages() {
+        TemplateUsageRanking ranking = new TemplateUsageRanking(10);
+        ranking.add("a.html.twig");
+
+        TemplateUsageRanking.Snapshot snapshot = ranking.snapshot();
+        assertSame(snapshot, ranking.snapshot());
+
+        ranking.add("b.html.twig");
+        ranking.add("b.html.twig");
+        ranking.remove("a.html.twig");
+
+        assertNotSame(snapshot, ranking.snapshot());
+        assertEquals(Collections.singletonList("a.html.twig"), snapshot.getRanking());
+        assertEquals(Collections.singletonList("b.html.twig"), ranking.snapshot().getRanking());
+    }
+}
@@ -0,0 +1,100 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.templating.path.dict;
+
+import fr.adrienbrault.idea.symfony2plugin.templating.path.dict.TemplateNameTrie;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.*;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.templating.path.dict.TemplateNameTrie
+ */
+public class TemplateNameTrieTest extends Assert {
+
+    @Test
+    public void testExactLookupOfSharedPrefixes() {
+        TemplateNameTrie<String> trie = new TemplateNameTrie<>();
+        trie.put("@Foo/foo.html.twig", "a");
+        trie.put("@Foo/foo.xml.twig", "b");
+        trie.put("@Foo/foo.html.twig", "c");
+        trie.put("@Foo", "d");
+
+        assertEquals(new HashSet<>(Arrays.asList("a", "c")), trie.get("@Foo/foo.html.twig"));
+        assertEquals(Collections.singleton("b"), trie.get("@Foo/foo.xml.twig"));
+        assertEquals(Collections.singleton("d"), trie.get("@Foo"));
+        assertTrue(trie.get("@Foo/foo.").isEmpty());
+        assertTrue(trie.get("@Foo/foo.html.twig.twig").isEmpty());
+        assertEquals(3, trie.size());
+    }
+
+    @Test
+    public void testPrefixIsVisitedInLexicalOrder() {
+        TemplateNameTrie<String> trie = new TemplateNameTrie<>();
+        trie.put("@Foo/b.html.twig", "b");
+        trie.put("@Foo/a.html.twig", "a");
+        trie.put("@Bar/a.html.twig", "c");
+        trie.put("FooBundle:Bar:a.html.twig", "d");
+
+        assertEquals(Arrays.asList("@Foo/a.html.twig", "@Foo/b.html.twig"), collect(trie, "@Foo/"));
+        assertEquals(Arrays.asList("@Foo/a.html.twig", "@Foo/b.html.twig"), collect(trie, "@Fo"));
+        assertEquals(Arrays.asList("@Bar/a.html.twig", "@Foo/a.html.twig", "@Foo/b.html.twig", "FooBundle:Bar:a.html.twig"), collect(trie, ""));
+        assertTrue(collect(trie, "@Foo/c").isEmpty());
+        assertTrue(collect(trie, "@Foo/a.html.twig.twig").isEmpty());
+    }
+
+    @Test
+    public void testRemoveKeepsOtherNames() {
+        TemplateNameTrie<String> trie = new TemplateNameTrie<>();
+        trie.put("@Foo/foo.html.twig", "a");
+        trie.put("@Foo/foo.xml.twig", "b");
+        trie.put("@Foo/foo.html.twig", "c");
+
+        assertFalse(trie.remove("@Foo/foo.html.twig", "x"));
+        assertFalse(trie.remove("@Foo/foo", "a"));
+
+        assertTrue(trie.remove("@Foo/foo.html.twig", "a"));
+        assertEquals(Collections.singleton("c"), trie.get("@Foo/foo.html.twig"));
+
+        assertTrue(trie.remove("@Foo/foo.html.twig", "c"));
+        assertTrue(trie.get("@Foo/foo.html.twig").isEmpty());
+        assertEquals(Collections.singleton("b"), trie.get("@Foo/foo.xml.twig"));
+        assertEquals(Collections.singletonList("@Foo/foo.xml.twig"), collect(trie, "@Foo/foo."));
+        assertEquals(1, trie.size());
+
+        assertTrue(trie.remove("@Foo/foo.xml.twig", "b"));
+        assertTrue(collect(trie, "").isEmpty());
+        assertEquals(0, trie.size());
+    }
+
+    @Test
+    public void testSnapshotIsNotChangedByLaterChanges() {
+        TemplateNameTrie<String> trie = new TemplateNameTrie<>();
+        trie.put("@Foo/foo.html.twig", "a");
+        trie.put("@Foo/foo.xml.twig", "b");
+
+        TemplateNameTrie<String> snapshot = trie.snapshot();
+
+        trie.put("@Foo/foo.html.twig", "c");
+        trie.put("@Foo/f.html.twig", "d");
+        trie.remove("@Foo/foo.xml.twig", "b");
+
+        assertEquals(Collections.singleton("a"), snapshot.get("@Foo/foo.html.twig"));
+        assertEquals(Collections.singleton("b"), snapshot.get("@Foo/foo.xml.twig"));
+        assertEquals(Arrays.asList("@Foo/foo.html.twig", "@Foo/foo.xml.twig"), collect(snapshot, ""));
+        assertEquals(2, snapshot.size());
+
+        assertEquals(new HashSet<>(Arrays.asList("a", "c")), trie.get("@Foo/foo.html.twig"));
+        assertEquals(Arrays.asList("@Foo/f.html.twig", "@Foo/foo.html.twig"), collect(trie, ""));
+        assertEquals(2, trie.size());
+
+        // a changed snapshot does not change its origin either
+        snapshot.remove("@Foo/foo.html.twig", "a");
+        assertEquals(new HashSet<>(Arrays.asList("a", "c")), trie.get("@Foo/foo.html.twig"));
+    }
+
+    private static List<String> collect(TemplateNameTrie<String> trie, String prefix) {
+        List<String> names = new ArrayList<>();
+        trie.processPrefix(prefix, (name, values) -> names.add(name));
+        return names;
+    }
+}
@@ -1,5 +1,9 @@
 package fr.adrienbrault.idea.symfony2plugin.tests.templating.util;
 
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.psi.PsiDocumentManager;
+import com.intellij.psi.PsiFile;
 import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigExtensionParser;
 import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
 
@@ -125,4 +129,26 @@ public class TwigExtensionParserTest extends SymfonyLightCodeInsightFixtureTestC
             TwigExtensionParser.getSimpleTest(getProject()).get("iterable_3").getSignature()
         );
     }
+
+    public void testExtensionsAreUpdatedForChangedExtensionClass() {
+        PsiFile psiFile = myFixture.configureByText("my_extension.php", "<?php\n" +
+            "class MyExtension implements \\Twig_ExtensionInterface {\n" +
+            "    public function getFilters() { return [new \\Twig\\TwigFilter('my_filter', 'foo')]; }\n" +
+            "    public function getFunctions() { return [new \\Twig\\TwigFunction('my_function', 'foo')]; }\n" +
+            "}"
+        );
+
+        assertContainsElements(TwigExtensionParser.getFilters(getProject()).keySet(), "my_filter", "trans");
+        assertContainsElements(TwigExtensionParser.getFunctions(getProject()).keySet(), "my_function", "max");
+
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+            Document document = PsiDocumentManager.getInstance(getProject()).getDocument(psiFile);
+            document.setText(document.getText().replace("my_filter", "my_filter_changed"));
+            PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+        });
+
+        assertContainsElements(TwigExtensionParser.getFilters(getProject()).keySet(), "my_filter_changed", "trans");
+        assertDoesntContain(TwigExtensionParser.getFilters(getProject()).keySet(), "my_filter");
+        assertContainsElements(TwigExtensionParser.getFunctions(getProject()).keySet(), "my_function", "max");
+    }
 }
@@ -1,19 +1,28 @@
 package fr.adrienbrault.idea.symfony2plugin.tests.templating.util;
 
+import com.intellij.openapi.command.WriteCommandAction;
+import com.intellij.openapi.editor.Document;
+import com.intellij.psi.PsiDocumentManager;
 import com.intellij.psi.PsiElement;
 import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiFileFactory;
 import com.jetbrains.php.lang.psi.PhpPsiElementFactory;
 import com.jetbrains.php.lang.psi.elements.Method;
+import com.jetbrains.php.lang.psi.elements.PhpClass;
 import com.jetbrains.twig.TwigFile;
 import com.jetbrains.twig.TwigFileType;
 import com.jetbrains.twig.TwigLanguage;
 import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigTypeResolveUtil;
+import fr.adrienbrault.idea.symfony2plugin.templating.variable.TwigTypeContainer;
 import fr.adrienbrault.idea.symfony2plugin.templating.variable.dict.PsiVariable;
 import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyLightCodeInsightFixtureTestCase;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * @author Daniel Espendiller <daniel@espendiller.net>
@@ -84,6 +93,79 @@ public class TwigTypeResolveUtilTest extends SymfonyLightCodeInsightFixtureTestC
         assertContainsElements(stringPsiVariableMap.get("b").getTypes(), "\\Foo\\Bar");
     }
 
+    /**
+     * @see TwigTypeResolveUtil#collectScopeVariables
+     */
+    public void testCollectScopeVariablesOfCachedCollectorsAreUpdatedForFileChanges() {
+        myFixture.configureByText(TwigFileType.INSTANCE,
+            "{# @var a \\Foo\\Bar #}\n" +
+                "{% macro foo(bar) %}{{ <caret> }}{% endmacro %}\n" +
+                "{{ car }}"
+        );
+
+        PsiElement macroElement = myFixture.getFile().findElementAt(myFixture.getCaretOffset());
+        PsiElement fileElement = myFixture.getFile().findElementAt(myFixture.getFile().getText().indexOf("car"));
+
+        assertContainsElements(TwigTypeResolveUtil.collectScopeVariables(fileElement).get("a").getTypes(), "\\Foo\\Bar");
+        assertFalse(TwigTypeResolveUtil.collectScopeVariables(fileElement).containsKey("bar"));
+
+        // position dependent collectors are never cached for the file
+        assertTrue(TwigTypeResolveUtil.collectScopeVariables(macroElement).containsKey("bar"));
+
+        WriteCommandAction.runWriteCommandAction(getProject(), () -> {
+            Document document = myFixture.getEditor().getDocument();
+            document.insertString(0, "{# @var b \\Foo\\Car #}\n");
+            PsiDocumentManager.getInstance(getProject()).commitDocument(document);
+        });
+
+        fileElement = myFixture.getFile().findElementAt(myFixture.getFile().getText().indexOf("car"));
+
+        Map<String, PsiVariable> variables = TwigTypeResolveUtil.collectScopeVariables(fileElement);
+        assertContainsElements(variables.get("a").getTypes(), "\\Foo\\Bar");
+        assertContainsElements(variables.get("b").getTypes(), "\\Foo\\Car");
+    }
+
+    /**
+     * @see TwigTypeResolveUtil#resolveTwigMethodName
+     */
+    public void testResolveTwigMethodNameForPathPrefixesAndScopes() {
+        myFixture.configureByText("classes.php", "<?php\n" +
+            "namespace Foo;\n" +
+            "class Bar { /** @return Car */ public function getCar() {} }\n" +
+            "class Car { /** @return Bar */ public function getBar() {} }\n"
+        );
+
+        myFixture.configureByText(TwigFileType.INSTANCE,
+            "{# @var bar \\Foo\\Bar #}\n" +
+                "{{ bar.car }}\n" +
+                "{% for item in items %}\n" +
+                "    {# @var bar \\Foo\\Car #}\n" +
+                "    {{ bar.<caret> }}\n" +
+                "{% endfor %}"
+        );
+
+        PsiElement forElement = myFixture.getFile().findElementAt(myFixture.getCaretOffset());
+        PsiElement fileElement = myFixture.getFile().findElementAt(myFixture.getFile().getText().indexOf("bar.car"));
+
+        // prefix of the path is resolved before the full path
+        assertContainsElements(getClassNames(TwigTypeResolveUtil.resolveTwigMethodName(fileElement, Collections.singletonList("bar"))), "\\Foo\\Bar");
+        assertContainsElements(getClassNames(TwigTypeResolveUtil.resolveTwigMethodName(fileElement, Arrays.asList("bar", "car"))), "\\Foo\\Car");
+        assertContainsElements(getClassNames(TwigTypeResolveUtil.resolveTwigMethodName(fileElement, Arrays.asList("bar", "car", "bar"))), "\\Foo\\Bar");
+        assertEmpty(TwigTypeResolveUtil.resolveTwigMethodName(fileElement, Arrays.asList("bar", "unknown", "bar")));
+
+        // "for" scope has its own variables
+        assertDoesntContain(getClassNames(TwigTypeResolveUtil.resolveTwigMethodName(fileElement, Collections.singletonList("bar"))), "\\Foo\\Car");
+        assertContainsElements(getClassNames(TwigTypeResolveUtil.resolveTwigMethodName(forElement, Collections.singletonList("bar"))), "\\Foo\\Car");
+    }
+
+    @NotNull
+    private static Collection<String> getClassNames(@NotNull Collection<TwigTypeContainer> twigTypeContainers) {
+        return twigTypeContainers.stream()
+            .filter(twigTypeContainer -> twigTypeContainer.getPhpNamedElement() instanceof PhpClass)
+            .map(twigTypeContainer -> ((PhpClass) twigTypeContainer.getPhpNamedElement()).getFQN())
+            .collect(Collectors.toList());
+    }
+
     private void assertMatches(@NotNull String content, @NotNull String... regularExpressions) {
         for (String regularExpression : regularExpressions) {
             if(content.matches(regularExpression)) {
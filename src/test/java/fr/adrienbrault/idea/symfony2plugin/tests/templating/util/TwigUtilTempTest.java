@@ -1,5 +1,6 @@
 package fr.adrienbrault.idea.symfony2plugin.tests.templating.util;
 
+import com.intellij.openapi.application.ApplicationManager;
 import com.intellij.openapi.util.Pair;
 import com.intellij.openapi.vfs.VirtualFile;
 import com.intellij.psi.PsiDirectory;
@@ -7,12 +8,15 @@ import com.intellij.psi.PsiFile;
 import com.intellij.psi.PsiManager;
 import fr.adrienbrault.idea.symfony2plugin.Settings;
 import fr.adrienbrault.idea.symfony2plugin.templating.path.TwigNamespaceSetting;
+import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigTemplateGraph;
 import fr.adrienbrault.idea.symfony2plugin.templating.util.TwigUtil;
 import fr.adrienbrault.idea.symfony2plugin.tests.SymfonyTempCodeInsightFixtureTestCase;
+import fr.adrienbrault.idea.symfony2plugin.twig.utils.TwigFileUtil;
 import fr.adrienbrault.idea.symfony2plugin.util.yaml.YamlPsiElementFactory;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.yaml.psi.YAMLFile;
 
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -76,6 +80,22 @@ public class TwigUtilTempTest extends SymfonyTempCodeInsightFixtureTestCase {
         );
     }
 
+    /**
+     * @see TwigUtil#getTwigNamespaces
+     */
+    public void testGetTwigNamespacesIsUpdatedForChangedSettings() {
+        VirtualFile file = createFile("res/foo.html.twig");
+
+        assertFalse(TwigUtil.getTwigNamespaces(getProject()).stream().anyMatch(twigPath -> "Foo".equals(twigPath.getNamespace())));
+
+        Settings.getInstance(getProject()).twigNamespaces.add(
+            new TwigNamespaceSetting("Foo", "res", true, TwigUtil.NamespaceType.ADD_PATH, true)
+        );
+
+        assertTrue(TwigUtil.getTwigNamespaces(getProject()).stream().anyMatch(twigPath -> "Foo".equals(twigPath.getNamespace())));
+        assertContainsElements(TwigUtil.getTemplateNamesForFile(getProject(), file), "@Foo/foo.html.twig");
+    }
+
     public void testGetTwigFileNames() {
         createFile("res/foobar/foo.html.twig");
 
@@ -99,6 +119,116 @@ public class TwigUtilTempTest extends SymfonyTempCodeInsightFixtureTestCase {
         );
     }
 
+    /**
+     * @see fr.adrienbrault.idea.symfony2plugin.templating.path.TwigTemplateNameRegistry
+     */
+    public void testGetTemplateFilesIsUpdatedForCreatedAndDeletedFiles() {
+        createFile("res/foo.html.twig");
+
+        Settings.getInstance(getProject()).twigNamespaces.addAll(createTwigNamespaceSettings());
+
+        assertContainsElements(TwigUtil.getTemplateMap(getProject()).keySet(), "@Foo/foo.html.twig");
+        assertDoesntContain(TwigUtil.getTemplateMap(getProject()).keySet(), "@Foo/foobar/bar.html.twig");
+
+        VirtualFile file = createFile("res/foobar/bar.html.twig");
+
+        assertContainsElements(TwigUtil.getTemplateMap(getProject()).keySet(), "@Foo/foobar/bar.html.twig", "FooBundle:foobar:bar.html.twig");
+        assertContainsElements(TwigUtil.getTemplateFiles(getProject(), "@Foo/foobar/bar.html.twig"), file);
+        assertContainsElements(TwigUtil.getTemplateFiles(getProject(), "foobar/bar.html.twig"), file);
+
+        ApplicationManager.getApplication().runWriteAction(() -> {
+            try {
+                file.getParent().delete(this);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        assertDoesntContain(TwigUtil.getTemplateMap(getProject()).keySet(), "@Foo/foobar/bar.html.twig", "FooBundle:foobar:bar.html.twig");
+        assertContainsElements(TwigUtil.getTemplateMap(getProject()).keySet(), "@Foo/foo.html.twig");
+    }
+
+    /**
+     * @see fr.adrienbrault.idea.symfony2plugin.templating.path.TwigTemplateNameRegistry
+     */
+    public void testGetTemplateMapHasNoDepthOrDirectoryLimit() {
+        String deepDirectory = "res/a/b/c/d/e/f/g/h/i/j/k/l";
+        createFile(deepDirectory + "/deep.html.twig");
+
+        for (int i = 0; i < 200; i++) {
+            createFile("res/dir" + i + "/foo.html.twig");
+        }
+
+        Settings.getInstance(getProject()).twigNamespaces.addAll(createTwigNamespaceSettings());
+
+        Set<String> templateNames = TwigUtil.getTemplateMap(getProject()).keySet();
+        assertContainsElements(templateNames, "@Foo/a/b/c/d/e/f/g/h/i/j/k/l/deep.html.twig", "a/b/c/d/e/f/g/h/i/j/k/l/deep.html.twig");
+
+        for (int i = 0; i < 200; i++) {
+            assertContainsElements(templateNames, "@Foo/dir" + i + "/foo.html.twig");
+        }
+    }
+
+    /**
+     * @see TwigUtil#getTemplatesExtendingFile
+     * @see fr.adrienbrault.idea.symfony2plugin.twig.utils.TwigFileUtil#collectParentFiles
+     */
+    public void testTemplateGraphIsTransitiveAndUpdatedForChangedFiles() {
+        VirtualFile base = createFile("res/base.html.twig", "{% block body %}{% endblock %}");
+
+        VirtualFile child = null;
+        for (int i = 1; i <= 10; i++) {
+            String parent = i == 1 ? "base.html.twig" : "child" + (i - 1) + ".html.twig";
+            child = createFile("res/child" + i + ".html.twig", "{% extends '" + parent + "' %}");
+        }
+
+        Settings.getInstance(getProject()).twigNamespaces.addAll(createTwigNamespaceSettings());
+
+        Collection<VirtualFile> extendingFiles = TwigUtil.getTemplatesExtendingFile(getProject(), base);
+        assertEquals(10, extendingFiles.size());
+        assertContainsElements(extendingFiles, child);
+
+        Collection<VirtualFile> parentFiles = TwigFileUtil.collectParentFiles(false, PsiManager.getInstance(getProject()).findFile(child));
+        assertEquals(10, parentFiles.size());
+        assertContainsElements(parentFiles, base);
+
+        VirtualFile include = createFile("res/include.html.twig", "{% include 'base.html.twig' %}");
+        assertContainsElements(TwigTemplateGraph.getInstance(getProject()).getIncludingFiles(Collections.singletonList("base.html.twig")), include);
+
+        createFile("res/child11.html.twig", "{% extends 'child10.html.twig' %}");
+        assertEquals(11, TwigUtil.getTemplatesExtendingFile(getProject(), base).size());
+    }
+
+    /**
+     * @see TwigUtil#getIncludeTemplateUsageAsOrderedList
+     * @see TwigUtil#getEmbedTemplateUsageAsOrderedList
+     * @see TwigUtil#getExtendsTemplateUsageAsOrderedList
+     */
+    public void testTemplateUsageAsOrderedListIsUpdatedForChangedFiles() {
+        createFile("res/a.html.twig", "{% extends 'base.html.twig' %}{% include 'foo.html.twig' %}{% embed 'embed.html.twig' %}{% endembed %}");
+        createFile("res/b.html.twig", "{% extends 'base.html.twig' %}{% include 'foo.html.twig' %}{{ include('bar.html.twig') }}");
+        createFile("res/c.html.twig", "{% extends 'layout.html.twig' %}{{ include('bar.html.twig') }}{% include '@WebProfiler/foo.html.twig' %}");
+        VirtualFile d = createFile("res/d.html.twig", "{{ include('bar.html.twig') }}");
+
+        assertEquals(Arrays.asList("base.html.twig", "layout.html.twig"), TwigUtil.getExtendsTemplateUsageAsOrderedList(getProject()));
+        assertEquals(Arrays.asList("bar.html.twig", "foo.html.twig"), TwigUtil.getIncludeTemplateUsageAsOrderedList(getProject()));
+        assertEquals(Collections.singletonList("embed.html.twig"), TwigUtil.getEmbedTemplateUsageAsOrderedList(getProject()));
+
+        ApplicationManager.getApplication().runWriteAction(() -> {
+            try {
+                d.delete(this);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        createFile("res/e.html.twig", "{% extends 'layout.html.twig' %}");
+        createFile("res/f.html.twig", "{% extends 'layout.html.twig' %}{% include 'foo.html.twig' %}");
+
+        assertEquals(Arrays.asList("layout.html.twig", "base.html.twig"), TwigUtil.getExtendsTemplateUsageAsOrderedList(getProject()));
+        assertEquals(Arrays.asList("foo.html.twig", "bar.html.twig"), TwigUtil.getIncludeTemplateUsageAsOrderedList(getProject()));
+    }
+
     /**
      * @see TwigUtil#getTemplateNavigationOnOffset
      */
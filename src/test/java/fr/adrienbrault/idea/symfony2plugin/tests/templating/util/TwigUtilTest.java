@@ -240,6 +240,30 @@ public class TwigUtilTest extends SymfonyLightCodeInsightFixtureTestCase {
         assertNotNull(ContainerUtil.find(methods, method -> method.getFQN().equals("\\foo")));
     }
 
+    /**
+     * @see fr.adrienbrault.idea.symfony2plugin.templating.util.TwigUtil#getTwigFileMethodUsageOnIndex
+     */
+    public void testGetTwigFileMethodUsageOnIndexIsUpdatedForIndexChanges() {
+        myFixture.copyFileToProject("GetTwigFileMethodUsageOnIndex.php");
+        assertEquals(2, TwigUtil.getTwigFileMethodUsageOnIndex(getProject(), Collections.singletonList("car.html.twig")).size());
+        assertEmpty(TwigUtil.getTwigFileMethodUsageOnIndex(getProject(), Collections.singletonList("bike.html.twig")));
+
+        myFixture.addFileToProject("BikeController.php", "<?php\n" +
+            "class BikeController\n" +
+            "{\n" +
+            "    public function bikeAction()\n" +
+            "    {\n" +
+            "        $foo = new \\stdClass();\n" +
+            "        $foo->render('bike.html.twig');\n" +
+            "    }\n" +
+            "}"
+        );
+
+        Set<Function> methods = TwigUtil.getTwigFileMethodUsageOnIndex(getProject(), Arrays.asList("car.html.twig", "bike.html.twig"));
+        assertEquals(3, methods.size());
+        assertNotNull(ContainerUtil.find(methods, method -> method.getFQN().equals("\\BikeController.bikeAction")));
+    }
+
     /**
      * @see fr.adrienbrault.idea.symfony2plugin.templating.util.TwigUtil#getFoldingTemplateName
      */
@@ -955,6 +979,13 @@ public class TwigUtilTest extends SymfonyLightCodeInsightFixtureTestCase {
         assertContainsElements(blocks2, "name");
         assertContainsElements(blocks2, "foobar");
         assertDoesntContain(blocks, "foobar_2");
+
+        PsiFile psiFile4 = myFixture.configureByText("foo_4.html.twig", "{% extends 'foo.html.twig' %}");
+
+        Map<VirtualFile, Collection<String>> blockNames = TwigUtil.getBlockNamesForFiles(getProject(), Arrays.asList(psiFile.getVirtualFile(), psiFile2.getVirtualFile(), psiFile4.getVirtualFile()));
+        assertEquals(2, blockNames.size());
+        assertFalse(blockNames.containsKey(psiFile4.getVirtualFile()));
+        assertContainsElements(blockNames.get(psiFile2.getVirtualFile()), "foobar");
     }
 
     public void testGetTwigFunctionParameterIdentifierPsi() {
@@ -39,6 +39,18 @@ public class ServiceUtilTest extends SymfonyLightCodeInsightFixtureTestCase {
         assertDoesntContain(myTaggedClass, "foo_extends");
     }
 
+    /**
+     * @see fr.adrienbrault.idea.symfony2plugin.util.dict.ServiceUtil#getTaggedServices
+     * @see fr.adrienbrault.idea.symfony2plugin.util.dict.ServiceUtil#isPhpClassTaggedWith
+     */
+    public void testTaggedServicesAreResolvedByTagName() {
+        assertContainsElements(ServiceUtil.getTaggedServices(getProject(), "foo_iterator"), "iterator_service");
+        assertDoesntContain(ServiceUtil.getTaggedServices(getProject(), "foo_iterator"), "datetime_service");
+
+        assertTrue(ServiceUtil.isPhpClassTaggedWith(PhpElementsUtil.getClass(getProject(), "MyTaggedClassExtends"), "foo_extends"));
+        assertFalse(ServiceUtil.isPhpClassTaggedWith(PhpElementsUtil.getClass(getProject(), "MyTaggedClass"), "foo_extends"));
+    }
+
     /**
      * @see fr.adrienbrault.idea.symfony2plugin.util.dict.ServiceUtil#getServiceSuggestionForPhpClass
      */
@@ -0,0 +1,74 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.util.service;
+
+import com.intellij.util.io.DataInputOutputUtil;
+import fr.adrienbrault.idea.symfony2plugin.config.component.parser.ParameterServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.dic.ServiceMap;
+import fr.adrienbrault.idea.symfony2plugin.dic.XmlServiceParser;
+import fr.adrienbrault.idea.symfony2plugin.dic.XmlTagParser;
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceContainerSnapshot;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.HashSet;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.util.service.ServiceContainerSnapshot
+ */
+public class ServiceContainerSnapshotTest extends Assert {
+
+    private static final File CONTAINER = new File("src/test/java/fr/adrienbrault/idea/symfony2plugin/tests/dic/appDevDebugProjectContainer.xml");
+
+    @Test
+    public void testThatPersistedSnapshotFeedsParsersLikeTheXmlFile() throws Exception {
+        ServiceContainerSnapshot snapshot = ServiceContainerSnapshot.create(new FileInputStream(CONTAINER));
+
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        snapshot.save(new DataOutputStream(stream));
+
+        // binary snapshot only holds consumed attributes
+        assertTrue(stream.size() < CONTAINER.length());
+
+        ServiceContainerSnapshot read = ServiceContainerSnapshot.read(new DataInputStream(new ByteArrayInputStream(stream.toByteArray())), stream.size());
+
+        XmlServiceParser xmlServiceParser = new XmlServiceParser();
+        xmlServiceParser.parser(new FileInputStream(CONTAINER));
+
+        XmlServiceParser snapshotServiceParser = new XmlServiceParser();
+        snapshotServiceParser.parser(read);
+
+        ServiceMap serviceMap = snapshotServiceParser.getServiceMap();
+        assertEquals(new HashSet<>(xmlServiceParser.getServiceMap().getIds()), new HashSet<>(serviceMap.getIds()));
+        assertFalse(serviceMap.getIds().isEmpty());
+
+        XmlTagParser xmlTagParser = new XmlTagParser();
+        xmlTagParser.parser(new FileInputStream(CONTAINER));
+
+        XmlTagParser snapshotTagParser = new XmlTagParser();
+        snapshotTagParser.parser(read);
+
+        assertEquals(xmlTagParser.get(), snapshotTagParser.get());
+        assertTrue(snapshotTagParser.get().contains("twig.extension"));
+        assertTrue(snapshotTagParser.getTaggedClass("kernel.event_listener").contains("Symfony\\Bundle\\FrameworkBundle\\DataCollector\\RouterDataCollector"));
+
+        ParameterServiceParser parameterServiceParser = new ParameterServiceParser();
+        parameterServiceParser.parser(new FileInputStream(CONTAINER));
+
+        ParameterServiceParser snapshotParameterParser = new ParameterServiceParser();
+        snapshotParameterParser.parser(read);
+
+        assertEquals(parameterServiceParser.getParameterMap(), snapshotParameterParser.getParameterMap());
+    }
+
+    @Test
+    public void testThatInvalidSizesAreRejected() throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        DataInputOutputUtil.writeINT(new DataOutputStream(stream), Integer.MAX_VALUE);
+
+        try {
+            ServiceContainerSnapshot.read(new DataInputStream(new ByteArrayInputStream(stream.toByteArray())), stream.size());
+            fail();
+        } catch (IOException ignored) {
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package fr.adrienbrault.idea.symfony2plugin.tests.util.service;
+
+import fr.adrienbrault.idea.symfony2plugin.util.service.ServiceContainerXmlReader;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assert;
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFactory;
+import java.io.ByteArrayInputStream;
+import java.util.*;
+
+/**
+ * @see fr.adrienbrault.idea.symfony2plugin.util.service.ServiceContainerXmlReader
+ */
+public class ServiceContainerXmlReaderTest extends Assert {
+
+    private static final String XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+        "<container xmlns=\"http://symfony.com/schema/dic/services\">" +
+            "<parameters>" +
+                "<parameter key=\"foo\">bar</parameter>" +
+                "<parameter key=\"foo_collection\" type=\"collection\"><parameter>bar</parameter></parameter>" +
+            "</parameters>" +
+            "<services>" +
+                "<service id=\"twig\" class=\"Twig\\Environment\">" +
+                    "<call method=\"addGlobal\"><argument>app</argument></call>" +
+                    "<argument type=\"service\"><service class=\"Foo\\Inline\"><tag name=\"inline.tag\"/></service></argument>" +
+                    "<tag name=\"kernel.event_listener\" event=\"kernel.request\"/>" +
+                "</service>" +
+                "<service id=\"foo\" class=\"Foo\"/>" +
+            "</services>" +
+        "</container>";
+
+    @Test
+    public void testThatServicesTagsAndParametersAreVisitedInOnePass() throws Exception {
+        Map<String, Collection<String>> services = new HashMap<>();
+        Map<String, String> parameters = new HashMap<>();
+        List<String> tags = new ArrayList<>();
+
+        ServiceContainerXmlReader.read(new ByteArrayInputStream(XML.getBytes()), new ServiceContainerXmlReader.Visitor() {
+            @Override
+            public void visitService(@NotNull Map<String, String> attributes, @NotNull Collection<String> tags) {
+                services.put(attributes.get("class"), tags);
+            }
+
+            @Override
+            public void visitTag(@NotNull Map<String, String> serviceAttributes, @NotNull Map<String, String> tagAttributes) {
+                tags.add(serviceAttributes.get("id") + ":" + tagAttributes.get("name") + ":" + tagAttributes.get("event"));
+            }
+
+            @Override
+            public void visitParameter(@NotNull String key, @NotNull String value) {
+                parameters.put(key, value);
+            }
+        });
+
+        assertEquals(3, services.size());
+        assertTrue(services.get("Twig\\Environment").containsAll(Arrays.asList("kernel.event_listener", "inline.tag")));
+        assertTrue(services.get("Foo\\Inline").contains("inline.tag"));
+        assertTrue(services.get("Foo").isEmpty());
+
+        // inline service tags are not direct tags of a top-level service
+        assertEquals(Collections.singletonList("twig:kernel.event_listener:kernel.request"), tags);
+
+        assertEquals("bar", parameters.get("foo"));
+        assertEquals("collection", parameters.get("foo_collection"));
+        assertEquals(2, parameters.size());
+    }
+
+    @Test
+    public void testThatOnlyRequiredServicesAreBuildAsElement() throws Exception {
+        List<String> globals = new ArrayList<>();
+
+        ServiceContainerXmlReader.read(new ByteArrayInputStream(XML.getBytes()), new ServiceContainerXmlReader.Visitor() {
+            @Override
+            public boolean isServiceElementRequired(@NotNull Map<String, String> serviceAttributes) {
+                return "twig".equals(serviceAttributes.get("id"));
+            }
+
+            @Override
+            public void visitServiceElement(@NotNull Document document) {
+                try {
+                    globals.add(XPathFactory.newInstance().newXPath().evaluate("/container/services/service[@id='twig']//call[@method='addGlobal']/argument", document, XPathConstants.STRING).toString());
+
+                    // requested service and its inline service, but never siblings
+                    assertEquals(2, document.getElementsByTagName("service").getLength());
+                } catch (Exception e) {
+                    fail(e.getMessage());
+                }
+            }
+        });
+
+        assertEquals(Collections.singletonList("app"), globals);
+    }
+}